@@ -32,6 +32,10 @@ import java.io.*;
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
 /** Methods to produce classification rules using a Apriori-TFP appraoch.
 Assumes that input dataset is orgnised such that classifiers are at the end of
 each record. CARs differ from ARs in that they have only a single consequent
@@ -52,6 +56,37 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
     // OTHER FIELDS
     /** The number of CARs generated so far. */
     protected int numCarsSoFar = 0;
+    /** Flag indicating that CARs are not to be generated while the T-tree is
+    generated, set when the T-tree is regenerated (the CARs are then
+    generated from the complete T-tree). */
+    protected boolean deferCARgenerationFlag = false;
+    /** Partitioned mining used to generate the T-tree in worker processes
+    (null if the T-tree is to be generated in this process). Set using the
+    -P command line argument of the AprioriTFP_CMAR class (not initialised
+    here as set from the super class constructor) or
+    <TT>setPartitionedMining</TT>. */
+    protected PartitionedMining partitionedMining;
+    /** Flag indicating that the CAR branches of the T-tree (the branches
+    below the classifiers) were tested while the T-tree was generated (see
+    <TT>pruneCARbranches</TT>), so need not be tested during CAR
+    generation. */
+    protected boolean carBranchesTestedFlag = false;
+    /** Number of CAR branches pruned from the T-tree, a T-tree with pruned
+    branches is not stored in the item set cache. */
+    protected int numCARbranchesPruned = 0;
+    /** Flag indicating that during Ten Cross Validation (TCV) the T-tree of
+    each training set is to be obtained from a fold support tree generated
+    once for all folds (see <TT>createFoldSupportTree</TT>). Set using the -V
+    command line argument of the AprioriTFP_CMAR class (not initialised here
+    as set from the super class constructor) or
+    <TT>setFoldSubtraction</TT>. */
+    protected boolean foldSubtractionFlag;
+    /** The fold support tree during TCV with fold subtraction, null
+    otherwise. */
+    protected FoldSupportTree foldSupportTree = null;
+    /** The index of the tenth data set used as the test set during TCV, -1
+    otherwise. */
+    protected int tcvTestSetIndex = -1;
 
     // HILL CLIMBING FIELDS (ONLY USED BY SPECIFIC APPLICATIONS)
 
@@ -141,6 +176,11 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	super(armInstance);
         }
 
+    /** Default constructor. */
+
+    public AprioriTFP_CARgen() {
+	}
+
     /* ------ METHODS ------ */
 
     /*----------------------------------------------------------------------- */
@@ -212,6 +252,45 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 		// Rules (ARs) with respect ARM.
 		startRulelist = null;
 		numCarsSoFar = 0;
+		carBranchesTestedFlag = false;
+		numCARbranchesPruned  = 0;
+
+		// Obtain T-tree from the fold support tree (TCV with fold
+		// subtraction) and generate CARs from it
+		if (loadTtreeFromFoldSupportTree()) {
+		    generateCARsFromTtree();
+		    return;
+		    }
+
+		// Load T-tree from cache (if in use) and generate CARs from it
+		if (loadTtreeFromCache()) {
+		    generateCARsFromTtree();
+		    return;
+		    }
+
+		// Generate T-tree from a sample (if approximate mining is set) and
+		// generate CARs from it, only stored in the cache if verified
+		if (isApproximateMining()) {
+		    createTotalSupportTreeFromSample();
+		    if (approximateSupportError==0.0) storeTtreeInCache();
+		    generateCARsFromTtree();
+		    return;
+		    }
+
+		// Generate T-tree in worker processes (if partitioned mining is
+		// set) and generate CARs from it, otherwise continue locally
+		if (partitionedMining != null) {
+		    try {
+		        partitionedMining.createTotalSupportTree(this);
+			storeTtreeInCache();
+			generateCARsFromTtree();
+			return;
+			}
+		    catch (IOException e) {
+		        System.out.println("WARNING: Partitioned mining failed, " +
+						"mining locally: " + e);
+			}
+		    }
 
 		// Create P-tree and then generate T-tree and generate CARs (method
 		// contained in PartialSupportTree class)
@@ -223,6 +302,7 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    	createPtree(textArea);
 	    	createTotalSupportTree(textArea);
 	    	}
+		storeTtreeInCache();
         }
 
     /*----------------------------------------------------------------------- */
@@ -243,6 +323,9 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 		System.out.println("Max number of CARS  = " + MAX_NUM_CARS);
 		System.out.println("Max size antecedent = " + MAX_SIZE_OF_ANTECEDENT);
 
+		// Generate fold support tree (if fold subtraction in use)
+		createFoldSupportTree();
+
 		// Loop through tenths data sets
 		for (int index=0;index<10;index++) {
 	    	String s = "[--- " + (index+1) + " ---] ";
@@ -258,6 +341,7 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    	parameters[index][2] = calculateStorage();
 	    	parameters[index][3] = getNumRules();
 	    	}
+		releaseFoldSupportTree();
 
 		// Determine totals
 		ouputTCVparam(parameters);
@@ -281,6 +365,79 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
         outputTCVaverages(averageNumFreqSets,averageNumUpdates,averageNumCRs);
 		}
 
+    /* CREATE FOLD SUPPORT TREE */
+
+    /** Generates the fold support tree from the tenths data sets (if fold
+    subtraction is in use), from which the T-tree of each training set is
+    obtained by subtracting the supports in the test set from the total
+    supports (see <TT>loadTtreeFromFoldSupportTree</TT>). The supports are
+    thus counted in one pass of the records per level rather than one pass of
+    the training set per level for each of the ten training sets. If a memory
+    governor is in use it watches the fold support tree in place of the
+    MAX_NUM_FREQUENT_SETS limit, should the fold support tree not fit the
+    heap the training sets are mined separately. */
+
+    protected void createFoldSupportTree() {
+        foldSupportTree = null;
+	if (!foldSubtractionFlag) return;
+	foldSupportTree = new FoldSupportTree(tenthDataSets,numOneItemSets,
+			support,getMaxTtreeLevel(),memoryGovernor==null ?
+			MAX_NUM_FREQUENT_SETS : Integer.MAX_VALUE);
+	foldSupportTree.setMemoryGovernor(memoryGovernor);
+	foldSupportTree.createFoldSupportTree();
+	String s;
+	if (foldSupportTree.isGenerationStopped()) {
+	    foldSupportTree = null;
+	    s = "Fold support tree does not fit heap, training sets mined " +
+	    					"separately\n";
+	    }
+	else s = "Fold support tree generated, levels = " +
+		foldSupportTree.getNumLevelsInTtree() + ", updates = " +
+		foldSupportTree.getNumUpdates() + "\n";
+	if (textArea==null) System.out.print(s);
+	else textArea.append(s);
+	}
+
+    /* RELEASE FOLD SUPPORT TREE */
+
+    /** Releases the fold support tree once TCV is complete. */
+
+    protected void releaseFoldSupportTree() {
+        foldSupportTree = null;
+	tcvTestSetIndex = -1;
+	}
+
+    /* LOAD T-TREE FROM FOLD SUPPORT TREE */
+
+    /** Builds the T-tree of the current training set from the fold support
+    tree (if in use), leaving out the sets below the minimum support and
+    limiting the levels as if the T-tree had been generated (see
+    <TT>loadSerializedTtree</TT>).
+    @return true if built, false if no fold support tree is in use. */
+
+    protected boolean loadTtreeFromFoldSupportTree() {
+        if (foldSupportTree==null || tcvTestSetIndex<0) return(false);
+	MiningPhaseEvent phase = MiningMetrics.begin("tcv.foldTtree");
+	serializationArray = foldSupportTree.getSerialization(tcvTestSetIndex);
+	loadSerializedTtree();
+	MiningMetrics.end(phase,numFrequentSets);
+	return(true);
+	}
+
+    /* CREATE TRAINING AND TEST DATA SETS */
+
+    /** Creates the training and test sets from the tenths data sets during
+    TCV, noting the test set so that the T-tree of the training set can be
+    obtained from the fold support tree. Overides method in AprioriTFPclass
+    class.
+    @param testSetIndex the index of the tenths data set to be used as the
+    test set. */
+
+    public void createTrainingAndTestDataSets(int testSetIndex) {
+        super.createTrainingAndTestDataSets(testSetIndex);
+	tcvTestSetIndex = testSetIndex;
+	}
+
     /** Start Ten Cross Validation (TCV) process with CAR generation only,
     GUI version.
     @param tArea the given instance of the <TT>JTextArea</TT> class. */
@@ -346,17 +503,35 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
     protected void createTtreeLevelN() {
         int nextLevel=2;
 
+	// CAR branches can only be pruned if the T-tree need not be updated
+	// using the negative border
+	carBranchesTestedFlag = (carBranchPruningInUse() && negativeBorder==null);
+
 	// Loop while a further level exists
 	while (nextLevelExists) {
 	    // Add support
 	    addSupportToTtreeLevelN(nextLevel);
 	    // Prune unsupported candidate sets (method defined in
 	    // PartialSupportTree class)
+	    collectNegativeBorder(nextLevel);
 	    pruneLevelN(startTtreeRef,nextLevel);
-	    // Generate Classification Association Rules (CARs)
-	    generateCARs(nextLevel);
-	    // Check number of frequent sets generated so far
-	    if (numFrequentSets>MAX_NUM_FREQUENT_SETS) {
+	    // Prune CAR branches that cannot produce an acceptable CAR so that
+	    // they are neither expanded nor counted
+	    if (carBranchesTestedFlag) pruneCARbranches(nextLevel);
+	    recordTtreeLevel(nextLevel);
+	    // Generate Classification Association Rules (CARs), the level timing
+	    // is restarted afterwards so as not to include CAR generation
+	    if (!deferCARgenerationFlag) {
+	        MiningPhaseEvent carPhase = MiningMetrics.begin("car.generation");
+		int numCarsBefore = numCarsSoFar;
+		generateCARs(nextLevel);
+		MiningMetrics.count("car.generated",numCarsSoFar-numCarsBefore);
+		MiningMetrics.end(carPhase,numCarsSoFar-numCarsBefore);
+		markTtreeLevel();
+		}
+	    // Check number of frequent sets generated so far (unless the heap is
+	    // watched by a memory governor instead)
+	    if (memoryGovernor==null && numFrequentSets>MAX_NUM_FREQUENT_SETS) {
 	        String s ="Level = " + nextLevel + ", Number of frequent " +
 			 "sets (" + numFrequentSets + ") generted so far " +
                                "exceeds limit of " + MAX_NUM_FREQUENT_SETS +
@@ -379,7 +554,7 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    // Attempt to generate next level (method defined in
 	    // PartialSupportTree class)
 	    nextLevelExists=false;
-	    generateLevelN(startTtreeRef,nextLevel,null);
+	    generateLevelN(nextLevel);
 	    nextLevel++;
 	    }
 	}
@@ -405,7 +580,7 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	for (int index=numOneItemSets-numClasses+1;
 					index<=numOneItemSets;index++) {
 	    // Check number of CARS generated so far
-	    if (numCarsSoFar>MAX_NUM_CARS) {
+	    if (carLimitExceeded()) {
 	        String s = "Number of CARs (" + numCarsSoFar + ") generted " +
 		                   "so far exceeds limit of " + MAX_NUM_CARS +
 				             ", generation process stopped!\n";
@@ -413,6 +588,17 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
                 else textArea.append(s);
 	        return;
 	        }
+	    // Check heap (if watched by a memory governor)
+	    if (memoryGovernor!=null && memoryGovernor.isLowMemory()) {
+	        String s = "Heap low generating CARs (" + numCarsSoFar +
+			") at level " + level + ", generation process " +
+			"stopped!\n" + memoryGovernor.report() + "\n";
+                if (textArea==null) System.out.println(s);
+                else textArea.append(s);
+		MiningMetrics.count("memory.stopped",1);
+		memoryLimitedFlag = true;
+	        return;
+	        }
 	    // Else process
 	    if (startTtreeRef[index]!=null &&
 	    				startTtreeRef[index].childRef!=null) {
@@ -498,6 +684,14 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    // Check if node exists
 	    if (linkRef[index] != null && linkRef[index].childRef!=null) {
 	        short[] tempItemSet = realloc2(itemSetSofar,(short) index);
+		// Skip child branch if no CAR in it can be accepted (unless
+		// tested when the T-tree was generated)
+		if (!carBranchesTestedFlag && carBranchPruningInUse() &&
+			canPruneCARbranch(tempItemSet,consequent,
+						linkRef[index].support)) {
+		    MiningMetrics.count("car.branchesSkipped",1);
+		    continue;
+		    }
 		// Proceed down child branch
 		generateCARs(tempItemSet,index,level-1,consequent,
 		    				      linkRef[index].childRef);
@@ -505,6 +699,285 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    }
 	}
 
+    /* PRUNE CAR BRANCHES */
+
+    /** Prunes the nodes at the given level of the T-tree below the
+    classifiers (the CAR branches) from which no acceptable CAR can be
+    generated, neither the CAR the node represents nor any CAR represented by
+    a node that would be generated below it or from it (see
+    <TT>canPruneCARbranch</TT>). Pruned nodes are removed as unsupported nodes
+    are, so they are neither expanded nor X-checked. The CARs of a pruned node
+    being unacceptable, the CARs generated are unchanged.
+    @param level the current level in the T-tree. */
+
+    protected void pruneCARbranches(int level) {
+        int numPrunedBefore = numCARbranchesPruned;
+
+	// Loop through classifiers
+	for (int index=numOneItemSets-numClasses+1;
+					index<=numOneItemSets;index++) {
+	    if (startTtreeRef[index]!=null &&
+	    				startTtreeRef[index].childRef!=null) {
+		short[] consequent = new short[1];
+		consequent[0] = (short) index;
+		if (pruneCARbranches(null,consequent,level-1,
+				startTtreeRef[index].childRef))
+				startTtreeRef[index].childRef = null;
+		}
+	    }
+
+	MiningMetrics.count("car.chiSquaredPruned",
+				numCARbranchesPruned-numPrunedBefore);
+	}
+
+    /** Continues process of pruning CAR branches by recursively looping
+    through the given branch of the T-tree.
+    @param itemSetSofar the label for a T-treenode as generated sofar
+    (without the consequent).
+    @param consequent the current consequent (classifier) for the CARs.
+    @param level the level marker, 1 at the level to be pruned.
+    @param linkRef the reference to the current array lavel in the T-tree.
+    @return true if all nodes at the level in the given branch have been
+    pruned, false otherwise. */
+
+    private boolean pruneCARbranches(short[] itemSetSofar, short[] consequent,
+    					int level, TtreeNode[] linkRef) {
+        int size = linkRef.length;
+
+	// At right level
+	if (level == 1) {
+	    boolean allPruned = true;
+	    for (int index=1;index<size;index++) {
+	        if (linkRef[index] != null) {
+		    short[] tempItemSet = realloc2(itemSetSofar,(short) index);
+		    if (canPruneCARbranch(tempItemSet,consequent,
+		    				linkRef[index].support)) {
+		        linkRef[index] = null;
+			numFrequentSets--;
+			numCARbranchesPruned++;
+			}
+		    else allPruned = false;
+		    }
+		}
+	    return(allPruned);
+	    }
+
+	// Wrong level, step through row
+	for (int index=level;index<size;index++) {
+	    if (linkRef[index]!=null && linkRef[index].childRef!=null) {
+	        short[] tempItemSet = realloc2(itemSetSofar,(short) index);
+		if (pruneCARbranches(tempItemSet,consequent,level-1,
+					linkRef[index].childRef))
+				linkRef[index].childRef = null;
+		}
+	    }
+	return(false);
+	}
+
+    /* CAR BRANCH PRUNING IN USE */
+
+    /** Tests whether CAR branches are to be pruned (see
+    <TT>canPruneCARbranch</TT>), never the case for this class.
+    @return true if CAR branches are to be pruned, false otherwise. */
+
+    protected boolean carBranchPruningInUse() {
+        return(false);
+	}
+
+    /* CAN PRUNE CAR BRANCH */
+
+    /** Tests whether a CAR, and every CAR with the same consequent and an
+    antecedent containing its antecedent, cannot be accepted by the
+    classifier, so the T-tree branch representing them can be pruned. Never
+    the case for this class, overridden by classifiers that reject CARs
+    according to an anti-monotone bound.
+    @param antecedent the antecedent of the CAR.
+    @param consequent the consequent (classifier) of the CAR.
+    @param supportForRule the support for the CAR.
+    @return true if the CAR branch can be pruned, false otherwise. */
+
+    protected boolean canPruneCARbranch(short[] antecedent, short[] consequent,
+    					double supportForRule) {
+        return(false);
+	}
+
+    /* CAR LIMIT EXCEEDED */
+
+    /** Tests whether the number of CARs generated so far exceeds the
+    MAX_NUM_CARS limit, in which case CAR generation is stopped.
+    @return true if the limit is exceeded, false otherwise. */
+
+    protected boolean carLimitExceeded() {
+        return(numCarsSoFar>MAX_NUM_CARS);
+	}
+
+    /*----------------------------------------------------------------------- */
+    /*                                                                        */
+    /*                            INCREMENTAL UPDATE                          */
+    /*                                                                        */
+    /*----------------------------------------------------------------------- */
+
+    /* UPDATE CLASSIFIER */
+
+    /** Updates the classifier with a batch of new training records without
+    re-processing the existing training records: the T-tree is updated using
+    the negative border (see <TT>updateTotalSupportTree</TT> in the
+    TotalSupportTree class) after which the CARs are regenerated from the
+    T-tree. For the T-tree to be updated incrementally the negative border must
+    have been kept when the classifier was generated (see
+    <TT>setKeepNegativeBorderFlag</TT>), otherwise the T-tree is regenerated.
+    @param newRecords the new records, attributes numbered as in the input
+    data (classifier last). */
+
+    public void updateClassifier(short[][] newRecords) {
+        updateClassifier(newRecords,0);
+	}
+
+    /** Updates the classifier with a batch of new training records and removes
+    a number of the oldest training records, as when a window slides over a
+    stream of records.
+    @param newRecords the new records, attributes numbered as in the input
+    data (classifier last).
+    @param numExpiredRecords the number of oldest training records to
+    remove. */
+
+    public void updateClassifier(short[][] newRecords, int numExpiredRecords) {
+        short[][] recast = new short[newRecords.length][];
+	for (int index=0;index<newRecords.length;index++)
+				recast[index] = recastRecord(newRecords[index]);
+
+	// Update T-tree and regenerate CARs
+	updateTotalSupportTree(recast,numExpiredRecords);
+	regenerateCARs();
+	}
+
+    /* RECAST RECORD */
+
+    /** Recasts a record with attributes numbered as in the input data using
+    the conversion array (if the input data has been reordered) so that it can
+    be compared with the T-tree and the rules.
+    @param record the record.
+    @return the recast record in numeric order, or null if no attribute is
+    known. */
+
+    protected short[] recastRecord(short[] record) {
+        short[] itemSet = null;
+
+	for (int index=0;index<record.length;index++) {
+	    int attribute = record[index];
+	    if (conversionArray==null) itemSet = reallocInsert(itemSet,
+	    						(short) attribute);
+	    else if (attribute>0 && attribute<conversionArray.length)
+	        itemSet = reallocInsert(itemSet,
+				     (short) conversionArray[attribute][0]);
+	    }
+
+	// Return
+	return(itemSet);
+	}
+
+    /* REGENERATE CARS */
+
+    /** Regenerates the CARs from the (updated) T-tree. */
+
+    protected void regenerateCARs() {
+        startRulelist = null;
+	numCarsSoFar  = 0;
+	generateCARsFromTtree();
+	}
+
+    /* GENERATE CARS FROM T-TREE */
+
+    /** Generates the CARs from a complete T-tree (updated or loaded from the
+    cache), level by level in the same order as when the T-tree is
+    generated. */
+
+    protected void generateCARsFromTtree() {
+        calcNumLevelsInTtree();
+	MiningPhaseEvent carPhase = MiningMetrics.begin("car.generation");
+	for (int level=2;level<=numLevelsInTtree;level++) generateCARs(level);
+	MiningMetrics.count("car.generated",numCarsSoFar);
+	MiningMetrics.end(carPhase,numCarsSoFar);
+	}
+
+    /* SUPPORT THRESHOLD RAISED */
+
+    /** Removes the CARs generated from the levels mined so far whose support
+    is below the support threshold raised by the memory governor, so that
+    all CARs have the same minimum support. The remaining CARs are reinserted
+    into a new rule list in the order of the old bin tree (preserving its
+    shape). Overides method in TotalSupportTree class. */
+
+    protected void supportThresholdRaised() {
+        if (startRulelist==null) return;
+	RuleNode oldRulelist = startRulelist;
+	startRulelist = null;
+	int numRemoved = copySupportedRules(oldRulelist);
+	numCarsSoFar = numCarsSoFar-numRemoved;
+	if (numRemoved==0) return;
+	String s = numRemoved + " CARs below the raised support threshold " +
+								"removed\n";
+	if (textArea==null) System.out.print(s);
+	else textArea.append(s);
+	}
+
+    /** Copies the rules in a rule bin tree with at least the minimum support
+    into the rule list, node before branches.
+    @param node the current node.
+    @return the number of rules left out. */
+
+    private int copySupportedRules(RuleNode node) {
+        if (node==null) return(0);
+	int numRemoved = 0;
+	if (node.supportForRule >= minSupport) insertRuleIntoRulelist(
+		node.antecedent,node.consequent,node.confidenceForRule,
+						node.supportForRule);
+	else numRemoved++;
+	numRemoved = numRemoved+copySupportedRules(node.leftBranch);
+	return(numRemoved+copySupportedRules(node.rightBranch));
+	}
+
+    /* REGENERATE TOTAL SUPPORT TREE */
+
+    /** Regenerates the T-tree from the complete data set without generating
+    CARs, which are generated from the complete T-tree by the caller.
+    Overides method in PartialSupportTree class. */
+
+    protected void regenerateTotalSupportTree() {
+        deferCARgenerationFlag = true;
+	try {
+	    super.regenerateTotalSupportTree();
+	    }
+	finally {
+	    deferCARgenerationFlag = false;
+	    }
+	}
+
+    /* ADD ROWS TO DATA SET */
+
+    /** Increments the number of rows in the training set by the number of new
+    records (less the number of expired records) and recalculates the minimum
+    support accordingly. Overides method in TotalSupportTree class.
+    @param numNewRows the number of new records, negative if more records
+    have expired. */
+
+    protected void addRowsToDataSet(int numNewRows) {
+        numRows              = numRows+numNewRows;
+	numRowsInTrainingSet = numRowsInTrainingSet+numNewRows;
+	minSupport           = numRowsInTrainingSet*support/100.0;
+	}
+
+    /* GET MAXIMUM T-TREE LEVEL */
+
+    /** Returns the maximum number of levels that may be generated in the
+    T-tree, one more than the maximum size of the CAR antecedent. Overides
+    method in TotalSupportTree class.
+    @return the maximum level number. */
+
+    protected int getMaxTtreeLevel() {
+        return(MAX_SIZE_OF_ANTECEDENT+1);
+	}
+
     /* ========================================================== */
     /*                                                            */
     /*                       HILL CLIMBING METHODS                */
@@ -1202,6 +1675,45 @@ public class AprioriTFP_CARgen extends AprioriTFPclass {
 	    }
 	}
 	
+    /* STORE T-TREE IN CACHE */
+
+    /** Stores the T-tree in the cache (if in use), unless CAR branches were
+    pruned from it, the cache only holding complete T-trees. Overides method
+    in TotalSupportTree class. */
+
+    public void storeTtreeInCache() {
+        if (numCARbranchesPruned>0) return;
+	super.storeTtreeInCache();
+	}
+
+    /* -------------------------------------------------- */
+    /*                                                    */
+    /*                   SET METHODS                      */
+    /*                                                    */
+    /* -------------------------------------------------- */
+
+    /* SET PARTITIONED MINING */
+
+    /** Sets partitioned mining, the T-tree is then generated in worker
+    processes (see the PartitionedMining class).
+    @param mining the partitioned mining settings (null to generate the
+    T-tree in this process). */
+
+    public void setPartitionedMining(PartitionedMining mining) {
+        partitionedMining = mining;
+	}
+
+    /* SET FOLD SUBTRACTION */
+
+    /** Sets whether during Ten Cross Validation (TCV) the T-tree of each
+    training set is to be obtained from a fold support tree generated once
+    for all folds (see <TT>createFoldSupportTree</TT>).
+    @param value true if fold subtraction is to be used, false otherwise. */
+
+    public void setFoldSubtraction(boolean value) {
+        foldSubtractionFlag = value;
+	}
+
     /* -------------------------------------------------- */
     /*                                                    */
     /*                   GET METHODS                      */
@@ -31,10 +31,19 @@ AssocRuleMining
 
 import java.util.*;			      
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.ClassifyRecordEvent;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+import util.X2;
+
 /** Methods to produce classification rules using Wenmin Li, Jiawei Han and 
 Jian Pei's CMAR (Classification based on Multiple associate Rules) algorithm 
 but founded on Apriori-TFP. Assumes that input dataset is orgnised such that 
@@ -50,6 +59,10 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     // --- Constants ---
     /** Minimum times a record mist be covered */
     protected static int MIN_COVER=3; 	// At least 3 rules
+    /** Model file identifier ("CMAR"). */
+    public static final int MODEL_MAGIC = 0x434D4152;
+    /** Model file format version. */
+    public static final int MODEL_VERSION = 1;
     
     // --- Chi-Squared Testing Constants ---    
     /** Critical threshold for 10% "significance" level (assuming "degree of
@@ -89,6 +102,9 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 		/** The support value associate with the consequent of the rule 
 		represented by this node. */
 		double suppConsequent=0.0;
+		/** The antecedent as a bitset (see <TT>getAntecedentBitset</TT>),
+		null until required. */
+		long[] antecedentBitset = null;
 		/** Link to next node */
 		RuleNodeCMAR next = null;
 	
@@ -114,7 +130,25 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     /** The reference to start of the CMAR rule list. */
     protected RuleNodeCMAR startCMARrulelist = null;
     
+    // --- Top-k Rule Generation ---
+    /** The number of rules (k) to be kept during CAR generation, the k best
+    according to the CMAR ranking, 0 if all rules are kept. Set using the -K
+    command line argument (not initialised here as set from the super class
+    constructor) or <TT>setTopK</TT>. */
+    protected int topK;
+    /** Number of rules in the CMAR rule list during top-k CAR generation. */
+    protected int numRulesInCMARlist = 0;
+    
+    // --- Chi-Squared Pruning ---
+    /** Flag indicating that CAR branches which cannot produce a CAR passing
+    the Chi-Squared test are to be pruned during CAR generation. Set using the
+    -B command line argument (not initialised here as set from the super 
+    class constructor) or <TT>setChiSquaredPruning</TT>. */
+    protected boolean chiSquaredPruningFlag;
+    
     // --- Chi-Squared Testing Varibales ---
+    /** The Chi-Squared metric kernel. */
+    private final X2 chiSquared = new X2();
     /** 1-D array for observed values for Chi-Squared Testing. */
     private double[] obsValues = new double[4];
     /** 1-D array for expected values for Chi-Squared Testing. */
@@ -151,9 +185,53 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     public AprioriTFP_CMAR(AssocRuleMining armInstance) {
 	super(armInstance);
         }
+
+    /** Default constructor, used when loading a saved model. */
+
+    public AprioriTFP_CMAR() {
+	}
 	
     /* ------ METHODS ------ */
 
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                        COMMAND LINE ARGUMENTS                    */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* IDENTIFY ARGUMENT */
+
+    /** Identifies nature of individual command line agruments: -K = number 
+    of rules to keep (top-k CAR generation), -B = Chi-Squared pruning of 
+    CAR branches, -V = fold subtraction during TCV, -P = number of 
+    partitions (worker processes) for partitioned mining, -R = records and 
+    rule antecedents compared as bitsets, -A = support error (%) for mining 
+    from a sample with supports scaled to the data set, -E = support error 
+    (%) for mining from a sample with supports verified against the data 
+    set, others as for AprioriTFPclass. 
+    <P>(Overides higher level method.)
+    @param argument the given argument. */
+
+    protected void idArgument(String argument) {
+	if (argument.length()>2 && argument.startsWith("-K"))
+			topK = Integer.parseInt(argument.substring(2));
+	else if (argument.equals("-B")) chiSquaredPruningFlag = true;
+	else if (argument.equals("-V")) foldSubtractionFlag = true;
+	else if (argument.equals("-R")) bitsetRecordsFlag = true;
+	else if (argument.length()>2 && argument.startsWith("-A"))
+			setApproximateMining(Double.parseDouble(
+				argument.substring(2))/100.0,
+				DEFAULT_APPROXIMATE_DELTA,false);
+	else if (argument.length()>2 && argument.startsWith("-E"))
+			setApproximateMining(Double.parseDouble(
+				argument.substring(2))/100.0,
+				DEFAULT_APPROXIMATE_DELTA,true);
+	else if (argument.length()>2 && argument.startsWith("-P"))
+			partitionedMining = new PartitionedMining(
+				Integer.parseInt(argument.substring(2)));
+	else super.idArgument(argument);
+	}
+
     /*----------------------------------------------------------------------- */
     /*                                                                        */
     /*                       START CMAR CLASSIFICATION                        */
@@ -174,6 +252,14 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	                              "\nCrit. threshold val. = " + threshold + 
 	                           "\nMax number of CARS   = " + MAX_NUM_CARS +
 	           "\nMax size antecedent  = " + MAX_SIZE_OF_ANTECEDENT + "\n";
+		if (topK>0) s = s + "Top-k rules          = " + topK + "\n";
+		if (chiSquaredPruningFlag) s = s + "Chi-squared pruning  = on\n";
+		if (bitsetRecordsFlag) s = s + "Bitset records       = on\n";
+		if (isApproximateMining()) s = s + "Sample support error = " +
+				twoDecPlaces(approximateEpsilon*100.0) + "%" +
+				(approximateVerifyFlag? " (verified)\n" : "\n");
+		if (partitionedMining!=null) s = s + "Partitions           = " +
+				partitionedMining.getNumPartitions() + "\n";
 		if (textArea==null) System.out.println(s);
         else textArea.append(s);
 
@@ -195,11 +281,17 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 
     protected void startClassification2() {
         // Set global rule list reference to null
-        startCMARrulelist = null;
+        startCMARrulelist  = null;
+        numRulesInCMARlist = 0;
 
         // Generate all CARs using Apriori-TFP and place selected CARs into
         // linked list of rules.
+        double userConfidence = confidence;
         startCARgeneration2();
+        
+        // Reset thresholds raised during top-k CAR generation
+        confidence = userConfidence;
+        minSupport = numRowsInTrainingSet*support/100.0;
 
         // Prune linked list of rules using "cover" principal
         pruneUsingCover(copyItemSet(dataArray));
@@ -232,6 +324,9 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 		if (textArea==null) System.out.println(s);
         else textArea.append(s);
 
+		// Generate fold support tree (if fold subtraction in use)
+		createFoldSupportTree();
+
 		// Loop through tenths data sets
 		for (int index=0;index<10;index++) {
 	    	s = "[--- " + (index+1) + " ---] ";
@@ -247,6 +342,7 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	    	parameters[index][3] = numUpdates;
 	    	parameters[index][4] = getNumCMAR_CRs();
 	    	}
+		releaseFoldSupportTree();
 
 		// Output
 		tcvOutput(parameters);
@@ -308,6 +404,55 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	    	}
 		}
 
+    /* REGENERATE CARS */
+
+    /** Regenerates the CMAR rule list from the (updated) T-tree: the CARs are
+    regenerated and ranked, and then pruned using the cover principle over the
+    complete training set. Overides method in AprioriTFP_CARgen class. */
+
+    protected void regenerateCARs() {
+        startCMARrulelist  = null;
+	numRulesInCMARlist = 0;
+	double userConfidence = confidence;
+	super.regenerateCARs();
+
+	// Reset thresholds raised during top-k CAR generation
+	confidence = userConfidence;
+	minSupport = numRowsInTrainingSet*support/100.0;
+
+	// Prune linked list of rules using "cover" principal
+	pruneUsingCover(copyItemSet(dataArray));
+	}
+
+    /* SUPPORT THRESHOLD RAISED */
+
+    /** Removes the rules generated from the levels mined so far whose support
+    is below the support threshold raised by the memory governor. Overides
+    method in AprioriTFP_CARgen class. */
+
+    protected void supportThresholdRaised() {
+        super.supportThresholdRaised();
+	int numRemoved = 0;
+	while (startCMARrulelist!=null &&
+			startCMARrulelist.supportForRule<minSupport) {
+	    startCMARrulelist = startCMARrulelist.next;
+	    numRemoved++;
+	    }
+	RuleNodeCMAR markerNode = startCMARrulelist;
+	while (markerNode!=null && markerNode.next!=null) {
+	    if (markerNode.next.supportForRule<minSupport) {
+	        markerNode.next = markerNode.next.next;
+		numRemoved++;
+		}
+	    else markerNode = markerNode.next;
+	    }
+	if (topK>0) numRulesInCMARlist = numRulesInCMARlist-numRemoved;
+	String s = numRemoved + " CMAR rules below the raised support " +
+						"threshold removed\n";
+	if (textArea==null) System.out.print(s);
+	else textArea.append(s);
+	}
+
     /* ---------------------------------------------------------------- */
     /*                                                                  */
     /*        RULE LINKED LIST ORDERED ACCORDING TO CMAR RANKING        */
@@ -337,23 +482,53 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 					 double supportForConsequent, double supportForRule, 
 			                                 double confidenceForRule) {
 	
-        // Test rule using Chi-Squared testing
-        if (!testRuleUsingChiSquaredTesting(supportForAntecedent,
-		        supportForConsequent,supportForRule,numRows)) return;
-	
 		// Create new node
 		RuleNodeCMAR newNode = new RuleNodeCMAR(antecedent,consequent,
 				       supportForRule,supportForAntecedent,
 				       supportForConsequent,confidenceForRule);
+		
+		// Top-k generation with k rules so far, the new rule must be ranked
+		// higher than the last (lowest ranked) rule
+		if (topK>0 && numRulesInCMARlist>=topK &&
+			!ruleIsCMARgreater(newNode,getLastCMARrule())) {
+		    MiningMetrics.count("car.topKrejected",1);
+		    return;
+		    }
+	
+        // Test rule using Chi-Squared testing
+        if (!testRuleUsingChiSquaredTesting(supportForAntecedent,
+		        supportForConsequent,supportForRule,numRows)) {
+	    MiningMetrics.count("car.chiSquaredRejected",1);
+	    return;
+	    }
 	  
+		// Check if more general rule with higher ranking exists. 
+		if (moreGeneralRuleExists(newNode)) return;
+		
+		// Add new node
+		insertRuleNodeCMARranking(newNode);
+		
+		// Top-k generation
+		if (topK>0) {
+		    numRulesInCMARlist++;
+		    if (numRulesInCMARlist>topK) removeLastCMARrule();
+		    if (numRulesInCMARlist==topK) raiseTopKthresholds();
+		    }
+		}
+	
+    /* INSERT RULE NODE INTO RULE LINKED LIST (ORDERED ACCORDING CMAR
+    RANKING). */
+    
+    /** Inserts a rule node into the linked list of rules pointed at by 
+    <TT>startCMARrulelist</TT> according to CMAR ranking.
+    @param newNode the rule node. */
+    
+    private void insertRuleNodeCMARranking(RuleNodeCMAR newNode) {
 		// Empty rule list situation
 		if (startCMARrulelist == null) {
 	    	startCMARrulelist = newNode;
 	    	return;
 	    	}
-	
-		// Check if more general rule with higher ranking exists. 
-		if (moreGeneralRuleExists(newNode)) return;
 		
 		// Add new node to start	
 		if (ruleIsCMARgreater(newNode,startCMARrulelist)) {
@@ -379,6 +554,103 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 		markerNode.next = newNode;
 		}
 	
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                      TOP-K RULE GENERATION                       */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+    
+    /* In top-k mode only the k best rules (according to the CMAR ranking) 
+    generated so far are kept in the rule list, which is thus bounded, the 
+    last rule is the lowest ranked. Once k rules have been found, a rule is 
+    only of interest if it has at least the confidence of the last rule, so 
+    the confidence threshold is raised to this confidence. If this confidence 
+    is 100% a rule must also have at least the support of the last rule, so 
+    the support threshold is also raised and the remaining levels of the 
+    T-tree are pruned using it. Both thresholds are reset once CAR generation 
+    is complete (cover pruning and classification are unaffected). */
+    
+    /* SET TOP K */
+    
+    /** Sets the number of rules (k) to be kept during CAR generation.
+    @param k the number of rules, 0 if all rules are to be kept. */
+    
+    public void setTopK(int k) {
+        topK = k;
+	}
+	
+    /* SET CHI SQUARED PRUNING */
+    
+    /** Sets whether CAR branches which cannot produce a CAR passing the 
+    Chi-Squared test are to be pruned during CAR generation.
+    @param pruning true if CAR branches are to be pruned, false otherwise. */
+    
+    public void setChiSquaredPruning(boolean pruning) {
+        chiSquaredPruningFlag = pruning;
+	}
+	
+    /* GET LAST CMAR RULE */
+    
+    /** Gets the last (lowest ranked) rule in the CMAR rule list.
+    @return the last rule, null if the list is empty. */
+    
+    private RuleNodeCMAR getLastCMARrule() {
+        RuleNodeCMAR linkRef = startCMARrulelist;
+	if (linkRef==null) return(null);
+	
+	// Loop through list
+	while (linkRef.next!=null) linkRef = linkRef.next;
+	
+	// Return
+	return(linkRef);
+	}
+	
+    /* REMOVE LAST CMAR RULE */
+    
+    /** Removes the last (lowest ranked) rule from the CMAR rule list. */
+    
+    private void removeLastCMARrule() {
+        if (startCMARrulelist.next==null) startCMARrulelist = null;
+	else {
+	    RuleNodeCMAR markerNode = startCMARrulelist;
+	    while (markerNode.next.next!=null) markerNode = markerNode.next;
+	    markerNode.next = null;
+	    }
+	numRulesInCMARlist--;
+	}
+	
+    /* RAISE TOP K THRESHOLDS */
+    
+    /** Raises the confidence threshold (and the support threshold if the 
+    confidence is 100%) to that of the last (lowest ranked) of the k rules. */
+    
+    private void raiseTopKthresholds() {
+        RuleNodeCMAR lastRule = getLastCMARrule();
+	
+	// Confidence
+	if (lastRule.confidenceForRule>confidence) 
+				confidence = lastRule.confidenceForRule;
+	
+	// Support
+	if (lastRule.confidenceForRule>=100.0 && 
+				lastRule.supportForRule>minSupport) {
+	    minSupport = lastRule.supportForRule;
+	    MiningMetrics.count("car.topKsupportRaised",1);
+	    }
+	}
+	
+    /* CAR LIMIT EXCEEDED */
+    
+    /** Tests whether the number of CARs generated so far exceeds the
+    MAX_NUM_CARS limit, never the case in top-k mode where the rule list is
+    bounded. Overides method in AprioriTFP_CARgen class.
+    @return true if the limit is exceeded, false otherwise. */
+    
+    protected boolean carLimitExceeded() {
+        if (topK>0) return(false);
+	return(super.carLimitExceeded());
+	}
+	
     /* MORE GENERAL EXISTS */
     
     /** Tests whether a more general rule, with higher ranking, already exists 
@@ -492,6 +764,41 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     /*                                              */
     /* -------------------------------------------- */
 	    
+    /* CAR BRANCH PRUNING IN USE */
+    
+    /** Tests whether CAR branches are to be pruned using the Chi-Squared
+    upper bound. Overides method in AprioriTFP_CARgen class.
+    @return true if Chi-Squared pruning is on, false otherwise. */
+    
+    protected boolean carBranchPruningInUse() {
+        return(chiSquaredPruningFlag);
+	}
+	
+    /* CAN PRUNE CAR BRANCH */
+    
+    /** Tests whether no CAR with the given consequent and an antecedent
+    containing the given antecedent can pass the Chi-Squared test. The 
+    Chi-Squared value of such a CAR is at most the upper bound over the 
+    supports it can have (at least the minimum support, at most the support 
+    for the given CAR) given by <TT>util.X2.supersetUpperBound</TT>. 
+    Overides method in AprioriTFP_CARgen class.
+    @param antecedent the antecedent of the CAR.
+    @param consequent the consequent (classifier) of the CAR.
+    @param supportForRule the support for the CAR.
+    @return true if the upper bound is not above the critical threshold, 
+    false otherwise. */
+    
+    protected boolean canPruneCARbranch(short[] antecedent, short[] consequent,
+    					double supportForRule) {
+        double supA = (double) getSupportForItemSetInTtree(antecedent);
+	double supC = (double) startTtreeRef[consequent[0]].support;
+	
+	// Test upper bound (not pruned if undefined)
+	double upperBound = chiSquared.supersetUpperBound(supportForRule,supA,
+						supC,numRows,minSupport);
+	return(upperBound<=threshold);
+	}
+	
     /* TEST RULE USING CHI SQUARED TESTING */
     
     /** Tests a classification rule with the given parameters to determine 
@@ -515,7 +822,9 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	
     /* GET CHI-SQUARED VALUE */
         
-    /** Calculates and returns the Chi-Squared value for a rule. 
+    /** Calculates and returns the Chi-Squared value for a rule using the 
+    <TT>util.X2</TT> metric kernel. The values are retained for 
+    diagnostic output.
     @param supA the support value for the antecedent of the rule. 
     @param supC the support value for the consequent of the rule. 
     @param supAC the support for the rule. 
@@ -530,12 +839,8 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     	supRule       = supAC;	
     	numRecords    = numR;
     	
-	// Calculate observed and expected values
-	calculateObsValues();
-	calculateExpValues();
-	
 	// Calculate and return Chi squared value
-	return(calcChiSquaredValue());
+	return(chiSquared.eval(supAC,supA,supC,numR));
 	}
 				
     /* CALCULATE OBSERVED VALUES */
@@ -566,7 +871,9 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	
     /* CALCULATE CHI SQUARED VALUE */
     
-    /** Calculates the Chi squared values and returns their sum.
+    /** Calculates the Chi squared values and returns their sum (used for 
+    diagnostic purposes only, <TT>getChiSquaredValue</TT> uses the 
+    <TT>util.X2</TT> metric kernel).
     @return the sum of the Chi Squared values. */ 
     
     private double calcChiSquaredValue() {
@@ -595,9 +902,16 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     @param trainingSet the input data set.	*/
     
     protected void pruneUsingCover(short[][] trainingSet) {
+        MiningPhaseEvent phase = MiningMetrics.begin("cover.pruning");
+	int numRulesIn = getNumCMAR_CRs();
+
         // Initialise cover array
 	int[] cover = new int[trainingSet.length];
 	
+	// Training set as bitsets (if in use)
+	long[][] trainingBitsets = null;
+	if (useBitsets()) trainingBitsets = toBitsets(trainingSet);
+	
 	// Define rule list references
 	RuleNodeCMAR newStartRef = null;
 	RuleNodeCMAR markerRef   = null;
@@ -615,7 +929,12 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	   	// If record satisfies a rule increment cover element for 
 		// record and set cover flag to true to indicate that rule
 		// is required by at least one record
-		if (isSubset(linkRef.antecedent,trainingSet[index])) {
+		boolean satisfied;
+		if (trainingBitsets==null) satisfied = 
+				isSubset(linkRef.antecedent,trainingSet[index]);
+		else satisfied = isSubset(getAntecedentBitset(linkRef),
+						trainingBitsets[index]);
+		if (satisfied) {
 		   cover[index]++;
 		   coverFlag=true; 
 		   }
@@ -632,12 +951,20 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	    else linkRef=linkRef.next;
 	    // Remove records from training set if adequately covered
 	    for (int index=0;index<cover.length;index++) {
-	        if (cover[index]>MIN_COVER) trainingSet[index]=null;
+	        if (cover[index]>MIN_COVER) {
+		    trainingSet[index]=null;
+		    if (trainingBitsets!=null) trainingBitsets[index]=null;
+		    }
 	        }
 	    }
 	
 	// Set rule list 
 	startCMARrulelist = newStartRef;
+
+	// Metrics
+	MiningMetrics.count("cover.rulesIn",numRulesIn);
+	MiningMetrics.count("cover.pruned",numRulesIn-getNumCMAR_CRs());
+	MiningMetrics.end(phase,numRulesIn);
 	}
     
     /* EMPTY DATA SET */
@@ -704,7 +1031,10 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
             // Note: classifyRecord methods are contained in the 
             // AssocRuleMining class. To calssify without default use 
             // classifyRecord, with defualt use classifyRecordDefault.
+            ClassifyRecordEvent recordEvent =
+	    				MiningMetrics.beginRecord("CMAR");
             short classResult = classifyRecordWCS(testDataArray[index]);
+            MiningMetrics.endRecord(recordEvent,classResult);
             if (classResult==0) unclassifiedCounter++;
 	    	else {
 	        	// Get actual class and add to signal table
@@ -894,15 +1224,10 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	    RuleNodeCMAR linkRuleNode = ruleGroups[index];
 	    double wcsValue = 0.0;
 	    while (linkRuleNode != null) {
-		double chiSquaredValue = 
-				 getChiSquaredValue(linkRuleNode.suppAntecedent,
-					linkRuleNode.suppConsequent,
-					linkRuleNode.supportForRule,numRecords);
-		double chiSquaredUB = 
-			   calcChiSquaredUpperBound(linkRuleNode.suppAntecedent,
-						   linkRuleNode.suppConsequent);
-		wcsValue = 
-		      wcsValue + (chiSquaredValue*chiSquaredValue)/chiSquaredUB;
+		wcsValue = wcsValue + 
+		      chiSquared.weighted(linkRuleNode.supportForRule,
+				linkRuleNode.suppAntecedent,
+				linkRuleNode.suppConsequent,numRecords);
 	
 		linkRuleNode = linkRuleNode.next;
 		}
@@ -936,47 +1261,6 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	return((short) (numOneItemSets-bestIndex));
 	}
 	
-    /* CALCULATE CHI SQUARED VALUE UPPER BOUND */
-    
-    /** Claculates the upper bound for the Chi-Squared value of a rule. 
-    @param suppAnte the support for the antecedent of a rule.
-    @param suppCons the support for the consequent of a rule.
-    @return the Chi-Squared upper bound. */
-    
-    private double calcChiSquaredUpperBound(double suppAnte, double suppCons) {
-        double term;
-	
-	// Test support for antecedent and confidence and choose minimum
-	if (suppAnte<suppCons) term = 
-		      Math.pow(suppAnte-((suppAnte*suppCons)/numRecords),2.0);
-		     
-	else term = Math.pow(suppCons-((suppAnte*suppCons)/numRecords),2.0);
-		      
-	// Determine e
-	double eVlaue = calcWCSeValue(suppAnte,suppCons);
-	
-	// Rerturn upper bound
-	return(term*eVlaue*numRecords);
-	}
-	
-    /* CALCULATE WCS e VALUE. */
-    
-    /** Calculates and returns the e value for calculating Weighted Chi-Squared
-    (WCS) values.
-    @param suppAnte the support for the antecedent of a rule.
-    @param suppCons the support for the consequent of a rule.
-    @return the ECS e value. */
-    
-    private double calcWCSeValue(double suppAnte, double suppCons) {
-        double term1 = 1/(suppAnte*suppCons);
-	double term2 = 1/(suppAnte*(numRecords-suppCons));
-        double term3 = 1/(suppCons*(numRecords-suppAnte));
-	double term4 = 1/((numRecords-suppAnte)*(numRecords-suppCons));
-	
-	// Return sum
-	return(term1+term2+term3+term4); 
-	}
-	    
     /* ------------------------------------------------------------- */
     /*                                                               */
     /*                  CLASSIFIER  UTILITY METHODS                  */
@@ -993,10 +1277,17 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	RuleNodeCMAR newStartRef = null;
 	RuleNodeCMAR markerRef   = null;
 	
+	// Record as a bitset (if in use)
+	long[] bitset = null;
+	if (useBitsets() && itemSet!=null) bitset = toBitset(itemSet);
+	
 	// Loop through linked list of existing rules
 	while (linkRef!=null) {
 	    // If rule satisfies record add to new rule list
-	    if (isSubset(linkRef.antecedent,itemSet)) {
+	    boolean satisfied;
+	    if (bitset==null) satisfied = isSubset(linkRef.antecedent,itemSet);
+	    else satisfied = isSubset(getAntecedentBitset(linkRef),bitset);
+	    if (satisfied) {
 	        RuleNodeCMAR newNode = new RuleNodeCMAR(linkRef.antecedent,
 				linkRef.consequent,linkRef.supportForRule,
 				linkRef.suppAntecedent,linkRef.suppConsequent,
@@ -1015,6 +1306,261 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
 	startCMARrulelist = newStartRef;
 	}
 
+    /* GET ANTECEDENT BITSET */
+    
+    /** Gets the antecedent of a rule as a bitset, created on first use.
+    @param rule the rule.
+    @return the bitset. */
+    
+    private long[] getAntecedentBitset(RuleNodeCMAR rule) {
+        long[] bitset = rule.antecedentBitset;
+	if (bitset==null) {
+	    bitset = toBitset(rule.antecedent);
+	    rule.antecedentBitset = bitset;
+	    }
+	
+	// Return
+	return(bitset);
+	}
+
+    /* ------------------------------------------------------------- */
+    /*                                                               */
+    /*                     SAVE AND LOAD MODEL                       */
+    /*                                                               */
+    /* ------------------------------------------------------------- */
+
+    /* SAVE MODEL */
+    /** Saves the trained classifier to a compact binary file so that a scorer
+    can start without mining again. <P> The layout (big endian, version 1) is:
+    <PRE>
+    int      MODEL_MAGIC, MODEL_VERSION
+    int      numCols, numClasses, numOneItemSets, numRows
+    double   support, confidence, minSupport, numRecords, threshold
+    int      length of conversion array (0 if none), then [length][2] ints
+    int      length of reconversion array (0 if none), then shorts
+    int      number of rules, then for each rule in CMAR order:
+             short antecedent length, shorts, short consequent length, shorts,
+             double supportForRule, suppAntecedent, suppConsequent,
+                    confidenceForRule
+    </PRE>
+    Rule item numbers are those of the recast (reordered) data.
+    @param fileName the name of the model file.
+    @throws IOException if the file can not be written. */
+
+    public void saveModel(String fileName) throws IOException {
+        DataOutputStream output = new DataOutputStream(new
+		        BufferedOutputStream(new FileOutputStream(fileName)));
+	try {
+	    writeModel(output);
+	    }
+	finally {
+	    output.close();
+	    }
+	}
+
+    /** Writes the model to the given output stream in the layout described
+    for <TT>saveModel</TT>.
+    @param output the output stream.
+    @throws IOException if the stream can not be written. */
+
+    protected void writeModel(DataOutputStream output) throws IOException {
+	// Header
+	output.writeInt(MODEL_MAGIC);
+	output.writeInt(MODEL_VERSION);
+	output.writeInt(numCols);
+	output.writeInt(numClasses);
+	output.writeInt(numOneItemSets);
+	output.writeInt(numRows);
+	output.writeDouble(support);
+	output.writeDouble(confidence);
+	output.writeDouble(minSupport);
+	output.writeDouble(numRecords);
+	output.writeDouble(threshold);
+
+	// Conversion arrays
+	if (conversionArray==null) output.writeInt(0);
+	else {
+	    output.writeInt(conversionArray.length);
+	    for (int index=0;index<conversionArray.length;index++) {
+		output.writeInt(conversionArray[index][0]);
+		output.writeInt(conversionArray[index][1]);
+		}
+	    }
+	if (reconversionArray==null) output.writeInt(0);
+	else {
+	    output.writeInt(reconversionArray.length);
+	    for (int index=0;index<reconversionArray.length;index++)
+				    output.writeShort(reconversionArray[index]);
+	    }
+
+	// Rule list
+	output.writeInt(getNumCMAR_CRs());
+	RuleNodeCMAR linkRuleNode = startCMARrulelist;
+	while (linkRuleNode != null) {
+	    writeItemSet(output,linkRuleNode.antecedent);
+	    writeItemSet(output,linkRuleNode.consequent);
+	    output.writeDouble(linkRuleNode.supportForRule);
+	    output.writeDouble(linkRuleNode.suppAntecedent);
+	    output.writeDouble(linkRuleNode.suppConsequent);
+	    output.writeDouble(linkRuleNode.confidenceForRule);
+	    linkRuleNode = linkRuleNode.next;
+	    }
+	}
+
+    /** Writes an item set as a short length followed by the items.
+    @param output the output stream.
+    @param itemSet the item set (null is written as length 0). */
+
+    private void writeItemSet(DataOutputStream output, short[] itemSet)
+    							throws IOException {
+        if (itemSet==null) output.writeShort(0);
+	else {
+	    output.writeShort(itemSet.length);
+	    for (int index=0;index<itemSet.length;index++)
+	                                      output.writeShort(itemSet[index]);
+	    }
+	}
+
+    /* LOAD MODEL */
+    /** Loads a model saved by <TT>saveModel</TT>. The file is memory mapped
+    and read in a single pass; the rule list is rebuilt in the saved (CMAR)
+    order.
+    @param fileName the name of the model file.
+    @return the classifier, ready for <TT>classifyRecord</TT>.
+    @throws IOException if the file can not be read or is not a model. */
+
+    public static AprioriTFP_CMAR loadModel(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName,"r");
+	try {
+	    FileChannel channel = file.getChannel();
+	    AprioriTFP_CMAR newClassifier = new AprioriTFP_CMAR();
+	    newClassifier.readModel(channel.map(FileChannel.MapMode.READ_ONLY,
+	    						0,channel.size()));
+	    return(newClassifier);
+	    }
+	finally {
+	    file.close();
+	    }
+	}
+
+    /* COPY MODEL */
+    /** Copies the model (the rules and the conversion arrays, not the data or
+    the T-tree) to a new classifier, e.g. so that records can be classified
+    with the copy while this classifier is updated.
+    @return the copy, ready for <TT>classifyRecord</TT>. */
+
+    public AprioriTFP_CMAR copyModel() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	try {
+	    DataOutputStream output = new DataOutputStream(bytes);
+	    writeModel(output);
+	    output.flush();
+	    AprioriTFP_CMAR newClassifier = new AprioriTFP_CMAR();
+	    newClassifier.readModel(ByteBuffer.wrap(bytes.toByteArray()));
+	    return(newClassifier);
+	    }
+	catch (IOException e) {
+	    // Not expected, the model is written to and read from memory
+	    throw new IllegalStateException("Unable to copy model: " + e);
+	    }
+	}
+
+    /** Reads a model from the given buffer into this classifier.
+    @param buffer the buffer holding the model, positioned at the start.
+    @throws IOException if the buffer does not hold a model of this version. */
+
+    protected void readModel(ByteBuffer buffer) throws IOException {
+        try {
+	    // Header
+	    if (buffer.getInt()!=MODEL_MAGIC)
+	                             throw new IOException("Not a CMAR model");
+	    int version = buffer.getInt();
+	    if (version!=MODEL_VERSION) throw new IOException("CMAR model " +
+				    "version " + version + " not supported");
+	    numCols        = buffer.getInt();
+	    numClasses     = buffer.getInt();
+	    numOneItemSets = buffer.getInt();
+	    numRows        = buffer.getInt();
+	    support        = buffer.getDouble();
+	    confidence     = buffer.getDouble();
+	    minSupport     = buffer.getDouble();
+	    numRecords     = buffer.getDouble();
+	    threshold      = buffer.getDouble();
+
+	    // Conversion arrays
+	    int length = buffer.getInt();
+	    conversionArray = null;
+	    if (length>0) {
+	        conversionArray = new int[length][2];
+		for (int index=0;index<length;index++) {
+		    conversionArray[index][0] = buffer.getInt();
+		    conversionArray[index][1] = buffer.getInt();
+		    }
+		}
+	    length = buffer.getInt();
+	    reconversionArray = null;
+	    if (length>0) {
+	        reconversionArray = new short[length];
+		for (int index=0;index<length;index++)
+		                        reconversionArray[index] = buffer.getShort();
+		}
+
+	    // Rule list, appended so that the saved order is kept
+	    int numCMARrules = buffer.getInt();
+	    startCMARrulelist = null;
+	    RuleNodeCMAR markerRef = null;
+	    for (int index=0;index<numCMARrules;index++) {
+	        short[] ante = readItemSet(buffer);
+		short[] cons = readItemSet(buffer);
+		double suppValue = buffer.getDouble();
+		double suppAnte  = buffer.getDouble();
+		double suppCons  = buffer.getDouble();
+		double confValue = buffer.getDouble();
+		RuleNodeCMAR newNode = new RuleNodeCMAR(ante,cons,suppValue,
+						suppAnte,suppCons,confValue);
+		if (startCMARrulelist==null) startCMARrulelist = newNode;
+		else markerRef.next = newNode;
+		markerRef = newNode;
+		}
+	    numRules = numCMARrules;
+	    }
+	catch (BufferUnderflowException e) {
+	    throw new IOException("Truncated CMAR model");
+	    }
+	}
+
+    /** Reads an item set written by <TT>writeItemSet</TT>.
+    @param buffer the buffer.
+    @return the item set, null if empty. */
+
+    private short[] readItemSet(ByteBuffer buffer) {
+        int length = buffer.getShort();
+	if (length==0) return(null);
+	short[] itemSet = new short[length];
+	for (int index=0;index<length;index++) itemSet[index] = buffer.getShort();
+	return(itemSet);
+	}
+
+    /* CLASSIFY RECORD */
+    /** Classifies a record given in the original (input data) attribute
+    numbering, e.g. by a scorer using a loaded model. The record is recast
+    using the conversion array (as test data is), attributes outside the model
+    are ignored.
+    @param record the record (without class).
+    @return the class label in the original numbering (or 0 if no class
+    found). */
+
+    public short classifyRecord(short[] record) {
+        short[] itemSet = recastRecord(record);
+	if (itemSet==null) return(0);
+
+	ClassifyRecordEvent recordEvent = MiningMetrics.beginRecord("CMAR");
+	short classResult = classifyRecordWCS(itemSet);
+	MiningMetrics.endRecord(recordEvent,classResult);
+	if (classResult==0 || reconversionArray==null) return(classResult);
+	return(reconversionArray[classResult]);
+	}
+
     /* ----------------------------------- */
     /*                                     */
     /*              GET METHODS            */
@@ -1203,6 +1749,10 @@ public class AprioriTFP_CMAR extends AprioriTFP_CARgen {
     private void outputChiSquaredValueCalc() {
         double sumTotal=0;
 
+        // Calculate observed and expected values for the last rule tested
+        calculateObsValues();
+        calculateExpValues();
+
         // Start output
         System.out.println("O\t E\t (O-E)\t (O-E)^2\t ((O-E)^2)/2");
 
@@ -30,6 +30,10 @@ import java.io.*;
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
 /* To compile:
 
 javac -d ~frans/LUCS-KDD/ -classpath ~frans/LUCS-KDD/ AprioriTFPclass.java */
@@ -469,10 +473,12 @@ public class AprioriTFPclass extends PartialSupportTree {
     algorithms. Identical method in <TT>AprioriTclass</TT> class.     */
 
     public void idInputDataOrdering() {
+        MiningPhaseEvent phase = MiningMetrics.begin("input.ordering");
+
 	// Count singles and store in countArray;
 	int[][] countArray = countSingles();
 
-	// Bubble sort count array on support value (second index)
+	// Sort count array on support value (second index)
 	orderFirstNofCountArray(countArray,numCols-numClasses);
 
         // Define conversion and reconversion arrays
@@ -480,6 +486,18 @@ public class AprioriTFPclass extends PartialSupportTree {
 
 	// Set sorted flag
 	isOrderedFlag = true;
+	MiningMetrics.end(phase,numCols);
+	}
+
+    /* GET NUMBER OF UNORDERED ATTRIBUTES */
+
+    /** Gets the number of attributes left unordered at the end of the
+    attribute list by <TT>idInputDataOrdering</TT>, the classifiers.
+    <P> Overides method in <TT>AssocRuleMining</TT> class.
+    @return the number of classes. */
+
+    protected int getNumUnorderedAtts() {
+        return(numClasses);
 	}
 
     /* PRUNE UNSUPPORTED ATTRIBUTES */
@@ -1541,6 +1559,14 @@ public class AprioriTFPclass extends PartialSupportTree {
         return(kValue);
         }
 
+    /* GET NUMBER OF ROWS IN TRAINING SET */
+    /** Gets value for number of rows in training set field.
+    @return number of rows in training set. */
+
+    public int getNumRowsInTrainingSet() {
+        return(numRowsInTrainingSet);
+        }
+
     /* GET NUM CRs (VERSION 2)*/
 
     /** Returns the number of generated classification rules. <P> Different to
@@ -1599,7 +1625,9 @@ public class AprioriTFPclass extends PartialSupportTree {
     /** Outputs limits. */
 
     protected void outputLimits() {
-        System.out.println("Max num frequent sets  = " +
+        if (memoryGovernor!=null)
+	    System.out.println("Memory governor        = " + memoryGovernor);
+        else System.out.println("Max num frequent sets  = " +
                                                        MAX_NUM_FREQUENT_SETS);
 	System.out.println("Max size of antecedent = " +
 					              MAX_SIZE_OF_ANTECEDENT);
@@ -1611,8 +1639,12 @@ public class AprioriTFPclass extends PartialSupportTree {
     @param tArea the text area to output data to. */
 
     protected void outputLimits(JTextArea tArea) {
-        textArea.append("Max num frequent sets  = " + MAX_NUM_FREQUENT_SETS +
-               "\nMax size of antecedent = " + MAX_SIZE_OF_ANTECEDENT + "\n");
+        if (memoryGovernor!=null) textArea.append(
+			"Memory governor        = " + memoryGovernor + "\n");
+        else textArea.append("Max num frequent sets  = " +
+			MAX_NUM_FREQUENT_SETS + "\n");
+        textArea.append("Max size of antecedent = " + MAX_SIZE_OF_ANTECEDENT +
+							"\n");
 	textArea.append("Number of records in training set = " + numRows + "\n");
 	if (isOrderedFlag) textArea.append("NOTE: Data set reordered\n");
         }
@@ -19,10 +19,15 @@
 // Java packages
 import java.io.*;
 import java.util.*;
+import java.util.zip.*;
 
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
 /** Set of utillities to support various Association Rule Mining (ARM)
 algorithms included in the LUCS-KDD suite of ARM programs.
 @author Frans Coenen
@@ -53,6 +58,12 @@ public class AssocRuleMining extends JFrame {
     protected short[] reconversionArray = null;
     /** 1-D array to hold output schema. */
     protected String[] outputSchema = null;
+    /** Antecedent item name dictionary used when outputting rules, loaded
+    once (on first use if not set). */
+    protected ItemNameDictionary antecedentNames = null;
+    /** Consequent item name dictionary used when outputting rules, loaded
+    once (on first use if not set). */
+    protected ItemNameDictionary consequentNames = null;
 
     // Constants
 
@@ -64,6 +75,20 @@ public class AssocRuleMining extends JFrame {
     protected static final double MIN_CONFIDENCE = 0.0;
     /** Maximum confidence value */
     protected static final double MAX_CONFIDENCE = 100.0;
+    /** Maximum number of one item sets for which item sets are compared as
+    bitsets (see <TT>useBitsets</TT>). */
+    protected static final int MAX_BITSET_ITEMS = 4096;
+    /** The system property turning on the preprocessing cache (if "true"),
+    see <TT>inputAndRecastDataSet</TT>. */
+    public static final String PREPROCESSING_CACHE_PROPERTY =
+    						"cmar.preprocessingCache";
+    /** The extension of a preprocessing cache file, stored next to the input
+    file. */
+    public static final String PREPROCESSING_CACHE_EXTENSION = ".prep";
+    /** The magic number at the start of a preprocessing cache file. */
+    private static final int PREPROCESSING_CACHE_MAGIC = 0x50524550;
+    /** The version of the preprocessing cache file format. */
+    private static final int PREPROCESSING_CACHE_VERSION = 1;
 
     // Command line arguments with default values and associated fields.
 
@@ -114,6 +139,11 @@ public class AssocRuleMining extends JFrame {
     /** Flag to indicate whether input data has been sorted and pruned or
     not. */
     protected boolean isPrunedFlag = false;
+    /** Flag indicating that the preprocessed (ordered and recast) input data
+    is to be loaded from, and stored in, the preprocessing cache (default =
+    value of the <TT>cmar.preprocessingCache</TT> system property). */
+    protected boolean preprocessingCacheFlag =
+    			Boolean.getBoolean(PREPROCESSING_CACHE_PROPERTY);
     /** Flag to indicate whether output schema is available or not. */
     protected boolean hasOutputSchemaFlag = false;
     /** Support confidence framework flag. */
@@ -122,6 +152,11 @@ public class AssocRuleMining extends JFrame {
     protected boolean supLiftFworkFlag = false;
     /** Output rule set to file flag */
     protected boolean outputRuleSetToFileFlag = false;
+    /** Flag indicating that records and rule antecedents are to be compared
+    as bitsets (where possible, see <TT>useBitsets</TT>). Set using the -R
+    command line argument of the AprioriTFP_CMAR class or
+    <TT>setBitsetRecordsFlag</TT>. */
+    protected boolean bitsetRecordsFlag = false;
 
     // Other fields
 
@@ -283,6 +318,8 @@ public class AssocRuleMining extends JFrame {
     /** Commences process of getting input data (GUI version also exists). */
 
     public void inputDataSet() {
+        MiningPhaseEvent phase = MiningMetrics.begin("input.parse");
+
         // Read the file
 	readFile();
 
@@ -304,6 +341,7 @@ public class AssocRuleMining extends JFrame {
 	        System.exit(1);
 		}
 	    }
+	MiningMetrics.end(phase,numRows);
 	}
 
     /* READ FILE */
@@ -788,6 +826,7 @@ public class AssocRuleMining extends JFrame {
     public void inputDataSet(JTextArea textArea, File fName) {
     	// Set filePath instance field
 	filePath = fName;
+	MiningPhaseEvent phase = MiningMetrics.begin("input.parse");
         // Read the file
 	readFile(textArea);
 
@@ -810,6 +849,7 @@ public class AssocRuleMining extends JFrame {
 		textArea.append("Error reading file: " + filePath + "\n\n");
 		}
 	    }
+	MiningMetrics.end(phase,numRows);
 	}
 
     /* READ FILE */
@@ -913,11 +953,12 @@ public class AssocRuleMining extends JFrame {
     */
 
     public void idInputDataOrdering() {
+        MiningPhaseEvent phase = MiningMetrics.begin("input.ordering");
 
 		// Count singles and store in countArray;
         int[][] countArray = countSingles();
 
-		// Bubble sort count array on support value (second index)
+		// Sort count array on support value (second index)
 		orderCountArray(countArray);
 
         // Define conversion and reconversion arrays
@@ -925,6 +966,7 @@ public class AssocRuleMining extends JFrame {
 
 		// Set sorted flag
 		isOrderedFlag = true;
+		MiningMetrics.end(phase,numCols);
 		}
 
     /* COUNT SINGLES */
@@ -961,40 +1003,18 @@ public class AssocRuleMining extends JFrame {
 
     /* ORDER COUNT ARRAY */
 
-    /** Bubble sorts count array produced by <TT>countSingles</TT> method
-    so that array is ordered according to frequency of single items.
+    /** Sorts count array produced by <TT>countSingles</TT> method so that
+    array is ordered according to frequency of single items.
     @param countArray The 2-D array returned by the <TT>countSingles</TT>
     method. */
 
     private void orderCountArray(int[][] countArray) {
-        int attribute, quantity;
-        boolean isOrdered;
-        int index;
-
-        do {
-	    	isOrdered = true;
-            index     = 1;
-            while (index < (countArray.length-1)) {
-                if (countArray[index][1] >= countArray[index+1][1]) index++;
-	        	else {
-	            	isOrdered=false;
-                    // Swap
-		    		attribute              = countArray[index][0];
-		    		quantity               = countArray[index][1];
-	            	countArray[index][0]   = countArray[index+1][0];
-	            	countArray[index][1]   = countArray[index+1][1];
-                    countArray[index+1][0] = attribute;
-	            	countArray[index+1][1] = quantity;
-	            	// Increment index
-		    		index++;
-	            	}
-	  			}
-	    	} while (isOrdered==false);
+        sortCountArray(countArray,countArray.length);
     	}
 
     /* SORT FIRST N ELEMENTS IN COUNT ARRAY */
 
-    /** Bubble sorts first N elements in count array produced by
+    /** Sorts first N elements in count array produced by
     <TT>countSingles</TT> method so that array is ordered according to
     frequency of single items. <P> Used when ordering classification input
     data where we wish classes to be listed last.
@@ -1003,31 +1023,31 @@ public class AssocRuleMining extends JFrame {
     @param endIndex the index of the Nth element. */
 
     protected void orderFirstNofCountArray(int[][] countArray, int endIndex) {
-        int attribute, quantity;
-        boolean isOrdered;
-        int index;
-
-        do {
-	    	isOrdered = true;
-            index     = 1;
-            while (index < endIndex) {
-                if (countArray[index][1] >= countArray[index+1][1]) index++;
-	        	else {
-	            	isOrdered=false;
-                    // Swap
-		    		attribute              = countArray[index][0];
-		    		quantity               = countArray[index][1];
-	            	countArray[index][0]   = countArray[index+1][0];
-	            	countArray[index][1]   = countArray[index+1][1];
-                    countArray[index+1][0] = attribute;
-	            	countArray[index+1][1] = quantity;
-	            	// Increment index
-		    		index++;
-	            	}
-	  			}
-	    	} while (isOrdered==false);
+        sortCountArray(countArray,endIndex+1);
     	}
 
+    /* SORT COUNT ARRAY */
+
+    /** Sorts the elements of the count array from index 1 up to (not
+    including) the given end index into descending order of support. Elements
+    with equal support keep their order (the sort is stable), giving the same
+    ordering as the bubble sort previously used but in O(N log N) rather than
+    O(N^2) time.
+    @param countArray The 2-D array returned by the <TT>countSingles</TT>
+    method.
+    @param endIndex the index after the last element to be sorted. */
+
+    private void sortCountArray(int[][] countArray, int endIndex) {
+        if (endIndex<=2) return;
+	Arrays.sort(countArray,1,endIndex,new Comparator<int[]>() {
+	    public int compare(int[] element1, int[] element2) {
+	        if (element1[1]>element2[1]) return(-1);
+		if (element1[1]<element2[1]) return(1);
+		return(0);
+		}
+	    });
+	}
+
     /* DEFINE CONVERSION ARRAYS: */
 
     /** Defines conversion and reconversion arrays.
@@ -1097,6 +1117,7 @@ public class AssocRuleMining extends JFrame {
     3) Reorder this itemSet and return into the data array. */
 
     public void recastInputData() {
+        MiningPhaseEvent phase = MiningMetrics.begin("input.recast");
         short[] itemSet;
 		int attribute;
 
@@ -1114,6 +1135,7 @@ public class AssocRuleMining extends JFrame {
 	    	sortItemSet(itemSet);
 	    	dataArray[rowIndex] = itemSet;
 	    	}
+		MiningMetrics.end(phase,dataArray.length);
 		}
 
     /* RECAST INPUT DATA AND REMOVE UNSUPPORTED SINGLE ATTRIBUTES. */
@@ -1128,6 +1150,7 @@ public class AssocRuleMining extends JFrame {
     3) Assign new itemSet back into to data array */
 
     public void recastInputDataAndPruneUnsupportedAtts() {
+        MiningPhaseEvent phase = MiningMetrics.begin("input.recast");
         short[] itemSet;
 		int attribute;
 
@@ -1156,6 +1179,7 @@ public class AssocRuleMining extends JFrame {
 	isPrunedFlag=true;
 	// Reset number of one item sets field
 	numOneItemSets = getNumSupOneItemSets();
+	MiningMetrics.end(phase,dataArray.length);
 	}
 
     /* GET NUM OF SUPPORTE ONE ITEM SETS */
@@ -1177,6 +1201,301 @@ public class AssocRuleMining extends JFrame {
 	return(counter);
 	}
 
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                       PREPROCESSING CACHE                        */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* Reading, ordering and recasting the input data is repeated for every
+    run on the same data, which dominates runs with small parameter values
+    (e.g. support sweeps). The preprocessing cache (turned on using
+    -Dcmar.preprocessingCache=true or <TT>setPreprocessingCacheFlag</TT>)
+    stores the result, the conversion and reconversion arrays and the recast
+    records, in a file next to the input file (the input file name with the
+    extension .prep), together with the length and checksum of the input file
+    so that a changed input file is read again. The recast records do not
+    depend on the support threshold, pruning of unsupported attributes and
+    the splitting of the records into training/test or tenths data sets are
+    done after loading. */
+
+    /* INPUT AND RECAST DATA SET */
+
+    /** Reads the input data, identifies the ordering of the attributes and
+    recasts the data accordingly (<TT>inputDataSet</TT>,
+    <TT>idInputDataOrdering</TT> and <TT>recastInputData</TT>), loading the
+    result from the preprocessing cache if in use and the input file has not
+    changed since it was stored. */
+
+    public void inputAndRecastDataSet() {
+        if (loadPreprocessedData()) return;
+	inputDataSet();
+	idInputDataOrdering();
+	recastInputData();
+	storePreprocessedData();
+	}
+
+    /* INPUT AND RECAST DATA SET AND REMOVE UNSUPPORTED SINGLE ATTRIBUTES */
+
+    /** Reads the input data, identifies the ordering of the attributes and
+    recasts the data excluding unsupported attributes (as
+    <TT>recastInputDataAndPruneUnsupportedAtts</TT>), loading the recast data
+    from the preprocessing cache if in use and the input file has not changed
+    since it was stored. */
+
+    public void inputAndRecastDataSetAndPruneUnsupportedAtts() {
+        if (!loadPreprocessedData()) {
+	    inputDataSet();
+	    idInputDataOrdering();
+	    recastInputData();
+	    storePreprocessedData();
+	    }
+	pruneUnsupportedAttsFromRecastData();
+	}
+
+    /* PRUNE UNSUPPORTED SINGLE ATTRIBUTES FROM RECAST DATA */
+
+    /** Removes unsupported attributes from the (already recast) data array,
+    giving the same records as <TT>recastInputDataAndPruneUnsupportedAtts</TT>
+    (a record without supported attributes is set to null). */
+
+    private void pruneUnsupportedAttsFromRecastData() {
+        for(int rowIndex=0;rowIndex<dataArray.length;rowIndex++) {
+	    if (dataArray[rowIndex]!= null) {
+	        short[] itemSet = null;
+		for(int colIndex=0;colIndex<dataArray[rowIndex].length;colIndex++) {
+		    short attribute = dataArray[rowIndex][colIndex];
+		    // Check support of the attribute before recasting
+		    if (conversionArray[reconversionArray[attribute]][1] >=
+		    			minSupport) itemSet = reallocInsert(itemSet,
+								attribute);
+		    }
+		dataArray[rowIndex] = itemSet;
+		}
+	    }
+
+	// Set isPrunedFlag and reset number of one item sets field
+	isPrunedFlag=true;
+	numOneItemSets = getNumSupOneItemSets();
+	}
+
+    /* LOAD PREPROCESSED DATA */
+
+    /** Loads the ordered and recast input data from the preprocessing cache,
+    provided the cache file was stored for the current input file (same length
+    and checksum) and attribute ordering.
+    @return true if loaded, false if the cache is not in use or holds no
+    suitable data. */
+
+    public boolean loadPreprocessedData() {
+        File inputFile = getInputFile();
+	if (!preprocessingCacheFlag || inputFile==null) return(false);
+	File file = getPreprocessingCacheFile(inputFile);
+	if (!file.exists()) {
+	    MiningMetrics.count("preprocessingCache.miss",1);
+	    return(false);
+	    }
+	MiningPhaseEvent phase = MiningMetrics.begin("preprocessingCache.load");
+
+	// Read data
+	boolean loaded = false;
+	try {
+	    loaded = readPreprocessingCacheFile(file,inputFile);
+	    }
+	catch (IOException e) {
+	    System.out.println("WARNING: Unable to read " + file + ": " + e);
+	    }
+
+	// End
+	if (loaded) {
+	    System.out.println("Preprocessed data loaded from " + file);
+	    System.out.println("Number of records = " + numRows);
+	    System.out.println("Number of columns = " + numCols);
+	    System.out.println("Min support       = " +
+				twoDecPlaces(minSupport) + " (records)");
+	    MiningMetrics.count("preprocessingCache.hit",1);
+	    }
+	else MiningMetrics.count("preprocessingCache.miss",1);
+	MiningMetrics.end(phase,numRows);
+	return(loaded);
+	}
+
+    /** Reads a preprocessing cache file and sets the input data fields from
+    it.
+    @param file the file.
+    @param inputFile the input file.
+    @return true if the file is usable, false otherwise.
+    @throws IOException if the file cannot be read. */
+
+    private boolean readPreprocessingCacheFile(File file, File inputFile)
+    						throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+		new InflaterInputStream(new FileInputStream(file))));
+	try {
+	    // Check header
+	    if (input.readInt()!=PREPROCESSING_CACHE_MAGIC ||
+	    		input.readInt()!=PREPROCESSING_CACHE_VERSION ||
+			input.readLong()!=inputFile.length() ||
+			input.readLong()!=getInputFileChecksum(inputFile) ||
+			input.readInt()!=getNumUnorderedAtts()) return(false);
+	    int nRows = input.readInt();
+	    int nCols = input.readInt();
+
+	    // Conversion arrays
+	    int[][] newConversionArray   = new int[nCols+1][2];
+	    short[] newReconversionArray = new short[nCols+1];
+	    for (int index=0;index<=nCols;index++) {
+	        newConversionArray[index][0] = input.readInt();
+		newConversionArray[index][1] = input.readInt();
+		newReconversionArray[index]  = input.readShort();
+		}
+
+	    // Recast records
+	    short[][] newDataArray = new short[nRows][];
+	    for (int rowIndex=0;rowIndex<nRows;rowIndex++) {
+	        newDataArray[rowIndex] = new short[input.readInt()];
+		for (int colIndex=0;colIndex<newDataArray[rowIndex].length;
+							colIndex++)
+			newDataArray[rowIndex][colIndex] = input.readShort();
+		}
+
+	    // Set fields (as inputDataSet, idInputDataOrdering and
+	    // recastInputData)
+	    dataArray         = newDataArray;
+	    conversionArray   = newConversionArray;
+	    reconversionArray = newReconversionArray;
+	    numRows           = nRows;
+	    numCols           = nCols;
+	    numOneItemSets    = numCols; 	// default value only
+	    minSupport        = (numRows * support)/100.0;
+	    inputFormatOkFlag = true;
+	    isOrderedFlag     = true;
+	    }
+	finally {
+	    input.close();
+	    }
+
+	// Return
+	return(true);
+	}
+
+    /* STORE PREPROCESSED DATA */
+
+    /** Stores the ordered and recast input data in the preprocessing cache
+    (if in use). */
+
+    public void storePreprocessedData() {
+        File inputFile = getInputFile();
+	if (!preprocessingCacheFlag || inputFile==null || dataArray==null ||
+			!inputFormatOkFlag || !isOrderedFlag) return;
+	MiningPhaseEvent phase = MiningMetrics.begin("preprocessingCache.store");
+	File file = getPreprocessingCacheFile(inputFile).getAbsoluteFile();
+	File temp = null;
+
+	// Write to temporary file (unique, so that concurrent runs do not write
+	// to the same file) and rename so that other runs never read a partial
+	// file
+	try {
+	    long checksum = getInputFileChecksum(inputFile);
+	    temp = File.createTempFile(file.getName() + ".",".tmp",
+	    					file.getParentFile());
+	    DataOutputStream output = new DataOutputStream(
+	    		new BufferedOutputStream(new DeflaterOutputStream(
+			new FileOutputStream(temp))));
+	    try {
+	        output.writeInt(PREPROCESSING_CACHE_MAGIC);
+		output.writeInt(PREPROCESSING_CACHE_VERSION);
+		output.writeLong(inputFile.length());
+		output.writeLong(checksum);
+		output.writeInt(getNumUnorderedAtts());
+		output.writeInt(numRows);
+		output.writeInt(numCols);
+		for (int index=0;index<=numCols;index++) {
+		    output.writeInt(conversionArray[index][0]);
+		    output.writeInt(conversionArray[index][1]);
+		    output.writeShort(reconversionArray[index]);
+		    }
+		for (int rowIndex=0;rowIndex<numRows;rowIndex++) {
+		    output.writeInt(dataArray[rowIndex].length);
+		    for (int colIndex=0;colIndex<dataArray[rowIndex].length;
+		    					colIndex++)
+		    	output.writeShort(dataArray[rowIndex][colIndex]);
+		    }
+		}
+	    finally {
+	        output.close();
+		}
+	    file.delete();
+	    if (!temp.renameTo(file)) throw new IOException("Unable to " +
+	    					"rename " + temp + " to " + file);
+	    MiningMetrics.count("preprocessingCache.stored",1);
+	    }
+	catch (IOException e) {
+	    System.out.println("WARNING: Unable to write " + file + ": " + e);
+	    if (temp!=null) temp.delete();
+	    }
+	MiningMetrics.end(phase,numRows);
+	}
+
+    /* GET INPUT FILE */
+
+    /** Gets the input file (given by file name or file path).
+    @return the file, null if neither is set. */
+
+    private File getInputFile() {
+        if (filePath!=null) return(filePath);
+	if (fileName!=null) return(new File(fileName));
+	return(null);
+	}
+
+    /* GET PREPROCESSING CACHE FILE */
+
+    /** Gets the preprocessing cache file for the given input file, next to
+    it with the extension .prep added.
+    @param inputFile the input file.
+    @return the cache file. */
+
+    protected File getPreprocessingCacheFile(File inputFile) {
+        return(new File(inputFile.getPath() + PREPROCESSING_CACHE_EXTENSION));
+	}
+
+    /* GET INPUT FILE CHECKSUM */
+
+    /** Calculates a checksum of the contents of the given input file.
+    @param inputFile the input file.
+    @return the checksum.
+    @throws IOException if the file cannot be read. */
+
+    private long getInputFileChecksum(File inputFile) throws IOException {
+        CRC32 checksum = new CRC32();
+	byte[] buffer  = new byte[65536];
+	InputStream input = new FileInputStream(inputFile);
+	try {
+	    int numBytes = input.read(buffer);
+	    while (numBytes != -1) {
+	        checksum.update(buffer,0,numBytes);
+		numBytes = input.read(buffer);
+		}
+	    }
+	finally {
+	    input.close();
+	    }
+
+	// Return
+	return(checksum.getValue());
+	}
+
+    /* GET NUMBER OF UNORDERED ATTRIBUTES */
+
+    /** Gets the number of attributes left unordered at the end of the
+    attribute list by <TT>idInputDataOrdering</TT>, recorded in the
+    preprocessing cache so that data ordered differently is not loaded.
+    @return the number of attributes, 0 as all attributes are ordered. */
+
+    protected int getNumUnorderedAtts() {
+        return(0);
+	}
+
     /* RESIZE INPUT DATA */
 
     /** Recasts the input data sets so that only N percent is used.
@@ -1362,6 +1681,45 @@ public class AssocRuleMining extends JFrame {
 	fileInput.close();
 	}
 
+    /** Horizontally segements the data array (in its current, possibly
+    recast, form) into N segements and stores them in the given directory
+    using file names made up of the input file name plus the segment number.
+    Used where the segments are to be mined separately with the same item
+    numbering.
+    @param numSegments the number of segments into which the data is to be
+    decompossed.
+    @param directory the directory in which the segments are stored.
+    @return the segment files. */
+
+    public File[] segmentDataSet(int numSegments, File directory)
+    						throws IOException {
+
+	// Calculate number of rows per segement
+	int rowsPerSegment = calcRowsPerSegment(numSegments);
+
+	// Determin file name
+	int    fileNameIndex = fileName.lastIndexOf('/');
+	String shortFileName = fileName.substring(fileNameIndex+1,
+				fileName.length());
+
+	// Loop through data array for N segments, the last segment may have
+	// slightly more records than previous segments
+	File[] segmentFiles = new File[numSegments];
+	int startRecord=0;
+	for (int segIndex=1;segIndex<=numSegments;segIndex++) {
+	    int endRecord = startRecord+rowsPerSegment;
+	    if (segIndex==numSegments) endRecord = numRows;
+	    segmentFiles[segIndex-1] = new File(directory,shortFileName +
+	    						segIndex);
+	    outputDataArraySegmentToFile(segmentFiles[segIndex-1],startRecord,
+	    						endRecord);
+	    startRecord=endRecord;
+	    }
+
+	// Return
+	return(segmentFiles);
+	}
+
     /* READ, SEGMENT AND PARTITION DATA SEGMENTS */
 
     /** Reads input data segment by segement and stores segment in memory which
@@ -2475,6 +2833,126 @@ public class AssocRuleMining extends JFrame {
 	return(true);
 	}
 	
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                         BITSET ITEM SETS                         */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+    
+    /* Alternative representation of (recast) item sets as bitsets, bit N 
+    (bit N%64 of element N/64) set if attribute N is in the item set, so that
+    subset tests comprise a few AND operations instead of a comparison of the 
+    elements. Used (if the <TT>bitsetRecordsFlag</TT> is set) where a set of 
+    records is tested against many item sets or vice versa, the records and 
+    item sets are then converted once. */
+    
+    /* USE BITSETS */
+    
+    /** Tests whether item sets are to be compared as bitsets: the 
+    <TT>bitsetRecordsFlag</TT> is set and the number of one item sets does 
+    not exceed MAX_BITSET_ITEMS.
+    @return true if bitsets are to be used, false otherwise. */
+    
+    protected boolean useBitsets() {
+        return(bitsetRecordsFlag && numOneItemSets>0 && 
+				numOneItemSets<=MAX_BITSET_ITEMS);
+	}
+	
+    /* TO BITSET */
+    
+    /** Converts an item set to a bitset dimensioned for the attributes 1 to
+    <TT>numOneItemSets</TT>, attributes beyond this are left out (they can 
+    not be part of a rule).
+    @param itemSet the given item set.
+    @return the bitset (null if the item set is null). */
+    
+    protected long[] toBitset(short[] itemSet) {
+        if (itemSet==null) return(null);
+	long[] bitset = new long[(numOneItemSets>>6)+1];
+	
+	// Loop through item set
+	for (int index=0;index<itemSet.length;index++) {
+	    int attribute = itemSet[index];
+	    if (attribute>=0 && attribute<=numOneItemSets) 
+	    		bitset[attribute>>6] |= 1l<<(attribute&63);
+	    }
+	
+	// Return
+	return(bitset);
+	}
+	
+    /** Converts a set of item sets (records) to bitsets.
+    @param itemSets the given item sets.
+    @return the bitsets (null where the item set is null). */
+    
+    protected long[][] toBitsets(short[][] itemSets) {
+        long[][] bitsets = new long[itemSets.length][];
+	for (int index=0;index<itemSets.length;index++) 
+				bitsets[index] = toBitset(itemSets[index]);
+	
+	// Return
+	return(bitsets);
+	}
+	
+    /* SUBSET CHECK (BITSETS) */
+    
+    /** Checks whether one item set is subset of a second item set, both as
+    bitsets of the same size.
+    @param bitset1 the first item set.
+    @param bitset2 the second item set to be compared with first.
+    @return true if bitset1 is a subset of bitset2, and false otherwise. */
+    
+    protected boolean isSubset(long[] bitset1, long[] bitset2) {
+	// Check for empty itemsets
+	if (bitset1==null) return(true);
+	if (bitset2==null) return(false);
+	
+	// Loop through words
+	for (int index=0;index<bitset1.length;index++) {
+	    if ((bitset1[index] & ~bitset2[index]) != 0) return(false);
+	    }
+	
+	// bitset1 is a subset of bitset2
+	return(true);
+	}
+    
+    /* DOES INTERSECT (BITSETS) */
+    
+    /** Checks whether one item set intersects with a second item set, both 
+    as bitsets of the same size.
+    @param bitset1 the first item set.
+    @param bitset2 the second item set to be compared with first.
+    @return true if two given itemSets intersect, and false otherwise. */
+    
+    protected boolean doesIntersect(long[] bitset1, long[] bitset2) {
+	// Check for null sets
+	if (bitset1 == null) return(false);
+	if (bitset2 == null) return(false);
+	
+	// Loop through words
+	for (int index=0;index<bitset1.length;index++) {
+	    if ((bitset1[index] & bitset2[index]) != 0) return(true);
+	    }
+	
+	// Return
+	return(false);
+	}
+    
+    /* MEMBER OF (BITSET) */
+    
+    /** Checks whether a particular element/attribute identified by a 
+    column number is a member of the given item set as a bitset.
+    @param number the attribute identifier (column number).
+    @param bitset the given item set.
+    @return true if first argument is a member of the item set, and false 
+    otherwise */
+    
+    protected boolean memberOf(short number, long[] bitset) {
+        if (bitset == null || number < 0 || (number>>6) >= bitset.length) 
+								return(false);
+	return((bitset[number>>6] & (1l<<(number&63))) != 0);
+	}
+	
     /* CHECK FOR LEADING SUB STRING */ 
     
     /** Checks whether two itemSets share a leading substring. 
@@ -2963,6 +3441,16 @@ public class AssocRuleMining extends JFrame {
 	isPrunedFlag  = false;
 	}
 
+    /* SET PREPROCESSING CACHE FLAG */
+    /** Sets the value of the <TT>preprocessingCacheFlag</TT> field to the
+    given value, if set the preprocessed input data is loaded from and stored
+    in the preprocessing cache (see <TT>inputAndRecastDataSet</TT>).
+    @param value the given value */
+
+    public void setPreprocessingCacheFlag(boolean value) {
+        preprocessingCacheFlag = value;
+	}
+
     /* SET OUTPUT RULE SET FLAG */
     /** Sets the value of the <TT>outputRuleSetToFileFlag</TT> field to the 
     given value.
@@ -2972,6 +3460,15 @@ public class AssocRuleMining extends JFrame {
         outputRuleSetToFileFlag = value;
 	}
 	
+    /* SET BITSET RECORDS FLAG */
+    /** Sets the value of the <TT>bitsetRecordsFlag</TT> field to the given 
+    value, if set records and rule antecedents are compared as bitsets.
+    @param value the given value */
+
+    public void setBitsetRecordsFlag(boolean value) {
+        bitsetRecordsFlag = value;
+	}
+	
     /* SET START OF RULE LIST */
     /** Sets the start of the (association/classification) rule list.
     @param startRef the reference to the start of the rule list. */
@@ -3013,6 +3510,57 @@ public class AssocRuleMining extends JFrame {
        hasOutputSchemaFlag = true;
        }
 
+    /* SET ANTECEDENT NAMES */
+    /** Sets the antecedent item name dictionary used when outputting rules.
+    @param dictionary the item name dictionary. */
+
+    public void setAntecedentNames(ItemNameDictionary dictionary) {
+        antecedentNames = dictionary;
+	}
+
+    /* GET ANTECEDENT NAMES */
+    /** Returns the antecedent item name dictionary used when outputting
+    rules, the default dictionary is loaded (once) if none has been set.
+    @return the item name dictionary. */
+
+    public ItemNameDictionary getAntecedentNames() {
+        if (antecedentNames==null) antecedentNames =
+	                            ItemNameDictionary.getDefaultAntecedents();
+	return(antecedentNames);
+	}
+
+    /* SET CONSEQUENT NAMES */
+    /** Sets the consequent item name dictionary used when outputting rules.
+    @param dictionary the item name dictionary. */
+
+    public void setConsequentNames(ItemNameDictionary dictionary) {
+        consequentNames = dictionary;
+	}
+
+    /* GET CONSEQUENT NAMES */
+    /** Returns the consequent item name dictionary used when outputting
+    rules, the default dictionary is loaded (once) if none has been set.
+    @return the item name dictionary. */
+
+    public ItemNameDictionary getConsequentNames() {
+        if (consequentNames==null) consequentNames =
+	                            ItemNameDictionary.getDefaultConsequents();
+	return(consequentNames);
+	}
+
+    /* GET ITEM LABEL */
+    /** Returns the output label for an (original) item number: the schema
+    label if an output schema is available, otherwise the number.
+    @param item the item number.
+    @return the label. */
+
+    protected String getItemLabel(short item) {
+        if (hasOutputSchemaFlag && outputSchema!=null &&
+	                   item>0 && item<=outputSchema.length)
+	                                           return(outputSchema[item-1]);
+	return(Short.toString(item));
+	}
+
 
     /* ------------------------------------------------- */
     /*                                                   */
@@ -3091,55 +3639,42 @@ public class AssocRuleMining extends JFrame {
 		    		}
 	        	else System.out.print(" ");
 	        	System.out.print(tempItemSet[index]);
+	        	String name = null;
 	        	try {
 	        		if(tempItemSet[index]<=70){
-	        			System.out.print(" "+getAntecedantName(tempItemSet[index]));
+	        			name = getAntecedantName(tempItemSet[index]);
 	        		}
 	        		else{
-	        			System.out.print(" "+getConsequentName(tempItemSet[index]));
+	        			name = getConsequentName(tempItemSet[index]);
 	        		}
 				} catch (IOException e) {
-					// TODO Auto-generated catch block
 					e.printStackTrace();
 				}
+	        	if (name!=null) System.out.print(" " + name);
 				}
 	    	System.out.print("} ");
 	    	}
 		}
-    
-public String getAntecedantName(short antecedantNumber) throws IOException{
-    	
-    	String antecedantName = null;
-    	File file2 = new File("relation.txt");
-        FileInputStream f2 = new FileInputStream(file2);
-        ObjectInputStream s2 = new ObjectInputStream(f2);
-        try {
-			HashMap<String, Object> fileObj2 = (HashMap<String, Object>) s2.readObject();
-				antecedantName = (String) fileObj2.get(Short.toString(antecedantNumber));
-		} catch (ClassNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-        s2.close();
-    	return antecedantName;
-    }
 
-public String getConsequentName(short consequentNumber) throws IOException{
-	
-	String consequentName = null;
-	File file2 = new File("produitRelations.txt");
-    FileInputStream f2 = new FileInputStream(file2);
-    ObjectInputStream s2 = new ObjectInputStream(f2);
-    try {
-		HashMap<String, Object> fileObj2 = (HashMap<String, Object>) s2.readObject();
-			consequentName = (String) fileObj2.get(Short.toString(consequentNumber));
-	} catch (ClassNotFoundException e) {
-		// TODO Auto-generated catch block
-		e.printStackTrace();
+    /* GET ANTECEDANT NAME */
+    /** Returns the name of the given item from the antecedent item name
+    dictionary.
+    @param antecedantNumber the item number.
+    @return the name, null if there is none. */
+
+    public String getAntecedantName(short antecedantNumber)throws IOException{
+        return(getAntecedentNames().getName(antecedantNumber));
+	}
+
+    /* GET CONSEQUENT NAME */
+    /** Returns the name of the given item from the consequent item name
+    dictionary.
+    @param consequentNumber the item number.
+    @return the name, null if there is none. */
+
+    public String getConsequentName(short consequentNumber)throws IOException{
+        return(getConsequentNames().getName(consequentNumber));
 	}
-    s2.close();
-	return consequentName;
-}
 	
     /** Outputs a given item set to file indicated by <TT>outputFile</TT>
     field.
@@ -3161,6 +3696,21 @@ public String getConsequentName(short consequentNumber) throws IOException{
 				}
 	    	}
 		}
+
+    /** Outputs the names of the items in a given item set to file indicated
+    by <TT>outputFile</TT> field, separated by commas.
+    @param itemSet the given item set.
+    @param itemNames the item name dictionary. */
+
+    protected void outputItemSetNamesToFile(short[] itemSet,
+                                             ItemNameDictionary itemNames) {
+		if (itemSet == null) return;
+		String[] names = itemNames.getNames(reconvertItemSet(itemSet));
+		for (int index=0;index<names.length;index++) {
+			if (index>0) fileOutput.print(",");
+			if (names[index]!=null) fileOutput.print(names[index]);
+			}
+		}
                                 
     /* ---------------------------------*/
     /* OUTPUT ITEMSET WITH RECONVERSION */
@@ -3406,7 +3956,19 @@ public String getConsequentName(short consequentNumber) throws IOException{
 	    	outputItemSetToFile(linkRuleNode.antecedent);
 	    	fileOutput.print("</ANTECEDENT><CONSEQUENT>");
             outputItemSetToFile(linkRuleNode.consequent);
-            fileOutput.print("</CONSEQUENT><CONFIDENCE>" +
+            fileOutput.print("</CONSEQUENT>");
+	    	// Names, only if a dictionary is available
+	    	if (!getAntecedentNames().isEmpty() ||
+	    	                             !getConsequentNames().isEmpty()) {
+	    		fileOutput.print("<ANTECEDENT_NAMES>");
+	    		outputItemSetNamesToFile(linkRuleNode.antecedent,
+	    		                                    getAntecedentNames());
+	    		fileOutput.print("</ANTECEDENT_NAMES><CONSEQUENT_NAMES>");
+	    		outputItemSetNamesToFile(linkRuleNode.consequent,
+	    		                                    getConsequentNames());
+	    		fileOutput.print("</CONSEQUENT_NAMES>");
+	    		}
+            fileOutput.print("<CONFIDENCE>" +
 	    			twoDecPlaces(linkRuleNode.confidenceForRule) + 
 					                            "<CONFIDENCE>\n");
 	    	// Right branch
@@ -3471,7 +4033,7 @@ public String getConsequentName(short consequentNumber) throws IOException{
 		    System.out.print(" {");
 		    }
 	        else System.out.print(" ");
-	        System.out.print(outputSchema[tempItemSet[index]-1]);
+	        System.out.print(getItemLabel(tempItemSet[index]));
 		}
 	    System.out.print("} ");
 	    }
@@ -3724,7 +4286,7 @@ public String getConsequentName(short consequentNumber) throws IOException{
 		    textArea.append(" {");
 		    }
 	        else textArea.append(" ");
-	        textArea.append(outputSchema[tempItemSet[index]-1]);
+	        textArea.append(getItemLabel(tempItemSet[index]));
 		}
 	    textArea.append("} ");
 	    }
@@ -4180,6 +4742,31 @@ public String getConsequentName(short consequentNumber) throws IOException{
 	outputFile.close();
 	}
 
+    /** Outputs a segment of the data array to file.
+    @param outputFile the output file
+    @param startRecord the record marking the start of the segment
+    @param endRecord the record marking the end of the segement. */
+
+    private void outputDataArraySegmentToFile(File outputFile,
+    			int startRecord, int endRecord) throws IOException {
+        // Open file for writing
+	PrintWriter output = new PrintWriter(new BufferedWriter(
+					new FileWriter(outputFile)));
+
+	// Step through data array
+	for (int rowIndex = startRecord;rowIndex<endRecord;rowIndex++) {
+	    if (dataArray[rowIndex] != null) {
+	        for (int colIndex=0;colIndex<dataArray[rowIndex].length;
+	    							colIndex++) {
+	            if (colIndex>0) output.print(" ");
+	            output.print(dataArray[rowIndex][colIndex]);
+	            }
+	        output.println();
+	        }
+	    }
+	output.close();
+	}
+
     /* OUTPUT PARTION TO FILE */
 
     /** Outputs a one column partition of the data array to file.
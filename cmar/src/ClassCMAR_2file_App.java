@@ -14,6 +14,8 @@
 
 import java.io.*;
 
+import util.MiningMetrics;
+
 /* Prooduces a single-class clasifier from a given data set given particular 
 support and confidence thresholds as input using the CMNAR algorithm. Takes 
 two input files: (i) training set, (ii) test set. Orders the input files 
@@ -91,6 +93,10 @@ public class ClassCMAR_2file_App {
 		//newClassification.outputTtree();
 		newClassification.outputCMARrules();
 	 
+		// Metrics snapshot (to System.out, or to the file given by
+		// -Dcmar.metrics=<file>)
+		MiningMetrics.writeSnapshot();
+
 		// End 
 		System.exit(0);
 		}
@@ -15,6 +15,8 @@
 
 import java.io.*;
 
+import util.MiningMetrics;
+
 /* Classification application the CMAR (Classification based on Multiple 
 Associate Rules) algorithm proposed by Wenmin Li, Jiawei Han and Jian Pei,
 but founded on Apriori-TFP.
@@ -51,9 +53,9 @@ public class ClassCMAR_App {
 		// Create instance of class ClassificationPRM	
 		AprioriTFP_CMAR newClassification = new AprioriTFP_CMAR(args);
 				
-		// Read data to be mined from file (method in AssocRuleMining class)
-		newClassification.inputDataSet();
-	
+		// Read data to be mined from file and reorder it (methods in
+		// AssocRuleMining class), loaded from the preprocessing cache if
+		// turned on (-Dcmar.preprocessingCache=true).
 		// Reorder input data according to frequency of single attributes
 		// excluding classifiers. Proceed as follows: (1) create a conversion
 		// array (with classifiers left at end), (2) reorder the attributes 
@@ -62,8 +64,7 @@ public class ClassCMAR_App {
 		// may have thrown away supported attributes that contribute to the 
 		// generation of CRs. NB Never throw away classifiers even if
 		// unsupported!
-		newClassification.idInputDataOrdering();  // ClassificationAprioriT
-		newClassification.recastInputData();      // AssocRuleMining
+		newClassification.inputAndRecastDataSet();  // AssocRuleMining
 	
 		// Create training data set (method in ClassificationAprioriT class)
 		// assuming a 50:50 split
@@ -88,6 +89,10 @@ public class ClassCMAR_App {
 		//newClassification.outputTtree();
 		newClassification.outputCMARrules();
 	
+		// Metrics snapshot (to System.out, or to the file given by
+		// -Dcmar.metrics=<file>)
+		MiningMetrics.writeSnapshot();
+
 		// End
 		System.exit(0);
 		}
@@ -15,6 +15,8 @@
 
 import java.io.*;
 
+import util.MiningMetrics;
+
 /* Ten Cross Validation Classification application using the CMAR 
 (Classification based on Multiple Associate Rules) algorithm proposed by Wenmin 
 Li, Jiawei Han and Jian Pei, but founded on Apriori-TFP.
@@ -48,10 +50,9 @@ public class ClassCMAR_App10 {
 	// Create instance of class ClassificationCMAR	
 	AprioriTFP_CMAR newClassification = new AprioriTFP_CMAR(args);
 				
-	// Read data to be mined from file (method in AssocRuleMining class)
-	newClassification.inputDataSet();
-	newClassification.setNumRowsInInputSet();
-	
+	// Read data to be mined from file and reorder it (methods in
+	// AssocRuleMining class), loaded from the preprocessing cache if turned
+	// on (-Dcmar.preprocessingCache=true).
 	// Reorder input data according to frequency of single attributes
 	// excluding classifiers. Proceed as follows: (1) create a conversion
 	// array (with classifiers left at end), (2) reorder the attributes 
@@ -60,8 +61,8 @@ public class ClassCMAR_App10 {
 	// may have thrown away supported attributes that contribute to the 
 	// generation of CRs. NB Never throw away classifiers even if
 	// unsupported!
-	newClassification.idInputDataOrdering();  // ClassificationAprioriT
-	newClassification.recastInputData();      // AssocRuleMining
+	newClassification.inputAndRecastDataSet();  // AssocRuleMining
+	newClassification.setNumRowsInInputSet();
 	
 	// Create tenths data sets (method in ClassificationAprioriT class)
 	newClassification.createTenthsDataSets();
@@ -81,6 +82,10 @@ public class ClassCMAR_App10 {
 		twoDecPlaces(newClassification.getAverageAccuracy()) + 
 		"</TD><TD>" +
 		twoDecPlaces(newClassification.getSDaccuracy()) + "</TD>");
+	// Metrics snapshot (to System.out, or to the file given by
+	// -Dcmar.metrics=<file>)
+	MiningMetrics.writeSnapshot();
+
 	// End
 	System.exit(0);
 	}
@@ -14,6 +14,8 @@
 
 import java.io.*;
 
+import util.MiningMetrics;
+
 /* Classification application the CMAR (Classification based on Multiple 
 Associate Rules) algorithm proposed by Wenmin Li, Jiawei Han and Jian Pei,
 but founded on Apriori-TFP. Build only a classifier does not test accuracy.
@@ -77,12 +79,10 @@ public class ClassOnlyCMAR_App {
 		// Create instance of class ClassificationPRM	
 		AprioriTFP_CMAR newClassification = new AprioriTFP_CMAR(args);
 				
-		// Read data to be mined from file (method in AssocRuleMining class)
-		// and set number of rows in training set
-		newClassification.inputDataSet();	
-		newClassification.setNumRowsInTrainingSet
-	                                (newClassification.getNumberOfRows());
-	
+		// Read data to be mined from file and reorder it (methods in
+		// AssocRuleMining class), loaded from the preprocessing cache if
+		// turned on (-Dcmar.preprocessingCache=true), and set number of rows
+		// in training set.
 		// Reorder input data according to frequency of single attributes
 		// excluding classifiers. Proceed as follows: (1) create a conversion
 		// array (with classifiers left at end), (2) reorder the attributes 
@@ -91,8 +91,9 @@ public class ClassOnlyCMAR_App {
 		// may have thrown away supported attributes that contribute to the 
 		// generation of CRs. NB Never throw away classifiers even if
 		// unsupported!
-		newClassification.idInputDataOrdering();  // ClassificationAprioriT
-		newClassification.recastInputData();      // AssocRuleMining
+		newClassification.inputAndRecastDataSet();  // AssocRuleMining
+		newClassification.setNumRowsInTrainingSet
+	                                (newClassification.getNumberOfRows());
 	
 		// Mine data, produce T-tree and generate CRs
 		newClassification.startClassification();
@@ -110,6 +111,10 @@ public class ClassOnlyCMAR_App {
 		newClassification.outputNumCMARrules();
 		newClassification.outputCMARrules();
 	
+		// Metrics snapshot (to System.out, or to the file given by
+		// -Dcmar.metrics=<file>)
+		MiningMetrics.writeSnapshot();
+
 		// End
 		System.exit(0);
 		}
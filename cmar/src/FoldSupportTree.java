@@ -0,0 +1,581 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                      F O L D   S U P P O R T   T R E E                     */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+import util.MemoryGovernor;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
+/** Fold support tree: a T-tree of the records of all the tenths data sets
+used in Ten Cross Validation (TCV) in which each node holds a support value
+for each tenth (fold). The training set of a fold is made up of the other
+tenths, so the support of an item set in the training set is its total
+support less its support in the fold. Proceeds as follows:
+<OL>
+<LI>Generate the T-tree level by level in an "Apriori" manner, counting the
+support of each candidate set in each fold in a single pass of the records.
+A candidate set is kept if it is supported in the training set of at least
+one fold, every set supported in the training set of a fold is then
+contained in the T-tree (its subsets are all supported in that training
+set).
+<LI>For each fold serialise the T-tree with the training set supports (see
+<TT>getSerialization</TT>), from which the classifier builds the T-tree of
+the training set (see <TT>loadSerializedTtree</TT> in the TotalSupportTree
+class) leaving out the sets not supported in the training set.
+</OL>
+The T-tree of each training set is thus the T-tree the classifier would
+generate itself, but the supports are counted in one pass of the records
+(per level) rather than one pass of nine tenths of the records for each
+fold. <P> If a memory governor is in use each level must fit the heap, if
+not generation is stopped and the fold support tree released (see
+<TT>isGenerationStopped</TT>), the training sets are then mined separately
+under the governor. */
+
+/* To Compile: javac FoldSupportTree.java */
+
+public class FoldSupportTree {
+
+    /* ------ FIELDS ------ */
+
+    /** Fold support tree node, arrays of these structures are used to store
+    nodes at the same level in any sub-branch of the T-tree. */
+    private static class FoldTtreeNode {
+        /** The support in each fold. */
+	int[] supports;
+	/** A reference variable to the child (if any) of the node. */
+	FoldTtreeNode[] childRef = null;
+
+	/** Constructor with the number of folds.
+	@param numFolds the number of folds. */
+	FoldTtreeNode(int numFolds) {
+	    supports = new int[numFolds];
+	    }
+	}
+
+    /** The reference to the top level of the T-tree. */
+    private FoldTtreeNode[] startTtreeRef = null;
+    /** The tenths data sets (folds), records recast and ordered. */
+    private short[][][] tenthDataSets;
+    /** The number of one item sets (singletons). */
+    private int numOneItemSets;
+    /** The minimum support (in terms of number of records) of the training
+    set of each fold. */
+    private double[] minSupports;
+    /** The maximum number of levels that may be generated in the T-tree. */
+    private int maxLevel;
+    /** The maximum number of frequent sets in a training set, once exceeded
+    T-tree generation stops (as for a single training set). */
+    private int maxNumFrequentSets;
+    /** The number of frequent sets of the training set of each fold so far. */
+    private int[] numFrequentSets;
+    /** The number of levels in the T-tree. */
+    private int numLevelsInTtree = 0;
+    /** The number of support value updates. */
+    private long numUpdates = 0l;
+    /** Flag indicating whether a further level in the T-tree exists. */
+    private boolean nextLevelExists = true;
+    /** Scratch array, reused while a level is generated, holding the labels
+    of the nodes on the path from the top of the T-tree to the current
+    node. */
+    private short[] pathItems = null;
+    /** Scratch array, reused while a level is generated, holding the level
+    arrays containing the nodes on the path to the current node. */
+    private FoldTtreeNode[][] pathRefs = null;
+    /** The memory governor watching the heap while the T-tree is generated,
+    null if not in use. */
+    private MemoryGovernor memoryGovernor = null;
+    /** Flag set when generation was stopped by the memory governor. */
+    private boolean generationStoppedFlag = false;
+
+    /* ------ CONSTRUCTORS ------ */
+
+    /** Constructor with the tenths data sets and mining parameters.
+    @param tenths the tenths data sets (records recast and ordered).
+    @param nOneItemSets the number of one item sets.
+    @param support the support threshold (%).
+    @param maxLevels the maximum number of levels in the T-tree.
+    @param maxFrequentSets the maximum number of frequent sets in the T-tree
+    of a training set. */
+
+    public FoldSupportTree(short[][][] tenths, int nOneItemSets,
+    		double support, int maxLevels, int maxFrequentSets) {
+        tenthDataSets      = tenths;
+	numOneItemSets     = nOneItemSets;
+	maxLevel           = maxLevels;
+	maxNumFrequentSets = maxFrequentSets;
+	numFrequentSets    = new int[tenths.length];
+
+	// Minimum support of each training set, as calculated by the
+	// classifier
+	int numRowsInInputSet = 0;
+	for (int index=0;index<tenths.length;index++)
+			numRowsInInputSet = numRowsInInputSet+tenths[index].length;
+	minSupports = new double[tenths.length];
+	for (int index=0;index<tenths.length;index++) {
+	    int numRowsInTrainingSet = numRowsInInputSet-tenths[index].length;
+	    minSupports[index] = numRowsInTrainingSet*support/100.0;
+	    }
+	}
+
+    /* ------ METHODS ------ */
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                          T-TREE GENERATION                       */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* CREATE FOLD SUPPORT TREE */
+
+    /** Generates the fold support tree level by level, stopping when there
+    are no further candidate sets, the maximum number of levels is reached
+    or the number of frequent sets of every training set exceeds the
+    maximum. If a memory governor is in use and a level does not fit the heap
+    generation is stopped and the T-tree released. */
+
+    public void createFoldSupportTree() {
+        startTtreeRef = null;
+	numUpdates    = 0l;
+	generationStoppedFlag = false;
+	if (numOneItemSets==0) return;
+	MiningPhaseEvent phase = MiningMetrics.begin("tcv.foldSupportTree");
+
+	// Top level
+	startTtreeRef = new FoldTtreeNode[numOneItemSets+1];
+	for (int index=1;index<=numOneItemSets;index++)
+	    	startTtreeRef[index] = new FoldTtreeNode(tenthDataSets.length);
+	for (int fold=0;fold<tenthDataSets.length;fold++) {
+	    for (int index1=0;index1<tenthDataSets[fold].length;index1++) {
+	        short[] record = tenthDataSets[fold][index1];
+		if (record==null) continue;
+		for (int index2=0;index2<record.length;index2++) {
+		    startTtreeRef[record[index2]].supports[fold]++;
+		    numUpdates++;
+		    }
+		}
+	    }
+	pruneLevelN(startTtreeRef,1);
+	int level = 1;
+
+	// Further levels
+	while (level<maxLevel && !frequentSetLimitExceeded()) {
+	    if (memoryLimitReached(level)) break;
+	    nextLevelExists = false;
+	    try {
+	        generateLevelN(level);
+		}
+	    catch (OutOfMemoryError e) {
+	        if (memoryGovernor==null) throw e;
+		stopGeneration(level);
+		break;
+		}
+	    if (!nextLevelExists) break;
+	    level++;
+	    addSupportToTtreeLevelN(level);
+	    pruneLevelN(startTtreeRef,level);
+	    }
+
+	// End
+	numLevelsInTtree = level;
+	MiningMetrics.count("tcv.foldSupportTree.updates",numUpdates);
+	MiningMetrics.end(phase,level);
+	}
+
+    /* MEMORY LIMIT REACHED */
+
+    /** Tests whether the level following the given level fits the heap (if
+    a memory governor is in use), estimated as <TT>estimateNextLevelBytes</TT>
+    in the TotalSupportTree class with a support array per node, stopping
+    generation if not.
+    @param level the level from which the next level is to be generated.
+    @return true if generation has been stopped, false otherwise. */
+
+    private boolean memoryLimitReached(int level) {
+        if (memoryGovernor==null) return(false);
+	long estimate = estimateNextLevelBytes(startTtreeRef,level);
+	if (memoryGovernor.canAllocate(estimate)) return(false);
+	stopGeneration(level);
+	return(true);
+	}
+
+    /** Stops generation by the memory governor, releasing the T-tree.
+    @param level the level from which the next level was to be
+    generated. */
+
+    private void stopGeneration(int level) {
+        startTtreeRef = null;
+	generationStoppedFlag = true;
+	System.out.println("Level = " + level + ", next level of fold " +
+		"support tree does not fit heap available, generation " +
+		"process stopped!\n" + memoryGovernor.report());
+	MiningMetrics.count("memory.stopped",1);
+	}
+
+    /** Estimates the size in bytes of the level following the given level.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @return the estimated size in bytes. */
+
+    private long estimateNextLevelBytes(FoldTtreeNode[] linkRef, int level) {
+        long bytes = 0l;
+
+	// Correct level, each node gets a child array holding at most one node
+	// (with its support array) for each node before it
+	if (level == 1) {
+	    long nodeBytes = TotalSupportTree.TTREE_NODE_BYTES +
+	    		TotalSupportTree.arrayBytes(tenthDataSets.length);
+	    int numBefore = 0;
+	    for (int index=1;index<linkRef.length;index++) {
+	        if (linkRef[index]==null) continue;
+		if (index>=2) bytes = bytes+TotalSupportTree.arrayBytes(index)+
+				numBefore*nodeBytes;
+		numBefore++;
+		}
+	    }
+
+	// Wrong level
+	else {
+	    for (int index=level;index<linkRef.length;index++) {
+	        if (linkRef[index]!=null && linkRef[index].childRef!=null)
+		    bytes = bytes+estimateNextLevelBytes(
+		    			linkRef[index].childRef,level-1);
+		}
+	    }
+
+	// Return
+	return(bytes);
+	}
+
+    /* FREQUENT SET LIMIT EXCEEDED */
+
+    /** Tests whether the number of frequent sets of every training set
+    exceeds the maximum, in which case generation of each training set's
+    T-tree would have stopped.
+    @return true if the limit is exceeded for every training set, false
+    otherwise. */
+
+    private boolean frequentSetLimitExceeded() {
+        for (int fold=0;fold<numFrequentSets.length;fold++) {
+	    if (numFrequentSets[fold]<=maxNumFrequentSets) return(false);
+	    }
+	return(true);
+	}
+
+    /* ADD SUPPORT VALUES TO T-TREE LEVEL N */
+
+    /** Adds the support of each record of each fold to the given level of
+    the T-tree (other than the top level).
+    @param level the level number (top level = 1). */
+
+    private void addSupportToTtreeLevelN(int level) {
+        for (int fold=0;fold<tenthDataSets.length;fold++) {
+	    for (int index=0;index<tenthDataSets[fold].length;index++) {
+	        short[] record = tenthDataSets[fold][index];
+		if (record!=null) addSupportToTtree(startTtreeRef,level,
+						record.length,record,fold);
+		}
+	    }
+	}
+
+    /** Adds support to a given level in the T-tree, as
+    <TT>addSupportToTtree</TT> in the TotalSupportTree class.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, 1 at the level to be counted.
+    @param endIndex the index into the record at which processing should be
+    stopped.
+    @param record the record.
+    @param fold the fold containing the record. */
+
+    private void addSupportToTtree(FoldTtreeNode[] linkRef, int level,
+    				int endIndex, short[] record, int fold) {
+        // At right level
+	if (level == 1) {
+	    for (int index=0;index<endIndex;index++) {
+	        if (linkRef[record[index]] != null) {
+		    linkRef[record[index]].supports[fold]++;
+		    numUpdates++;
+		    }
+		}
+	    return;
+	    }
+
+	// At wrong level
+	for (int index=level-1;index<endIndex;index++) {
+	    if (linkRef[record[index]] != null &&
+	    			linkRef[record[index]].childRef != null)
+		addSupportToTtree(linkRef[record[index]].childRef,level-1,
+						index,record,fold);
+	    }
+	}
+
+    /* PRUNE LEVEL N */
+
+    /** Prunes the given level in the T-tree, removing the nodes not supported
+    in the training set of any fold, and counts the frequent sets of each
+    training set.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, 1 at the level to be pruned.
+    @return true if all nodes at the level in the given branch have been
+    pruned, false otherwise. */
+
+    private boolean pruneLevelN(FoldTtreeNode[] linkRef, int level) {
+        int size = linkRef.length;
+
+	// At right level
+	if (level == 1) {
+	    boolean allUnsupported = true;
+	    for (int index=1;index<size;index++) {
+	        if (linkRef[index] != null) {
+		    if (countFrequentSets(linkRef[index])) allUnsupported = false;
+		    else linkRef[index] = null;
+		    }
+		}
+	    return(allUnsupported);
+	    }
+
+	// Wrong level
+	for (int index=level;index<size;index++) {
+	    if (linkRef[index]!=null && linkRef[index].childRef!=null) {
+	        if (pruneLevelN(linkRef[index].childRef,level-1))
+				linkRef[index].childRef = null;
+		}
+	    }
+	return(false);
+	}
+
+    /** Counts the given node as a frequent set of each training set in which
+    it is supported.
+    @param node the node.
+    @return true if supported in at least one training set, false
+    otherwise. */
+
+    private boolean countFrequentSets(FoldTtreeNode node) {
+        int totalSupport = 0;
+	for (int fold=0;fold<node.supports.length;fold++)
+			totalSupport = totalSupport+node.supports[fold];
+
+	// Training set supports
+	boolean supported = false;
+	for (int fold=0;fold<node.supports.length;fold++) {
+	    if (totalSupport-node.supports[fold] >= minSupports[fold]) {
+	        numFrequentSets[fold]++;
+		supported = true;
+		}
+	    }
+	return(supported);
+	}
+
+    /* GENERATE LEVEL N */
+
+    /** Generates the candidate sets of the level below the given level, as
+    <TT>generateLevelN</TT> in the TotalSupportTree class: a candidate is
+    added to a node if its sibling with the lower label exists and all its
+    other size-1 subsets are in the T-tree (X-checking). The path from the
+    top of the T-tree to the current node is held in the <TT>pathItems</TT>
+    and <TT>pathRefs</TT> scratch arrays, from which the subsets are searched
+    for without building them.
+    @param level the level from which candidates are generated. */
+
+    private void generateLevelN(int level) {
+        pathItems = new short[level];
+	pathRefs  = new FoldTtreeNode[level][];
+	try {
+	    generateLevelN(startTtreeRef,level,0);
+	    }
+	finally {
+	    pathItems = null;
+	    pathRefs  = null;
+	    }
+	}
+
+    /** Continues the process of generating the candidate sets.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, 1 at the level from which candidates are
+    generated.
+    @param depth the number of nodes on the path to the current
+    sub-branch. */
+
+    private void generateLevelN(FoldTtreeNode[] linkRef, int level,
+    							int depth) {
+        int size = linkRef.length;
+	pathRefs[depth] = linkRef;
+
+	// At right level
+	if (level == 1) {
+	    for (int index=2;index<size;index++) {
+	        if (linkRef[index] == null) continue;
+		pathItems[depth] = (short) index;
+		FoldTtreeNode[] childRef = new FoldTtreeNode[index];
+		boolean childExists = false;
+		for (int index2=1;index2<index;index2++) {
+		    if (linkRef[index2]!=null &&
+		    			testCombinations(depth+1,index2)) {
+		        childRef[index2] = new FoldTtreeNode(
+						tenthDataSets.length);
+			childExists = true;
+			}
+		    }
+		if (childExists) {
+		    linkRef[index].childRef = childRef;
+		    nextLevelExists = true;
+		    }
+		}
+	    return;
+	    }
+
+	// At wrong level
+	for (int index=level;index<size;index++) {
+	    if (linkRef[index]!=null && linkRef[index].childRef!=null) {
+	        pathItems[depth] = (short) index;
+	    	generateLevelN(linkRef[index].childRef,level-1,depth+1);
+		}
+	    }
+	}
+
+    /* TEST COMBINATIONS */
+
+    /** Tests whether the size-1 subsets of a candidate set, comprising the
+    path items followed by a last item, which leave out one of the path items
+    other than the last are in the T-tree (the other two are the parent node
+    and its sibling), as <TT>testCombinations</TT> in the TotalSupportTree
+    class. Each such subset shares the path up to the item left out so is
+    searched for from the level array containing that item.
+    @param pathLength the number of path items.
+    @param lastItem the last item.
+    @return true if all are in the T-tree, false otherwise. */
+
+    private boolean testCombinations(int pathLength, int lastItem) {
+        for (int omit=0;omit<pathLength-1;omit++) {
+	    FoldTtreeNode[] linkRef = pathRefs[omit];
+	    for (int index=omit+1;index<pathLength && linkRef!=null;index++) {
+	        FoldTtreeNode node = linkRef[pathItems[index]];
+		if (node == null) return(false);
+		linkRef = node.childRef;
+		}
+	    if (linkRef==null || linkRef[lastItem]==null) return(false);
+	    }
+	return(true);
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                           SERIALIZATION                          */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* GET SERIALIZATION */
+
+    /** Serialises the T-tree of the training set of the given fold, in the
+    form used by <TT>serializeTtee</TT> in the TotalSupportTree class (label,
+    support, index of first child, index of next sibling), with the support
+    of each node in the training set (total support less the support in the
+    fold). Only the nodes supported in the training set are included.
+    @param fold the fold (the test set).
+    @return the serialization array. */
+
+    public int[] getSerialization(int fold) {
+        int[] serialization = new int[64];
+	int[] size = new int[1];
+	if (startTtreeRef!=null) serialization = serialize(startTtreeRef,
+						fold,serialization,size);
+
+	// Return
+	int[] result = new int[size[0]];
+	System.arraycopy(serialization,0,result,0,size[0]);
+	return(result);
+	}
+
+    /** Serialises a branch of the T-tree.
+    @param linkRef the reference to the branch.
+    @param fold the fold (the test set).
+    @param serialization the serialization array so far.
+    @param size the number of elements used in the serialization array (one
+    element array, updated).
+    @return the serialization array (reallocated if enlarged). */
+
+    private int[] serialize(FoldTtreeNode[] linkRef, int fold,
+    				int[] serialization, int[] size) {
+        int linkIndex = -1;
+
+	for (int index=1;index<linkRef.length;index++) {
+	    FoldTtreeNode node = linkRef[index];
+	    if (node==null) continue;
+	    int support = -node.supports[fold];
+	    for (int index2=0;index2<node.supports.length;index2++)
+	    		support = support+node.supports[index2];
+	    if (support<minSupports[fold]) continue;
+
+	    // Add node
+	    if (size[0]+4>serialization.length) {
+	        int[] newSerialization = new int[serialization.length*2];
+		System.arraycopy(serialization,0,newSerialization,0,size[0]);
+		serialization = newSerialization;
+		}
+	    int newIndex = size[0];
+	    serialization[newIndex]   = index;
+	    serialization[newIndex+1] = support;
+	    serialization[newIndex+2] = -1;
+	    serialization[newIndex+3] = -1;
+	    size[0] = size[0]+4;
+	    if (linkIndex!=-1) serialization[linkIndex+3] = newIndex;
+	    linkIndex = newIndex;
+
+	    // Add child branch
+	    if (node.childRef!=null) {
+	        int childIndex = size[0];
+		serialization = serialize(node.childRef,fold,serialization,size);
+		if (size[0]>childIndex) serialization[newIndex+2] = childIndex;
+		}
+	    }
+
+	// Return
+	return(serialization);
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                            SET METHODS                           */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /** Sets the memory governor watching the heap while the T-tree is
+    generated.
+    @param governor the governor, null if not in use. */
+
+    public void setMemoryGovernor(MemoryGovernor governor) {
+        memoryGovernor = governor;
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                            GET METHODS                           */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /** Tests whether generation was stopped by the memory governor, the
+    T-tree is then released.
+    @return true if stopped, false otherwise. */
+
+    public boolean isGenerationStopped() {
+        return(generationStoppedFlag);
+	}
+
+    /** Gets the number of levels in the T-tree.
+    @return the number of levels. */
+
+    public int getNumLevelsInTtree() {
+        return(numLevelsInTtree);
+	}
+
+    /** Gets the number of support value updates made generating the T-tree.
+    @return the number of updates. */
+
+    public long getNumUpdates() {
+        return(numUpdates);
+	}
+    }
@@ -0,0 +1,360 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                      I T E M   N A M E   D I C T I O N A R Y               */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/** Dictionary of item names, used when outputting rules, loaded once and
+held with the trained model. <P> Replaces reading the serialized
+<TT>HashMap</TT> in <TT>relation.txt</TT> (antecedent items) or
+<TT>produitRelations.txt</TT> (consequent items) each time a name is needed;
+there is one dictionary for each map, so antecedent and consequent names are
+looked up as before. The dictionary is stored in a compact binary file which
+is memory mapped when loaded:
+<PRE>
+int    MAGIC
+int    VERSION
+int    numIds
+int    tableLength
+int[]  offsets (numIds+1 values, into the string table)
+byte[] string table (UTF-8)
+</PRE>
+The name for item <TT>id</TT> is the bytes between <TT>offsets[id]</TT> and
+<TT>offsets[id+1]</TT>; an empty range means no name. Names are decoded on
+first use only. */
+
+/* To Compile: javac ItemNameDictionary.java */
+
+public class ItemNameDictionary {
+
+    /* ------ FIELDS ------ */
+
+    /** File identifier ("INMD"). */
+    public static final int MAGIC = 0x494E4D44;
+    /** File format version. */
+    public static final int VERSION = 1;
+    /** Size of file header in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    /** Default antecedent dictionary file name. */
+    public static final String ANTECEDENT_DICT_FILE_NAME = "antecedentNames.dic";
+    /** Default consequent dictionary file name. */
+    public static final String CONSEQUENT_DICT_FILE_NAME = "consequentNames.dic";
+    /** Legacy serialized antecedent name map. */
+    public static final String ANTECEDENT_FILE_NAME = "relation.txt";
+    /** Legacy serialized consequent name map. */
+    public static final String CONSEQUENT_FILE_NAME = "produitRelations.txt";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Default antecedent dictionary, loaded once on first request. */
+    private static ItemNameDictionary defaultAntecedents = null;
+    /** Default consequent dictionary, loaded once on first request. */
+    private static ItemNameDictionary defaultConsequents = null;
+
+    /** Buffer holding the dictionary (mapped or on heap). */
+    private ByteBuffer buffer;
+    /** Number of item ids covered. */
+    private int numIds;
+    /** Decoded names, filled on first use. */
+    private String[] cache;
+
+    /* ------ CONSTRUCTORS ------ */
+
+    /** Constructor with given dictionary buffer, positioned anywhere.
+    @param dictBuffer the buffer holding the binary dictionary.
+    @throws IOException if the buffer is not a dictionary. */
+
+    public ItemNameDictionary(ByteBuffer dictBuffer) throws IOException {
+        buffer = dictBuffer;
+	if (buffer.limit()<HEADER_SIZE || buffer.getInt(0)!=MAGIC)
+	                  throw new IOException("Not an item name dictionary");
+	if (buffer.getInt(4)!=VERSION) throw new IOException("Item name " +
+			"dictionary version " + buffer.getInt(4) + " not supported");
+	numIds = buffer.getInt(8);
+	if (buffer.limit() < HEADER_SIZE + 4*(numIds+1) + buffer.getInt(12))
+	                     throw new IOException("Truncated item name dictionary");
+	cache = new String[numIds];
+	}
+
+    /* ------ METHODS ------ */
+
+    /* GET NAME */
+    /** Returns the name of the given item.
+    @param id the item number.
+    @return the name, or null if there is none. */
+
+    public String getName(short id) {
+        if (id<0 || id>=numIds) return(null);
+	if (cache[id]==null) {
+	    int start = buffer.getInt(HEADER_SIZE+4*id);
+	    int end   = buffer.getInt(HEADER_SIZE+4*(id+1));
+	    if (end==start) return(null);
+	    byte[] bytes = new byte[end-start];
+	    int tableStart = HEADER_SIZE + 4*(numIds+1);
+	    for (int index=0;index<bytes.length;index++)
+	            bytes[index] = buffer.get(tableStart+start+index);
+	    cache[id] = new String(bytes,UTF8);
+	    }
+	return(cache[id]);
+	}
+
+    /* GET NAMES */
+    /** Returns the names of the given items.
+    @param itemSet the item numbers.
+    @return the names (null where there is none), or null for a null item set. */
+
+    public String[] getNames(short[] itemSet) {
+        if (itemSet==null) return(null);
+	String[] names = new String[itemSet.length];
+	for (int index=0;index<itemSet.length;index++)
+	                            names[index] = getName(itemSet[index]);
+	return(names);
+	}
+
+    /* IS EMPTY */
+    /** @return true if the dictionary holds no names. */
+
+    public boolean isEmpty() {
+        return(buffer.getInt(12)==0);
+	}
+
+    /* GET NUMBER OF IDS */
+    /** @return the number of item ids covered by the dictionary. */
+
+    public int getNumIds() {
+        return(numIds);
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                       LOAD AND SAVE                              */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* GET DEFAULT ANTECEDENTS */
+    /** Returns the default antecedent dictionary, loading it on first call.
+    The compact file <TT>antecedentNames.dic</TT> is memory mapped if present,
+    otherwise the legacy <TT>relation.txt</TT> map is read (once), otherwise
+    the dictionary is empty.
+    @return the default antecedent dictionary. */
+
+    public static synchronized ItemNameDictionary getDefaultAntecedents() {
+        if (defaultAntecedents==null) defaultAntecedents =
+	       loadDefault(ANTECEDENT_DICT_FILE_NAME,ANTECEDENT_FILE_NAME);
+	return(defaultAntecedents);
+	}
+
+    /* GET DEFAULT CONSEQUENTS */
+    /** Returns the default consequent dictionary, loading it on first call.
+    The compact file <TT>consequentNames.dic</TT> is memory mapped if present,
+    otherwise the legacy <TT>produitRelations.txt</TT> map is read (once),
+    otherwise the dictionary is empty.
+    @return the default consequent dictionary. */
+
+    public static synchronized ItemNameDictionary getDefaultConsequents() {
+        if (defaultConsequents==null) defaultConsequents =
+	       loadDefault(CONSEQUENT_DICT_FILE_NAME,CONSEQUENT_FILE_NAME);
+	return(defaultConsequents);
+	}
+
+    /** Loads a default dictionary, from the dictionary file if present,
+    otherwise from the legacy map.
+    @param dictFileName the dictionary file.
+    @param mapFileName the legacy map file.
+    @return the dictionary, empty if neither file can be read. */
+
+    private static ItemNameDictionary loadDefault(String dictFileName,
+                                                       String mapFileName) {
+        try {
+	    if (new File(dictFileName).exists())
+	                                   return(mapDictionary(dictFileName));
+	    if (new File(mapFileName).exists())
+	                                  return(readLegacyMap(mapFileName));
+	    }
+	catch (IOException e) {
+	    System.out.println("WARNING: unable to load item names: " + e);
+	    }
+	return(createDictionary(new String[0]));
+	}
+
+    /* MAP DICTIONARY */
+    /** Memory maps a dictionary file.
+    @param fileName the dictionary file.
+    @return the dictionary.
+    @throws IOException if the file can not be read or is not a dictionary. */
+
+    public static ItemNameDictionary mapDictionary(String fileName)
+                                                         throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName,"r");
+	try {
+	    FileChannel channel = file.getChannel();
+	    return(new ItemNameDictionary(channel.map(
+	                      FileChannel.MapMode.READ_ONLY,0,channel.size())));
+	    }
+	finally {
+	    file.close();
+	    }
+	}
+
+    /* CREATE DICTIONARY */
+    /** Creates an on heap dictionary from an array of names indexed by item
+    number.
+    @param names the names, null where there is none.
+    @return the dictionary. */
+
+    public static ItemNameDictionary createDictionary(String[] names) {
+        byte[][] encoded = new byte[names.length][];
+	int tableLength = 0;
+	for (int index=0;index<names.length;index++) {
+	    if (names[index]!=null) {
+	        encoded[index] = names[index].getBytes(UTF8);
+		tableLength = tableLength + encoded[index].length;
+		}
+	    }
+	ByteBuffer newBuffer = ByteBuffer.allocate(HEADER_SIZE +
+	                                   4*(names.length+1) + tableLength);
+	newBuffer.putInt(MAGIC);
+	newBuffer.putInt(VERSION);
+	newBuffer.putInt(names.length);
+	newBuffer.putInt(tableLength);
+	int offset = 0;
+	for (int index=0;index<names.length;index++) {
+	    newBuffer.putInt(offset);
+	    if (encoded[index]!=null) offset = offset + encoded[index].length;
+	    }
+	newBuffer.putInt(offset);
+	for (int index=0;index<names.length;index++) {
+	    if (encoded[index]!=null) newBuffer.put(encoded[index]);
+	    }
+	try {
+	    return(new ItemNameDictionary(newBuffer));
+	    }
+	catch (IOException e) {
+	    throw new IllegalStateException(e);   // Can not happen
+	    }
+	}
+
+    /* READ LEGACY MAP */
+    /** Reads a serialized name map (keyed by <TT>Short.toString(id)</TT>),
+    such as <TT>relation.txt</TT> or <TT>produitRelations.txt</TT>, once.
+    @param fileName the map file.
+    @return the dictionary, empty if the file does not exist.
+    @throws IOException if the file can not be read. */
+
+    public static ItemNameDictionary readLegacyMap(String fileName)
+                                                         throws IOException {
+        Map<String,Object> map = readMap(fileName);
+	String[] names = new String[maxKey(map)+1];
+	for (int index=0;index<names.length;index++) {
+	    Object name = map.get(Integer.toString(index));
+	    if (name!=null) names[index] = name.toString();
+	    }
+	return(createDictionary(names));
+	}
+
+    /** Reads a serialized name map.
+    @param fileName the map file.
+    @return the map, empty if the file does not exist.
+    @throws IOException if the file can not be read. */
+
+    private static Map<String,Object> readMap(String fileName)
+                                                         throws IOException {
+        if (fileName==null || !new File(fileName).exists())
+	                                  return(new HashMap<String,Object>());
+	ObjectInputStream input = new ObjectInputStream(
+	                                          new FileInputStream(fileName));
+	try {
+	    return((Map<String,Object>) input.readObject());
+	    }
+	catch (ClassNotFoundException e) {
+	    throw new IOException("Bad name map " + fileName + ": " + e);
+	    }
+	finally {
+	    input.close();
+	    }
+	}
+
+    /** Returns the largest numeric key of a name map.
+    @param map the map.
+    @return the largest key, -1 if none. */
+
+    private static int maxKey(Map<String,Object> map) {
+        int maxId = -1;
+	Iterator<String> keys = map.keySet().iterator();
+	while (keys.hasNext()) {
+	    try {
+	        int id = Integer.parseInt(keys.next().trim());
+		if (id>maxId && id<=Short.MAX_VALUE) maxId = id;
+		}
+	    catch (NumberFormatException e) {
+	        // Ignore non numeric keys
+		}
+	    }
+	return(maxId);
+	}
+
+    /* WRITE DICTIONARY */
+    /** Writes the dictionary to the given file.
+    @param fileName the file name.
+    @throws IOException if the file can not be written. */
+
+    public void writeDictionary(String fileName) throws IOException {
+        DataOutputStream output = new DataOutputStream(new
+	                BufferedOutputStream(new FileOutputStream(fileName)));
+	try {
+	    int length = HEADER_SIZE + 4*(numIds+1) + buffer.getInt(12);
+	    for (int index=0;index<length;index++)
+	                                  output.writeByte(buffer.get(index));
+	    }
+	finally {
+	    output.close();
+	    }
+	}
+
+    /* MAIN */
+    /** Converts a legacy serialized name map to a dictionary file, by default
+    both <TT>relation.txt</TT> and <TT>produitRelations.txt</TT> to
+    <TT>antecedentNames.dic</TT> and <TT>consequentNames.dic</TT>.
+    <P>Usage: <TT>java ItemNameDictionary [mapFile dictFile]</TT>
+    @param args the file names. */
+
+    public static void main(String[] args) throws IOException {
+        if (args.length>=2) convert(args[0],args[1]);
+	else {
+	    convert(ANTECEDENT_FILE_NAME,ANTECEDENT_DICT_FILE_NAME);
+	    convert(CONSEQUENT_FILE_NAME,CONSEQUENT_DICT_FILE_NAME);
+	    }
+	}
+
+    /** Converts a legacy serialized name map to a dictionary file.
+    @param mapFileName the map file.
+    @param dictFileName the dictionary file.
+    @throws IOException if a file can not be read or written. */
+
+    private static void convert(String mapFileName, String dictFileName)
+                                                         throws IOException {
+        ItemNameDictionary dictionary = readLegacyMap(mapFileName);
+	dictionary.writeDictionary(dictFileName);
+	System.out.println("Written " + dictFileName + " (" +
+	                            dictionary.getNumIds() + " item ids)");
+	}
+    }
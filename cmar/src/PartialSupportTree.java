@@ -23,10 +23,19 @@ AssocRuleMining
 /* Java packages */
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
 /** Methods to implement the "Apriori-TFP" (Total From Partial) ARM algorithm
 using both the T-tree (Total support tree) and P-tree (Partial support tree
 data structures.
@@ -41,48 +50,29 @@ public class PartialSupportTree extends TotalSupportTree {
     /*                                                                        */
     /*------------------------------------------------------------------------*/
 
-    /* ------ NESTED CLASSES ------ */
-    
-    /** Structurte to contain P-tree data in tabular form for improved
-    computational efficiency when creating T-tree. <P> A 2-D array of these 
-    structures is created in which to store the Ptree. */
-        	
-    protected class PtreeRecord {
-    	/** Label for P-tree node. */
-        protected short[] pTreeNodeLabel = null;
-	/** Union of a pTree node label (<TT>pTreeNodeLabel</TT>) and all its
-    	ancestor node labels. */
-        protected short[] pTreeItemSet = null;
-        /** Partial support count. */
-	protected int support = 0;
-	
-	/** Constructor to creaste a P-tree record for inclusion in table.
-	@param nodeLabel the label for P-tree node. 
-	@param itemSet the uunion of a pTree node label (<TT>nodeLabel</TT>) 
-	and all its ancestor node labels. 
-	@param sup the partial support count. */
-	protected PtreeRecord(short[] nodeLabel, short[] itemSet, int sup) {
-	    pTreeNodeLabel = nodeLabel;
-	    pTreeItemSet   = itemSet;
-	    support        = sup;
-	    }  
-        }
-    
     /** Reference variable pointing to start of P-tree. */
     protected PtreeNodeTop[]   startPtreeRef = null;  	
     
     /* ------ P-TREE DATA TABLE ----- */
     
-    /** Array of arrays data structures for P-tree table (used as a
-    computational efficiency measure). */
-    protected PtreeRecord[][] startPtreeTable = null;
+    /** Packed P-tree table (used as a computational efficiency measure). */
+    protected PtreeTable pTreeTable = null;
     /** Array for holding the number of P-tree nodes for each possible
     cardinality given the number of attributes, maximum is equal to number of
     columns. */
     protected int[] pTreeNodesOfCardinalityN  = null;
-    /** Array of "markers" used during the generation of the P-tree, and
-    contains "current index" values for each level of cardinality. */
-    protected int[] pTreeTableMarker          = null; 
+
+    /* ------ PARALLEL P-TREE BUILDING ------ */
+
+    /** Minimum number of records in a data partition when the P-tree is built
+    in parallel, smaller data sets are processed by a single thread. */
+    protected static final int MIN_PTREE_PARTITION_SIZE = 10000;
+    /** Minimum number of P-tree table records for support counting to be
+    divided between threads. */
+    protected static final int MIN_PTREE_TABLE_SIZE_FOR_THREADS = 10000;
+    /** Maximum number of threads used to build the P-tree and to count
+    support from the P-tree table. */
+    private int numPtreeThreads = Runtime.getRuntime().availableProcessors();
 
     /* Other fields */
     
@@ -136,13 +126,23 @@ public class PartialSupportTree extends TotalSupportTree {
     /** Processes data set causing each row to be added to P-Tree. */
 
     public void createPtree() {
+		MiningPhaseEvent phase = MiningMetrics.begin("ptree.build");
+
+		// Large data set, build P-tree table in parallel
+		int numPartitions = getNumPtreePartitions();
+		if (numPartitions>1) {
+		    System.out.println("Creating P-tree table (" + numPartitions +
+		    				" partitions)");
+		    createPtreeTableInParallel(numPartitions);
+		    MiningMetrics.end(phase,dataArray.length);
+		    return;
+		    }
+
 		// Dimension top line of P-tree
 		startPtreeRef = new PtreeNodeTop[numOneItemSets+1];
 
-		// Dimension P-tree table
-        startPtreeTable          = new PtreeRecord[numOneItemSets+1][];
+		// Dimension P-tree node counts
 		pTreeNodesOfCardinalityN = new int[numOneItemSets+1];
-		pTreeTableMarker         = new int[numOneItemSets+1];
 
 		// Initilalise top level of Ptree with nulls
 		for(int index=0;index<startPtreeRef.length;index++)
@@ -162,6 +162,7 @@ public class PartialSupportTree extends TotalSupportTree {
 		// Create P-tree table
 		System.out.println("Creating P-tree table");
 		createPtreeTable();
+		MiningMetrics.end(phase,dataArray.length);
 		}
 
     /** Processes data set causing each row to be added to P-Tree: GUI version.
@@ -169,14 +170,23 @@ public class PartialSupportTree extends TotalSupportTree {
 
     public void createPtree(JTextArea textArea) {
 		textArea.append("Generating P-tree\n");
+		MiningPhaseEvent phase = MiningMetrics.begin("ptree.build");
+
+		// Large data set, build P-tree table in parallel
+		int numPartitions = getNumPtreePartitions();
+		if (numPartitions>1) {
+		    textArea.append("Creating P-tree table (" + numPartitions +
+		    				" partitions)\n");
+		    createPtreeTableInParallel(numPartitions);
+		    MiningMetrics.end(phase,dataArray.length);
+		    return;
+		    }
 
 		// Dimension top line of P-tree
 		startPtreeRef     = new PtreeNodeTop[numOneItemSets+1];
 
-		// Dimension P-tree table
-        startPtreeTable          = new PtreeRecord[numOneItemSets+1][];
+		// Dimension P-tree node counts
 		pTreeNodesOfCardinalityN = new int[numOneItemSets+1];
-		pTreeTableMarker         = new int[numOneItemSets+1];
 
 		// Initilalise top level of Ptree with nulls
 		for(int index=0;index<startPtreeRef.length;index++)
@@ -196,6 +206,7 @@ public class PartialSupportTree extends TotalSupportTree {
 		// Create P-tree table
 		textArea.append("Creating P-tree table\n");
 		createPtreeTable();
+		MiningMetrics.end(phase,dataArray.length);
 		}
 
     /* ADD TO P-TREE TOP LEVEL */
@@ -812,20 +823,15 @@ public class PartialSupportTree extends TotalSupportTree {
     /** Creates P-tree table starting with top level in P-tree. <P> Proceed as
     follows.
     <OL>
-    <LI>Create an array of arrays.
+    <LI>Create the (packed) table dimensioned according to the number of nodes
+    of each cardinality.
     <LI>Add top level of Ptree.
     <LI>Add remaining nodes in sub-branches.
     </OL> */
 
     public void createPtreeTable() {
- 	// Set up array of arrays
-	for (int index=1;index<pTreeNodesOfCardinalityN.length;index++) {
-	    // There may be no itemSets in the Ptree of a particular size
-	    if (pTreeNodesOfCardinalityN[index] == 0)
-	    					startPtreeTable[index] = null;
-	    else startPtreeTable[index] =
-	    		     new PtreeRecord[pTreeNodesOfCardinalityN[index]];
-	    }
+ 	// Set up table
+	pTreeTable = new PtreeTable(pTreeNodesOfCardinalityN);
 
 	// Process Ptree
 	for (int index=0;index < startPtreeRef.length;index++) {
@@ -878,24 +884,191 @@ public class PartialSupportTree extends TotalSupportTree {
 
     /* ADD TO P-TREE ARRAY */
 
-    /** Adds data associated with a P-tree node to the P-tree 2-D table.
-    @param pTreeNodeLabel the union of all the parent labels.
-    @param pTreeItemSet the node label.
+    /** Adds data associated with a P-tree node to the P-tree table.
+    @param pTreeNodeLabel the node label (null for a top level node).
+    @param pTreeItemSet the union of all the parent labels (the node label for
+    a top level node).
     @param support the support associated with the node
     @param level the current levl in the P-tree. */
 
     private void addToPtreeArray(short[] pTreeNodeLabel, short[] pTreeItemSet,
     			int support, int level) {
 
-	if (pTreeNodeLabel == null) {
-	    startPtreeTable[level][pTreeTableMarker[level]] =
-			new PtreeRecord(pTreeItemSet,pTreeItemSet,support);
+	if (pTreeNodeLabel == null) pTreeTable.addRecord(null,pTreeItemSet,
+								support);
+	else pTreeTable.addRecord(pTreeItemSet,pTreeNodeLabel,support);
+	}
+
+    /*----------------------------------------------------------------------- */
+    /*                                                                        */
+    /*                        PARALLEL P-TREE BUILDING                        */
+    /*                                                                        */
+    /*----------------------------------------------------------------------- */
+
+    /* Large data sets are divided into partitions, a P-tree and P-tree table
+    is built for each partition by a separate thread and the P-tree tables are
+    then merged. The T-tree is generated from the merged table in the same way
+    as from the table of a single P-tree: the support added to the T-tree by a
+    P-tree table record does not depend on the other records, hence the T-tree
+    is the same as the T-tree generated from a P-tree built sequentially. The
+    P-tree itself is not kept, the parallel build is therefore only used when
+    the P-tree is deleted as the table is created and no P-tree output is
+    required. */
+
+    /* GET NUMBER OF P-TREE PARTITIONS */
+
+    /** Determines the number of data partitions to build P-trees for, 1 if
+    the P-tree is to be built sequentially.
+    @return the number of partitions. */
+
+    protected int getNumPtreePartitions() {
+        if (!okToDeletePtreeFlag || outputPtreeFlag || outputPtreeStatsFlag)
+								return(1);
+	int numPartitions = dataArray.length/MIN_PTREE_PARTITION_SIZE;
+
+	// Return
+	return(Math.max(1,Math.min(numPtreeThreads,numPartitions)));
+	}
+
+    /* CREATE P-TREE TABLE IN PARALLEL */
+
+    /** Divides the data array into partitions of (almost) equal size, builds
+    a P-tree and P-tree table for each partition on a separate thread and
+    merges the P-tree tables into the P-tree table for the complete data set.
+    @param numPartitions the number of partitions. */
+
+    protected void createPtreeTableInParallel(int numPartitions) {
+        // Create a P-tree builder for each partition
+	final PartialSupportTree[] partitionTrees =
+				new PartialSupportTree[numPartitions];
+	int startIndex = 0;
+	for (int index=0;index<numPartitions;index++) {
+	    int endIndex = (int) ((long) dataArray.length*(index+1)/
+	    						numPartitions);
+	    partitionTrees[index] = new PartialSupportTree();
+	    partitionTrees[index].numOneItemSets = numOneItemSets;
+	    partitionTrees[index].dataArray = new short[endIndex-startIndex][];
+	    System.arraycopy(dataArray,startIndex,
+	    	partitionTrees[index].dataArray,0,endIndex-startIndex);
+	    startIndex = endIndex;
 	    }
-	else startPtreeTable[level][pTreeTableMarker[level]] =
-		new PtreeRecord(pTreeNodeLabel,append(pTreeItemSet,
-							pTreeNodeLabel),support);
 
-	pTreeTableMarker[level]++;
+	// Build P-trees and P-tree tables
+	ExecutorService executor = Executors.newFixedThreadPool(numPartitions);
+	try {
+	    List<Future<?>> results = new ArrayList<Future<?>>();
+	    for (int index=0;index<numPartitions;index++) {
+	        final PartialSupportTree partitionTree = partitionTrees[index];
+		results.add(executor.submit(new Runnable() {
+		    public void run() {
+		        partitionTree.createPartitionPtreeTable();
+			}
+		    }));
+		}
+	    for (int index=0;index<results.size();index++)
+	    					results.get(index).get();
+	    }
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("P-tree build interrupted");
+	    }
+	catch (ExecutionException e) {
+	    if (e.getCause() instanceof RuntimeException)
+	    		throw (RuntimeException) e.getCause();
+	    if (e.getCause() instanceof Error) throw (Error) e.getCause();
+	    throw new IllegalStateException("P-tree build failed: " +
+	    							e.getCause());
+	    }
+	finally {
+	    executor.shutdown();
+	    }
+
+	// Merge
+	mergePtreeTables(partitionTrees);
+	}
+
+    /* CREATE PARTITION P-TREE TABLE */
+
+    /** Builds the P-tree and P-tree table for the data array of a partition,
+    as <TT>createPtree</TT> but without output (called by a partition
+    thread). */
+
+    private void createPartitionPtreeTable() {
+        // Dimension P-tree and P-tree node counts
+	startPtreeRef            = new PtreeNodeTop[numOneItemSets+1];
+	pTreeNodesOfCardinalityN = new int[numOneItemSets+1];
+
+	// Add rows to P-tree
+	for (int index=0;index<dataArray.length;index++) {
+	    if (dataArray[index] != null) addToPtreeTopLevel(dataArray[index]);
+	    }
+
+	// Create P-tree table
+	createPtreeTable();
+	}
+
+    /* MERGE P-TREE TABLES */
+
+    /** Merges the P-tree tables of the partitions level by level. Records
+    with the same node label and the same itemset (the union of the node
+    label and its parent labels) are combined by adding their support, the
+    records are otherwise kept in partition order.
+    @param partitionTrees the P-tree builders of the partitions. */
+
+    private void mergePtreeTables(PartialSupportTree[] partitionTrees) {
+        // The P-tree itself is not kept
+	startPtreeRef            = new PtreeNodeTop[numOneItemSets+1];
+	pTreeNodesOfCardinalityN = new int[numOneItemSets+1];
+	numPtreeNodeUpdates      = 0;
+	for (int index=0;index<partitionTrees.length;index++)
+	    numPtreeNodeUpdates = numPtreeNodeUpdates+
+	    			partitionTrees[index].numPtreeNodeUpdates;
+
+	// Identify distinct records level by level, for each the partition and
+	// record index of its first occurrence and the total support
+	int numLevels = numOneItemSets;
+	int[][] firstPartition = new int[numLevels+1][];
+	int[][] firstRecord    = new int[numLevels+1][];
+	int[][] totalSupport   = new int[numLevels+1][];
+	for (int level=1;level<=numLevels;level++) {
+	    int maxRecords = 0;
+	    for (int index=0;index<partitionTrees.length;index++) maxRecords =
+	    	maxRecords+partitionTrees[index].pTreeTable.getNumRecords(level);
+	    firstPartition[level] = new int[maxRecords];
+	    firstRecord[level]    = new int[maxRecords];
+	    totalSupport[level]   = new int[maxRecords];
+	    HashMap<String,Integer> recordIndex = new HashMap<String,Integer>();
+	    int numRecords = 0;
+	    for (int index=0;index<partitionTrees.length;index++) {
+	        PtreeTable table = partitionTrees[index].pTreeTable;
+		for (int record=table.levelStart[level];
+				record<table.levelStart[level+1];record++) {
+		    String key = itemSetKey(table.getItemSet(record,level)) +
+				     (char) table.labelLength[record];
+		    Integer existingRecord = recordIndex.get(key);
+		    if (existingRecord==null) {
+		        recordIndex.put(key,numRecords);
+			firstPartition[level][numRecords] = index;
+			firstRecord[level][numRecords]    = record;
+			totalSupport[level][numRecords]   = table.support[record];
+			numRecords++;
+			}
+		    else totalSupport[level][existingRecord] =
+		    		totalSupport[level][existingRecord]+
+		    			table.support[record];
+		    }
+		}
+	    pTreeNodesOfCardinalityN[level] = numRecords;
+	    }
+
+	// Create merged table
+	pTreeTable = new PtreeTable(pTreeNodesOfCardinalityN);
+	for (int level=1;level<=numLevels;level++) {
+	    for (int index=0;index<pTreeNodesOfCardinalityN[level];index++)
+	        pTreeTable.addRecord(partitionTrees[firstPartition[level][index]].
+			pTreeTable,firstRecord[level][index],level,
+					totalSupport[level][index]);
+	    }
 	}
 
     /*----------------------------------------------------------------------- */
@@ -904,6 +1077,18 @@ public class PartialSupportTree extends TotalSupportTree {
     /*                                                                        */
     /*----------------------------------------------------------------------- */
 
+    /* CREATE TOTAL SUPPORT TREE USING CACHE */
+    /** Loads the T-tree from the cache if a suitable T-tree has been stored,
+    otherwise generates the P-tree and T-tree and stores the T-tree in the
+    cache. Overides method in TotalSupportTree class. */
+
+    public void createTotalSupportTreeUsingCache() {
+        if (loadTtreeFromCache()) return;
+	createPtree();
+	createTotalSupportTree();
+	storeTtreeInCache();
+	}
+
     /* CREATE TOTAL SUPPORT TREE */
     /** Commences process of generating a total support tree (T-tree) by
     initilising data structures. <P> Overides method in TotalSupportTree class,
@@ -979,6 +1164,19 @@ public class PartialSupportTree extends TotalSupportTree {
 
 	// Create further levels in Ttree
 	createTtreeLevelN();
+
+	// Destroy P-tree table
+	pTreeTable = null;
+	}
+
+    /* REGENERATE TOTAL SUPPORT TREE */
+    /** Regenerates the P-tree and T-tree from the complete data set, used to
+    update a T-tree for which no negative border has been kept. Overides method
+    in TotalSupportTree class. */
+
+    protected void regenerateTotalSupportTree() {
+        createPtree();
+	createTotalSupportTree();
 	}
 
     /* Set of methods for creating T-tree from P-tree which overide methods
@@ -993,44 +1191,24 @@ public class PartialSupportTree extends TotalSupportTree {
     protected void createTtreeTopLevel2() {
         numLevelsInTtree = 1;
 
-        // Step through Ptree table
-	for(int index=1;index<startPtreeTable.length;index++) {
-	    // Check if level exists
-	    if (startPtreeTable[index] != null) {
-		createTtreeTopLevel3(startPtreeTable[index]);
+        // Step through Ptree table, for each record increment support for the
+	// T-tree singleton nodes in the node label (the last items in the
+	// record's itemset)
+	short[] items = pTreeTable.items;
+	for(int level=1;level<=pTreeTable.getMaxLevel();level++) {
+	    int itemEnd = pTreeTable.levelItemStart[level];
+	    for (int record=pTreeTable.levelStart[level];
+	    		record<pTreeTable.levelStart[level+1];record++) {
+	        itemEnd = itemEnd+level;
+		int support = pTreeTable.support[record];
+		for (int index=itemEnd-pTreeTable.labelLength[record];
+						index<itemEnd;index++) {
+		    startTtreeRef[items[index]].support =
+		    		startTtreeRef[items[index]].support+support;
+		    numUpdates++;
+		    }
 		}
 	    }
-
-	// Destroy top level of P-tree table
-	startPtreeTable[1] = null;
-	}
-
-    /** Processes level (row) in P-tree table to generate top level of T-tree.
-    @param pTreeTableLevel the given level (row) of P-tree table records. */
-
-    protected void createTtreeTopLevel3(PtreeRecord[] pTreeTableLevel) {
-	// Loop through level in P-tree table level record by record
-	for(int index=0;index<pTreeTableLevel.length;index++) {
-	    createTtreeTopLevel4(pTreeTableLevel[index].pTreeNodeLabel,
-		    		pTreeTableLevel[index].support);
-	    }
-	}
-
-    /** Increments support counts in T-tree top level given a P-tree table
-    label and an associated support value.
-    @param pTreeNodeLabel the label associated with a P-tree node (not the union
-    of its parent labels).
-    @param pTreeNodeSupport the associated support value.*/
-
-    private void createTtreeTopLevel4(short[] pTreeNodeLabel,
-    							int pTreeNodeSupport) {
-        // Loop through node label
-	for (int index=0;index<pTreeNodeLabel.length;index++) {
-	    // Increment support for T-tree singleton node
-	    startTtreeRef[pTreeNodeLabel[index]].support =
-	    	 startTtreeRef[pTreeNodeLabel[index]].support+pTreeNodeSupport;
-	    numUpdates++;
-	    }
 	}
 
     /* ---------------------------- */
@@ -1042,141 +1220,146 @@ public class PartialSupportTree extends TotalSupportTree {
     /** Commences process of adding support values to further levels of the
     T-tree (not the top level) by stepping through the Ptree table from the
     current required level up to the maximum level that may be contained in the
-    table.
+    table. <P> For large tables the T-tree branches are divided between
+    threads: each thread steps through the complete table but only processes
+    the branches hanging from the top level T-tree nodes allocated to it
+    (attribute modulo number of threads), so no T-tree node is updated by more
+    than one thread.
     @param level the (start) current level. */
 
-    protected void addSupportToTtreeLevelN(int level) {
-        // Nested loop to step through P-tree table
-	for (int index1=level;index1<startPtreeTable.length;index1++) {
-	    // Check that there are records in the table at current level
-	    if (startPtreeTable[index1] != null) {
-	        // step through records at current level in loop
-	        for(int index2=0;index2<startPtreeTable[index1].length;
-								index2++) {
-	            addSupportToTtreeLevelN(level,
-		                startPtreeTable[index1][index2].pTreeNodeLabel,
-				startPtreeTable[index1][index2].pTreeItemSet,
-				startPtreeTable[index1][index2].support,
-				1,startTtreeRef.length);
-		    }
-	        }
+    protected void addSupportToTtreeLevelN(final int level) {
+        int numRecords = pTreeTable.getNumRecords()-
+					pTreeTable.levelStart[level];
+	int numThreads = Math.min(numPtreeThreads,
+			Math.max(1,numRecords/MIN_PTREE_TABLE_SIZE_FOR_THREADS));
+
+	// Single thread
+	if (numThreads==1) {
+	    numUpdates = numUpdates+addSupportToTtreeLevelN(level,0,1);
+	    return;
 	    }
 
-	// Destroy current level of P-tree table
-	startPtreeTable[level] = null;
+	// Divide T-tree branches between threads
+	ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+	try {
+	    List<Future<Long>> results = new ArrayList<Future<Long>>();
+	    for (int index=0;index<numThreads;index++) {
+	        final int branchSet     = index;
+		final int numBranchSets = numThreads;
+		results.add(executor.submit(new Callable<Long>() {
+		    public Long call() {
+		        return(addSupportToTtreeLevelN(level,branchSet,
+							numBranchSets));
+			}
+		    }));
+		}
+	    for (int index=0;index<results.size();index++)
+	    		numUpdates = numUpdates+results.get(index).get();
+	    }
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("Support counting interrupted");
+	    }
+	catch (ExecutionException e) {
+	    if (e.getCause() instanceof RuntimeException)
+	    		throw (RuntimeException) e.getCause();
+	    if (e.getCause() instanceof Error) throw (Error) e.getCause();
+	    throw new IllegalStateException("Support counting failed: " +
+	    							e.getCause());
+	    }
+	finally {
+	    executor.shutdown();
+	    }
         }
 
-    /* ADD SUPPORT VALUES TO T-TREE LEVEL N */
-
-    /** Continues process of incrementing support values for appropriate nodes
-    in T-tree at a given level and given a record from the P-tree table. <P>
-    This method identifies the top level T-tree nodes whose child branch we
-    need to follow. We only need to process those branches contained in the
-    P-tree node label (not the complete itemset represented by the node, i.e.
-    the union of the node label and all its parent labels). Method includes
-    bounds on which branches should be processed: on start up the lower bound
-    is attribute 1 as this attribute cannot have a sub-branch, the upper bound
-    is the last attribute plus 1 in the top level array of T-tree nodes in the
-    T-tree.
+    /** Continues process of adding support values to the T-tree at a given
+    level by streaming through the P-tree table records of cardinality level
+    or more. <P> For each record we only need to process those branches
+    contained in the P-tree node label (not the complete itemset represented
+    by the node, i.e. the union of the node label and all its parent labels),
+    and of those only the branches allocated to the current thread.
     @param level the desired level in T-tree
-    @param pTreeNodeLabel the actual P-tree node itemSet label (not the union
-    of its parent labels).
-    @param pTreeItemSet the Union of the pTreeNodeLabel and all parent node
-    itemSets of the current node.
-    @param support the upport count.
-    @param startAttribute the attribute marking the start of the range of
-    attributes in the pTreeNodeLabel to be processed further.
-    @param endAttribute	the attribute marking the end of the range of
-    attributes in the pTreeNodeLabel to be processed further.		*/
-
-    protected void addSupportToTtreeLevelN(int level, short[] pTreeNodeLabel,
-    		                             short[] pTreeItemSet, int support,
-		                        int startAttribute, int endAttribute) {
-	// Loop through node label
-	for (int index=0;index<pTreeNodeLabel.length;index++) {
-	    if (pTreeNodeLabel[index]>startAttribute &&
-	    	    		         pTreeNodeLabel[index]<endAttribute &&
-		    		startTtreeRef[pTreeNodeLabel[index]] != null) {
-	    	TtreeNode currentNode = startTtreeRef[pTreeNodeLabel[index]];
-                if (currentNode.childRef!=null)
-		          addSupportToTtreeLevelN(currentNode.childRef,level-1,
-							 pTreeItemSet,support);
+    @param branchSet the set of top level T-tree branches to process, those
+    for attributes where attribute modulo numBranchSets equals branchSet.
+    @param numBranchSets the number of sets of branches.
+    @return the number of support updates. */
+
+    private long addSupportToTtreeLevelN(int level, int branchSet,
+    						int numBranchSets) {
+        long counter = 0;
+	short[] items = pTreeTable.items;
+
+	// Step through P-tree table from current level
+	for (int tableLevel=level;tableLevel<=pTreeTable.getMaxLevel();
+							tableLevel++) {
+	    int itemStart = pTreeTable.levelItemStart[tableLevel];
+	    for (int record=pTreeTable.levelStart[tableLevel];
+	    		record<pTreeTable.levelStart[tableLevel+1];record++) {
+	        int itemEnd = itemStart+tableLevel;
+		int support = pTreeTable.support[record];
+		// Loop through node label
+		for (int index=itemEnd-pTreeTable.labelLength[record];
+						index<itemEnd;index++) {
+		    int attribute = items[index];
+		    if (attribute>1 && attribute%numBranchSets==branchSet &&
+		    			startTtreeRef[attribute] != null &&
+				startTtreeRef[attribute].childRef != null)
+		        counter = counter+addSupportToTtreeLevelN(
+				startTtreeRef[attribute].childRef,level-1,
+					items,itemStart,index,support);
+		    }
+		itemStart = itemEnd;
 		}
 	    }
-	}
+
+	// Return
+	return(counter);
+        }
 
     /* ADD SUPPORT VALUES TO T-TREE BRANCH LEVEL N */
 
     /** Processes a branch in the T-tree with the aim of incrementing support
     values for appropriate nodes in T-tree at a given level in the branch and
-    for a given a record from the P-tree table.
+    for a given a record from the P-tree table. <P> Operates recursively, the
+    items of the record that may be in the branch are those preceding the
+    attribute the branch hangs from (the itemset is in numeric order).
     @param linkRef the reference (pointer) to the current branch in the T-tree
     (top at start)
     @param level the desired level in T-tree
-    @param pTreeItemSet the Union of the pTreeNodeLabel and all parent node
-    itemSets of the current node.
-    @param support the upport count.		*/
-
-    protected void addSupportToTtreeLevelN(TtreeNode[] linkRef, int level,
-    			                  short[] pTreeItemSet, int support) {
-	// At right level
-	if (level == 1) addSupToArrayOfTtreeNodes(linkRef,pTreeItemSet,
-								     support);
-
-	// At wrong level
-	else addSupportToTtreeLevelN2(linkRef,level,pTreeItemSet,support);
-	}
-
-    /** Continues the process of incrementing support values T-tree where the
-    desired kevel in the T-tree has not yet been found.
-    @param linkRef the reference (pointer) to the current branch in the T-tree
-    (top at start)
-    @param level the desired level in T-tree.
-    @param pTreeItemSet the Union of the pTreeNodeLabel and all parent node
-    itemSets of the current node.
-    @param support the Ptree node support count.	*/
-
-    protected void addSupportToTtreeLevelN2(TtreeNode[] linkRef, int level,
-    		                          short[] pTreeItemSet, int support) {
-	// Step through the given P-tree (table) itemset. For each item in the
-	// itemset proceed down the equivalent T-tree branch.
-	for (int index=0;index<pTreeItemSet.length;index++) {
+    @param items the P-tree table items.
+    @param itemStart the index of the first item of the record.
+    @param itemEnd the index of the item the branch hangs from.
+    @param support the Ptree node support count.
+    @return the number of support updates. */
+
+    protected long addSupportToTtreeLevelN(TtreeNode[] linkRef, int level,
+    		short[] items, int itemStart, int itemEnd, int support) {
+        long counter = 0;
+
+	// Step through the itemset. For each item in the itemset either
+	// increment support (at right level) or proceed down the equivalent
+	// T-tree branch.
+	for (int index=itemStart;index<itemEnd;index++) {
+	    int attribute = items[index];
 	    // Check that index is within Ttree array
-	    if (pTreeItemSet[index] >= linkRef.length) break;
-	    // If there is a node with a child reference follow that reference
-	    if (linkRef[pTreeItemSet[index]] != null)  {
-		if (linkRef[pTreeItemSet[index]].childRef != null) {
-		    TtreeNode currentNode = linkRef[pTreeItemSet[index]];
-		    addSupportToTtreeLevelN(currentNode.childRef,level-1,
-		    					pTreeItemSet,support);
+	    if (attribute >= linkRef.length) break;
+	    TtreeNode currentNode = linkRef[attribute];
+	    if (currentNode != null) {
+	        // At right level
+		if (level == 1) {
+		    currentNode.support = currentNode.support+support;
+		    counter++;
 		    }
+		// At wrong level
+		else if (currentNode.childRef != null) counter = counter +
+		    addSupportToTtreeLevelN(currentNode.childRef,level-1,
+		    			items,itemStart,index,support);
 		}
 	    }
-	}
-
-    /* ADD SUPPORT VALUES TO ARRAY OF T-TREE NODES */
-
-    /** Add support to array of T-tree nodes
-    @param linkRef the reference (pointer) to the given array of T-tree nodes.
-    @param pTreeItemSet the Union of the pTreeNodeLabel and all parent node
-    itemSets of the current node.
-    @param support the Ptree node support count.    */
 
-    protected void addSupToArrayOfTtreeNodes(TtreeNode[] linkRef,
-    			  		   short[] pTreeItemSet, int support) {
-	// Step through P-tree table itemSet
-	for (int index=0;index < pTreeItemSet.length;index++) {
-	    // Check that index is within Ttree array
-	    if (pTreeItemSet[index] >= linkRef.length) break;
-	    // If valid node, i.e. index is within Ttree array therfore
-	    // node subsets are supported elsewhere, update
-	    if (linkRef[pTreeItemSet[index]] != null) {
-		linkRef[pTreeItemSet[index]].support =
-		    		linkRef[pTreeItemSet[index]].support + support;
-		numUpdates++;
-		}
-	    }
-	}   
+	// Return
+	return(counter);
+	}
 
     /*----------------------------------------------------------------------- */
     /*                                                                        */
@@ -1295,6 +1478,14 @@ public class PartialSupportTree extends TotalSupportTree {
         okToDeletePtreeFlag = value;
         }
 
+    /** Sets the maximum number of threads used to build the P-tree (1 to
+    always build the P-tree sequentially).
+    @param value the number of threads. */
+
+    public void setNumPtreeThreads(int value) {
+        numPtreeThreads = Math.max(1,value);
+        }
+
     /*----------------------------------------------------------------------- */
     /*                                                                        */
     /*                           PUBLIC OUTPUT METHODS                        */
@@ -1627,26 +1818,29 @@ public class PartialSupportTree extends TotalSupportTree {
 			 System.out.println("[" + index1 + "] " +
 					pTreeNodesOfCardinalityN[index1]);
 
-	System.out.println("Marker values on completion of P-tree table " +
+	if (pTreeTable==null) {
+	    System.out.println("null");
+	    return;
+	    }
+	System.out.println("Records on completion of P-tree table " +
 							"generation: ");
-        for (int index1=1;index1<pTreeTableMarker.length;index1++)
+        for (int index1=1;index1<=pTreeTable.getMaxLevel();index1++)
 			System.out.println("[" + index1 + "] " +
-						pTreeTableMarker[index1]);
+					pTreeTable.getNumRecords(index1));
 
 	// Step through Ptree table
-	for(int index1=1;index1<startPtreeTable.length;index1++) {
+	for(int index1=1;index1<=pTreeTable.getMaxLevel();index1++) {
 	    System.out.println("LEVEL = " + index1);
-	    if (startPtreeTable[index1] == null) System.out.println("null");
+	    if (pTreeTable.getNumRecords(index1) == 0)
+	    					System.out.println("null");
 	    else {
-	    	for(int index2=0;index2<pTreeTableMarker[index1];index2++) {
+	    	for(int index2=pTreeTable.levelStart[index1];
+			index2<pTreeTable.levelStart[index1+1];index2++) {
 	            System.out.print("Node label = ");
-	            outputItemSet(startPtreeTable[index1][index2].
-		    				pTreeNodeLabel);
+	            outputItemSet(pTreeTable.getNodeLabel(index2,index1));
 	            System.out.print(" Itemset = ");
-	            outputItemSet(startPtreeTable[index1][index2].
-		    				pTreeItemSet);
-	            System.out.println(" sup = " +
-		    		   startPtreeTable[index1][index2].support);
+	            outputItemSet(pTreeTable.getItemSet(index2,index1));
+	            System.out.println(" sup = " + pTreeTable.support[index2]);
 		    }
 		}
 	    }
@@ -1656,20 +1850,26 @@ public class PartialSupportTree extends TotalSupportTree {
     @param textArea the given instance of thge calss JtextArea. */
 
     public void outputPtreeTable(JTextArea textArea) {
+	if (pTreeTable==null) {
+	    textArea.append("null\n");
+	    return;
+	    }
+
         // Step through Ptree table
-	for(int index1=1;index1<startPtreeTable.length;index1++) {
+	for(int index1=1;index1<=pTreeTable.getMaxLevel();index1++) {
 	    textArea.append("LEVEL = " + index1 + "\n");
-	    if (startPtreeTable[index1] == null) textArea.append("null\n");
+	    if (pTreeTable.getNumRecords(index1) == 0)
+	    					textArea.append("null\n");
 	    else {
-	    	for(int index2=0;index2<pTreeTableMarker[index1];index2++) {
+	    	for(int index2=pTreeTable.levelStart[index1];
+			index2<pTreeTable.levelStart[index1+1];index2++) {
 	            textArea.append("Node label = ");
-	            outputItemSet(textArea,startPtreeTable[index1][index2].
-		    				pTreeNodeLabel);
+	            outputItemSet(textArea,pTreeTable.getNodeLabel(index2,
+	    							index1));
 	            textArea.append(" Itemset = ");
-	            outputItemSet(textArea,startPtreeTable[index1][index2].
-		    				pTreeItemSet);
-	            textArea.append(" sup = " +
-		    	       startPtreeTable[index1][index2].support + "\n");
+	            outputItemSet(textArea,pTreeTable.getItemSet(index2,index1));
+	            textArea.append(" sup = " + pTreeTable.support[index2] +
+		    						"\n");
 		    }
 		}
 	    }
@@ -1682,33 +1882,13 @@ public class PartialSupportTree extends TotalSupportTree {
     /** Outputs storage requirements for P-tree table (diagnostic use only). */
 
     public void outputPtreeTableStats() {
-	int index1,index2;
-	int storage=0, nodeCounter, nodeTotal=0;
-
-        // For each level in the P-tree table
-
-	for(index1=1;index1<startPtreeTable.length;index1++) {
-	    nodeCounter=0;
-	    // If null we still need a pointer so 4 bytes
-	    if (startPtreeTable[index1] == null) storage = storage+4;
-	    // Else step through records at this level
-	    else {
-	        for(index2=0;index2<pTreeTableMarker[index1];index2++) {
-		    nodeCounter++;
-		    // 4 for support and 2 for each item in search itemSet
-	            storage = storage + 4 + (startPtreeTable[index1][index2].
-							pTreeNodeLabel.length*2);
-	            // 2 for each item in pTree itemSet
-		    storage = storage + (startPtreeTable[index1][index2].
-		    					pTreeItemSet.length*2);
-		    }
-		}
-
-	    nodeTotal = nodeTotal+nodeCounter;
+	if (pTreeTable==null) {
+	    System.out.println("P-tree Table Storage = 0 (0 nodes)");
+	    return;
 	    }
 
-	System.out.println("P-tree Table Storage = " + storage + " (" + nodeTotal +
-							" nodes)");
+	System.out.println("P-tree Table Storage = " + pTreeTable.getStorage() +
+			" (" + pTreeTable.getNumRecords() + " nodes)");
 	}
     
     /* ---------------------- */
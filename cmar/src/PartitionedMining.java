@@ -0,0 +1,391 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                    P A R T I T I O N E D   M I N I N G                     */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
+/** Partitioned (SON) mining: generates the T-tree of a classifier in
+several worker processes, so that no single JVM has to generate the T-tree
+of the complete training set. Proceeds as follows:
+<OL>
+<LI>Split the (recast) training set into N segments and store them in a work
+directory (see <TT>segmentDataSet</TT> in the AssocRuleMining class).
+<LI>Launch N worker JVMs, each generates the T-tree of its segment at the
+same relative support and stores it (serialised) to file.
+<LI>Merge the T-trees of the segments to give the candidate sets, every set
+supported in the training set is supported in at least one segment, and
+store them (serialised without support values).
+<LI>Launch N worker JVMs, each counts the supports of the candidate sets in
+its segment and stores them (serialised) to file.
+<LI>Sum the supports and build the T-tree of the classifier from the
+supported sets, from which CARs are generated as usual.
+</OL>
+The workers communicate with the coordinator through files in the work
+directory only. Workers are launched on the local machine, the command line
+is obtained from <TT>getWorkerCommand</TT> which may be overridden to launch
+them elsewhere (with access to the work directory). */
+
+/* To Compile: javac PartitionedMining.java */
+
+public class PartitionedMining {
+
+    /* ------ FIELDS ------ */
+
+    /** The exit value of a worker whose T-tree generation was stopped before
+    the T-tree was complete (see <TT>isTtreeGenerationStopped</TT> in the
+    TotalSupportTree class), the candidate sets would then be incomplete. */
+    private static final int STOPPED_EXIT_VALUE = 2;
+
+    /** The number of partitions (worker processes). */
+    private int numPartitions;
+    /** Options passed to the worker JVMs (e.g. the maximum heap size). */
+    private String[] workerJvmOptions = new String[0];
+    /** The work directory, null if a temporary directory is to be used (and
+    deleted once mining has completed successfully). */
+    private File workDirectory = null;
+
+    /* ------ CONSTRUCTORS ------ */
+
+    /** Constructor with the number of partitions.
+    @param partitions the number of partitions (worker processes). */
+
+    public PartitionedMining(int partitions) {
+        if (partitions<1) throw new IllegalArgumentException("Number of " +
+				"partitions " + partitions + " less than 1");
+	numPartitions = partitions;
+	}
+
+    /* ------ METHODS ------ */
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                            COORDINATOR                           */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* CREATE TOTAL SUPPORT TREE */
+
+    /** Generates the T-tree of the given classifier, whose training set has
+    been created (and recast), in the worker processes. The T-tree is the
+    T-tree the classifier would generate itself.
+    @param classifier the classifier.
+    @throws IOException if there are more partitions than records, the work
+    files cannot be written or read, a worker fails or a worker's T-tree
+    generation was stopped (the T-tree is then to be generated locally). */
+
+    public void createTotalSupportTree(AprioriTFP_CARgen classifier)
+    						throws IOException {
+        if (numPartitions>classifier.numRows) throw new IOException(
+		"Number of partitions (" + numPartitions + ") exceeds " +
+		"number of records (" + classifier.numRows + ")");
+	File directory = workDirectory;
+	if (directory==null) directory = Files.createTempDirectory(
+						"cmar-partitions").toFile();
+	else directory.mkdirs();
+
+	boolean completed = false;
+	try {
+	    // Split training set
+	    File[] segments = classifier.segmentDataSet(numPartitions,
+	    						directory);
+
+	    // First pass, mine each segment and merge the T-trees to give the
+	    // candidate sets
+	    MiningPhaseEvent phase = MiningMetrics.begin("partition.mine");
+	    File[] ttreeFiles = runWorkers("-mine",classifier,segments,null);
+	    classifier.startTtreeRef = null;
+	    for (int index=0;index<ttreeFiles.length;index++)
+	    	classifier.mergeSerializedTtree(readSerialization(
+							ttreeFiles[index]));
+	    int numCandidates = classifier.countNumberOfTtreeNodes();
+	    classifier.serializeTteeNoSupValues();
+	    File candidateFile = new File(directory,"candidates.ser");
+	    writeSerialization(candidateFile,classifier.serializationArray);
+	    classifier.serializationArray = null;
+	    classifier.startTtreeRef      = null;
+	    MiningMetrics.count("partition.candidates",numCandidates);
+	    MiningMetrics.end(phase,numCandidates);
+
+	    // Second pass, count the candidate sets in each segment and sum
+	    // the supports
+	    phase = MiningMetrics.begin("partition.count");
+	    ttreeFiles = runWorkers("-count",classifier,segments,candidateFile);
+	    for (int index=0;index<ttreeFiles.length;index++)
+	    	classifier.mergeSerializedTtree(readSerialization(
+							ttreeFiles[index]));
+	    classifier.serializeTtee();
+	    classifier.loadSerializedTtree();
+	    MiningMetrics.end(phase,classifier.numFrequentSets);
+
+	    System.out.println("Partitioned mining: " + numPartitions +
+	    		" partitions, " + numCandidates + " candidate sets, " +
+			classifier.numFrequentSets + " frequent sets");
+	    completed = true;
+	    }
+	// Delete temporary work directory, unless kept to diagnose a failure
+	finally {
+	    if (workDirectory==null && completed) deleteDirectory(directory);
+	    }
+	}
+
+    /* RUN WORKERS */
+
+    /** Runs a worker process for each segment and waits for them all to
+    complete.
+    @param mode the worker mode (-mine or -count).
+    @param classifier the classifier.
+    @param segments the segment files.
+    @param candidateFile the candidate sets file (null if not required).
+    @return the serialised T-tree file of each worker.
+    @throws IOException if a worker cannot be launched or fails. */
+
+    private File[] runWorkers(String mode, AprioriTFP_CARgen classifier,
+    		File[] segments, File candidateFile) throws IOException {
+        File[] ttreeFiles = new File[segments.length];
+	File[] logFiles   = new File[segments.length];
+	Process[] workers = new Process[segments.length];
+
+	// Launch workers
+	try {
+	    for (int index=0;index<segments.length;index++) {
+	        String name = segments[index].getPath() + "." +
+							mode.substring(1);
+		ttreeFiles[index] = new File(name);
+		logFiles[index]   = new File(name + ".log");
+		List<String> workerArgs = new ArrayList<String>();
+		workerArgs.add(mode);
+		workerArgs.add(segments[index].getPath());
+		workerArgs.add(Integer.toString(classifier.numClasses));
+		workerArgs.add(Double.toString(classifier.support));
+		workerArgs.add(Integer.toString(classifier.numOneItemSets));
+		workerArgs.add(ttreeFiles[index].getPath());
+		if (candidateFile != null) workerArgs.add(
+						candidateFile.getPath());
+		ProcessBuilder builder = new ProcessBuilder(
+					getWorkerCommand(workerArgs));
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(logFiles[index]);
+		workers[index] = builder.start();
+		}
+
+	    // Wait for workers
+	    for (int index=0;index<workers.length;index++) {
+	        int exitValue = workers[index].waitFor();
+		if (exitValue == STOPPED_EXIT_VALUE) throw new IOException(
+			"Partition worker " + (index+1) + " stopped T-tree " +
+			"generation before the T-tree was complete, see " +
+			logFiles[index]);
+		if (exitValue != 0) throw new IOException("Partition worker " +
+			(index+1) + " failed (exit value " + exitValue +
+			"), see " + logFiles[index]);
+		}
+	    }
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("Interrupted waiting for " +
+	    						"partition workers");
+	    }
+	// Stop any workers still running (after a failure)
+	finally {
+	    for (int index=0;index<workers.length;index++) {
+	        if (workers[index] != null) workers[index].destroy();
+		}
+	    }
+
+	// Return
+	return(ttreeFiles);
+	}
+
+    /* GET WORKER COMMAND */
+
+    /** Gets the command line launching a worker, a JVM with the same class
+    path as this one running the main method of this class.
+    @param workerArgs the worker arguments.
+    @return the command line. */
+
+    protected List<String> getWorkerCommand(List<String> workerArgs) {
+        List<String> command = new ArrayList<String>();
+	command.add(System.getProperty("java.home") + File.separator + "bin" +
+						File.separator + "java");
+	for (int index=0;index<workerJvmOptions.length;index++)
+				command.add(workerJvmOptions[index]);
+	command.add("-cp");
+	command.add(System.getProperty("java.class.path"));
+	command.add("PartitionedMining");
+	command.addAll(workerArgs);
+	return(command);
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                               WORKER                             */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* MAIN */
+
+    /** Worker main method. Arguments: mode (-mine to generate the T-tree of
+    the segment, -count to count the supports of the candidate sets in the
+    segment), segment file, number of classes, support (%), number of one
+    item sets (of the complete training set), output file and (-count only)
+    candidate sets file. Exits with STOPPED_EXIT_VALUE (and no output file)
+    if the T-tree generation of the segment was stopped before the T-tree
+    was complete.
+    @param args the arguments.
+    @throws IOException if the files cannot be read or written. */
+
+    public static void main(String[] args) throws IOException {
+        if (args.length<6 || (args[0].equals("-count") && args.length<7)) {
+	    System.out.println("Usage: PartitionedMining -mine|-count " +
+	    	"<segment> <classes> <support> <one item sets> <output> " +
+		"[<candidates>]");
+	    System.exit(1);
+	    }
+
+	// Read segment, the item numbers are those of the complete training
+	// set
+	AprioriTFP_CARgen worker = new AprioriTFP_CARgen();
+	worker.fileName   = args[1];
+	worker.numClasses = Integer.parseInt(args[2]);
+	worker.support    = Double.parseDouble(args[3]);
+	worker.inputDataSet();
+	worker.numOneItemSets       = Integer.parseInt(args[4]);
+	worker.numRowsInTrainingSet = worker.numRows;
+
+	// Generate T-tree of segment (without generating CARs)
+	if (args[0].equals("-mine")) {
+	    worker.deferCARgenerationFlag = true;
+	    worker.createPtree();
+	    worker.createTotalSupportTree();
+	    if (worker.isTtreeGenerationStopped()) {
+	        System.out.println("T-tree generation of segment stopped, " +
+				"candidate sets incomplete");
+		System.exit(STOPPED_EXIT_VALUE);
+		}
+	    worker.serializeTtee();
+	    }
+
+	// Count candidate sets in segment
+	else if (args[0].equals("-count")) {
+	    worker.serializationArray = readSerialization(new File(args[6]));
+	    if (worker.serializationArray.length>0) {
+	        worker.serialization2TtreeNoSupValues();
+		worker.addSupportToTtree(worker.dataArray);
+		worker.serializeTtee();
+		}
+	    }
+	else {
+	    System.out.println("Unknown worker mode " + args[0]);
+	    System.exit(1);
+	    }
+
+	// Output
+	writeSerialization(new File(args[5]),worker.serializationArray);
+	System.exit(0);
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                             WORK FILES                           */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* WRITE SERIALIZATION */
+
+    /** Writes a serialised T-tree to file: the length of the serialization
+    array followed by its elements.
+    @param file the file.
+    @param serialization the serialization array. */
+
+    private static void writeSerialization(File file, int[] serialization)
+    						throws IOException {
+        DataOutputStream output = new DataOutputStream(
+		new BufferedOutputStream(new FileOutputStream(file)));
+	try {
+	    output.writeInt(serialization.length);
+	    for (int index=0;index<serialization.length;index++)
+	    			output.writeInt(serialization[index]);
+	    }
+	finally {
+	    output.close();
+	    }
+	}
+
+    /* READ SERIALIZATION */
+
+    /** Reads a serialised T-tree from file.
+    @param file the file.
+    @return the serialization array. */
+
+    private static int[] readSerialization(File file) throws IOException {
+        DataInputStream input = new DataInputStream(
+		new BufferedInputStream(new FileInputStream(file)));
+	try {
+	    int[] serialization = new int[input.readInt()];
+	    for (int index=0;index<serialization.length;index++)
+	    			serialization[index] = input.readInt();
+	    return(serialization);
+	    }
+	finally {
+	    input.close();
+	    }
+	}
+
+    /* DELETE DIRECTORY */
+
+    /** Deletes a (temporary) work directory and the files in it.
+    @param directory the directory. */
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+	if (files != null) {
+	    for (int index=0;index<files.length;index++) files[index].delete();
+	    }
+	directory.delete();
+	}
+
+    /* ----------------------------------- */
+    /*                                     */
+    /*              SET METHODS            */
+    /*                                     */
+    /* ----------------------------------- */
+
+    /** Sets the options passed to the worker JVMs.
+    @param options the options (e.g. "-Xmx512m"). */
+
+    public void setWorkerJvmOptions(String[] options) {
+        workerJvmOptions = options;
+	}
+
+    /** Sets the work directory, in which the work files are kept.
+    @param directory the directory (null for a temporary directory deleted
+    once mining has completed successfully). */
+
+    public void setWorkDirectory(File directory) {
+        workDirectory = directory;
+	}
+
+    /* ----------------------------------- */
+    /*                                     */
+    /*              GET METHODS            */
+    /*                                     */
+    /* ----------------------------------- */
+
+    /** Gets the number of partitions.
+    @return the number of partitions. */
+
+    public int getNumPartitions() {
+        return(numPartitions);
+	}
+    }
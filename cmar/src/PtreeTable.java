@@ -0,0 +1,203 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                          P - T R E E   T A B L E                           */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+/** Packed P-tree table, used when generating the T-tree from the P-tree. <P>
+Each P-tree node is a record comprising the node's itemset (the union of the
+node label and all its ancestor node labels), the length of the node label
+(the label is the last items of the itemset) and the partial support. The
+records are grouped by cardinality (itemset length) and held in three arrays
+instead of one object (and two arrays) per node:
+<PRE>
+short[] items        itemsets of all records, a record of cardinality N
+                     occupies N items
+short[] labelLength  node label length of each record
+int[]   support      partial support of each record
+</PRE>
+The records of cardinality N are records <TT>levelStart[N]</TT> to
+<TT>levelStart[N+1]-1</TT>, the first item of the first of these is
+<TT>items[levelItemStart[N]]</TT>. The table is therefore read sequentially
+level by level, and any range of records may be processed independently. */
+
+/* To Compile: javac PtreeTable.java */
+
+public class PtreeTable {
+
+    /*------------------------------------------------------------------------*/
+    /*                                                                        */
+    /*                                   FIELDS                               */
+    /*                                                                        */
+    /*------------------------------------------------------------------------*/
+
+    /** Itemsets of the records, grouped by cardinality. */
+    public short[] items = null;
+    /** Number of items in the node label of each record. */
+    public short[] labelLength = null;
+    /** Partial support of each record. */
+    public int[] support = null;
+    /** Index of the first record of each cardinality (the last element is the
+    number of records). */
+    public int[] levelStart = null;
+    /** Index into <TT>items</TT> of the first item of each cardinality. */
+    public int[] levelItemStart = null;
+
+    /** Number of records added so far for each cardinality. */
+    private int[] levelMarker = null;
+
+    /*---------------------------------------------------------------------*/
+    /*                                                                     */
+    /*                           CONSTRUCTORS                              */
+    /*                                                                     */
+    /*---------------------------------------------------------------------*/
+
+    /** Creates an empty P-tree table dimensioned for the given number of
+    records of each cardinality.
+    @param numRecordsOfCardinalityN the number of records of each cardinality
+    (index 0 unused). */
+
+    public PtreeTable(int[] numRecordsOfCardinalityN) {
+        int maxLevel   = numRecordsOfCardinalityN.length-1;
+	levelStart     = new int[maxLevel+2];
+	levelItemStart = new int[maxLevel+2];
+	levelMarker    = new int[maxLevel+1];
+
+	// Calculate offsets
+	for (int level=1;level<=maxLevel;level++) {
+	    levelStart[level+1]     = levelStart[level]+
+	    				numRecordsOfCardinalityN[level];
+	    levelItemStart[level+1] = levelItemStart[level]+
+	    				numRecordsOfCardinalityN[level]*level;
+	    }
+
+	// Dimension arrays
+	items       = new short[levelItemStart[maxLevel+1]];
+	labelLength = new short[levelStart[maxLevel+1]];
+	support     = new int[levelStart[maxLevel+1]];
+	}
+
+    /*---------------------------------------------------------------------*/
+    /*                                                                     */
+    /*                               METHODS                               */
+    /*                                                                     */
+    /*---------------------------------------------------------------------*/
+
+    /* ADD RECORD */
+
+    /** Adds a record for a P-tree node.
+    @param parentItemSet the union of all the parent labels (null for a top
+    level node).
+    @param nodeLabel the node label.
+    @param sup the partial support of the node. */
+
+    public void addRecord(short[] parentItemSet, short[] nodeLabel, int sup) {
+        int parentLength = 0;
+	if (parentItemSet != null) parentLength = parentItemSet.length;
+	int level = parentLength+nodeLabel.length;
+
+	// Add record
+	int record    = levelStart[level]+levelMarker[level];
+	int itemStart = levelItemStart[level]+levelMarker[level]*level;
+	if (parentLength>0) System.arraycopy(parentItemSet,0,items,itemStart,
+							parentLength);
+	System.arraycopy(nodeLabel,0,items,itemStart+parentLength,
+							nodeLabel.length);
+	labelLength[record] = (short) nodeLabel.length;
+	support[record]     = sup;
+	levelMarker[level]++;
+	}
+
+    /** Adds a copy of a record of another P-tree table.
+    @param table the other table.
+    @param record the index of the record in the other table.
+    @param level the cardinality of the record.
+    @param sup the partial support of the copy. */
+
+    public void addRecord(PtreeTable table, int record, int level, int sup) {
+        int newRecord = levelStart[level]+levelMarker[level];
+	System.arraycopy(table.items,table.getItemStart(record,level),items,
+		    levelItemStart[level]+levelMarker[level]*level,level);
+	labelLength[newRecord] = table.labelLength[record];
+	support[newRecord]     = sup;
+	levelMarker[level]++;
+	}
+
+    /* GET MAXIMUM LEVEL */
+
+    /** Gets the maximum cardinality of records the table is dimensioned for.
+    @return the maximum cardinality. */
+
+    public int getMaxLevel() {
+        return(levelStart.length-2);
+	}
+
+    /* GET NUMBER OF RECORDS */
+
+    /** Gets the number of records in the table.
+    @return the number of records. */
+
+    public int getNumRecords() {
+        return(levelStart[levelStart.length-1]);
+	}
+
+    /** Gets the number of records of the given cardinality.
+    @param level the cardinality.
+    @return the number of records. */
+
+    public int getNumRecords(int level) {
+        return(levelStart[level+1]-levelStart[level]);
+	}
+
+    /* GET ITEM START */
+
+    /** Gets the index into <TT>items</TT> of the first item of a record.
+    @param record the index of the record.
+    @param level the cardinality of the record.
+    @return the index of the first item. */
+
+    public int getItemStart(int record, int level) {
+        return(levelItemStart[level]+(record-levelStart[level])*level);
+	}
+
+    /* GET ITEM SET */
+
+    /** Gets the itemset of a record (the union of the node label and all its
+    parent labels).
+    @param record the index of the record.
+    @param level the cardinality of the record.
+    @return the itemset. */
+
+    public short[] getItemSet(int record, int level) {
+        short[] itemSet = new short[level];
+	System.arraycopy(items,getItemStart(record,level),itemSet,0,level);
+	return(itemSet);
+	}
+
+    /* GET NODE LABEL */
+
+    /** Gets the node label of a record.
+    @param record the index of the record.
+    @param level the cardinality of the record.
+    @return the node label. */
+
+    public short[] getNodeLabel(int record, int level) {
+        short[] nodeLabel = new short[labelLength[record]];
+	System.arraycopy(items,getItemStart(record,level)+level-
+			labelLength[record],nodeLabel,0,nodeLabel.length);
+	return(nodeLabel);
+	}
+
+    /* GET STORAGE */
+
+    /** Gets the storage required by the table in bytes (diagnostic use only).
+    @return the number of bytes. */
+
+    public long getStorage() {
+        return(items.length*2l+labelLength.length*2l+support.length*4l+
+				(levelStart.length+levelItemStart.length)*4l);
+	}
+    }
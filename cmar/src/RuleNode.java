@@ -1,8 +1,4 @@
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.util.HashMap;
 
 /* -------------------------------------------------------------------------- */
 /*                                                                            */
@@ -69,51 +65,41 @@ public class RuleNode {
 
     /* ------ METHODS ------ */
 
-public String[] getAntecedantName() throws IOException{
-    	
-    	if (this.antecedent == null) return null;
-    	else{
-    	
-    	String[] antecedantNames = new String[this.antecedent.length];
-    	File file2 = new File("relation.txt");
-        FileInputStream f2 = new FileInputStream(file2);
-        ObjectInputStream s2 = new ObjectInputStream(f2);
-        try {
-			HashMap<String, Object> fileObj2 = (HashMap<String, Object>) s2.readObject();
-			for(int i=0;i<this.antecedent.length;i++){
-				antecedantNames[i] = (String) fileObj2.get(Short.toString(this.antecedent[i]));
-			}
-			
-			
-		} catch (ClassNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-        s2.close();
-    	return antecedantNames;
-    	}
-    }
-    
+    /* GET ANTECEDANT NAME */
+    /** Returns the names of the antecedent items from the default antecedent
+    item name dictionary (loaded once).
+    @return the names (null where there is none), or null if no antecedent. */
+
+    public String[] getAntecedantName() throws IOException{
+        return(getAntecedantName(
+	                           ItemNameDictionary.getDefaultAntecedents()));
+	}
+
+    /** Returns the names of the antecedent items from the given item name
+    dictionary.
+    @param itemNames the item name dictionary.
+    @return the names (null where there is none), or null if no antecedent. */
+
+    public String[] getAntecedantName(ItemNameDictionary itemNames) {
+        return(itemNames.getNames(antecedent));
+	}
+
+    /* GET CONSEQUENT NAME */
+    /** Returns the names of the consequent items from the default consequent
+    item name dictionary (loaded once).
+    @return the names (null where there is none). */
+
     public String[] getConsequentName() throws IOException{
-    	
-    	String[] consequentNames = new String[this.consequent.length];
-    	
-    	File file2 = new File("produitRelations.txt");
-        FileInputStream f2 = new FileInputStream(file2);
-        ObjectInputStream s2 = new ObjectInputStream(f2);
-        try {
-			HashMap<String, Object> fileObj2 = (HashMap<String, Object>) s2.readObject();
-			for(int i=0;i<this.consequent.length;i++){
-				consequentNames[i] = (String) fileObj2.get(Short.toString(this.consequent[i]));
-			}
-			
-			
-		} catch (ClassNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-        s2.close();
-    	return consequentNames;
-    }
+        return(getConsequentName(
+	                           ItemNameDictionary.getDefaultConsequents()));
+	}
+
+    /** Returns the names of the consequent items from the given item name
+    dictionary.
+    @param itemNames the item name dictionary.
+    @return the names (null where there is none). */
 
+    public String[] getConsequentName(ItemNameDictionary itemNames) {
+        return(itemNames.getNames(consequent));
+	}
     }
@@ -0,0 +1,603 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                      S C O R I N G   S E R V E R                           */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
+/** Scoring server: loads a CMAR model (saved with <TT>saveModel</TT> in the
+AprioriTFP_CMAR class) once and classifies records sent over local socket
+connections. <P> Requests and responses are frames comprising a length (int,
+the number of bytes that follow) and a type (byte), big endian:
+<PRE>
+CLASSIFY request   int id, short item ... (attributes numbered as in the
+                   input data, without class)
+CLASSIFY response  int id, short class label (0 if no class found)
+STATS request      (empty)
+STATS response     the metrics snapshot (JSON, UTF-8, see MiningMetrics),
+                   including the serve.request latency percentiles
+</PRE>
+A connection may send any number of requests without waiting for the
+responses, which are returned in request order. Requests waiting (over all
+connections) when a batch is started, i.e. those that arrived while the
+previous batch was scored, and those arriving within the batch window (if
+any) are coalesced into a batch. The batch is split between the scoring
+threads, each of which holds its own copy of the model (classification is not
+thread safe), and the responses are then handed to the connections. Each
+connection writes its responses with its own thread, so that a client slow to
+read holds up neither the batching thread nor the other connections. The
+latency of each request, from its arrival to its response being written, is
+recorded as <TT>serve.request</TT>. */
+
+/* To Compile: javac ScoringServer.java */
+
+public class ScoringServer {
+
+    /* ------ FIELDS ------ */
+
+    /** CLASSIFY frame type. */
+    public static final byte CLASSIFY = 1;
+    /** STATS frame type. */
+    public static final byte STATS = 2;
+    /** The maximum length of a request frame. */
+    public static final int MAX_FRAME_LENGTH = 1<<20;
+    /** The maximum number of requests in a batch. */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /** The model copies, one per scoring thread. */
+    private AprioriTFP_CMAR[] classifiers;
+    /** The batch window in nanoseconds. */
+    private long batchWindowNanos;
+
+    /** Requests waiting to be scored. */
+    private final LinkedBlockingQueue<Request> requests =
+    					new LinkedBlockingQueue<Request>();
+    /** The server socket (null if not started). */
+    private ServerSocket serverSocket = null;
+    /** Threads scoring batch parts (null if a single scoring thread). */
+    private ExecutorService scoringThreads = null;
+    /** The accepting and batching threads. */
+    private List<Thread> serverThreads = new ArrayList<Thread>();
+    /** The open connections. */
+    private final Set<Connection> connections = new LinkedHashSet<Connection>();
+    /** Flag set while the server is running. */
+    private volatile boolean running = false;
+    /** Latch released when the server is stopped. */
+    private CountDownLatch stopped = new CountDownLatch(1);
+
+    /* ------ CONSTRUCTORS ------ */
+
+    /** Constructor with a trained (or loaded) classifier.
+    @param classifier the classifier, not used further (copies are scored).
+    @param numThreads the number of scoring threads.
+    @param batchWindowMicros the batch window (microseconds), 0 to batch
+    only requests already waiting. */
+
+    public ScoringServer(AprioriTFP_CMAR classifier, int numThreads,
+    						long batchWindowMicros) {
+        if (numThreads<1) throw new IllegalArgumentException("Number of " +
+				"scoring threads " + numThreads + " less than 1");
+	if (batchWindowMicros<0) throw new IllegalArgumentException("Batch " +
+				"window " + batchWindowMicros + " less than 0");
+	classifiers = new AprioriTFP_CMAR[numThreads];
+	for (int index=0;index<numThreads;index++)
+			classifiers[index] = classifier.copyModel();
+	batchWindowNanos = batchWindowMicros*1000l;
+	}
+
+    /* ------ METHODS ------ */
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                           START AND STOP                         */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* START */
+
+    /** Starts accepting connections on the loopback address.
+    @param port the port (0 for any free port, see <TT>getPort</TT>).
+    @throws IOException if the port cannot be bound. */
+
+    public synchronized void start(int port) throws IOException {
+        if (running) throw new IllegalStateException("Scoring server " +
+							"already started");
+	serverSocket = new ServerSocket();
+	serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+							port));
+	if (classifiers.length>1) scoringThreads =
+			Executors.newFixedThreadPool(classifiers.length-1);
+	running = true;
+	stopped = new CountDownLatch(1);
+
+	// Accept connections
+	startThread("cmar-accept",new Runnable() {
+	    public void run() {
+	        acceptConnections();
+		}
+	    });
+
+	// Score batches
+	startThread("cmar-batch",new Runnable() {
+	    public void run() {
+	        scoreBatches();
+		}
+	    });
+	}
+
+    /** Starts a server thread.
+    @param name the thread name.
+    @param runnable the code run by the thread. */
+
+    private void startThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable,name);
+	thread.setDaemon(true);
+	serverThreads.add(thread);
+	thread.start();
+	}
+
+    /* STOP */
+
+    /** Stops the server, closing all connections (requests not yet scored
+    are not answered). */
+
+    public synchronized void stop() {
+        if (!running) return;
+	running = false;
+	try {
+	    serverSocket.close();
+	    }
+	catch (IOException e) {
+	    // Closing anyway
+	    }
+	synchronized (connections) {
+	    Iterator<Connection> iterator =
+	    		new ArrayList<Connection>(connections).iterator();
+	    while (iterator.hasNext()) iterator.next().close();
+	    }
+	for (int index=0;index<serverThreads.size();index++) {
+	    serverThreads.get(index).interrupt();
+	    try {
+	        serverThreads.get(index).join();
+		}
+	    catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+		}
+	    }
+	serverThreads.clear();
+	if (scoringThreads != null) scoringThreads.shutdown();
+	scoringThreads = null;
+	requests.clear();
+	stopped.countDown();
+	}
+
+    /* AWAIT STOP */
+
+    /** Waits until the server is stopped.
+    @throws InterruptedException if interrupted while waiting. */
+
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+	}
+
+    /* ACCEPT CONNECTIONS */
+
+    /** Accepts connections until the server is stopped, each is read by its
+    own thread. */
+
+    private void acceptConnections() {
+        while (running) {
+	    try {
+	        Socket socket = serverSocket.accept();
+		socket.setTcpNoDelay(true);
+		Connection connection = new Connection(socket);
+		synchronized (connections) {
+		    connections.add(connection);
+		    }
+		connection.start();
+		}
+	    catch (IOException e) {
+	        if (running) System.out.println("WARNING: accept failed: " + e);
+		}
+	    }
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                              BATCHING                            */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* SCORE BATCHES */
+
+    /** Takes batches of requests and scores them until the server is
+    stopped. */
+
+    private void scoreBatches() {
+        List<Request> batch = new ArrayList<Request>();
+	while (running) {
+	    try {
+	        takeBatch(batch);
+		}
+	    catch (InterruptedException e) {
+	        break;
+		}
+	    MiningPhaseEvent phase = MiningMetrics.begin("serve.batch");
+	    try {
+	        scoreBatch(batch);
+		}
+	    catch (RuntimeException e) {
+	        System.out.println("WARNING: scoring failed: " + e);
+		}
+	    respond(batch);
+	    MiningMetrics.count("serve.requests",batch.size());
+	    MiningMetrics.end(phase,batch.size());
+	    batch.clear();
+	    }
+	}
+
+    /* TAKE BATCH */
+
+    /** Waits for a request and takes it, together with the requests arriving
+    within the batch window (up to the maximum batch size).
+    @param batch the list to which the requests are added.
+    @throws InterruptedException if interrupted while waiting. */
+
+    private void takeBatch(List<Request> batch) throws InterruptedException {
+        batch.add(requests.take());
+	requests.drainTo(batch,MAX_BATCH_SIZE-batch.size());
+	long deadline = System.nanoTime()+batchWindowNanos;
+	while (batch.size()<MAX_BATCH_SIZE) {
+	    long remaining = deadline-System.nanoTime();
+	    if (remaining<=0) break;
+	    Request request = requests.poll(remaining,TimeUnit.NANOSECONDS);
+	    if (request==null) break;
+	    batch.add(request);
+	    requests.drainTo(batch,MAX_BATCH_SIZE-batch.size());
+	    }
+	}
+
+    /* SCORE BATCH */
+
+    /** Classifies the records of a batch, split into one part per scoring
+    thread (the last part scored by this thread) if the batch has more
+    records than threads.
+    @param batch the requests. */
+
+    private void scoreBatch(final List<Request> batch) {
+        int numParts = Math.min(classifiers.length,batch.size());
+	if (numParts<=1) {
+	    scorePart(batch,0,batch.size(),classifiers[0]);
+	    return;
+	    }
+
+	// Score parts in parallel
+	List<Future<Object>> futures = new ArrayList<Future<Object>>();
+	int partSize = (batch.size()+numParts-1)/numParts;
+	for (int part=0;part<numParts-1;part++) {
+	    final int start = part*partSize;
+	    final int end   = Math.min(batch.size(),start+partSize);
+	    final AprioriTFP_CMAR classifier = classifiers[part+1];
+	    futures.add(scoringThreads.submit(new Callable<Object>() {
+	        public Object call() {
+		    scorePart(batch,start,end,classifier);
+		    return(null);
+		    }
+		}));
+	    }
+	scorePart(batch,Math.min(batch.size(),(numParts-1)*partSize),
+					batch.size(),classifiers[0]);
+
+	// Wait for parts
+	for (int index=0;index<futures.size();index++) {
+	    try {
+	        futures.get(index).get();
+		}
+	    catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+		return;
+		}
+	    catch (ExecutionException e) {
+	        throw new RuntimeException(e.getCause());
+		}
+	    }
+	}
+
+    /** Classifies the records of part of a batch.
+    @param batch the requests.
+    @param start the index of the first request of the part.
+    @param end the index after the last request of the part.
+    @param classifier the model copy used by the thread. */
+
+    private void scorePart(List<Request> batch, int start, int end,
+    					AprioriTFP_CMAR classifier) {
+        for (int index=start;index<end;index++) {
+	    Request request = batch.get(index);
+	    request.classResult = classifier.classifyRecord(request.record);
+	    }
+	}
+
+    /* RESPOND */
+
+    /** Hands the scored requests of a batch to their connections, whose
+    threads write the responses (see <TT>writeResponses</TT>) without
+    blocking this thread.
+    @param batch the requests. */
+
+    private void respond(List<Request> batch) {
+        for (int index=0;index<batch.size();index++)
+		batch.get(index).connection.responses.add(batch.get(index));
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                         REQUESTS AND CONNECTIONS                 */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /** A CLASSIFY request waiting to be scored. */
+
+    private static class Request {
+        /** The connection on which the request arrived. */
+        Connection connection;
+	/** The request id. */
+	int id;
+	/** The record. */
+	short[] record;
+	/** The class label (0 if no class found, or not yet scored). */
+	short classResult = 0;
+	/** The latency timer, started on arrival. */
+	MiningPhaseEvent latency;
+	}
+
+    /** A client connection, whose requests are read by one thread and
+    responses written by another. */
+
+    private class Connection implements Runnable {
+        /** The socket. */
+        private Socket socket;
+	/** The input stream. */
+	private DataInputStream input;
+	/** The output stream, written under the connection lock. */
+	private DataOutputStream output;
+	/** The scored requests waiting for their responses to be written. */
+	private final LinkedBlockingQueue<Request> responses =
+					new LinkedBlockingQueue<Request>();
+	/** The thread writing the responses (null if not started). */
+	private Thread writer = null;
+
+	/** Constructor with the accepted socket.
+	@param acceptedSocket the socket. */
+
+	Connection(Socket acceptedSocket) throws IOException {
+	    socket = acceptedSocket;
+	    input  = new DataInputStream(new BufferedInputStream(
+	    					socket.getInputStream()));
+	    output = new DataOutputStream(new BufferedOutputStream(
+	    					socket.getOutputStream()));
+	    }
+
+	/** Starts the threads reading the requests and writing the
+	responses. */
+
+	void start() {
+	    writer = new Thread(new Runnable() {
+	        public void run() {
+		    writeResponses();
+		    }
+		},"cmar-respond-" + socket.getPort());
+	    writer.setDaemon(true);
+	    writer.start();
+	    Thread reader = new Thread(this,"cmar-connection-" +
+	    					socket.getPort());
+	    reader.setDaemon(true);
+	    reader.start();
+	    }
+
+	/** Reads requests until the connection is closed, CLASSIFY requests
+	are queued and STATS requests answered directly. */
+
+	public void run() {
+	    try {
+	        while (running) {
+		    int length;
+		    try {
+		        length = input.readInt();
+			}
+		    catch (EOFException e) {
+		        break;
+			}
+		    if (length<1 || length>MAX_FRAME_LENGTH) throw new
+		    		IOException("Invalid frame length " + length);
+		    MiningPhaseEvent latency =
+		    		MiningMetrics.begin("serve.request");
+		    byte type = input.readByte();
+		    if (type==CLASSIFY && length>=5 && (length-5)%2==0) {
+		        Request request = new Request();
+			request.connection = this;
+			request.id         = input.readInt();
+			request.record     = new short[(length-5)/2];
+			for (int index=0;index<request.record.length;index++)
+			    	request.record[index] = input.readShort();
+			request.latency = latency;
+			requests.add(request);
+			}
+		    else if (type==STATS && length==1) {
+		        writeStatsResponse();
+			flush();
+			}
+		    else throw new IOException("Invalid frame (type " + type +
+		    				", length " + length + ")");
+		    }
+		}
+	    catch (IOException e) {
+	        if (running && !socket.isClosed())
+			System.out.println("WARNING: connection failed: " + e);
+		}
+	    close();
+	    }
+
+	/** Writes the responses to the scored requests until the connection is
+	closed, flushing once for the responses waiting, and records the
+	latency of each request. */
+
+	private void writeResponses() {
+	    List<Request> written = new ArrayList<Request>();
+	    try {
+	        while (!socket.isClosed()) {
+		    written.add(responses.take());
+		    responses.drainTo(written);
+		    for (int index=0;index<written.size();index++)
+		        writeClassifyResponse(written.get(index).id,
+					written.get(index).classResult);
+		    flush();
+		    for (int index=0;index<written.size();index++)
+		    		MiningMetrics.end(written.get(index).latency);
+		    written.clear();
+		    }
+		}
+	    catch (InterruptedException e) {
+	        // Closed
+		}
+	    }
+
+	/** Writes a CLASSIFY response.
+	@param id the request id.
+	@param classResult the class label. */
+
+	synchronized void writeClassifyResponse(int id, short classResult) {
+	    try {
+	        output.writeInt(7);
+		output.writeByte(CLASSIFY);
+		output.writeInt(id);
+		output.writeShort(classResult);
+		}
+	    catch (IOException e) {
+	        close();
+		}
+	    }
+
+	/** Writes a STATS response. */
+
+	synchronized void writeStatsResponse() {
+	    byte[] json = MiningMetrics.toJson().getBytes(
+	    					Charset.forName("UTF-8"));
+	    try {
+	        output.writeInt(json.length+1);
+		output.writeByte(STATS);
+		output.write(json);
+		}
+	    catch (IOException e) {
+	        close();
+		}
+	    }
+
+	/** Flushes the responses written so far. */
+
+	synchronized void flush() {
+	    try {
+	        output.flush();
+		}
+	    catch (IOException e) {
+	        close();
+		}
+	    }
+
+	/** Closes the connection, stopping the thread writing the
+	responses. */
+
+	void close() {
+	    synchronized (connections) {
+	        connections.remove(this);
+		}
+	    try {
+	        socket.close();
+		}
+	    catch (IOException e) {
+	        // Closing anyway
+		}
+	    if (writer!=null && writer!=Thread.currentThread()) writer.interrupt();
+	    }
+	}
+
+    /* ----------------------------------- */
+    /*                                     */
+    /*              GET METHODS            */
+    /*                                     */
+    /* ----------------------------------- */
+
+    /** Gets the port the server is listening on.
+    @return the port, or -1 if not started. */
+
+    public int getPort() {
+        ServerSocket socket = serverSocket;
+	if (socket==null || !running) return(-1);
+	return(socket.getLocalPort());
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                                MAIN                              */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /** Main method. Arguments: model file, port, number of scoring threads
+    (default 1) and batch window in microseconds (default 0). Runs until
+    killed, the metrics snapshot (see MiningMetrics) is then output.
+    @param args the arguments.
+    @throws IOException if the model cannot be loaded or the port bound.
+    @throws InterruptedException if interrupted while running. */
+
+    public static void main(String[] args) throws IOException,
+    						InterruptedException {
+        if (args.length<2) {
+	    System.out.println("Usage: ScoringServer <model file> <port> " +
+	    			"[<scoring threads>] [<batch window (us)>]");
+	    System.exit(1);
+	    }
+	int numThreads = 1;
+	if (args.length>2) numThreads = Integer.parseInt(args[2]);
+	long batchWindow = 0;
+	if (args.length>3) batchWindow = Long.parseLong(args[3]);
+
+	// Load model and start server
+	final ScoringServer server = new ScoringServer(
+	    AprioriTFP_CMAR.loadModel(args[0]),numThreads,batchWindow);
+	server.start(Integer.parseInt(args[1]));
+	System.out.println("Scoring server listening on port " +
+		server.getPort() + " (" + numThreads + " scoring threads, " +
+		batchWindow + " us batch window)");
+	Runtime.getRuntime().addShutdownHook(new Thread() {
+	    public void run() {
+	        server.stop();
+		MiningMetrics.writeSnapshot();
+		}
+	    });
+	server.awaitStop();
+	}
+    }
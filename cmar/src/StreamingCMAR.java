@@ -0,0 +1,298 @@
+/* -------------------------------------------------------------------------- */
+/*                                                                            */
+/*                     S T R E A M I N G   C M A R                            */
+/*                                                                            */
+/*                    Department of Computer Science                          */
+/*                     The University of Liverpool                            */
+/*                                                                            */
+/* -------------------------------------------------------------------------- */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
+/** Streaming CMAR classifier: classifies records from a stream with rules
+generated from a window of the most recent N (labelled) records. <P> Records
+arriving from the stream are held until the next regeneration, which (on a
+configurable schedule, in a background thread) proceeds as follows:
+<OL>
+<LI>Add the support of the arriving records to the T-tree and subtract the
+support of the records leaving the window (see <TT>updateClassifier</TT> in
+the AprioriTFP_CARgen class and <TT>updateTotalSupportTree</TT> in the
+TotalSupportTree class), i.e. without remining the window.
+<LI>Regenerate the CARs and prune them using the cover principle.
+<LI>Copy the rules to a new scoring classifier and switch to it.
+</OL>
+Records are classified with the current scoring classifier, which is never
+updated, so scoring continues during a regeneration and switches atomically
+to the new rules once complete. <P> Two kinds of window are supported:
+<UL>
+<LI>Sliding: at each regeneration the arriving records are added and the
+oldest records expire so that the window holds the N most recent records.
+<LI>Tumbling: the window is replaced by the next N records once they have all
+arrived, until then the window (and the rules) are unchanged.
+</UL> */
+
+/* To Compile: javac StreamingCMAR.java */
+
+public class StreamingCMAR {
+
+    /* ------ FIELDS ------ */
+
+    /** Sliding window type. */
+    public static final int SLIDING_WINDOW = 0;
+    /** Tumbling window type. */
+    public static final int TUMBLING_WINDOW = 1;
+
+    /** The classifier holding the window, T-tree and negative border, only
+    used under the regeneration lock. */
+    private AprioriTFP_CMAR windowClassifier;
+    /** The classifier used for scoring, replaced after each regeneration. */
+    private volatile AprioriTFP_CMAR scoringClassifier;
+
+    /** The window size (N). */
+    private int windowSize;
+    /** The window type. */
+    private int windowType;
+    /** The number of records in the window. */
+    private int numRecordsInWindow;
+
+    /** Records arrived since the last regeneration. */
+    private List<short[]> arrivedRecords = new ArrayList<short[]>();
+    /** Lock held during a regeneration. */
+    private final Object regenerationLock = new Object();
+    /** Scheduler running regenerations in the background (null if not
+    started). */
+    private ScheduledExecutorService scheduler = null;
+    /** The number of regenerations so far. */
+    private volatile int numRegenerations = 0;
+
+    /* ------ CONSTRUCTORS ------ */
+
+    /** Constructor with a classifier generated from the initial window, i.e.
+    for which <TT>startClassification</TT> has been called (preferably with
+    the negative border kept, see <TT>setKeepNegativeBorderFlag</TT>,
+    otherwise the T-tree is regenerated on the first update).
+    @param classifier the classifier.
+    @param size the window size (number of records).
+    @param type the window type (SLIDING_WINDOW or TUMBLING_WINDOW). */
+
+    public StreamingCMAR(AprioriTFP_CMAR classifier, int size, int type) {
+        if (size<1) throw new IllegalArgumentException("Window size " +
+						size + " less than 1");
+	if (type!=SLIDING_WINDOW && type!=TUMBLING_WINDOW)
+	    throw new IllegalArgumentException("Unknown window type " + type);
+	windowClassifier   = classifier;
+	windowSize         = size;
+	windowType         = type;
+	numRecordsInWindow = classifier.getNumRowsInTrainingSet();
+	windowClassifier.setKeepNegativeBorderFlag(true);
+	scoringClassifier  = windowClassifier.copyModel();
+	}
+
+    /* ------ METHODS ------ */
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                              STREAM                              */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* ADD RECORD */
+
+    /** Adds a (labelled) record arriving from the stream, included in the
+    window at the next regeneration. May be called by any thread.
+    @param record the record, attributes numbered as in the input data
+    (classifier last). */
+
+    public void addRecord(short[] record) {
+        synchronized (arrivedRecords) {
+	    arrivedRecords.add(record);
+	    }
+	}
+
+    /* CLASSIFY RECORD */
+
+    /** Classifies a record with the current rules. May be called by any
+    thread while a regeneration is in progress; calls using the same scoring
+    classifier are serialised as the classifier reorders its rule list while
+    classifying.
+    @param record the record (without class), attributes numbered as in the
+    input data.
+    @return the class label (or 0 if no class found). */
+
+    public short classifyRecord(short[] record) {
+        AprioriTFP_CMAR classifier = scoringClassifier;
+	synchronized (classifier) {
+	    return(classifier.classifyRecord(record));
+	    }
+	}
+
+    /* ---------------------------------------------------------------- */
+    /*                                                                  */
+    /*                           REGENERATION                           */
+    /*                                                                  */
+    /* ---------------------------------------------------------------- */
+
+    /* START */
+
+    /** Starts regenerating the rules in a background thread at the given
+    interval (measured from the end of one regeneration to the start of the
+    next).
+    @param interval the interval.
+    @param unit the unit of the interval. */
+
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) throw new IllegalStateException("Streaming " +
+						"classifier already started");
+	scheduler = Executors.newSingleThreadScheduledExecutor(
+						new ThreadFactory() {
+	    public Thread newThread(Runnable runnable) {
+	        Thread thread = new Thread(runnable,"cmar-regeneration");
+		thread.setDaemon(true);
+		return(thread);
+		}
+	    });
+	scheduler.scheduleWithFixedDelay(new Runnable() {
+	    public void run() {
+	        // Keep the schedule running after a failed regeneration
+	        try {
+		    regenerate();
+		    }
+		catch (RuntimeException e) {
+		    System.out.println("WARNING: regeneration failed: " + e);
+		    }
+		}
+	    },interval,interval,unit);
+	}
+
+    /* STOP */
+
+    /** Stops the background regeneration, waiting for a regeneration in
+    progress to complete. */
+
+    public synchronized void stop() {
+        if (scheduler==null) return;
+	scheduler.shutdown();
+	try {
+	    scheduler.awaitTermination(Long.MAX_VALUE,TimeUnit.MILLISECONDS);
+	    }
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    }
+	scheduler = null;
+	}
+
+    /* REGENERATE */
+
+    /** Updates the window with the records arrived since the last
+    regeneration, regenerates the rules and switches scoring to them. Called
+    by the background thread, may also be called directly.
+    @return true if the rules were regenerated, false if the window is
+    unchanged (no records arrived, or a tumbling window not yet complete). */
+
+    public boolean regenerate() {
+        synchronized (regenerationLock) {
+	    short[][] newRecords = takeArrivedRecords();
+	    if (newRecords==null) return(false);
+
+	    // Records leaving the window
+	    int numExpiredRecords;
+	    if (windowType==TUMBLING_WINDOW)
+	    			numExpiredRecords = numRecordsInWindow;
+	    else numExpiredRecords = Math.max(0,
+	    		numRecordsInWindow+newRecords.length-windowSize);
+
+	    // Update window and regenerate rules
+	    MiningPhaseEvent phase = MiningMetrics.begin("stream.regeneration");
+	    windowClassifier.updateClassifier(newRecords,numExpiredRecords);
+	    numRecordsInWindow = numRecordsInWindow+newRecords.length-
+	    						numExpiredRecords;
+	    AprioriTFP_CMAR newClassifier = windowClassifier.copyModel();
+
+	    // Switch scoring to new rules
+	    scoringClassifier = newClassifier;
+	    numRegenerations++;
+	    MiningMetrics.count("stream.records.arrived",newRecords.length);
+	    MiningMetrics.count("stream.records.expired",numExpiredRecords);
+	    MiningMetrics.end(phase,newRecords.length);
+	    return(true);
+	    }
+	}
+
+    /* TAKE ARRIVED RECORDS */
+
+    /** Takes the arrived records to be added to the window: all of them for
+    a sliding window (at most the last N), and the next N for a tumbling
+    window (or the last complete N if several windows are complete, the
+    records of earlier windows are discarded).
+    @return the records, or null if there are none to add. */
+
+    private short[][] takeArrivedRecords() {
+        synchronized (arrivedRecords) {
+	    int numRecords = arrivedRecords.size();
+	    int start = 0;
+	    int end   = numRecords;
+	    if (windowType==TUMBLING_WINDOW) {
+	        if (numRecords<windowSize) return(null);
+		end   = (numRecords/windowSize)*windowSize;
+		start = end-windowSize;
+		}
+	    else {
+	        if (numRecords==0) return(null);
+		start = Math.max(0,numRecords-windowSize);
+		}
+
+	    // Take records
+	    short[][] newRecords = new short[end-start][];
+	    for (int index=start;index<end;index++)
+	    		newRecords[index-start] = arrivedRecords.get(index);
+	    arrivedRecords.subList(0,end).clear();
+	    return(newRecords);
+	    }
+	}
+
+    /* ----------------------------------- */
+    /*                                     */
+    /*              GET METHODS            */
+    /*                                     */
+    /* ----------------------------------- */
+
+    /** Gets the current scoring classifier, holding the rules in use.
+    @return the classifier. */
+
+    public AprioriTFP_CMAR getScoringClassifier() {
+        return(scoringClassifier);
+	}
+
+    /** Gets the number of records in the window.
+    @return the number of records. */
+
+    public int getNumRecordsInWindow() {
+        synchronized (regenerationLock) {
+	    return(numRecordsInWindow);
+	    }
+	}
+
+    /** Gets the number of records arrived since the last regeneration.
+    @return the number of records. */
+
+    public int getNumArrivedRecords() {
+        synchronized (arrivedRecords) {
+	    return(arrivedRecords.size());
+	    }
+	}
+
+    /** Gets the number of regenerations so far.
+    @return the number of regenerations. */
+
+    public int getNumRegenerations() {
+        return(numRegenerations);
+	}
+    }
@@ -22,10 +22,16 @@ AssocRuleMining
 /* Java packages */
 import java.io.*;
 import java.util.*;
+import java.util.zip.*;
 
 // Java GUI packages
 import javax.swing.*;
 
+// Metrics
+import util.MemoryGovernor;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
 /** Methods concerned with the generation, processing and manipulation of
 T-tree data storage structures used to hold the total support counts for large
 itemsets.
@@ -45,10 +51,48 @@ public class TotalSupportTree extends AssocRuleMining {
     /** The marker to the "current" location in the serialisation array. <P>
     initialised to zero. */
     protected int serializationRef = 0;
+    /** Scratch array holding the labels of the nodes on the path from the top
+    of the T-tree to the current node during level generation. */
+    private short[] pathItems = null;
+    /** Scratch array holding the level arrays containing the nodes on the
+    path from the top of the T-tree to the current node during level
+    generation. */
+    private TtreeNode[][] pathRefs = null;
+    /** The negative border of the T-tree: the candidate sets that were counted
+    but found not to be supported, as T-tree nodes (holding the support) keyed
+    by itemset (see <TT>itemSetKey</TT>). Null unless
+    <TT>keepNegativeBorderFlag</TT> is set. */
+    protected HashMap<String,TtreeNode> negativeBorder = null;
+    /** The negative border nodes during an update, indexed by the last
+    (highest numbered) item of their set. */
+    private TtreeNode[][] borderNodes = null;
+    /** The negative border sets during an update as keys (see
+    <TT>itemSetKey</TT>), in the same order as <TT>borderNodes</TT>, null if
+    records are compared as bitsets. */
+    private String[][] borderKeys = null;
+    /** The negative border sets during an update as bitsets (if records are
+    compared as bitsets), in the same order as <TT>borderNodes</TT>. */
+    private long[][][] borderBitsets = null;
 
     // Constants
-    /** The maximum number of frequent sets that may be generated. */
+    /** The maximum number of frequent sets that may be generated (unless a
+    memory governor is in use, see <TT>memoryLimitReached</TT>). */
     protected final int MAX_NUM_FREQUENT_SETS = 500000;
+    /** The estimated size in bytes of a T-tree node (object header, support
+    and child reference). */
+    protected static final int TTREE_NODE_BYTES = 24;
+    /** The estimated size in bytes of an array header. */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    /** The system property naming the directory of the frequent item set
+    (T-tree) cache, not in use if not set. */
+    public static final String ITEM_SET_CACHE_PROPERTY = "cmar.itemSetCache";
+    /** The magic number at the start of a T-tree cache file. */
+    private static final int ITEM_SET_CACHE_MAGIC = 0x54545245;
+    /** The version of the T-tree cache file format. */
+    private static final int ITEM_SET_CACHE_VERSION = 1;
+    /** The default probability that the support error for approximate
+    mining is exceeded. */
+    public static final double DEFAULT_APPROXIMATE_DELTA = 0.05;
 
     // Other fields
     /** The next level indicator flag: set to <TT>true</TT> if new level
@@ -64,12 +108,59 @@ public class TotalSupportTree extends AssocRuleMining {
     protected boolean outputTtreeFlag = false;
     /** Flag indicating that T-tree grpah output is desired. */
     protected boolean outputTtreeGraphFlag = false;
+    /** Flag indicating that the negative border is to be kept when the T-tree
+    is generated (required for incremental update of the T-tree). */
+    protected boolean keepNegativeBorderFlag = false;
+    /** The directory of the frequent item set (T-tree) cache, null if not in
+    use. */
+    protected String itemSetCacheDirectory =
+    				System.getProperty(ITEM_SET_CACHE_PROPERTY);
+    /** The support error (fraction of records) for approximate mining from
+    a sample (see <TT>setApproximateMining</TT>), 0 if not in use, set by the
+    -A and -E command line arguments of the AprioriTFP_CMAR class (not
+    initialised here as set from the super class constructor). */
+    protected double approximateEpsilon;
+    /** The probability that the support error for approximate mining is
+    exceeded (not initialised here as set from the super class
+    constructor). */
+    protected double approximateDelta;
+    /** Flag indicating that supports obtained by approximate mining are to be
+    verified against the complete data set (not initialised here as set from
+    the super class constructor). */
+    protected boolean approximateVerifyFlag;
+    /** The seed for the random selection of the sample. */
+    protected long approximateSeed = 1l;
+    /** The support error achieved by the last approximate mining. */
+    protected double approximateSupportError = 0.0;
+    /** The memory governor watching the heap while the T-tree is generated,
+    null if not in use (the MAX_NUM_FREQUENT_SETS limit then applies), see
+    <TT>memoryLimitReached</TT>. */
+    protected MemoryGovernor memoryGovernor =
+    				MemoryGovernor.fromSystemProperties();
+    /** Flag set when generation of the T-tree was stopped, or the support
+    threshold raised, by the memory governor. */
+    protected boolean memoryLimitedFlag = false;
 
     // Diagnostics
     /** The number of updates required to generate the T-tree. */
     protected long numUpdates   = 0l;
+    /** The number of candidate sets (T-tree nodes) generated by this miner,
+    counted as they are created rather than taken from the number of nodes
+    shared by all T-trees (see <TT>TtreeNode.getNumberOfNodes</TT>) so that
+    the level metrics are not mixed up by miners running concurrently. */
+    protected long numCandidates = 0l;
     /** Time to generate T-tree. */
     protected String duration = null;
+    /** The phase event timing the current T-tree level (see
+    <TT>util.MiningMetrics</TT>). */
+    protected MiningPhaseEvent levelPhase = null;
+    /** Number of candidate sets generated when the current level phase was
+    started. */
+    protected long levelCandidatesMarker = 0l;
+    /** Number of frequent sets when the current level phase was started. */
+    protected int levelFrequentMarker = 0;
+    /** Number of updates when the current level phase was started. */
+    protected long levelUpdatesMarker = 0l;
 
     /* ------ CONSTRUCTORS ------ */
 
@@ -204,16 +295,30 @@ public class TotalSupportTree extends AssocRuleMining {
     /** Generates level 1 (top) of the T-tree. */
 
     protected void createTtreeTopLevel() {
+	// Start timing level 1
+	markTtreeLevel();
+
+	// Not (yet) limited by the memory governor
+	memoryLimitedFlag = false;
+
+	// Start negative border (if required)
+	if (keepNegativeBorderFlag) negativeBorder = new HashMap<String,TtreeNode>();
+	else negativeBorder = null;
+
 	// Dimension and initialise top level of T-tree
 	startTtreeRef = new TtreeNode[numOneItemSets+1];
 	for (int index=1;index<=numOneItemSets;index++)
 	    			startTtreeRef[index] = new TtreeNode();
+	numCandidates = numCandidates+numOneItemSets;
 
         // Add support for each 1 itemset
 	createTtreeTopLevel2();
 
-	// Prune top level, setting any unsupported 1-itemsets to null
+	// Prune top level, setting any unsupported 1-itemsets to null (keeping
+	// them as the negative border if required)
+	collectNegativeBorder(1);
 	pruneLevelN(startTtreeRef,1);
+	recordTtreeLevel(1);
 	}
 
     /** Adds supports to level 1 (top) of the T-tree. */
@@ -250,9 +355,11 @@ public class TotalSupportTree extends AssocRuleMining {
             // Add support
 	    addSupportToTtreeLevelN(nextLevel);
 	    // Prune unsupported candidate sets
+	    collectNegativeBorder(nextLevel);
 	    pruneLevelN(startTtreeRef,nextLevel);
+	    recordTtreeLevel(nextLevel);
 	    // Check number of frequent sets generated so far
-	    if (numFrequentSets>MAX_NUM_FREQUENT_SETS) {
+	    if (memoryGovernor==null && numFrequentSets>MAX_NUM_FREQUENT_SETS) {
 	        System.out.println("Number of frequent sets (" +
 				numFrequentSets + ") generted so far " +
 				"exceeds limit of " + MAX_NUM_FREQUENT_SETS +
@@ -261,7 +368,7 @@ public class TotalSupportTree extends AssocRuleMining {
 		}
 	    // Attempt to generate next level
 	    nextLevelExists=false;
-	    generateLevelN(startTtreeRef,nextLevel,null);
+	    generateLevelN(nextLevel);
 	    nextLevel++;
 	    }
 
@@ -283,10 +390,12 @@ public class TotalSupportTree extends AssocRuleMining {
 	    // Add support
 	    addSupportToTtreeLevelN(nextLevel);
 	    // Prune unsupported candidate sets
+	    collectNegativeBorder(nextLevel);
 	    pruneLevelN(startTtreeRef,nextLevel);
+	    recordTtreeLevel(nextLevel);
 	    // Attempt to generate next level
 	    nextLevelExists=false;
-	    generateLevelN(startTtreeRef,nextLevel,null);
+	    generateLevelN(nextLevel);
 	    nextLevel++;
 	    }
 
@@ -295,6 +404,42 @@ public class TotalSupportTree extends AssocRuleMining {
 	textArea.append("Levels in T-tree = " + numLevelsInTtree + "\n");
 	}
 
+    /* MARK T-TREE LEVEL */
+    /** Starts timing a T-tree level and notes the current number of
+    candidate sets, frequent sets and updates so that those of the level can be
+    determined when it is recorded. */
+
+    protected void markTtreeLevel() {
+        levelPhase            = MiningMetrics.begin("ttree.level");
+	levelCandidatesMarker = numCandidates;
+	levelFrequentMarker   = numFrequentSets;
+	levelUpdatesMarker    = numUpdates;
+	}
+
+    /* RECORD T-TREE LEVEL */
+    /** Records the metrics of a T-tree level once its support has been
+    counted and it has been pruned: the candidates generated since the
+    previous level (see <TT>numCandidates</TT>), the frequent sets kept, the
+    candidates pruned and the support updates, then starts timing the next
+    level.
+    @param level the level number (top level = 1). */
+
+    protected void recordTtreeLevel(int level) {
+        if (levelPhase==null) return;
+	int candidates = (int) (numCandidates-levelCandidatesMarker);
+	int frequent   = numFrequentSets-levelFrequentMarker;
+	String name    = "ttree.level." + level;
+	MiningMetrics.count(name + ".candidates",candidates);
+	MiningMetrics.count(name + ".frequent",frequent);
+	MiningMetrics.count(name + ".pruned",candidates-frequent);
+	MiningMetrics.count(name + ".supportUpdates",
+					numUpdates-levelUpdatesMarker);
+	MiningMetrics.end(levelPhase,level,candidates);
+
+	// Next level
+	markTtreeLevel();
+	}
+
     /* CREATE TOTAL SUPPORT TREE */
 
     /** Dummay method to commences process of generating a total support tree
@@ -446,14 +591,21 @@ public class TotalSupportTree extends AssocRuleMining {
 
 	// Set next level flag
 	nextLevelExists=false;
+	if (memoryLimitReached(1)) return;
 
 	// loop through top level (start at index 2 because cannot generate a
 	// level from index 1 as there will be no proceeding attributes,
 	// remember index 0 is unused.
-	for (int index=2;index<startTtreeRef.length;index++) {
-	    // If supported T-tree node (i.e. it exists)
-	    if (startTtreeRef[index] != null) generateNextLevel(startTtreeRef,
-	    				index,realloc2(null,(short) index));
+	try {
+	    for (int index=2;index<startTtreeRef.length;index++) {
+	        // If supported T-tree node (i.e. it exists)
+	        if (startTtreeRef[index] != null) generateNextLevel(
+	    		startTtreeRef,index,realloc2(null,(short) index));
+	        }
+	    }
+	catch (OutOfMemoryError e) {
+	    if (memoryGovernor==null) throw e;
+	    memoryExhausted(1);
 	    }
 	}
 
@@ -473,16 +625,43 @@ public class TotalSupportTree extends AssocRuleMining {
     walk the tree and attempt to add new nodes to every level 2 node found.
     Having found the correct level we step through starting from B (we cannot
     add a node to A), so in this case there is only one node from which a level
-    3 node may be attached.
-    @param linkRef the reference to the current sub-branch of T-tree (start at
-    top of tree).
+    3 node may be attached. <P> The path from the top of the T-tree to the
+    current node (the node labels and the level arrays containing them) is
+    held in scratch arrays, reused for every node, which are used to X-check
+    the candidates (see <TT>testCombinations</TT>) without building and
+    searching for each subset.
+    @param level the required level. */
+
+    protected void generateLevelN(int level) {
+        if (memoryLimitReached(level)) return;
+        pathItems = new short[level];
+	pathRefs  = new TtreeNode[level][];
+
+	// Proceed
+	try {
+	    generateLevelN(startTtreeRef,level,0);
+	    }
+	catch (OutOfMemoryError e) {
+	    if (memoryGovernor==null) throw e;
+	    pathItems = null;
+	    pathRefs  = null;
+	    memoryExhausted(level);
+	    }
+
+	// End
+	pathItems = null;
+	pathRefs  = null;
+	}
+
+    /** Continues process of generating remaining levels in the T-tree.
+    @param linkRef the reference to the current sub-branch of T-tree.
     @param level the level marker, set to the required level at the start and
     then decremented by 1 on each recursion.
-    @param itemSet the current itemset (T-tree node) under consideration. */
+    @param depth the number of nodes on the path to the current sub-branch. */
 
-    protected void generateLevelN(TtreeNode[] linkRef, int level,
-    							short[] itemSet) {
+    private void generateLevelN(TtreeNode[] linkRef, int level, int depth) {
 	int localSize = linkRef.length;
+	pathRefs[depth] = linkRef;
 
 	// Correct level
 	if (level == 1) {
@@ -490,8 +669,8 @@ public class TotalSupportTree extends AssocRuleMining {
 	    for (int index=2;index<localSize;index++) {
 	        // If T-tree node exists (i.e. is supported) add next level
 	    	if (linkRef[index] != null) {
-			generateNextLevel(linkRef,index,
-					     realloc2(itemSet,(short) index));
+		    pathItems[depth] = (short) index;
+		    generateNextLevel(linkRef,index,depth+1);
 		    }
 		}
 	    }
@@ -500,9 +679,10 @@ public class TotalSupportTree extends AssocRuleMining {
 	else {
 	    for (int index=level;index<localSize;index++) {
 	        // If T-tree node exists and it is has a child node proceed
-	        if (linkRef[index]!=null && linkRef[index].childRef!=null)
-		               generateLevelN(linkRef[index].childRef,level-1,
-		    			     realloc2(itemSet,(short) index));
+	        if (linkRef[index]!=null && linkRef[index].childRef!=null) {
+		    pathItems[depth] = (short) index;
+		    generateLevelN(linkRef[index].childRef,level-1,depth+1);
+		    }
 		}
 	    }
 	}
@@ -574,6 +754,7 @@ public class TotalSupportTree extends AssocRuleMining {
 	        newItemSet = realloc2(itemSet,(short) index);
 		if (testCombinations(newItemSet)) {
 		    currentNode.childRef[index] = new TtreeNode();
+		    numCandidates++;
 		    nextLevelExists=true;
 		    }
 	        else currentNode.childRef[index] = null;
@@ -581,6 +762,33 @@ public class TotalSupportTree extends AssocRuleMining {
 	    }
 	}
 
+    /** Generates a new level in the T-tree from a given "parent" node reached
+    through the path held in the <TT>pathItems</TT> and <TT>pathRefs</TT>
+    scratch arrays, see above.
+    @param parentRef the reference to the level in the sub-branch of the T-tree
+    under consideration.
+    @param endIndex the index of the current node under consideration.
+    @param pathLength the number of nodes on the path to the current node
+    (including the current node). */
+
+    private void generateNextLevel(TtreeNode[] parentRef, int endIndex,
+    			int pathLength) {
+	parentRef[endIndex].childRef = new TtreeNode[endIndex];	// New level
+
+	// Generate a level in Ttree
+	TtreeNode currentNode = parentRef[endIndex];
+
+	// Loop through parent sub-level of siblings upto current node
+	for (int index=1;index<endIndex;index++) {
+	    // Check if "uncle" element is supported (i.e. it exists)
+	    if (parentRef[index] != null && testCombinations(pathLength,index)) {
+		currentNode.childRef[index] = new TtreeNode();
+		numCandidates++;
+		nextLevelExists=true;
+	        }
+	    }
+	}
+
     /* TEST COMBINATIONS */
 
     /** Commences the process of testing whether the N-1 sized sub-sets of a
@@ -633,6 +841,34 @@ public class TotalSupportTree extends AssocRuleMining {
 	return(combinations(null,0,2,itemSet1,itemSet2));
 	}
 
+    /** Tests whether the N-1 sized sub-sets of a candidate, comprising the
+    labels of the nodes on the path held in the <TT>pathItems</TT> scratch
+    array followed by a last item, are supported elsewhere in the T-tree. <P>
+    The sub-sets without the last item or the last path item are known to be
+    supported (the parent and "uncle" nodes). Every other sub-set omits a
+    path item, it shares the path up to that item and so is searched for from
+    the level array containing the item (in <TT>pathRefs</TT>) rather than
+    from the top of the T-tree, without creating the sub-set.
+    @param pathLength the number of path items.
+    @param lastItem the last item.
+    @return true if all the sub-sets are supported, false otherwise. */
+
+    private boolean testCombinations(int pathLength, int lastItem) {
+	// Loop through path items to be omitted
+	for (int omit=0;omit<pathLength-1;omit++) {
+	    TtreeNode[] linkRef = pathRefs[omit];
+	    for (int index=omit+1;index<pathLength && linkRef!=null;index++) {
+	        TtreeNode node = linkRef[pathItems[index]];
+		if (node == null) return(false);
+		linkRef = node.childRef;
+		}
+	    if (linkRef==null || linkRef[lastItem]==null) return(false);
+	    }
+
+	// Return
+	return(true);
+	}
+
     /* COMBINATIONS */
 
     /** Determines the cardinality N combinations of a given itemset and then
@@ -697,6 +933,915 @@ public class TotalSupportTree extends AssocRuleMining {
 	return(true);
 	}
 
+    /*---------------------------------------------------------------------- */
+    /*                                                                       */
+    /*                            MEMORY GOVERNOR                            */
+    /*                                                                       */
+    /*---------------------------------------------------------------------- */
+
+    /* Methods to keep the T-tree within the heap when a memory governor is in
+    use (see <TT>util.MemoryGovernor</TT>), in place of the fixed
+    MAX_NUM_FREQUENT_SETS limit. Before a level is generated its size is
+    estimated from the previous level: each supported node with index N gets
+    a child array of length N holding at most one new node for each supported
+    node before it. If the estimate does not fit the heap left below the limit
+    the support threshold is raised until it does (raise support policy, not
+    when the negative border is kept) or generation is stopped, keeping the
+    levels generated so far. Should the heap nevertheless be exhausted while
+    the level is generated the partial level is removed and generation
+    stopped. */
+
+    /* MEMORY LIMIT REACHED */
+
+    /** Tests whether the level following the given level can be generated
+    within the heap, raising the support threshold or stopping generation if
+    not (if a memory governor is in use).
+    @param level the level from which the next level is to be generated.
+    @return true if generation is to be stopped, false otherwise. */
+
+    protected boolean memoryLimitReached(int level) {
+        if (memoryGovernor==null) return(false);
+	long estimate = estimateNextLevelBytes(startTtreeRef,level,minSupport);
+	if (memoryGovernor.canAllocate(estimate)) return(false);
+
+	// Raise support if allowed and possible
+	if (memoryGovernor.getPolicy()==MemoryGovernor.Policy.RAISE_SUPPORT &&
+			negativeBorder==null && raiseSupportToFit(level)) {
+	    memoryLimitedFlag = true;
+	    return(false);
+	    }
+
+	// Stop
+	System.out.println("Level = " + level + ", estimated size of next " +
+		"level (" + (estimate/1024) + " KB) exceeds heap available, " +
+		"number of frequent sets = " + numFrequentSets +
+		", generation process stopped!\n" + memoryGovernor.report());
+	MiningMetrics.count("memory.stopped",1);
+	memoryLimitedFlag = true;
+	nextLevelExists   = false;
+	return(true);
+	}
+
+    /* MEMORY EXHAUSTED */
+
+    /** Removes the partial level following the given level after the heap
+    was exhausted while it was generated, and stops generation.
+    @param level the level from which the next level was being generated. */
+
+    protected void memoryExhausted(int level) {
+        removeNextLevel(startTtreeRef,level);
+	System.out.println("Level = " + level + ", heap exhausted generating " +
+		"next level, number of frequent sets = " + numFrequentSets +
+		", generation process stopped!\n" + memoryGovernor.report());
+	MiningMetrics.count("memory.stopped",1);
+	memoryLimitedFlag = true;
+	nextLevelExists   = false;
+	}
+
+    /** Removes the child arrays of the nodes at the given level.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion. */
+
+    private void removeNextLevel(TtreeNode[] linkRef, int level) {
+        for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index]==null) continue;
+	    if (level==1) linkRef[index].childRef = null;
+	    else if (linkRef[index].childRef!=null)
+	    		removeNextLevel(linkRef[index].childRef,level-1);
+	    }
+	}
+
+    /* ESTIMATE NEXT LEVEL BYTES */
+
+    /** Estimates the size in bytes of the level following the given level
+    should only the nodes at the given level with at least the given support
+    be expanded.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @param threshold the support threshold.
+    @return the estimated size in bytes. */
+
+    protected long estimateNextLevelBytes(TtreeNode[] linkRef, int level,
+    						double threshold) {
+        long bytes = 0l;
+
+	// Correct level, each node gets a child array holding at most one node
+	// for each node before it
+	if (level == 1) {
+	    int numBefore = 0;
+	    for (int index=1;index<linkRef.length;index++) {
+	        if (linkRef[index]==null || linkRef[index].support<threshold)
+							continue;
+		if (index>=2) bytes = bytes + arrayBytes(index) +
+				((long) numBefore)*TTREE_NODE_BYTES;
+		numBefore++;
+		}
+	    }
+
+	// Wrong level
+	else {
+	    for (int index=level;index<linkRef.length;index++) {
+	        if (linkRef[index]!=null && linkRef[index].childRef!=null)
+		    bytes = bytes + estimateNextLevelBytes(
+		    		linkRef[index].childRef,level-1,threshold);
+		}
+	    }
+
+	// Return
+	return(bytes);
+	}
+
+    /** Estimates the size in bytes of an array of references.
+    @param length the length of the array.
+    @return the estimated size in bytes. */
+
+    protected static long arrayBytes(int length) {
+        return(((ARRAY_HEADER_BYTES + 4l*length + 7)/8)*8);
+	}
+
+    /* RAISE SUPPORT TO FIT */
+
+    /** Raises the support threshold to the lowest support of a node at the
+    given level for which the estimated size of the next level fits the heap
+    available, removing the nodes (at any level) below the new threshold.
+    @param level the level from which the next level is to be generated.
+    @return true if the threshold was raised, false if no threshold fits. */
+
+    private boolean raiseSupportToFit(int level) {
+        // Supports of the nodes at the level, ascending
+	int[] supports = new int[collectLevelSupports(startTtreeRef,level,
+							null,0)];
+	collectLevelSupports(startTtreeRef,level,supports,0);
+	Arrays.sort(supports);
+	long available = memoryGovernor.getAvailableHeap();
+
+	// Binary search for the lowest support that fits, the estimate
+	// decreasing as the threshold rises
+	int low = 0, high = supports.length-1, found = -1;
+	while (low<=high) {
+	    int middle = (low+high)/2;
+	    if (estimateNextLevelBytes(startTtreeRef,level,
+	    				supports[middle]) <= available) {
+	        found = middle;
+		high  = middle-1;
+		}
+	    else low = middle+1;
+	    }
+	if (found<0 || supports[found]<=minSupport) return(false);
+
+	// Raise threshold and remove the nodes below it
+	double oldSupport = minSupport;
+	minSupport = supports[found];
+	int numRemoved = removeUnsupportedNodes(startTtreeRef);
+	numFrequentSets = numFrequentSets-numRemoved;
+	System.out.println("Level = " + level + ", next level does not fit " +
+		"heap available, support threshold raised from " +
+		twoDecPlaces(oldSupport) + " to " + twoDecPlaces(minSupport) +
+		" (records), " + numRemoved + " frequent sets removed\n" +
+		memoryGovernor.report());
+	MiningMetrics.count("memory.supportRaised",1);
+	supportThresholdRaised();
+	return(true);
+	}
+
+    /* SUPPORT THRESHOLD RAISED */
+
+    /** Called once the support threshold has been raised by the memory
+    governor, so that sub classes can remove what was derived from the T-tree
+    at the old threshold (e.g. rules already generated from the levels
+    mined so far). Does nothing here. */
+
+    protected void supportThresholdRaised() {
+	}
+
+    /** Collects the supports of the nodes at the given level.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @param supports the array to collect the supports in, null if the nodes
+    are only to be counted.
+    @param count the number of nodes found so far.
+    @return the number of nodes found. */
+
+    private int collectLevelSupports(TtreeNode[] linkRef, int level,
+    					int[] supports, int count) {
+	for (int index=(level==1 ? 1 : level);index<linkRef.length;index++) {
+	    if (linkRef[index]==null) continue;
+	    if (level==1) {
+	        if (supports!=null) supports[count] = linkRef[index].support;
+		count++;
+		}
+	    else if (linkRef[index].childRef!=null)
+	        count = collectLevelSupports(linkRef[index].childRef,level-1,
+							supports,count);
+	    }
+	return(count);
+	}
+
+    /** Removes the nodes below the support threshold together with their
+    children (whose supports cannot be higher).
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @return the number of nodes removed. */
+
+    private int removeUnsupportedNodes(TtreeNode[] linkRef) {
+        int numRemoved = 0;
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index]==null) continue;
+	    if (linkRef[index].support<minSupport) {
+	        numRemoved = numRemoved+1+countNodes(linkRef[index].childRef);
+		linkRef[index] = null;
+		}
+	    else if (linkRef[index].childRef!=null)
+	        numRemoved = numRemoved +
+				removeUnsupportedNodes(linkRef[index].childRef);
+	    }
+	return(numRemoved);
+	}
+
+    /** Counts the nodes in a sub-branch of the T-tree.
+    @param linkRef the reference to the sub-branch, may be null.
+    @return the number of nodes. */
+
+    private int countNodes(TtreeNode[] linkRef) {
+        if (linkRef==null) return(0);
+	int count = 0;
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index]!=null)
+	    		count = count+1+countNodes(linkRef[index].childRef);
+	    }
+	return(count);
+	}
+
+    /* SET MEMORY GOVERNOR */
+
+    /** Sets the memory governor watching the heap while the T-tree is
+    generated.
+    @param governor the governor, null if the MAX_NUM_FREQUENT_SETS limit is
+    to be used instead. */
+
+    public void setMemoryGovernor(MemoryGovernor governor) {
+        memoryGovernor = governor;
+	}
+
+    /*---------------------------------------------------------------------- */
+    /*                                                                       */
+    /*            INCREMENTAL T-TREE MAINTENANCE (NEGATIVE BORDER)           */
+    /*                                                                       */
+    /*---------------------------------------------------------------------- */
+
+    /* Methods to update an existing T-tree with a batch of new records
+    without re-processing the existing records, following the FUP (Fast
+    UPdate) approach. The negative border, the candidate sets that were counted
+    but found not to be supported, is kept when the T-tree is generated. On
+    update the supports of the T-tree nodes and of the negative border sets are
+    incremented using the new records only; the complete data set is only
+    processed to count new candidate sets, i.e. sets that could not be
+    candidates before because one of their subsets was not supported. */
+
+    /* COLLECT NEGATIVE BORDER */
+
+    /** Adds the unsupported nodes at the given level in the T-tree to the
+    negative border (if the negative border is kept). Called before the level
+    is pruned.
+    @param level the level number (top level = 1). */
+
+    protected void collectNegativeBorder(int level) {
+        if (negativeBorder==null || startTtreeRef==null) return;
+
+	collectNegativeBorder(startTtreeRef,level,null);
+	}
+
+    /** Continues process of adding unsupported nodes at a given level to the
+    negative border. <P> Operates recursively.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @param itemSet the label of the parent node (null at the top level). */
+
+    private void collectNegativeBorder(TtreeNode[] linkRef, int level,
+    							short[] itemSet) {
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index] != null) {
+	        short[] newItemSet = realloc2(itemSet,(short) index);
+		// At right level
+		if (level == 1) {
+		    if (linkRef[index].support < minSupport)
+		    	negativeBorder.put(itemSetKey(newItemSet),linkRef[index]);
+		    }
+		// Wrong level
+		else if (linkRef[index].childRef != null)
+		    collectNegativeBorder(linkRef[index].childRef,level-1,
+		    						newItemSet);
+		}
+	    }
+	}
+
+    /* UPDATE TOTAL SUPPORT TREE */
+
+    /** Updates the T-tree with a batch of new records appended to the data
+    set. <P> Proceeds as follows:
+    <OL>
+    <LI>Remove items outside the range of the T-tree top level (attributes not
+    seen when the T-tree was generated), append the new records to the data
+    array and recalculate the minimum support.
+    <LI>Add the support of the new records to the T-tree nodes and the
+    negative border sets.
+    <LI>Prune T-tree nodes that are no longer supported, these are added to
+    the negative border.
+    <LI>Remove negative border sets a size-1 subset of which is no longer
+    supported.
+    <LI>Move negative border sets that are now supported to the T-tree.
+    <LI>Level by level, generate new candidate sets (sets that are neither in
+    the T-tree nor in the negative border but whose size-1 subsets are all
+    supported), count their support in the complete data set and add them to
+    the T-tree or to the negative border.
+    </OL>
+    If the negative border has not been kept the T-tree is regenerated from
+    the complete data set, keeping the negative border from then on.
+    @param newRecords the new records, recast and ordered in the same way as
+    the records in the data array. */
+
+    public void updateTotalSupportTree(short[][] newRecords) {
+        updateTotalSupportTree(newRecords,0);
+	}
+
+    /** Updates the T-tree with a batch of new records appended to the data
+    set and a number of the oldest records removed from it, as when a window
+    slides over a stream of records. The support of the removed records is
+    subtracted from the T-tree nodes and the negative border sets in the same
+    way as the support of the new records is added, the T-tree is then pruned
+    and extended as described above.
+    @param newRecords the new records, recast and ordered in the same way as
+    the records in the data array.
+    @param numExpiredRecords the number of records to remove from the start of
+    the data array. */
+
+    public void updateTotalSupportTree(short[][] newRecords,
+    						int numExpiredRecords) {
+        MiningPhaseEvent phase = MiningMetrics.begin("ttree.update");
+
+	// Remove expired records, append new records and recalculate minimum
+	// support
+	newRecords = removeUnknownItems(newRecords);
+	if (dataArray==null) numExpiredRecords = 0;
+	else if (numExpiredRecords>dataArray.length)
+					numExpiredRecords = dataArray.length;
+	short[][] expiredRecords = new short[numExpiredRecords][];
+	for (int index=0;index<numExpiredRecords;index++)
+				expiredRecords[index] = dataArray[index];
+	dataArray = appendRecords(removeRecords(dataArray,numExpiredRecords),
+								newRecords);
+	addRowsToDataSet(newRecords.length-numExpiredRecords);
+
+	// No negative border, regenerate T-tree
+	if (negativeBorder==null || startTtreeRef==null) {
+	    keepNegativeBorderFlag = true;
+	    regenerateTotalSupportTree();
+	    MiningMetrics.end(phase,newRecords.length);
+	    return;
+	    }
+
+	// Add support for new records and subtract support for expired records
+	// (negative border sets indexed by item, compared with records as
+	// bitsets if in use)
+	createNegativeBorderIndex();
+	for (int index=0;index<newRecords.length;index++) {
+	    if (newRecords[index] != null) {
+	        addSupportToAllLevels(startTtreeRef,newRecords[index].length,
+						newRecords[index],1);
+		addSupportToNegativeBorder(newRecords[index],1);
+		}
+	    }
+	for (int index=0;index<expiredRecords.length;index++) {
+	    if (expiredRecords[index] != null) {
+	        addSupportToAllLevels(startTtreeRef,expiredRecords[index].length,
+						expiredRecords[index],-1);
+		addSupportToNegativeBorder(expiredRecords[index],-1);
+		}
+	    }
+	borderNodes   = null;
+	borderKeys    = null;
+	borderBitsets = null;
+
+	// Prune T-tree and negative border, and promote now supported negative
+	// border sets
+	int numDemoted  = pruneTtreeForUpdate(startTtreeRef,null);
+	cleanNegativeBorder();
+	int numPromoted = promoteNegativeBorder();
+
+	// Generate and count new candidate sets level by level
+	int numNewCandidates = 0;
+	calcNumLevelsInTtree();
+	for (int level=2;level<=numLevelsInTtree+1 && level<=getMaxTtreeLevel();
+								level++) {
+	    numNewCandidates = numNewCandidates+addNewCandidates(level);
+	    calcNumLevelsInTtree();
+	    }
+
+	// End
+	numFrequentSets = countNumberOfTtreeNodes();
+	MiningMetrics.count("ttree.update.records",newRecords.length);
+	MiningMetrics.count("ttree.update.expired",numExpiredRecords);
+	MiningMetrics.count("ttree.update.demoted",numDemoted);
+	MiningMetrics.count("ttree.update.promoted",numPromoted);
+	MiningMetrics.count("ttree.update.newCandidates",numNewCandidates);
+	MiningMetrics.end(phase,newRecords.length);
+	}
+
+    /* REMOVE UNKNOWN ITEMS */
+
+    /** Removes items greater than the number of one item sets from a set of
+    new records, the T-tree top level is dimensioned according to the data
+    set from which the T-tree was generated.
+    @param newRecords the new records.
+    @return the new records without unknown items. */
+
+    protected short[][] removeUnknownItems(short[][] newRecords) {
+        short[][] knownRecords = new short[newRecords.length][];
+	int numRemoved = 0;
+
+	for (int index=0;index<newRecords.length;index++) {
+	    short[] record = newRecords[index];
+	    if (record==null) continue;
+	    int length = 0;
+	    for (int index2=0;index2<record.length;index2++) {
+	        if (record[index2]>0 && record[index2]<=numOneItemSets) length++;
+		}
+	    if (length==record.length) knownRecords[index] = record;
+	    else {
+	        numRemoved = numRemoved+record.length-length;
+	        if (length>0) {
+		    knownRecords[index] = new short[length];
+		    length = 0;
+		    for (int index2=0;index2<record.length;index2++) {
+		        if (record[index2]>0 && record[index2]<=numOneItemSets)
+			    knownRecords[index][length++] = record[index2];
+			}
+		    }
+		}
+	    }
+
+	// End
+	if (numRemoved>0) MiningMetrics.count("ttree.update.unknownItems",
+								numRemoved);
+	return(knownRecords);
+	}
+
+    /* APPEND RECORDS */
+
+    /** Appends a set of records to a data array.
+    @param dataSet the data array (may be null).
+    @param newRecords the records to be appended.
+    @return the combined data array. */
+
+    protected short[][] appendRecords(short[][] dataSet, short[][] newRecords) {
+        int oldLength = 0;
+	if (dataSet != null) oldLength = dataSet.length;
+
+	// Dimension and populate combined data array
+	short[][] newDataSet = new short[oldLength+newRecords.length][];
+	for (int index=0;index<oldLength;index++)
+				newDataSet[index] = dataSet[index];
+	for (int index=0;index<newRecords.length;index++)
+			newDataSet[oldLength+index] = newRecords[index];
+
+	// Return
+	return(newDataSet);
+	}
+
+    /* REMOVE RECORDS */
+
+    /** Removes a number of records from the start of a data array.
+    @param dataSet the data array (may be null).
+    @param numRecords the number of records to remove.
+    @return the remaining data array. */
+
+    protected short[][] removeRecords(short[][] dataSet, int numRecords) {
+        if (dataSet==null || numRecords==0) return(dataSet);
+
+	// Dimension and populate remaining data array
+	short[][] newDataSet = new short[dataSet.length-numRecords][];
+	for (int index=0;index<newDataSet.length;index++)
+			newDataSet[index] = dataSet[numRecords+index];
+
+	// Return
+	return(newDataSet);
+	}
+
+    /* ADD ROWS TO DATA SET */
+
+    /** Increments the number of rows by the number of new records (less the
+    number of expired records) and recalculates the minimum support
+    accordingly.
+    @param numNewRows the number of new records, negative if more records
+    have expired. */
+
+    protected void addRowsToDataSet(int numNewRows) {
+        numRows = numRows+numNewRows;
+	setMinSupport();
+	}
+
+    /* REGENERATE TOTAL SUPPORT TREE */
+
+    /** Regenerates the T-tree from the complete data set, used to update a
+    T-tree for which no negative border has been kept. */
+
+    protected void regenerateTotalSupportTree() {
+        createTotalSupportTree();
+	}
+
+    /* GET MAXIMUM T-TREE LEVEL */
+
+    /** Returns the maximum number of levels that may be generated in the
+    T-tree.
+    @return the maximum level number. */
+
+    protected int getMaxTtreeLevel() {
+        return(numOneItemSets);
+	}
+
+    /* ADD SUPPORT TO ALL LEVELS */
+
+    /** Adds support for the given record to every node in the T-tree whose
+    label is a subset of the record. <P> Operates recursively, the children of
+    a node for attribute N are the attributes preceding N in the record.
+    @param linkRef the reference to the current sub-branch of T-tree (start at
+    top of tree).
+    @param endIndex the index into the record at which processing should be
+    stopped.
+    @param itemSet the record (in numeric order).
+    @param increment the support to add, 1 for a new record and -1 for an
+    expired record. */
+
+    private void addSupportToAllLevels(TtreeNode[] linkRef, int endIndex,
+    					short[] itemSet, int increment) {
+	for (int index=0;index<endIndex;index++) {
+	    int attribute = itemSet[index];
+	    if (attribute<linkRef.length && linkRef[attribute] != null) {
+	        linkRef[attribute].support = linkRef[attribute].support+
+								increment;
+		numUpdates++;
+		if (linkRef[attribute].childRef != null)
+		    addSupportToAllLevels(linkRef[attribute].childRef,index,
+		    					itemSet,increment);
+		}
+	    }
+	}
+
+    /* ADD SUPPORT TO NEGATIVE BORDER */
+
+    /** Adds support for the given record to the negative border sets which
+    are subsets of the record. Only the sets whose last item is in the record
+    are compared with it (see <TT>createNegativeBorderIndex</TT>).
+    @param itemSet the record (in numeric order).
+    @param increment the support to add, 1 for a new record and -1 for an
+    expired record. */
+
+    private void addSupportToNegativeBorder(short[] itemSet, int increment) {
+        long[] bitset = null;
+	if (borderBitsets != null) bitset = toBitset(itemSet);
+
+	// Loop through items in record
+	for (int index=0;index<itemSet.length;index++) {
+	    int attribute = itemSet[index];
+	    if (attribute<0 || attribute>=borderNodes.length ||
+	    				borderNodes[attribute]==null) continue;
+	    TtreeNode[] nodes = borderNodes[attribute];
+	    for (int index2=0;index2<nodes.length;index2++) {
+	        if (bitset==null ? keyIsSubset(borderKeys[attribute][index2],
+				itemSet) : isSubset(borderBitsets[attribute][index2],
+								bitset)) {
+		    nodes[index2].support = nodes[index2].support+increment;
+		    numUpdates++;
+		    }
+		}
+	    }
+	}
+
+    /* CREATE NEGATIVE BORDER INDEX */
+
+    /** Creates the <TT>borderNodes</TT> array holding the negative border
+    nodes indexed by the last item of their set, together with the sets as
+    keys (<TT>borderKeys</TT>) or, if records are compared as bitsets, as
+    bitsets (<TT>borderBitsets</TT>), so that a record is only compared with
+    the sets whose last item it holds. */
+
+    private void createNegativeBorderIndex() {
+        boolean bitsets = useBitsets();
+
+	// Count sets by last item
+	int[] counts = new int[numOneItemSets+1];
+	Iterator<String> keys = negativeBorder.keySet().iterator();
+	while (keys.hasNext()) {
+	    String key = keys.next();
+	    counts[key.charAt(key.length()-1)]++;
+	    }
+
+	// Dimension arrays
+	borderNodes = new TtreeNode[counts.length][];
+	if (bitsets) borderBitsets = new long[counts.length][][];
+	else borderKeys = new String[counts.length][];
+	for (int attribute=1;attribute<counts.length;attribute++) {
+	    if (counts[attribute]==0) continue;
+	    borderNodes[attribute] = new TtreeNode[counts[attribute]];
+	    if (bitsets) borderBitsets[attribute] = new long[counts[attribute]][];
+	    else borderKeys[attribute] = new String[counts[attribute]];
+	    counts[attribute] = 0;
+	    }
+
+	// Fill arrays
+	Iterator<Map.Entry<String,TtreeNode>> entries =
+				negativeBorder.entrySet().iterator();
+	while (entries.hasNext()) {
+	    Map.Entry<String,TtreeNode> entry = entries.next();
+	    String key    = entry.getKey();
+	    int attribute = key.charAt(key.length()-1);
+	    int index     = counts[attribute]++;
+	    borderNodes[attribute][index] = entry.getValue();
+	    if (bitsets) borderBitsets[attribute][index] =
+	    				toBitset(keyItemSet(key));
+	    else borderKeys[attribute][index] = key;
+	    }
+	}
+
+    /* PRUNE T-TREE FOR UPDATE */
+
+    /** Prunes all T-tree nodes no longer supported after an update, together
+    with their sub-branches, and adds them to the negative border.
+    <P> Operates recursively.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param itemSet the label of the parent node (null at the top level).
+    @return the number of nodes pruned (not counting sub-branches). */
+
+    private int pruneTtreeForUpdate(TtreeNode[] linkRef, short[] itemSet) {
+        int counter = 0;
+
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index] != null) {
+	        short[] newItemSet = realloc2(itemSet,(short) index);
+		if (linkRef[index].support < minSupport) {
+		    linkRef[index].childRef = null;
+		    negativeBorder.put(itemSetKey(newItemSet),linkRef[index]);
+		    linkRef[index] = null;
+		    counter++;
+		    }
+		else if (linkRef[index].childRef != null) counter = counter +
+			  pruneTtreeForUpdate(linkRef[index].childRef,newItemSet);
+		}
+	    }
+
+	// Return
+	return(counter);
+	}
+
+    /* CLEAN NEGATIVE BORDER */
+
+    /** Removes the negative border sets that are no longer candidates, i.e.
+    those for which one of the size-1 subsets is no longer supported (no
+    longer in the T-tree). */
+
+    private void cleanNegativeBorder() {
+        Iterator<String> keys = negativeBorder.keySet().iterator();
+	while (keys.hasNext()) {
+	    String key = keys.next();
+	    if (key.length() > 1) {
+	        short[] itemSet = keyItemSet(key);
+		for (int index=0;index<itemSet.length;index++) {
+		    if (getTtreeNode(removeElementN(itemSet,index))==null) {
+		        keys.remove();
+			break;
+			}
+		    }
+		}
+	    }
+	}
+
+    /* PROMOTE NEGATIVE BORDER */
+
+    /** Moves the negative border sets that are now supported to the T-tree.
+    All their size-1 subsets are in the T-tree, hence so is the branch the
+    new node is added to.
+    @return the number of sets moved. */
+
+    private int promoteNegativeBorder() {
+        int counter = 0;
+
+        Iterator<Map.Entry<String,TtreeNode>> entries =
+				negativeBorder.entrySet().iterator();
+	while (entries.hasNext()) {
+	    Map.Entry<String,TtreeNode> entry = entries.next();
+	    if (entry.getValue().support >= minSupport) {
+	        addToTtree(keyItemSet(entry.getKey()),entry.getValue().support);
+		entries.remove();
+		counter++;
+		}
+	    }
+
+	// Return
+	return(counter);
+	}
+
+    /* ADD NEW CANDIDATES */
+
+    /** Generates the new candidate sets at the given level, counts their
+    support in the complete data set (using a separate T-tree) and adds them
+    to the T-tree if supported or to the negative border otherwise.
+    @param level the level number (2 or more).
+    @return the number of new candidate sets. */
+
+    private int addNewCandidates(int level) {
+        // Generate new candidates
+	TtreeNode[] candidateRef = generateNewCandidates(startTtreeRef,level-1,
+								null,null);
+	if (candidateRef==null) return(0);
+
+	// Count support
+	for (int index=0;index<dataArray.length;index++) {
+	    if (dataArray[index] != null) addSupportToTtree(candidateRef,level,
+	    				dataArray[index].length,dataArray[index]);
+	    }
+
+	// Add to T-tree or negative border
+	return(addNewCandidates(candidateRef,level,null));
+	}
+
+    /** Continues process of adding counted candidate sets to the T-tree or the
+    negative border. <P> Operates recursively.
+    @param linkRef the reference to the current sub-branch of the candidate
+    T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @param itemSet the label of the parent node (null at the top level).
+    @return the number of candidate sets processed. */
+
+    private int addNewCandidates(TtreeNode[] linkRef, int level,
+    							short[] itemSet) {
+        int counter = 0;
+
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index] != null) {
+	        short[] newItemSet = realloc2(itemSet,(short) index);
+		// At right level
+		if (level == 1) {
+		    if (linkRef[index].support >= minSupport)
+		        addToTtree(newItemSet,linkRef[index].support);
+		    else negativeBorder.put(itemSetKey(newItemSet),
+		    					linkRef[index]);
+		    counter++;
+		    }
+		// Wrong level
+		else if (linkRef[index].childRef != null) counter = counter +
+			addNewCandidates(linkRef[index].childRef,level-1,
+								newItemSet);
+		}
+	    }
+
+	// Return
+	return(counter);
+	}
+
+    /* GENERATE NEW CANDIDATES */
+
+    /** Generates, from the T-tree nodes at the given level, the candidate sets
+    at the next level that are neither in the T-tree nor in the negative
+    border. Candidates are X-checked in the same way as when the T-tree is
+    generated (see <TT>generateNextLevel</TT>) and placed in a separate
+    candidate T-tree. <P> Operates recursively.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param level the level marker, decremented by 1 on each recursion.
+    @param itemSet the label of the parent node (null at the top level).
+    @param candidateRef the candidate T-tree so far (null at start).
+    @return the candidate T-tree (null if no candidates). */
+
+    private TtreeNode[] generateNewCandidates(TtreeNode[] linkRef, int level,
+    			short[] itemSet, TtreeNode[] candidateRef) {
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index] != null) {
+	        short[] newItemSet = realloc2(itemSet,(short) index);
+		// At right level, loop through siblings preceding the node
+		if (level == 1) {
+		    TtreeNode[] childRef = linkRef[index].childRef;
+		    for (int index2=1;index2<index;index2++) {
+		        if (linkRef[index2] != null && (childRef==null ||
+						childRef[index2]==null)) {
+			    short[] candidate = realloc2(newItemSet,
+			    				(short) index2);
+			    if (!negativeBorder.containsKey(itemSetKey(candidate))
+			    		&& testCombinations(candidate))
+			        candidateRef = addToTtree(candidateRef,
+					numOneItemSets+1,candidate.length-1,
+								candidate,0);
+			    }
+			}
+		    }
+		// Wrong level
+		else if (linkRef[index].childRef != null)
+		    candidateRef = generateNewCandidates(linkRef[index].childRef,
+		    			level-1,newItemSet,candidateRef);
+		}
+	    }
+
+	// Return
+	return(candidateRef);
+	}
+
+    /* GET T-TREE NODE */
+
+    /** Returns the T-tree node for the given itemset.
+    @param itemSet the given itemset (in numeric order).
+    @return the T-tree node, or null if the itemset is not in the T-tree. */
+
+    protected TtreeNode getTtreeNode(short[] itemSet) {
+        TtreeNode[] linkRef = startTtreeRef;
+	TtreeNode node = null;
+
+	// Itemsets are stored in reverse in the T-tree
+	for (int index=itemSet.length-1;index>=0;index--) {
+	    if (linkRef==null || itemSet[index]>=linkRef.length) return(null);
+	    node = linkRef[itemSet[index]];
+	    if (node==null) return(null);
+	    linkRef = node.childRef;
+	    }
+
+	// Return
+	return(node);
+	}
+
+    /* ITEM SET KEY */
+
+    /** Returns the negative border key for the given itemset, one character
+    per attribute.
+    @param itemSet the given itemset (in numeric order).
+    @return the key. */
+
+    protected String itemSetKey(short[] itemSet) {
+        char[] key = new char[itemSet.length];
+	for (int index=0;index<itemSet.length;index++)
+				key[index] = (char) itemSet[index];
+	return(new String(key));
+	}
+
+    /** Returns the itemset for the given negative border key.
+    @param key the given key.
+    @return the itemset (in numeric order). */
+
+    protected short[] keyItemSet(String key) {
+        short[] itemSet = new short[key.length()];
+	for (int index=0;index<itemSet.length;index++)
+				itemSet[index] = (short) key.charAt(index);
+	return(itemSet);
+	}
+
+    /** Checks whether the itemset with the given negative border key is a
+    subset of the given record, both in numeric order.
+    @param key the key of the first itemset.
+    @param itemSet the record.
+    @return true if subset, false otherwise. */
+
+    private boolean keyIsSubset(String key, short[] itemSet) {
+        int index2 = 0;
+
+	for (int index1=0;index1<key.length();index1++) {
+	    int attribute = key.charAt(index1);
+	    while (index2<itemSet.length && itemSet[index2]<attribute) index2++;
+	    if (index2==itemSet.length || itemSet[index2]!=attribute)
+	    						return(false);
+	    index2++;
+	    }
+
+	// Return
+	return(true);
+	}
+
+    /* GET NUMBER OF NEGATIVE BORDER SETS */
+
+    /** Returns the number of sets in the negative border.
+    @return the number of sets (0 if the negative border is not kept). */
+
+    public int getNumNegativeBorderSets() {
+        if (negativeBorder==null) return(0);
+	return(negativeBorder.size());
+	}
+
+    /* SET KEEP NEGATIVE BORDER FLAG */
+
+    /** Sets the flag indicating that the negative border is to be kept when
+    the T-tree is generated, so that the T-tree can be updated with
+    <TT>updateTotalSupportTree</TT>.
+    @param value the given value. */
+
+    public void setKeepNegativeBorderFlag(boolean value) {
+        keepNegativeBorderFlag = value;
+	}
+
+    /* SET ITEM SET CACHE DIRECTORY */
+
+    /** Sets the directory of the frequent item set (T-tree) cache, see
+    <TT>loadTtreeFromCache</TT> and <TT>storeTtreeInCache</TT>.
+    @param directory the directory name, null if the cache is not to be
+    used. */
+
+    public void setItemSetCacheDirectory(String directory) {
+        itemSetCacheDirectory = directory;
+	}
+
     /* ---------------------------------------------------------------- */
     /*                                                                  */
     /*                           ADD TO T-TREE                          */
@@ -1389,6 +2534,653 @@ public class TotalSupportTree extends AssocRuleMining {
 	return(linkRef);
         }
 
+    /*----------------------------------------------------------------------- */
+    /*                                                                        */
+    /*                  PARTITIONED (SON) T-TREE GENERATION                   */
+    /*                                                                        */
+    /*----------------------------------------------------------------------- */
+
+    /* Methods used where the data is partitioned and mined in two passes
+    (see the PartitionedMining class): (1) the T-tree of each partition is
+    generated at the same relative support and the T-trees are merged to give
+    the candidate sets, every globally supported set is supported in at least
+    one partition, (2) the supports of the candidate sets are counted in each
+    partition and summed. The T-trees are exchanged in serialised form. */
+
+    /* ADD SUPPORT TO T-TREE */
+
+    /** Adds the support for the given records to every node in the T-tree
+    (as created, with zero supports, from the candidate sets) whose label is a
+    subset of a record.
+    @param records the records (in numeric order). */
+
+    protected void addSupportToTtree(short[][] records) {
+        for (int index=0;index<records.length;index++) {
+	    if (records[index] != null) addSupportToAllLevels(startTtreeRef,
+	    		records[index].length,records[index],1);
+	    }
+	}
+
+    /* MERGE SERIALIZED T-TREE */
+
+    /** Merges a serialised T-tree (with support values) with the T-tree,
+    adding the nodes not in the T-tree and the supports of those that are.
+    Creates an empty T-tree first if there is none.
+    @param serialization the serialised T-tree. */
+
+    protected void mergeSerializedTtree(int[] serialization) {
+        if (startTtreeRef==null) startTtreeRef =
+					new TtreeNode[numOneItemSets+1];
+	if (serialization.length==0) return;
+	serializationArray = serialization;
+	mergeSerializationAndTtree();
+	serializationArray = null;
+	}
+
+    /*----------------------------------------------------------------------- */
+    /*                                                                        */
+    /*                  APPROXIMATE (SAMPLING) T-TREE GENERATION              */
+    /*                                                                        */
+    /*----------------------------------------------------------------------- */
+
+    /* The T-tree may be generated from a random sample of the data set, of a
+    size given by the Hoeffding bound for a support error EPSILON with
+    probability 1-DELTA: the support (fraction of records) of an itemset in a
+    sample of n records differs from its support in the complete data set by
+    more than EPSILON with probability at most 2exp(-2nEPSILON^2), so that
+
+    	n >= ln(2/DELTA)/(2EPSILON^2)
+
+    (18,445 records for EPSILON = 1% and DELTA = 5%, whatever the size of the
+    data set). Two modes are available:
+    <OL>
+    <LI>Without verification the supports are those of the sample scaled to
+    the size of the data set, each within EPSILON (as a fraction of the data
+    set) of the actual support with probability 1-DELTA.
+    <LI>With verification the sample is mined at a threshold lowered by
+    EPSILON, keeping the negative border, and the remaining records are then
+    added to the T-tree (see <TT>updateTotalSupportTree</TT>), in one pass
+    over the T-tree and the negative border, giving the actual supports.
+    Frequent sets missed by the sample (negative border sets found to be
+    supported) are promoted and any new candidates counted in further passes,
+    so that the result is the same as when the complete data set is mined.
+    </OL> */
+
+    /* SET APPROXIMATE MINING */
+
+    /** Sets the T-tree to be generated from a random sample of the data set.
+    @param epsilon the support error (fraction of records, e.g. 0.01), 0 if
+    the complete data set is to be mined.
+    @param delta the probability that the error of a support exceeds epsilon
+    (e.g. 0.05).
+    @param verify true if the supports are to be verified against the
+    complete data set, false otherwise. */
+
+    public void setApproximateMining(double epsilon, double delta,
+    							boolean verify) {
+        if (epsilon<0.0 || epsilon>=1.0 || delta<=0.0 || delta>=1.0)
+	    throw new IllegalArgumentException("Epsilon (" + epsilon +
+	    		") and delta (" + delta + ") must be between 0 and 1");
+	approximateEpsilon    = epsilon;
+	approximateDelta      = delta;
+	approximateVerifyFlag = verify;
+	}
+
+    /** Sets the seed of the random number generator used to select the
+    sample (so that a run may be repeated).
+    @param seed the seed. */
+
+    public void setApproximateMiningSeed(long seed) {
+        approximateSeed = seed;
+	}
+
+    /* GET HOEFFDING SAMPLE SIZE */
+
+    /** Calculates the sample size required for the support of an itemset in
+    the sample to be within the given error of its support in the data set
+    with the given probability, according to the Hoeffding bound.
+    @param epsilon the support error (fraction of records).
+    @param delta the probability that the error is exceeded.
+    @return the number of records. */
+
+    public static int getHoeffdingSampleSize(double epsilon, double delta) {
+        double size = Math.ceil(Math.log(2.0/delta)/(2.0*epsilon*epsilon));
+	if (size>Integer.MAX_VALUE) return(Integer.MAX_VALUE);
+	return((int) size);
+	}
+
+    /* GET HOEFFDING ERROR */
+
+    /** Calculates the support error achieved by a sample of the given size
+    with the given probability, according to the Hoeffding bound.
+    @param sampleSize the number of records in the sample.
+    @param delta the probability that the error is exceeded.
+    @return the support error (fraction of records). */
+
+    public static double getHoeffdingError(int sampleSize, double delta) {
+        return(Math.sqrt(Math.log(2.0/delta)/(2.0*sampleSize)));
+	}
+
+    /* CREATE TOTAL SUPPORT TREE APPROXIMATE */
+
+    /** Generates the T-tree from a random sample of the data set if set (see
+    <TT>setApproximateMining</TT>), otherwise from the complete data set. */
+
+    public void createTotalSupportTreeApproximate() {
+        if (isApproximateMining()) createTotalSupportTreeFromSample();
+	else regenerateTotalSupportTree();
+	}
+
+    /** Tests whether the T-tree is to be generated from a random sample.
+    @return true if approximate mining is set, false otherwise. */
+
+    protected boolean isApproximateMining() {
+        return(approximateEpsilon>0.0);
+	}
+
+    /** Generates the T-tree from a random sample of the data set, sized
+    according to the Hoeffding bound, and verifies or scales the supports as
+    described above. The data array is unchanged. */
+
+    protected void createTotalSupportTreeFromSample() {
+        MiningPhaseEvent phase = MiningMetrics.begin("ttree.sample");
+	short[][] records = dataArray;
+	int sampleSize    = getHoeffdingSampleSize(approximateEpsilon,
+							approximateDelta);
+
+	// Sample no smaller than the data set, mine the data set
+	if (sampleSize>=records.length) {
+	    regenerateTotalSupportTree();
+	    approximateSupportError = 0.0;
+	    outputApproximateMining(records.length,records.length);
+	    MiningMetrics.end(phase,records.length);
+	    return;
+	    }
+
+	// Select the sample (keeping record order), and the remaining records
+	short[][] sample    = new short[sampleSize][];
+	short[][] remainder = new short[records.length-sampleSize][];
+	Random random = new Random(approximateSeed);
+	int numSelected = 0;
+	for (int index=0;index<records.length;index++) {
+	    if (random.nextDouble()*(records.length-index) <
+	    				sampleSize-numSelected)
+	    		sample[numSelected++] = records[index];
+	    else remainder[index-numSelected] = records[index];
+	    }
+
+	// Mine the sample (at a lowered threshold, keeping the negative border,
+	// if the supports are to be verified)
+	boolean keepFlag = keepNegativeBorderFlag;
+	dataArray = sample;
+	addRowsToDataSet(sampleSize-records.length);
+	if (approximateVerifyFlag) {
+	    minSupport = Math.max(1.0,minSupport-approximateEpsilon*sampleSize);
+	    keepNegativeBorderFlag = true;
+	    }
+	regenerateTotalSupportTree();
+
+	// Verify, adding the remaining records to the T-tree
+	if (approximateVerifyFlag) {
+	    updateTotalSupportTree(remainder);
+	    approximateSupportError = 0.0;
+	    keepNegativeBorderFlag  = keepFlag;
+	    if (!keepFlag) negativeBorder = null;
+	    }
+
+	// Otherwise scale supports, removing the sets whose scaled support is
+	// below the support threshold of the data set
+	else {
+	    addRowsToDataSet(records.length-sampleSize);
+	    int numPruned = scaleTtreeSupports(startTtreeRef,
+	    			(double) records.length/(double) sampleSize);
+	    numFrequentSets = numFrequentSets-numPruned;
+	    if (numPruned>0) System.out.println(numPruned + " sets below the " +
+	    			"support threshold after scaling removed");
+	    approximateSupportError = getHoeffdingError(sampleSize,
+	    						approximateDelta);
+	    }
+
+	// End
+	dataArray = records;
+	outputApproximateMining(sampleSize,records.length);
+	MiningMetrics.count("ttree.sample.records",sampleSize);
+	MiningMetrics.end(phase,sampleSize);
+	}
+
+    /* SCALE T-TREE SUPPORTS */
+
+    /** Multiplies the supports in the T-tree by the given factor (rounded),
+    used to scale the supports obtained from a sample to the data set, and
+    removes the nodes (together with their sub-branches) whose scaled support
+    is below <TT>minSupport</TT>. The supersets of a removed set have a
+    support no greater, so are removed too wherever they are in the T-tree.
+    <P> Operates recursively.
+    @param linkRef the reference to the current sub-branch of T-tree.
+    @param factor the factor.
+    @return the number of nodes removed, including sub-branches. */
+
+    private int scaleTtreeSupports(TtreeNode[] linkRef, double factor) {
+        if (linkRef==null) return(0);
+	int counter = 0;
+
+	for (int index=1;index<linkRef.length;index++) {
+	    if (linkRef[index] != null) {
+	        linkRef[index].support = (int) Math.round(
+					linkRef[index].support*factor);
+		if (linkRef[index].support < minSupport) {
+		    counter = counter+1+countNodes(
+		    				linkRef[index].childRef);
+		    linkRef[index] = null;
+		    }
+		else counter = counter + scaleTtreeSupports(
+					linkRef[index].childRef,factor);
+		}
+	    }
+
+	// Return
+	return(counter);
+	}
+
+    /* OUTPUT APPROXIMATE MINING */
+
+    /** Outputs the sample size and support error achieved by approximate
+    mining.
+    @param sampleSize the number of records in the sample.
+    @param numRecords the number of records in the data set. */
+
+    protected void outputApproximateMining(int sampleSize, int numRecords) {
+        String s = "Approximate mining: sample of " + sampleSize + " from " +
+							numRecords + " records, ";
+	if (approximateSupportError==0.0) s = s + "supports exact";
+	else s = s + "support error <= " + twoDecPlaces(
+			approximateSupportError*100.0) + "% with probability " +
+			twoDecPlaces((1.0-approximateDelta)*100.0) + "%";
+	System.out.println(s);
+	}
+
+    /* GET APPROXIMATE SUPPORT ERROR */
+
+    /** Gets the support error achieved by the last approximate T-tree
+    generation (0 if the supports are exact).
+    @return the support error (fraction of records). */
+
+    public double getApproximateSupportError() {
+        return(approximateSupportError);
+	}
+
+    /*----------------------------------------------------------------------- */
+    /*                                                                        */
+    /*                     FREQUENT ITEM SET (T-TREE) CACHE                   */
+    /*                                                                        */
+    /*----------------------------------------------------------------------- */
+
+    /* The T-tree generated at a given minimum support may be stored on disk
+    and loaded by later runs on the same data (same records, same item
+    ordering) at the same or a higher minimum support instead of generating the
+    T-tree again: a T-tree holds all the supported sets, the sets supported at
+    a higher threshold are obtained by removing the nodes below that
+    threshold. Files are named:
+
+    	<data checksum>-<ordering checksum>-<support threshold>.ttree
+
+    where the threshold is in records, and comprise a header followed by the
+    serialised T-tree (see <TT>serializeTtee</TT>), compressed:
+
+    	int  magic number
+    	int  version
+    	long data checksum
+    	long ordering checksum
+    	int  number of records
+    	int  number of one item sets
+    	int  support threshold (records)
+    	int  level limit (Integer.MAX_VALUE if none)
+    	int  length of serialisation array
+    	int  ... serialisation array
+
+    The level limit is the maximum number of levels the T-tree could have
+    when it was generated (see <TT>getMaxTtreeLevel</TT>) if the T-tree
+    reached it, so that a T-tree limited to the levels of interest for CAR
+    generation is not used where more levels are required. T-trees whose
+    generation was stopped by the MAX_NUM_FREQUENT_SETS limit are not stored. */
+
+    /* CREATE TOTAL SUPPORT TREE USING CACHE */
+
+    /** Loads the T-tree from the cache if a suitable T-tree has been stored,
+    otherwise generates the T-tree and stores it in the cache. */
+
+    public void createTotalSupportTreeUsingCache() {
+        if (loadTtreeFromCache()) return;
+	createTotalSupportTree();
+	storeTtreeInCache();
+	}
+
+    /* LOAD T-TREE FROM CACHE */
+
+    /** Loads the T-tree for the current data and minimum support from the
+    cache: the stored T-tree with the highest support threshold not above the
+    current one is read and the nodes below the current threshold are
+    removed. The levels are limited as if the T-tree had been generated (see
+    <TT>getMaxTtreeLevel</TT> and MAX_NUM_FREQUENT_SETS).
+    @return true if loaded, false if the cache is not in use or holds no
+    suitable T-tree. */
+
+    public boolean loadTtreeFromCache() {
+        if (itemSetCacheDirectory==null || dataArray==null ||
+					numOneItemSets==0) return(false);
+	MiningPhaseEvent phase = MiningMetrics.begin("itemSetCache.load");
+	int threshold = getItemSetCacheThreshold();
+	File file     = findItemSetCacheFile(threshold);
+
+	// Read T-tree
+	boolean loaded = false;
+	if (file!=null) {
+	    try {
+	        loaded = readTtreeCacheFile(file);
+		}
+	    catch (IOException e) {
+	        System.out.println("WARNING: Unable to read " + file + ": " + e);
+		}
+	    }
+
+	// End
+	if (loaded) {
+	    System.out.println("T-tree loaded from " + file.getName() + " (" +
+	    		numFrequentSets + " frequent sets)");
+	    MiningMetrics.count("itemSetCache.hit",1);
+	    }
+	else MiningMetrics.count("itemSetCache.miss",1);
+	MiningMetrics.end(phase,numFrequentSets);
+	return(loaded);
+	}
+
+    /** Reads a cached T-tree file and builds the T-tree from it.
+    @param file the file.
+    @return true if the file is usable, false otherwise.
+    @throws IOException if the file cannot be read. */
+
+    private boolean readTtreeCacheFile(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+		new InflaterInputStream(new FileInputStream(file))));
+	try {
+	    // Check header
+	    if (input.readInt()!=ITEM_SET_CACHE_MAGIC ||
+	    		input.readInt()!=ITEM_SET_CACHE_VERSION ||
+			input.readLong()!=getDataChecksum() ||
+			input.readLong()!=getOrderingChecksum() ||
+	    		input.readInt()!=dataArray.length ||
+			input.readInt()!=numOneItemSets ||
+			input.readInt()>getItemSetCacheThreshold() ||
+			input.readInt()<getMaxTtreeLevel()) return(false);
+
+	    // Read serialisation
+	    serializationArray = new int[input.readInt()];
+	    for (int index=0;index<serializationArray.length;index++)
+	    			serializationArray[index] = input.readInt();
+	    }
+	finally {
+	    input.close();
+	    }
+
+	// Build T-tree
+	loadSerializedTtree();
+	return(true);
+	}
+
+    /* LOAD SERIALIZED T-TREE */
+
+    /** Builds the T-tree from the serialised T-tree (with support values)
+    held in the serialization array, leaving out the nodes below the minimum
+    support. The T-tree is built level by level and the levels are limited
+    as if the T-tree had been generated (see <TT>getMaxTtreeLevel</TT>):
+    before each level the MAX_NUM_FREQUENT_SETS limit is tested or, if a
+    memory governor is in use, whether the level fits the heap (see
+    <TT>memoryLimitReached</TT>). The serialization array is released. */
+
+    protected void loadSerializedTtree() {
+	TtreeNode.setNumberOfNodesFieldToZero();
+	numUpdates        = 0l;
+	negativeBorder    = null;
+	memoryLimitedFlag = false;
+	nextLevelExists   = true;
+	startTtreeRef     = new TtreeNode[numOneItemSets+1];
+
+	// Top level
+	int level = 1;
+	numFrequentSets = 0;
+	if (serializationArray.length>0) numFrequentSets =
+			loadCachedTtreeLevel(startTtreeRef,0,1,1);
+
+	// Further levels, until the last level or the level at which
+	// generation would stop
+	while (serializationArray.length>0 && level<getMaxTtreeLevel()) {
+	    if (memoryGovernor==null ? numFrequentSets>MAX_NUM_FREQUENT_SETS :
+	    		memoryLimitReached(level)) break;
+	    int numAdded = loadCachedTtreeLevel(startTtreeRef,0,1,level+1);
+	    if (numAdded==0) break;
+	    numFrequentSets = numFrequentSets+numAdded;
+	    level++;
+	    }
+
+	// End
+	numLevelsInTtree   = level;
+	serializationArray = null;
+	}
+
+    /** Builds the given level of a T-tree branch from the serialised T-tree
+    branch, leaving out the nodes below the minimum support (with their
+    descendants). The levels above the given level are already built.
+    @param linkRef the level array of the branch.
+    @param indexST the index of the first sibling in the serialization array.
+    @param level the level of the siblings.
+    @param targetLevel the level to build.
+    @return the number of nodes added. */
+
+    private int loadCachedTtreeLevel(TtreeNode[] linkRef, int indexST,
+    						int level, int targetLevel) {
+        int numAdded = 0;
+
+	while (indexST != -1) {
+	    int index = serializationArray[indexST];
+	    int childST = serializationArray[indexST+2];
+
+	    // At right level
+	    if (level==targetLevel) {
+	        if (serializationArray[indexST+1] >= minSupport) {
+		    linkRef[index] = new TtreeNode(serializationArray[indexST+1]);
+		    numAdded++;
+		    }
+		}
+
+	    // Node at the level above, child branch (size of level array is
+	    // the parent label) added if it has a node
+	    else if (level==targetLevel-1) {
+	        if (linkRef[index]!=null && childST != -1) {
+		    TtreeNode[] childRef = new TtreeNode[index];
+		    int numChildren = loadCachedTtreeLevel(childRef,childST,
+		    					level+1,targetLevel);
+		    if (numChildren>0) {
+		        linkRef[index].childRef = childRef;
+			numAdded = numAdded+numChildren;
+			}
+		    }
+		}
+
+	    // Wrong level
+	    else if (linkRef[index]!=null && linkRef[index].childRef!=null &&
+	    						childST != -1)
+	    	numAdded = numAdded+loadCachedTtreeLevel(linkRef[index].childRef,
+						childST,level+1,targetLevel);
+	    indexST = serializationArray[indexST+3];
+	    }
+
+	// Return
+	return(numAdded);
+	}
+
+    /* STORE T-TREE IN CACHE */
+
+    /** Stores the T-tree in the cache (if in use), unless its generation was
+    stopped (see <TT>isTtreeGenerationStopped</TT>). */
+
+    public void storeTtreeInCache() {
+        if (itemSetCacheDirectory==null || startTtreeRef==null ||
+				isTtreeGenerationStopped()) return;
+	MiningPhaseEvent phase = MiningMetrics.begin("itemSetCache.store");
+	File directory = new File(itemSetCacheDirectory);
+	directory.mkdirs();
+	File file = new File(directory,getItemSetCacheFilePrefix() +
+				getItemSetCacheThreshold() + ".ttree");
+	File temp = null;
+
+	// Level limit, none if the T-tree ended before reaching it
+	calcNumLevelsInTtree();
+	int levelLimit = getMaxTtreeLevel();
+	if (numLevelsInTtree<levelLimit) levelLimit = Integer.MAX_VALUE;
+
+	// Write to temporary file (unique, so that concurrent runs do not write
+	// to the same file) and rename so that other runs never read a partial
+	// file
+	try {
+	    serializeTtee();
+	    temp = File.createTempFile(file.getName() + ".",".tmp",directory);
+	    DataOutputStream output = new DataOutputStream(
+	    		new BufferedOutputStream(new DeflaterOutputStream(
+			new FileOutputStream(temp))));
+	    try {
+	        output.writeInt(ITEM_SET_CACHE_MAGIC);
+		output.writeInt(ITEM_SET_CACHE_VERSION);
+		output.writeLong(getDataChecksum());
+		output.writeLong(getOrderingChecksum());
+		output.writeInt(dataArray.length);
+		output.writeInt(numOneItemSets);
+		output.writeInt(getItemSetCacheThreshold());
+		output.writeInt(levelLimit);
+		output.writeInt(serializationArray.length);
+		for (int index=0;index<serializationArray.length;index++)
+				output.writeInt(serializationArray[index]);
+		}
+	    finally {
+	        output.close();
+		}
+	    file.delete();
+	    if (!temp.renameTo(file)) throw new IOException("Unable to " +
+	    					"rename " + temp + " to " + file);
+	    MiningMetrics.count("itemSetCache.stored",1);
+	    }
+	catch (IOException e) {
+	    System.out.println("WARNING: Unable to write " + file + ": " + e);
+	    if (temp!=null) temp.delete();
+	    }
+	serializationArray = null;
+	MiningMetrics.end(phase,numFrequentSets);
+	}
+
+    /* FIND ITEM SET CACHE FILE */
+
+    /** Finds the cache file for the current data with the highest support
+    threshold not above the given threshold.
+    @param threshold the given threshold (records).
+    @return the file, or null if none. */
+
+    private File findItemSetCacheFile(int threshold) {
+        File[] files = new File(itemSetCacheDirectory).listFiles();
+	if (files==null) return(null);
+	String prefix = getItemSetCacheFilePrefix();
+
+	// Loop through files
+	File bestFile      = null;
+	int bestThreshold = -1;
+	for (int index=0;index<files.length;index++) {
+	    String name = files[index].getName();
+	    if (!name.startsWith(prefix) || !name.endsWith(".ttree")) continue;
+	    try {
+	        int fileThreshold = Integer.parseInt(name.substring(
+				prefix.length(),name.length()-6));
+		if (fileThreshold<=threshold && fileThreshold>bestThreshold) {
+		    bestFile      = files[index];
+		    bestThreshold = fileThreshold;
+		    }
+		}
+	    catch (NumberFormatException e) {
+	        // Not a cache file
+		}
+	    }
+
+	// Return
+	return(bestFile);
+	}
+
+    /* GET ITEM SET CACHE FILE PREFIX */
+
+    /** Gets the prefix of the names of the cache files for the current data:
+    the data checksum and ordering checksum.
+    @return the prefix. */
+
+    private String getItemSetCacheFilePrefix() {
+        return(Long.toHexString(getDataChecksum()) + "-" +
+			Long.toHexString(getOrderingChecksum()) + "-");
+	}
+
+    /* GET ITEM SET CACHE THRESHOLD */
+
+    /** Gets the minimum support as a whole number of records, the support of
+    a set being a whole number.
+    @return the threshold. */
+
+    private int getItemSetCacheThreshold() {
+        return((int) Math.ceil(minSupport));
+	}
+
+    /* GET DATA CHECKSUM */
+
+    /** Calculates a checksum of the data set (the records as mined, i.e.
+    after any reordering).
+    @return the checksum. */
+
+    protected long getDataChecksum() {
+        CRC32 checksum = new CRC32();
+
+	for (int index=0;index<dataArray.length;index++) {
+	    short[] record = dataArray[index];
+	    int length     = -1;
+	    if (record != null) length = record.length;
+	    byte[] bytes = new byte[2+(length<0 ? 0 : length*2)];
+	    bytes[0] = (byte) (length>>8);
+	    bytes[1] = (byte) length;
+	    for (int index2=0;index2<length;index2++) {
+	        bytes[2+index2*2] = (byte) (record[index2]>>8);
+		bytes[3+index2*2] = (byte) record[index2];
+		}
+	    checksum.update(bytes,0,bytes.length);
+	    }
+
+	// Return
+	return(checksum.getValue());
+	}
+
+    /* GET ORDERING CHECKSUM */
+
+    /** Calculates a checksum of the item ordering (the conversion array), 0 if
+    the data has not been reordered.
+    @return the checksum. */
+
+    protected long getOrderingChecksum() {
+        if (conversionArray==null) return(0l);
+	CRC32 checksum = new CRC32();
+
+	for (int index=0;index<conversionArray.length;index++) {
+	    int item = conversionArray[index][0];
+	    checksum.update(item>>24);
+	    checksum.update(item>>16);
+	    checksum.update(item>>8);
+	    checksum.update(item);
+	    }
+
+	// Return
+	return(checksum.getValue());
+	}
+
     /*----------------------------------------------------------------------- */
     /*                                                                        */
     /*                    ASSOCIATION RULE (AR) GENERATION                    */
@@ -1772,6 +3564,17 @@ public class TotalSupportTree extends AssocRuleMining {
 	return(MAX_NUM_FREQUENT_SETS);
 	}
 
+    /* IS T-TREE GENERATION STOPPED */
+    /** Returns whether generation of the T-tree was stopped before it was
+    complete, by the MAX_NUM_FREQUENT_SETS limit or (if in use) the memory
+    governor.
+    @return true if stopped, false otherwise. */
+
+    public boolean isTtreeGenerationStopped() {
+	return(memoryLimitedFlag || (memoryGovernor==null &&
+				numFrequentSets>MAX_NUM_FREQUENT_SETS));
+	}
+
     /* GET MINIMUM SUPPORT VALUE */
     /** Returns the minimum support threshold value in terms of a number
     records.
@@ -0,0 +1,281 @@
+package associations;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads a nominal ARFF file in a single pass straight into a
+ * <code>NominalData</code> column store, without building weka
+ * <code>Instances</code>. Each data line is split, its values are looked up
+ * in the attribute headers and written into growable byte columns, so peak
+ * memory is about one byte per cell rather than a full <code>Instance</code>
+ * object per row plus the copies made by <code>LabeledItemSet.divide</code>.
+ * Only dense nominal data are handled, as for the FP based classifiers.
+ */
+public class ArffStreamReader {
+
+	/** Initial number of rows of each column, columns grow by doubling */
+	protected static final int INITIAL_ROWS = 1024;
+
+	protected BufferedReader m_reader;
+
+	protected int m_lineNum = 0;
+
+	public ArffStreamReader(Reader reader) {
+		if (reader instanceof BufferedReader)
+			m_reader = (BufferedReader) reader;
+		else
+			m_reader = new BufferedReader(reader);
+	}
+
+	/**
+	 * Reads the given ARFF file with the last attribute as the class.
+	 * @param fileName the ARFF file
+	 * @return the column store
+	 * @throws Exception if the file can't be read or is not nominal
+	 */
+	public static NominalData read(String fileName) throws Exception {
+		return read(fileName, -1);
+	}
+
+	/**
+	 * Reads the given ARFF file.
+	 * @param fileName the ARFF file
+	 * @param classIndex index of the class attribute, -1 for the last one
+	 * @return the column store
+	 * @throws Exception if the file can't be read or is not nominal
+	 */
+	public static NominalData read(String fileName, int classIndex) throws Exception {
+		ArffStreamReader reader = new ArffStreamReader(new FileReader(fileName));
+		try {
+			return reader.read(classIndex);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public void close() throws IOException {
+		m_reader.close();
+	}
+
+	/**
+	 * Reads header and data.
+	 * @param classIndex index of the class attribute, -1 for the last one
+	 * @return the column store
+	 * @throws Exception if the input is not a dense nominal ARFF file
+	 */
+	public NominalData read(int classIndex) throws Exception {
+		String relationName = "";
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<String[]> values = new ArrayList<String[]>();
+
+		// header
+		String line;
+		boolean inData = false;
+		while (!inData && (line = nextLine()) != null) {
+			String lower = line.toLowerCase();
+			if (lower.startsWith("@relation")) {
+				relationName = unquote(line.substring(9).trim());
+			} else if (lower.startsWith("@attribute")) {
+				parseAttribute(line.substring(10).trim(), names, values);
+			} else if (lower.startsWith("@data")) {
+				inData = true;
+			} else {
+				throw new Exception("Unexpected header line " + m_lineNum + ": " + line);
+			}
+		}
+		if (!inData)
+			throw new Exception("No @data section found");
+		int numAtts = names.size();
+		if (numAtts < 2)
+			throw new Exception("Need at least one attribute and a class");
+		if (classIndex < 0)
+			classIndex = numAtts - 1;
+		if (classIndex >= numAtts)
+			throw new Exception("Class index " + classIndex + " out of range");
+
+		// non class attributes keep their order with the class taken out
+		String[] attNames = new String[numAtts - 1];
+		String[][] attValues = new String[numAtts - 1][];
+		HashMap<String, Integer>[] lookup = new HashMap[numAtts];
+		for (int j = 0, a = 0; j < numAtts; j++) {
+			String[] vals = values.get(j);
+			lookup[j] = new HashMap<String, Integer>();
+			for (int v = 0; v < vals.length; v++)
+				lookup[j].put(vals[v], v);
+			if (j != classIndex) {
+				if (vals.length > Byte.MAX_VALUE)
+					throw new Exception("Attribute " + names.get(j) + " has more than " + Byte.MAX_VALUE + " values");
+				attNames[a] = names.get(j);
+				attValues[a] = vals;
+				a++;
+			}
+		}
+
+		// data, one pass
+		int capacity = INITIAL_ROWS;
+		byte[][] columns = new byte[numAtts - 1][capacity];
+		short[] classVector = new short[capacity];
+		int numRows = 0;
+		String[] tokens = new String[numAtts];
+		while ((line = nextLine()) != null) {
+			if (line.charAt(0) == '{')
+				throw new Exception("Sparse data not supported, line " + m_lineNum);
+			split(line, tokens);
+			if (numRows == capacity) {
+				capacity *= 2;
+				for (int j = 0; j < columns.length; j++)
+					columns[j] = copyOf(columns[j], capacity);
+				classVector = copyOf(classVector, capacity);
+			}
+			for (int j = 0, a = 0; j < numAtts; j++) {
+				int v = NominalData.MISSING;
+				if (!tokens[j].equals("?")) {
+					Integer index = lookup[j].get(tokens[j]);
+					if (index == null)
+						throw new Exception("Undeclared value " + tokens[j] + " for attribute " + names.get(j)
+								+ ", line " + m_lineNum);
+					v = index.intValue();
+				}
+				if (j == classIndex)
+					classVector[numRows] = (short) v;
+				else
+					columns[a++][numRows] = (byte) v;
+			}
+			numRows++;
+		}
+
+		// trim to size
+		for (int j = 0; j < columns.length; j++)
+			columns[j] = copyOf(columns[j], numRows);
+		classVector = copyOf(classVector, numRows);
+
+		return new NominalData(relationName, attNames, attValues, names.get(classIndex), values.get(classIndex),
+				columns, classVector, numRows);
+	}
+
+	/**
+	 * Parses the part of an attribute declaration after the keyword.
+	 * @throws Exception if the attribute isn't nominal
+	 */
+	protected void parseAttribute(String decl, ArrayList<String> names, ArrayList<String[]> values)
+			throws Exception {
+		String name;
+		String rest;
+		char first = decl.charAt(0);
+		if (first == '\'' || first == '"') {
+			int end = closingQuote(decl, 0);
+			name = unquote(decl.substring(0, end + 1));
+			rest = decl.substring(end + 1).trim();
+		} else {
+			int end = 0;
+			while (end < decl.length() && !Character.isWhitespace(decl.charAt(end)) && decl.charAt(end) != '{')
+				end++;
+			name = decl.substring(0, end);
+			rest = decl.substring(end).trim();
+		}
+		if (rest.length() == 0 || rest.charAt(0) != '{' || rest.lastIndexOf('}') < 0)
+			throw new Exception("Can't handle numeric attributes!");
+		String list = rest.substring(1, rest.lastIndexOf('}'));
+		ArrayList<String> vals = new ArrayList<String>();
+		int start = 0;
+		for (int i = 0; i <= list.length(); i++) {
+			if (i == list.length() || list.charAt(i) == ',') {
+				String v = list.substring(start, i).trim();
+				if (v.length() > 0)
+					vals.add(unquote(v));
+				start = i + 1;
+			} else if (list.charAt(i) == '\'' || list.charAt(i) == '"') {
+				i = closingQuote(list, i);
+			}
+		}
+		names.add(name);
+		values.add(vals.toArray(new String[vals.size()]));
+	}
+
+	/**
+	 * Splits a data line on commas outside quotes into the given array.
+	 * @throws Exception if the number of values is wrong
+	 */
+	protected void split(String line, String[] tokens) throws Exception {
+		int n = 0;
+		int start = 0;
+		for (int i = 0; i <= line.length(); i++) {
+			if (i == line.length() || line.charAt(i) == ',') {
+				if (n == tokens.length)
+					throw new Exception("Too many values, line " + m_lineNum);
+				tokens[n++] = unquote(line.substring(start, i).trim());
+				start = i + 1;
+			} else if (line.charAt(i) == '\'' || line.charAt(i) == '"') {
+				i = closingQuote(line, i);
+			}
+		}
+		if (n != tokens.length)
+			throw new Exception("Expected " + tokens.length + " values, found " + n + ", line " + m_lineNum);
+	}
+
+	/** @return the index of the quote closing the one at the given index */
+	protected static int closingQuote(String s, int open) throws Exception {
+		char quote = s.charAt(open);
+		for (int i = open + 1; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == quote)
+				return i;
+		}
+		throw new Exception("Unterminated quote in " + s);
+	}
+
+	/** Removes enclosing quotes and backslash escapes, as weka does. */
+	protected static String unquote(String s) {
+		if (s.length() < 2)
+			return s;
+		char first = s.charAt(0);
+		if ((first != '\'' && first != '"') || s.charAt(s.length() - 1) != first)
+			return s;
+		StringBuilder result = new StringBuilder(s.length());
+		for (int i = 1; i < s.length() - 1; i++) {
+			char c = s.charAt(i);
+			if (c == '\\' && i + 1 < s.length() - 1) {
+				c = s.charAt(++i);
+				if (c == 'n')
+					c = '\n';
+				else if (c == 't')
+					c = '\t';
+				else if (c == 'r')
+					c = '\r';
+			}
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	/** @return the next non empty, non comment line, trimmed, or null */
+	protected String nextLine() throws IOException {
+		String line;
+		while ((line = m_reader.readLine()) != null) {
+			m_lineNum++;
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '%')
+				return line;
+		}
+		return null;
+	}
+
+	protected static byte[] copyOf(byte[] a, int len) {
+		byte[] b = new byte[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+
+	protected static short[] copyOf(short[] a, int len) {
+		short[] b = new short[len];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, len));
+		return b;
+	}
+}
@@ -43,6 +43,7 @@ import weka.filters.unsupervised.attribute.Remove;
 import java.util.*;
 
 import mine.CRTree;
+import util.X2;
 
 import java.io.*;
 
@@ -250,6 +251,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 
 	private Instances allData;
 
+	/** Column store used instead of m_instances/m_onlyClass when built from a streamed ARFF file */
+	protected NominalData m_data;
+
+	/** Chi-squared metric kernel used by calculateX2 */
+	protected X2 m_x2 = new X2();
+
 	/**
 	 * Returns a string describing this associator
 	 * 
@@ -1795,6 +1802,8 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	}
 
 	public double[] getSupB() {
+		if (m_data != null)
+			return getSupB(m_data);
 		int len = (m_onlyClass.attribute(0)).numValues();
 		double[] supB = new double[len];
 		int[] s = new int[len];
@@ -2041,6 +2050,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		allTheRules[2] = new FastVector();
 		allTheRules[3] = new FastVector();
 
+		m_data = null;
 		m_instances = instances;
 		m_onlyClass = onlyClass;
 		m_minSupport = min;
@@ -2225,6 +2235,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 			rules[i] = new FastVector();
 		}
 
+		m_data = null;
 		m_onlyClass = onlyClass;
 		m_minSupport = min;
 		m_upperBoundMinSupport = max;
@@ -2686,8 +2697,8 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		FastVector qlist = new FastVector();
 		int i = 0;
 		int necSupport, necMaxSupport;
-		double nextMinSupport = m_minSupport * (double) m_instances.numInstances();
-		double nextMaxSupport = m_upperBoundMinSupport * (double) m_instances.numInstances();
+		double nextMinSupport = m_minSupport * (double) numInstances();
+		double nextMaxSupport = m_upperBoundMinSupport * (double) numInstances();
 		if ((double) Math.rint(nextMinSupport) == nextMinSupport) {
 			necSupport = (int) nextMinSupport;
 		} else {
@@ -2703,9 +2714,9 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		// boolean hashflag = a.equal(fp.root);
 		////////
 
-		int len = m_instances.numAttributes();
+		int len = numAttributes();
 		LabelTnode t0 = fp.root;
-		int total = m_instances.numInstances();
+		int total = numInstances();
 		CarFPtree q = new CarFPtree(len, total);
 		LabelTnode q0 = q.root;
 		// m_text+="\n the number of children nodes:"+t0.chnum+t0.num;
@@ -3462,7 +3473,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		if (a < 0)
 			return -1;
 		for (int j = 0; j < a; j++) {
-			result += m_instances.attribute(j).numValues();
+			result += numValues(j);
 		}
 		result += v;
 		return result;
@@ -3470,12 +3481,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 
 	public byte[] getItem(int code) {
 		int hashcode = code;
-		int len = m_instances.numAttributes();
+		int len = numAttributes();
 		byte[] item = new byte[2];
 		int i = 0;
 		// int value = 0;
 		for (i = 0; i < len; i++) {
-			int num = m_instances.attribute(i).numValues();
+			int num = numValues(i);
 			if (hashcode < num)
 				break;
 			else {
@@ -3493,12 +3504,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 			double[] supB, int[] countc) throws Exception {
 
 		int i = 0;
-		int len = m_instances.numAttributes();
-		int total = m_instances.numInstances();
-		int numClass = m_onlyClass.attribute(0).numValues();
+		int len = numAttributes();
+		int total = numInstances();
+		int numClass = numClassValues();
 		int numAttr = 0;
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		TNode t0 = fp.root;
 
@@ -3664,15 +3675,9 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	 */
 	public double calculateX2(TNode tnode,double[] supB){
 		double x2 = 0;
+		int n = numInstances();
         for(int i = 0 ; i < supB.length ; i++){
-        	int Oij = tnode.sup[i];
-        	double Eij = supB[i]*tnode.m_counter;
-        	x2 += Math.pow((Oij - Eij),2) / Eij;
-        }
-        for(int i = 0 ; i < supB.length ; i++){
-        	double Oij = supB[i]*m_onlyClass.numInstances() - tnode.sup[i];
-        	double Eij = supB[i]*(m_onlyClass.numInstances() - tnode.m_counter);
-        	x2 += Math.pow((Oij - Eij),2) / Eij;
+        	x2 += m_x2.evalCells(tnode.sup[i], tnode.m_counter, supB[i]*n, n);
         }
 		return x2;
 	}
@@ -3685,15 +3690,9 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	 */
 	public double calculateX2(int[]arr,double[] supB){
 		double x2 = 0;
+		int n = numInstances();
         for(int i = 0 ; i < supB.length ; i++){
-        	int Oij = arr[3+i];
-        	double Eij = supB[i]*arr[2];
-        	x2 += Math.pow((Oij - Eij),2) / Eij;
-        }
-        for(int i = 0 ; i < supB.length ; i++){
-        	double Oij = supB[i]*m_onlyClass.numInstances() - arr[3+i];
-        	double Eij = supB[i]*(m_onlyClass.numInstances() - arr[2]);
-        	x2 += Math.pow((Oij - Eij),2) / Eij;
+        	x2 += m_x2.evalCells(arr[3+i], arr[2], supB[i]*n, n);
         }
 		return x2;
 	}
@@ -3706,12 +3705,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		necSupport = min; // minmum support
 		int necMaxSupport = max;
 
-		int len = m_instances.numAttributes();
-		int total = m_instances.numInstances();
-		int numClass = m_onlyClass.attribute(0).numValues();
+		int len = numAttributes();
+		int total = numInstances();
+		int numClass = numClassValues();
 		int numAttr = 0;
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		TNode t0 = fp.root;
 
@@ -3857,12 +3856,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		necSupport = min; // minmum support
 		int necMaxSupport = max;
 
-		int len = m_instances.numAttributes();
-		int total = m_instances.numInstances();
-		int numClass = m_onlyClass.attribute(0).numValues();
+		int len = numAttributes();
+		int total = numInstances();
+		int numClass = numClassValues();
 		int numAttr = 0;
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		TNode t0 = fp.root;
 
@@ -4196,7 +4195,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	public void newTnodeToItemSets(FastVector list) throws Exception {
 		int size = list.size();
 
-		int numA = m_instances.numAttributes();
+		int numA = numAttributes();
 		for (int i = 0; i < numA; i++) {
 			FastVector ksets = new FastVector();
 			m_Ls.addElement(ksets);
@@ -4218,7 +4217,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	public void newLabeledToItemSets(FastVector list) throws Exception {
 		int size = list.size();
 
-		int numA = m_instances.numAttributes();
+		int numA = numAttributes();
 		for (int i = 0; i < numA; i++) {
 			FastVector ksets = new FastVector();
 			m_Ls.addElement(ksets);
@@ -4226,7 +4225,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		for (int i = 0; i < size; i++) {
 			LabeledItemSet node = (LabeledItemSet) list.elementAt(i);
 			int nsize = node.size();
-			AprioriItemSet is = new AprioriItemSet(m_instances.numInstances());
+			AprioriItemSet is = new AprioriItemSet(numInstances());
 			is.m_items = new int[node.m_items.length];
 			for (int j = 0; j < node.m_items.length; j++) {
 				is.m_items[j] = node.m_items[j];
@@ -4295,7 +4294,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	private CMARtree buildCFPtree(FastVector instances, FastVector head) throws Exception {
 
 		int size = instances.size();
-		int numClass = m_onlyClass.attribute(0).numValues();
+		int numClass = numClassValues();
 		CMARtree fp = new CMARtree(numClass);
 		for (int ii = 0; ii < size; ii++) {
 			TNode t = fp.root;
@@ -4492,6 +4491,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 	public FastVector buildClassifyNorules(Instances instances, Instances onlyClass, double min, double max,
 			double minMetric, double minConv) throws Exception {
 
+		m_data = null;
 		m_instances = instances;
 		m_onlyClass = onlyClass;
 		m_minSupport = min;
@@ -4543,6 +4543,7 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 			double max, double minMetric, double minConv, int classLabel) throws Exception {
 
 		this.allData = allData;
+		m_data = null;
 		m_instances = instances;
 		m_onlyClass = onlyClass;
 		m_minSupport = min;
@@ -4632,23 +4633,315 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		return fs;
 	}
 
+	// *******************************************************************
+	// Column store entry points. The data are read by ArffStreamReader into
+	// a NominalData, no Instances or divided copies of them are built.
+	// *******************************************************************
+
+	/** @return the number of training instances */
+	protected int numInstances() {
+		if (m_data != null)
+			return m_data.numInstances();
+		if (m_instances != null)
+			return m_instances.numInstances();
+		return m_onlyClass.numInstances();
+	}
+
+	/** @return the number of non class attributes */
+	protected int numAttributes() {
+		if (m_data != null)
+			return m_data.numAttributes();
+		return m_instances.numAttributes();
+	}
+
+	/** @return the number of values of the given non class attribute */
+	protected int numValues(int attr) {
+		if (m_data != null)
+			return m_data.numValues(attr);
+		return m_instances.attribute(attr).numValues();
+	}
+
+	/** @return the number of class values */
+	protected int numClassValues() {
+		if (m_data != null)
+			return m_data.numClassValues();
+		return m_onlyClass.attribute(0).numValues();
+	}
+
+	/**
+	 * Class distribution of a column store.
+	 * @param data the column store
+	 * @return the relative frequency of each class value
+	 */
+	public double[] getSupB(NominalData data) {
+		int[] s = data.classCounts();
+		double[] supB = new double[s.length];
+		for (int i = 0; i < s.length; i++) {
+			supB[i] = (double) s[i] / (double) data.numInstances();
+		}
+		return supB;
+	}
+
+	/**
+	 * Counts the frequent 1-item sets of a column store in one pass, the
+	 * counterpart of getISet1(Instances,Instances). Items are added in order of
+	 * first appearance, as getISet1 does, so the sorted header table is the
+	 * same. Missing values and rows with a missing class are not counted.
+	 * @param data the column store
+	 * @return the 1-item sets with their count and class support
+	 */
+	public FastVector getISet1(NominalData data) {
+		return getISet(data, false);
+	}
+
+	/**
+	 * As getISet1(NominalData) but with a single class support entry, the
+	 * counterpart of getISetU(Instances,Instances).
+	 * @param data the column store
+	 * @return the 1-item sets with their count
+	 */
+	public FastVector getISetU(NominalData data) {
+		return getISet(data, true);
+	}
+
+	private FastVector getISet(NominalData data, boolean oneClass) {
+		FastVector fs = new FastVector();
+		int numAtt = data.numAttributes();
+		int numClass = oneClass ? 1 : data.numClassValues();
+		ListHead[][] seen = new ListHead[numAtt][];
+		for (int j = 0; j < numAtt; j++) {
+			seen[j] = new ListHead[data.numValues(j)];
+		}
+		for (int i = 0; i < data.numInstances(); i++) {
+			int classlabel = data.classValue(i);
+			if (classlabel < 0)
+				continue;
+			for (int j = 0; j < numAtt; j++) {
+				byte v = data.value(i, j);
+				if (v == NominalData.MISSING)
+					continue;
+				ListHead lh = seen[j][v];
+				if (lh == null) {
+					lh = new ListHead(0, (byte) j, v);
+					lh.sup = new int[numClass];
+					seen[j][v] = lh;
+					fs.addElement(lh);
+				}
+				lh.count++;
+				lh.sup[oneClass ? 0 : classlabel]++;
+			}
+		}
+		return fs;
+	}
+
+	/**
+	 * Builds the header table and CMAR tree straight from a column store, the
+	 * counterpart of buildClassifyNorules(Instances,Instances,...).
+	 * @param data the column store
+	 * @return the header table
+	 */
+	public FastVector buildClassifyNorules(NominalData data, double min, double max, double minMetric,
+			double minConv) throws Exception {
+
+		m_data = data;
+		m_instances = null;
+		m_onlyClass = null;
+		m_minSupport = min;
+		m_upperBoundMinSupport = max;
+		m_minMetric = minMetric;
+		m_minConv = minConv;
+
+		int necSupport = roundUpSupport(m_minSupport * (double) data.numInstances());
+		int necMaxSupport = roundUpSupport(m_upperBoundMinSupport * (double) data.numInstances());
+
+		FastVector kSets = getISet1(data);
+		kSets = ListHead.deleteItemSets(kSets, necSupport, necMaxSupport);
+		sortByCount(kSets);
+
+		CMARtree fp = buildCMARtree(data, kSets);
+		return kSets;
+	}
+
+	/**
+	 * One tree per class version of buildClassifyNorules(NominalData,...), the
+	 * counterpart of buildClassifyNorules(Instances,Instances,Instances,...).
+	 * @param allNumInstances number of instances of the whole training set
+	 * @param data the rows of the given class
+	 * @param classLabel the class
+	 * @return the header table
+	 */
+	public FastVector buildClassifyNorules(int allNumInstances, NominalData data, double min, double max,
+			double minMetric, double minConv, int classLabel) throws Exception {
+
+		m_data = data;
+		m_instances = null;
+		m_onlyClass = null;
+		m_minSupport = min;
+		m_upperBoundMinSupport = max;
+		m_minMetric = minMetric;
+		m_minConv = minConv;
+
+		// the thresholds of buildClassifyNorules(Instances, Instances, Instances, ...),
+		// computed with the same expressions
+		int necSupport = roundUpSupport(m_minSupport * (double) data.numAttributes() * (double) data.numAttributes()
+				/ (double) allNumInstances);
+		int necMaxSupport = roundUpSupport(m_upperBoundMinSupport * (double) allNumInstances);
+
+		FastVector kSets = getISetU(data);
+		kSets = ListHead.deleteItemSets(kSets, necSupport, necMaxSupport);
+		sortByCount(kSets);
+
+		CMARtree fp = buildCMARtree(data, kSets, classLabel);
+		return kSets;
+	}
+
+	/**
+	 * Mines the CMAR rules straight from a column store, the counterpart of
+	 * newCMAR(Instances,Instances,...).
+	 * @param data the column store
+	 * @return the rules
+	 */
+	public FastVector[] newCMAR(NominalData data, double min, double max, double minMetric) throws Exception {
+		for (int i = 0; i < 7; i++) {
+			rules[i] = new FastVector();
+		}
+
+		m_data = data;
+		m_instances = null;
+		m_onlyClass = null;
+		m_minSupport = min;
+		m_upperBoundMinSupport = max;
+
+		int totalnum = data.numAttributes();
+		int necSupport = roundUpSupport(m_minSupport * (double) data.numInstances());
+		int necMaxSupport = roundUpSupport(m_upperBoundMinSupport * (double) data.numInstances());
+
+		// all attribute values in attribute order, as ListHead.singleton
+		FastVector kSets = new FastVector();
+		FastVector seen = getISet1(data);
+		for (int j = 0; j < totalnum; j++) {
+			for (int v = 0; v < data.numValues(j); v++) {
+				ListHead lh = null;
+				for (int k = 0; k < seen.size(); k++) {
+					ListHead lk = (ListHead) seen.elementAt(k);
+					if (lk.attr == j && lk.value == v) {
+						lh = lk;
+						break;
+					}
+				}
+				if (lh == null) {
+					lh = new ListHead(0, (byte) j, (byte) v);
+					lh.sup = new int[data.numClassValues()];
+				}
+				kSets.addElement(lh);
+			}
+		}
+		kSets = ListHead.deleteItemSets(kSets, necSupport, necMaxSupport);
+		sortByCount(kSets);
+
+		CMARtree fp = buildCMARtree(data, kSets);
+		double[] sup = getSupB();
+		RuleNode ruleroot = new RuleNode();
+		LinkedList<TNode> alpha = new LinkedList<TNode>();
+		m_numRules = 0;
+		m_Rules = new LinkedList();
+		int[] countC = new int[totalnum];
+		File f = new File("result.dat");
+		f.delete();
+		mineCMARtree(fp, kSets, alpha, necSupport, necMaxSupport, ruleroot, sup, countC);
+		return rules;
+	}
+
+	private CMARtree buildCMARtree(NominalData data, FastVector head) {
+		return buildCMARtree(data, head, -1);
+	}
+
+	/**
+	 * Builds the CMAR tree from a column store. With a class label of -1 the
+	 * class support of each node is kept per class, otherwise a single support
+	 * entry is kept as buildCMARtree(Instances,Instances,FastVector,int) does.
+	 */
+	private CMARtree buildCMARtree(NominalData data, FastVector head, int cl) {
+		int total = data.numInstances();
+		int numClass = (cl < 0) ? data.numClassValues() : 1;
+
+		CMARtree fp = new CMARtree(numClass);
+		for (int ii = 0; ii < total; ii++) {
+			int classlabel = data.classValue(ii);
+			if (classlabel < 0)
+				continue;
+			if (cl >= 0)
+				classlabel = 0;
+			TNode t = fp.root;
+			for (int j = 0; j < head.size(); j++) {
+				ListHead set = (ListHead) head.elementAt(j);
+				if (set.containedBy(data, ii)) {
+					TNode node = null;
+					ListIterator<TNode> nodeiter = t.child.listIterator();
+					while (nodeiter.hasNext()) {
+						TNode n = nodeiter.next();
+						if (set.equal(n)) {
+							node = n;
+							break;
+						}
+					}
+					if (node == null) {
+						TNode tt = new TNode(set.attr, set.value);
+						tt.m_counter = 1;
+						tt.sup = new int[numClass];
+						tt.sup[classlabel] = 1;
+						t.addChild(tt);
+						t = tt;
+						set.addNext(tt);
+					} else {
+						t = node;
+						t.m_counter++;
+						t.sup[classlabel]++;
+					}
+				}
+			}
+		}
+		return fp;
+	}
+
+	/** Sorts the header table by descending count, as the Instances versions do. */
+	private void sortByCount(FastVector kSets) {
+		int size = kSets.size();
+		for (int j = 0; j < size; j++) {
+			for (int k = j + 1; k < size; k++) {
+				int nj = ((ListHead) kSets.elementAt(j)).count;
+				int nk = ((ListHead) kSets.elementAt(k)).count;
+				if (nj < nk) {
+					kSets.swap(j, k);
+				}
+			}
+		}
+	}
+
+	/** @return the given support count rounded up to a whole number of instances */
+	private int roundUpSupport(double support) {
+		if ((double) Math.rint(support) == support)
+			return (int) support;
+		return Math.round((float) (support + 0.5));
+	}
+
 	public double[] calculatePro(Instance toTest, FastVector head, double[] supB) {
 		//////////////////////////// for each test instance, find the
 		//////////////////////////// cond-patten base and build CP-tree
 		terminal = false;
 		minNumRules = 80000;// Integer.MAX_VALUE;
 		numRules = 0;
-		int len = m_instances.numAttributes();
-		int numClass = (m_onlyClass.attribute(0)).numValues();
-		int total = m_instances.numInstances();
+		int len = numAttributes();
+		int numClass = numClassValues();
+		int total = numInstances();
 		int numAttr = 0;
 		double[] pro = new double[numClass];
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		int min, max;
-		double nextMinSupport = m_minSupport * (double) m_instances.numInstances();
-		double nextMaxSupport = m_upperBoundMinSupport * (double) m_instances.numInstances();
+		double nextMinSupport = m_minSupport * (double) numInstances();
+		double nextMaxSupport = m_upperBoundMinSupport * (double) numInstances();
 		if ((double) Math.rint(nextMinSupport) == nextMinSupport) {
 			min = (int) nextMinSupport;
 		} else {
@@ -4778,18 +5071,18 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 		terminal = false;
 		minNumRules = 80000;// Integer.MAX_VALUE;
 		numRules = 0;
-		int len = m_instances.numAttributes();
+		int len = numAttributes();
 		int numClass = 1;
-		int total = m_instances.numInstances();
+		int total = numInstances();
 		int numAttr = 0;
 		double[] pro = new double[numClass];
 
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		int min, max;
-		double nextMinSupport = m_minSupport * (double) m_instances.numInstances();
-		double nextMaxSupport = m_upperBoundMinSupport * (double) m_instances.numInstances();
+		double nextMinSupport = m_minSupport * (double) numInstances();
+		double nextMaxSupport = m_upperBoundMinSupport * (double) numInstances();
 		if ((double) Math.rint(nextMinSupport) == nextMinSupport) {
 			min = (int) nextMinSupport;
 		} else {
@@ -4918,12 +5211,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 			double[] dPro , int classLabel) throws Exception {
 
 		int i = 0;
-		int len = m_instances.numAttributes();
-		int total = m_instances.numInstances();
+		int len = numAttributes();
+		int total = numInstances();
 		int numClass = 1;
 		int numAttr = 0;
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		TNode t0 = fp.root;
 
@@ -5274,12 +5567,12 @@ public class FP extends Associator implements OptionHandler, CARuleMiner, Techni
 			double[] dPro) throws Exception {
 
 		int i = 0;
-		int len = m_instances.numAttributes();
-		int total = m_instances.numInstances();
-		int numClass = m_onlyClass.attribute(0).numValues();
+		int len = numAttributes();
+		int total = numInstances();
+		int numClass = numClassValues();
 		int numAttr = 0;
 		for (int j = 0; j < len; j++) {
-			numAttr += m_instances.attribute(j).numValues();
+			numAttr += numValues(j);
 		}
 		TNode t0 = fp.root;
 
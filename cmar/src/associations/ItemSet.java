@@ -151,6 +151,22 @@ public class ItemSet
     return true;
   }
 
+  /**
+   * Checks if an item set is contained in a row of a column store.
+   * @param data the column store
+   * @param row the row
+   * @return true if the item set is contained in the row
+   */
+  public boolean containedBy(NominalData data, int row) {
+
+    for (int i = 0; i < data.numAttributes(); i++)
+      if (m_items[i] > -1) {
+	     if (m_items[i] != data.value(row, i))
+	        return false;
+      }
+    return true;
+  }
+
   /** Deletes all item sets that don't have minimum support.
    * @return the reduced set of item sets
    * @param maxSupport the maximum support
@@ -462,18 +478,16 @@ public class ItemSet
       m_counter = count;
   }
   /**
-   * Updates counters for a set of item sets and a set of instances.
+   * Updates counters for a set of item sets and a set of instances. The
+   * item sets are counted through a prefix trie (see ItemSetTrie), each
+   * instance only visiting the item sets it contains.
    *
    * @param itemSets the set of item sets which are to be updated
    * @param instances the instances to be used for updating the counters
    */
   public static void upDateCounters(FastVector itemSets, Instances instances) {
 
-    for (int i = 0; i < instances.numInstances(); i++) {
-      Enumeration enu = itemSets.elements();
-      while (enu.hasMoreElements()) 
-	((ItemSet)enu.nextElement()).upDateCounter(instances.instance(i));
-    }
+    new ItemSetTrie(itemSets).count(instances);
   }
 
 public int getCounter(){
@@ -0,0 +1,294 @@
+package associations;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Prefix trie of candidate item sets used to count their supports. The items
+ * of a candidate, (attribute, value) pairs in attribute order, form a path
+ * from the root; the candidates are held at the node their path ends at.
+ * Counting walks each instance down from the root, following from a node only
+ * the children for the instance's value of each child attribute, so an
+ * instance visits only the candidates it contains instead of testing every
+ * candidate with containedBy. The instances are split between the threads of
+ * a pool shared by all tries and the calling thread, each counting into its
+ * own arrays, and the counts are then added to the candidates. Gives the
+ * same counts as upDateCounter for every candidate and instance, the
+ * candidates themselves (and mergeAllItemSets/pruneItemSets) are unchanged.
+ */
+public class ItemSetTrie {
+
+	/** Number of instances below which counting is not split between threads */
+	private static final int MIN_INSTANCES_PER_THREAD = 1000;
+
+	/** Number of counting threads */
+	private static int s_numThreads = Runtime.getRuntime().availableProcessors();
+
+	/** Pool of the counting threads other than the caller, null until used */
+	private static ExecutorService s_pool;
+
+	/** The candidates */
+	private final ItemSet[] m_candidates;
+
+	/** Class label of each candidate, only used for labeled item sets */
+	private final int[] m_classLabels;
+
+	/** Root of the trie */
+	private final Node m_root;
+
+	/** Number of attributes of the candidates */
+	private final int m_numAttributes;
+
+	/** A trie node */
+	private static class Node {
+
+		/** Attributes of the children, ascending */
+		int[] attributes;
+
+		/** Children by attribute (index into attributes) and value */
+		Node[][] children;
+
+		/** Indexes of the candidates ending at this node, null if none */
+		int[] candidates;
+	}
+
+	/** A trie node while the trie is built */
+	private static class BuildNode {
+
+		/** Children by attribute and value */
+		TreeMap<Integer, TreeMap<Integer, BuildNode>> children = new TreeMap<Integer, TreeMap<Integer, BuildNode>>();
+
+		/** Indexes of the candidates whose path ends at this node */
+		FastVector candidates = new FastVector();
+	}
+
+	/**
+	 * Builds the trie of the given candidates.
+	 * @param itemSets the candidates (ItemSet or LabeledItemSet instances)
+	 */
+	public ItemSetTrie(FastVector itemSets) {
+		m_candidates = new ItemSet[itemSets.size()];
+		m_classLabels = new int[itemSets.size()];
+		BuildNode root = new BuildNode();
+		int numAttributes = 0;
+		for (int i = 0; i < m_candidates.length; i++) {
+			m_candidates[i] = (ItemSet) itemSets.elementAt(i);
+			if (m_candidates[i] instanceof LabeledItemSet)
+				m_classLabels[i] = ((LabeledItemSet) m_candidates[i]).m_classLabel;
+			int[] items = m_candidates[i].m_items;
+			numAttributes = Math.max(numAttributes, items.length);
+			BuildNode node = root;
+			for (int attribute = 0; attribute < items.length; attribute++) {
+				if (items[attribute] > -1) {
+					TreeMap<Integer, BuildNode> byValue = node.children.get(attribute);
+					if (byValue == null) {
+						byValue = new TreeMap<Integer, BuildNode>();
+						node.children.put(attribute, byValue);
+					}
+					BuildNode child = byValue.get(items[attribute]);
+					if (child == null) {
+						child = new BuildNode();
+						byValue.put(items[attribute], child);
+					}
+					node = child;
+				}
+			}
+			node.candidates.addElement(Integer.valueOf(i));
+		}
+		m_numAttributes = numAttributes;
+		m_root = compact(root);
+	}
+
+	/** @return the trie node holding the children and candidates of a node */
+	private static Node compact(BuildNode buildNode) {
+		Node node = new Node();
+		node.attributes = new int[buildNode.children.size()];
+		node.children = new Node[buildNode.children.size()][];
+		int k = 0;
+		Iterator<Map.Entry<Integer, TreeMap<Integer, BuildNode>>> attributes = buildNode.children.entrySet().iterator();
+		while (attributes.hasNext()) {
+			Map.Entry<Integer, TreeMap<Integer, BuildNode>> attribute = attributes.next();
+			node.attributes[k] = attribute.getKey();
+			node.children[k] = new Node[attribute.getValue().lastKey() + 1];
+			Iterator<Map.Entry<Integer, BuildNode>> values = attribute.getValue().entrySet().iterator();
+			while (values.hasNext()) {
+				Map.Entry<Integer, BuildNode> value = values.next();
+				node.children[k][value.getKey()] = compact(value.getValue());
+			}
+			k++;
+		}
+		if (buildNode.candidates.size() > 0) {
+			node.candidates = new int[buildNode.candidates.size()];
+			for (int i = 0; i < node.candidates.length; i++)
+				node.candidates[i] = ((Integer) buildNode.candidates.elementAt(i)).intValue();
+		}
+		return node;
+	}
+
+	/**
+	 * Adds the number of instances containing each candidate to its counter,
+	 * as ItemSet.upDateCounters.
+	 * @param instances the instances
+	 */
+	public void count(Instances instances) {
+		countInstances(instances, null);
+	}
+
+	/**
+	 * Adds the number of instances containing each candidate to its counter
+	 * and the number of those whose class is the candidate's class label to
+	 * its rule support counter, as LabeledItemSet.upDateCounters.
+	 * @param instancesNoClass the instances without the class attribute
+	 * @param instancesClass the class values of the instances
+	 */
+	public void count(Instances instancesNoClass, Instances instancesClass) {
+		countInstances(instancesNoClass, instancesClass);
+	}
+
+	/**
+	 * Counts the instances in the pool threads and the calling thread and adds
+	 * the counts to the candidates.
+	 * @param instances the instances (without the class attribute if labeled)
+	 * @param instancesClass the class values, null if the rule supports are not
+	 *            counted
+	 */
+	private void countInstances(final Instances instances, final Instances instancesClass) {
+		if (m_candidates.length == 0)
+			return;
+		int numInstances = instances.numInstances();
+		int numThreads = Math.max(1, Math.min(s_numThreads, numInstances / MIN_INSTANCES_PER_THREAD));
+		final int[][] counts = new int[numThreads][m_candidates.length];
+		final int[][] ruleCounts = new int[numThreads][instancesClass == null ? 0 : m_candidates.length];
+
+		// Count each part of the instances, the last part in this thread
+		Future<?>[] parts = new Future<?>[numThreads - 1];
+		int partSize = (numInstances + numThreads - 1) / numThreads;
+		ExecutorService pool = parts.length == 0 ? null : getPool();
+		for (int t = 0; t < parts.length; t++) {
+			final int part = t;
+			final int start = t * partSize;
+			final int end = Math.min(numInstances, start + partSize);
+			parts[t] = pool.submit(new Runnable() {
+				public void run() {
+					countPart(instances, instancesClass, start, end, counts[part], ruleCounts[part]);
+				}
+			});
+		}
+		countPart(instances, instancesClass, Math.min(numInstances, parts.length * partSize), numInstances,
+				counts[parts.length], ruleCounts[parts.length]);
+		for (int t = 0; t < parts.length; t++) {
+			try {
+				parts[t].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted counting item sets");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Error)
+					throw (Error) e.getCause();
+				throw new IllegalStateException("Counting item sets failed: " + e.getCause(), e.getCause());
+			}
+		}
+
+		// Add the counts to the candidates
+		for (int i = 0; i < m_candidates.length; i++) {
+			for (int t = 0; t < numThreads; t++) {
+				m_candidates[i].m_counter += counts[t][i];
+				if (instancesClass != null)
+					((LabeledItemSet) m_candidates[i]).m_ruleSupCounter += ruleCounts[t][i];
+			}
+		}
+	}
+
+	/**
+	 * Counts a range of instances.
+	 * @param instances the instances
+	 * @param instancesClass the class values, null if the rule supports are not
+	 *            counted
+	 * @param start the first instance
+	 * @param end the instance after the last
+	 * @param counts the counts of the candidates
+	 * @param ruleCounts the rule support counts of the candidates
+	 */
+	private void countPart(Instances instances, Instances instancesClass, int start, int end, int[] counts,
+			int[] ruleCounts) {
+		int[] values = new int[m_numAttributes];
+		for (int row = start; row < end; row++) {
+			Instance instance = instances.instance(row);
+			int numAttributes = Math.min(m_numAttributes, instance.numAttributes());
+			for (int a = 0; a < numAttributes; a++)
+				values[a] = instance.isMissing(a) ? -1 : (int) instance.value(a);
+			for (int a = numAttributes; a < m_numAttributes; a++)
+				values[a] = -1;
+			double classValue = instancesClass == null ? 0 : instancesClass.instance(row).value(0);
+			countInstance(m_root, values, classValue, counts, instancesClass == null ? null : ruleCounts);
+		}
+	}
+
+	/**
+	 * Counts the candidates below a node contained in an instance.
+	 * @param node the node, whose path is contained in the instance
+	 * @param values the value of each attribute of the instance, -1 if missing
+	 * @param classValue the class value of the instance
+	 * @param counts the counts of the candidates
+	 * @param ruleCounts the rule support counts of the candidates, null if not
+	 *            counted
+	 */
+	private void countInstance(Node node, int[] values, double classValue, int[] counts, int[] ruleCounts) {
+		if (node.candidates != null) {
+			for (int i = 0; i < node.candidates.length; i++) {
+				int candidate = node.candidates[i];
+				counts[candidate]++;
+				if (ruleCounts != null && m_classLabels[candidate] == classValue)
+					ruleCounts[candidate]++;
+			}
+		}
+		for (int k = 0; k < node.attributes.length; k++) {
+			int value = values[node.attributes[k]];
+			if (value > -1 && value < node.children[k].length && node.children[k][value] != null)
+				countInstance(node.children[k][value], values, classValue, counts, ruleCounts);
+		}
+	}
+
+	/**
+	 * Gets the pool of counting threads, created with s_numThreads - 1
+	 * (daemon) threads when first used.
+	 * @return the pool
+	 */
+	private static synchronized ExecutorService getPool() {
+		if (s_pool == null) {
+			s_pool = Executors.newFixedThreadPool(Math.max(1, s_numThreads - 1), new ThreadFactory() {
+				private int m_numCreated = 0;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "itemset-count-" + m_numCreated++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return s_pool;
+	}
+
+	/**
+	 * Sets the number of threads used to count (the number of processors by
+	 * default), the pool being replaced if already created.
+	 * @param numThreads the number of threads
+	 */
+	public static synchronized void setNumThreads(int numThreads) {
+		s_numThreads = Math.max(1, numThreads);
+		if (s_pool != null) {
+			s_pool.shutdown();
+			s_pool = null;
+		}
+	}
+}
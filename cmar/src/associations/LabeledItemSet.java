@@ -386,19 +386,16 @@ public class LabeledItemSet extends ItemSet implements Serializable{
 	  return result;
   }
   /**
-   * Updates counter of a specific item set
+   * Updates counter of a specific item set. The item sets are counted through
+   * a prefix trie (see ItemSetTrie), each instance only visiting the item
+   * sets it contains.
    * @param itemSets an item sets
    * @param instancesNoClass instances without the class attribute
    * @param instancesClass the values of the class attribute sorted according to instances
    */  
    public static void upDateCounters(FastVector itemSets, Instances instancesNoClass, Instances instancesClass){
 
-    for (int i = 0; i < instancesNoClass.numInstances(); i++) {
-        Enumeration enu = itemSets.elements();
-	while (enu.hasMoreElements())
-            ((LabeledItemSet)enu.nextElement()).upDateCounter(instancesNoClass.instance(i),instancesClass.instance(i));
-    }
-
+    new ItemSetTrie(itemSets).count(instancesNoClass, instancesClass);
   }
    public static void newupDateCounters(FastVector itemSets, Instances instancesNoClass){
 
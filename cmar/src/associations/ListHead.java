@@ -78,6 +78,9 @@ public class ListHead implements Serializable{
 			   return false;
 		    return true;
 		  }
+	   public boolean containedBy(NominalData data, int row) {
+		   return data.value(row, attr) == value;
+		  }
 	   public boolean containedBy(LabelItemSetII instance) {
 		    for (int i = 0; i < instance.m_items.length; i++) 
 		    {
@@ -0,0 +1,161 @@
+package associations;
+
+import java.io.Serializable;
+
+/**
+ * Compact column store for a nominal data set. Every non class attribute is
+ * held as one byte column indexed by row, the class attribute is held
+ * separately as a short class vector. Missing values are stored as -1.
+ * Attribute indexes are those of the data set with the class attribute
+ * removed, i.e. the same indexes <code>LabeledItemSet.divide(data,false)</code>
+ * gives, so header table entries built from either source agree.
+ */
+public class NominalData implements Serializable {
+
+	private static final long serialVersionUID = -3571926385106731184L;
+
+	/** Value used for a missing attribute or class value */
+	public static final byte MISSING = -1;
+
+	/** Relation name from the ARFF header */
+	protected String m_relationName;
+
+	/** Names of the non class attributes */
+	protected String[] m_attNames;
+
+	/** Labels of the values of each non class attribute */
+	protected String[][] m_attValues;
+
+	/** Name of the class attribute */
+	protected String m_classAttName;
+
+	/** Labels of the class values */
+	protected String[] m_classValues;
+
+	/** Attribute columns, [attribute][row] */
+	protected byte[][] m_columns;
+
+	/** Class value of each row */
+	protected short[] m_classVector;
+
+	/** Number of rows held */
+	protected int m_numInstances;
+
+	public NominalData(String relationName, String[] attNames, String[][] attValues, String classAttName,
+			String[] classValues, byte[][] columns, short[] classVector, int numInstances) {
+		m_relationName = relationName;
+		m_attNames = attNames;
+		m_attValues = attValues;
+		m_classAttName = classAttName;
+		m_classValues = classValues;
+		m_columns = columns;
+		m_classVector = classVector;
+		m_numInstances = numInstances;
+	}
+
+	public String relationName() {
+		return m_relationName;
+	}
+
+	public int numInstances() {
+		return m_numInstances;
+	}
+
+	/** @return the number of non class attributes */
+	public int numAttributes() {
+		return m_columns.length;
+	}
+
+	public int numValues(int attr) {
+		return m_attValues[attr].length;
+	}
+
+	public int numClassValues() {
+		return m_classValues.length;
+	}
+
+	public String attributeName(int attr) {
+		return m_attNames[attr];
+	}
+
+	public String attributeValue(int attr, int value) {
+		return m_attValues[attr][value];
+	}
+
+	public String classAttributeName() {
+		return m_classAttName;
+	}
+
+	public String classValueName(int value) {
+		return m_classValues[value];
+	}
+
+	/** @return the value index of the given attribute in the given row, -1 if missing */
+	public byte value(int row, int attr) {
+		return m_columns[attr][row];
+	}
+
+	public boolean isMissing(int row, int attr) {
+		return m_columns[attr][row] == MISSING;
+	}
+
+	/** @return the class value index of the given row, -1 if missing */
+	public int classValue(int row) {
+		return m_classVector[row];
+	}
+
+	/** @return the column of the given attribute, not a copy */
+	public byte[] column(int attr) {
+		return m_columns[attr];
+	}
+
+	/** @return the number of rows of each class value */
+	public int[] classCounts() {
+		int[] counts = new int[m_classValues.length];
+		for (int i = 0; i < m_numInstances; i++) {
+			if (m_classVector[i] >= 0)
+				counts[m_classVector[i]]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Copies the rows of a single class into a new column store. Used for the
+	 * one tree per class build of MultiAcwv_App, the copy is of the compact
+	 * columns only.
+	 * @param classLabel the class value to select
+	 * @return the rows of the given class
+	 */
+	public NominalData selectClass(int classLabel) {
+		int num = 0;
+		for (int i = 0; i < m_numInstances; i++) {
+			if (m_classVector[i] == classLabel)
+				num++;
+		}
+		byte[][] columns = new byte[m_columns.length][num];
+		short[] classVector = new short[num];
+		int r = 0;
+		for (int i = 0; i < m_numInstances; i++) {
+			if (m_classVector[i] == classLabel) {
+				for (int j = 0; j < m_columns.length; j++) {
+					columns[j][r] = m_columns[j][i];
+				}
+				classVector[r] = m_classVector[i];
+				r++;
+			}
+		}
+		return new NominalData(m_relationName, m_attNames, m_attValues, m_classAttName, m_classValues, columns,
+				classVector, num);
+	}
+
+	/** @return the approximate number of bytes held by the columns and class vector */
+	public long dataSize() {
+		return (long) m_columns.length * m_numInstances + 2L * m_numInstances;
+	}
+
+	@Override
+	public String toString() {
+		return m_relationName + ": " + m_numInstances + " instances, " + m_columns.length + " attributes, "
+				+ m_classValues.length + " classes";
+	}
+}
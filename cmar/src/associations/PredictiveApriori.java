@@ -143,6 +143,9 @@ public class PredictiveApriori
   
   /** Flag indicating whether class association rules are mined. */
   protected boolean m_car;
+  
+  /** The number of threads for the prior estimation, 0 for sequential estimation. */
+  protected int m_numThreads;
 
   /**
    * Returns a string describing this associator
@@ -209,6 +212,7 @@ public class PredictiveApriori
     m_count = 1;
     m_car = false;
     m_classIndex = -1;
+    m_numThreads = 0;
     m_priors = new Hashtable();
     
     
@@ -264,6 +268,7 @@ public class PredictiveApriori
     
     //prior estimation
     m_priorEstimator = new PriorEstimation(m_instances,m_numRandRules,m_numIntervals,m_car);
+    m_priorEstimator.setNumThreads(m_numThreads);
     m_priors = m_priorEstimator.estimatePrior();
     m_midPoints = m_priorEstimator.getMidPoints();
     
@@ -422,8 +427,9 @@ public class PredictiveApriori
 
     String string1 = "\tThe required number of rules. (default = " + (m_numRules-5) + ")",
       string2 = "\tIf set class association rules are mined. (default = no)",
-      string3 = "\tThe class index. (default = last)";
-    FastVector newVector = new FastVector(3);
+      string3 = "\tThe class index. (default = last)",
+      string4 = "\tThe number of threads for the prior estimation,\n\t0 for sequential estimation. (default = 0)";
+    FastVector newVector = new FastVector(4);
 
     newVector.addElement(new Option(string1, "N", 1, 
 				    "-N <required number of rules output>"));
@@ -431,6 +437,8 @@ public class PredictiveApriori
 				    "-A"));
     newVector.addElement(new Option(string3, "c", 1,
 				    "-c <the class index>"));
+    newVector.addElement(new Option(string4, "T", 1,
+				    "-T <number of threads>"));
     return newVector.elements();
   }
 
@@ -450,6 +458,10 @@ public class PredictiveApriori
    * <pre> -c &lt;the class index&gt;
    *  The class index. (default = last)</pre>
    * 
+   * <pre> -T &lt;number of threads&gt;
+   *  The number of threads for the prior estimation,
+   *  0 for sequential estimation. (default = 0)</pre>
+   * 
    <!-- options-end -->
    *
    * @param options the list of options as an array of strings
@@ -469,6 +481,10 @@ public class PredictiveApriori
     if (classIndexString.length() != 0) 
       m_classIndex = Integer.parseInt(classIndexString);
 
+    String numThreadsString = Utils.getOption('T',options);
+    if (numThreadsString.length() != 0) 
+      m_numThreads = Integer.parseInt(numThreadsString);
+
     m_car = Utils.getFlag('A', options);
   }
 
@@ -491,6 +507,9 @@ public class PredictiveApriori
     result.add("-c");
     result.add("" + m_classIndex);
 
+    result.add("-T");
+    result.add("" + m_numThreads);
+
     return (String[]) result.toArray(new String[result.size()]);	  
   }
 
@@ -610,6 +629,34 @@ public class PredictiveApriori
     return "If enabled class association rules are mined instead of (general) association rules.";
   }
   
+  /**
+   * Sets the number of threads for the prior estimation
+   * @param numThreads the number of threads, 0 for sequential estimation
+   */  
+  public void setNumThreads(int numThreads){
+      
+      m_numThreads = numThreads;
+  }
+  
+  /**
+   * Gets the number of threads for the prior estimation
+   * @return the number of threads, 0 for sequential estimation
+   */  
+  public int getNumThreads(){
+      
+      return m_numThreads;
+  }
+
+  /**
+   * Returns the tip text for this property
+   * @return tip text for this property suitable for
+   * displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return "The number of threads for the prior estimation. With 0 the random rules are drawn sequentially, "
+      + "otherwise in blocks with seeded random number generators, giving the same prior for any number of threads.";
+  }
+  
     /**
    * Returns the metric string for the chosen metric type.
    * Predictive apriori uses the estimated predictive accuracy.
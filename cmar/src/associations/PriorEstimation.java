@@ -22,12 +22,18 @@
 
 package associations;
 
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.FastVector;
 import weka.core.Utils;
 import weka.core.SpecialFunctions;
 import java.util.Random;
 import java.util.Hashtable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.io.Serializable;
 
 /**
@@ -77,6 +83,15 @@ import java.io.Serializable;
     /** The mid points of the discrete intervals in which the interval [0,1] is divided. */
     protected double[] m_midPoints;
     
+    /** The number of random rules drawn from one random number stream by the parallel estimator. */
+    protected static final int RULES_PER_BLOCK = 50;
+    
+    /** The number of threads of the parallel estimator, 0 for the sequential estimator. */
+    protected int m_numThreads;
+    
+    /** The values of the instances by attribute and instance, -1 if missing. Used by the parallel estimator. */
+    protected int[][] m_columns;
+    
     
     
    /**
@@ -125,6 +140,11 @@ import java.io.Serializable;
         //calculate mid points for the intervals
         midPoints();
         
+        if(m_numThreads > 0){
+            generateDistributionParallel();
+            return;
+        }
+        
         //create random rules of length i and measure their support and if support >0 their confidence
         for(i = 1;i <= maxLength; i++){
             m_sum = 0;
@@ -164,36 +184,207 @@ import java.io.Serializable;
                 }
              }
             
-            //normalize
-            if(m_sum > 0){
-                for(int w = 0; w < m_midPoints.length;w++){
-                    String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
-                    Double oldValue = (Double)m_distribution.remove(key);
-                    if(oldValue == null){
-                        m_distribution.put(key,new Double(1.0/m_numIntervals));
-                        m_sum += 1.0/m_numIntervals;
+            normalizeDistribution(i);
+        }
+        
+    }
+    
+    /**
+     * Normalizes the distribution of the confidence values of the rules with
+     * a certain length. Intervals no rule fell into get the confidence of a
+     * uniform distribution first.
+     * @param i the length of the rules
+     */
+    protected final void normalizeDistribution(int i){
+        
+        if(m_sum > 0){
+            for(int w = 0; w < m_midPoints.length;w++){
+                String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
+                Double oldValue = (Double)m_distribution.remove(key);
+                if(oldValue == null){
+                    m_distribution.put(key,new Double(1.0/m_numIntervals));
+                    m_sum += 1.0/m_numIntervals;
+                }
+                else
+                    m_distribution.put(key,oldValue);
+            }
+            for(int w = 0; w < m_midPoints.length;w++){
+                double conf =0;
+                String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
+                Double oldValue = (Double)m_distribution.remove(key);
+                if(oldValue != null){
+                    conf = oldValue.doubleValue() / m_sum;
+                    m_distribution.put(key,new Double(conf));
+                }
+            }
+        }
+        else{
+            for(int w = 0; w < m_midPoints.length;w++){
+                String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
+                m_distribution.put(key,new Double(1.0/m_numIntervals));
+            }
+        }
+    }
+    
+    /**
+     * Calculates the prior distribution like generateDistribution, with the
+     * random rules drawn and counted in parallel. The rules of each length are
+     * drawn in blocks of RULES_PER_BLOCK rules, each from its own random number
+     * generator seeded from the generator of the estimator, so the distribution
+     * only depends on the seed and not on the number of threads or the order
+     * the blocks are processed in. The rules are drawn in the same way as by
+     * the sequential estimator but from other random numbers, the resulting
+     * distribution is therefore statistically equivalent but not identical.
+     * The supports are counted on a columnar copy of the instances and the
+     * confidences of a block are collected in a histogram of the intervals.
+     * Called by generateDistribution once the instances are checked.
+     *
+     * @exception Exception if prior can't be estimated successfully
+     */
+    protected final void generateDistributionParallel() throws Exception{
+        
+        int maxLength = m_instances.numAttributes();
+        buildColumns();
+        
+        //one task per block of random rules, the seeds are drawn in a fixed order
+        int numBlocks = (m_numRandRules + RULES_PER_BLOCK - 1) / RULES_PER_BLOCK;
+        Future[][] blocks = new Future[maxLength+1][numBlocks];
+        ExecutorService executor = Executors.newFixedThreadPool(m_numThreads);
+        try{
+            for(int i = 1; i <= maxLength; i++){
+                for(int b = 0; b < numBlocks; b++){
+                    final int length = i;
+                    final long seed = m_randNum.nextLong();
+                    final int numRules = Math.min(RULES_PER_BLOCK, m_numRandRules - b * RULES_PER_BLOCK);
+                    blocks[i][b] = executor.submit(new Callable() {
+                        public Object call() {
+                            return drawBlock(length, numRules, new Random(seed));
+                        }
+                    });
+                }
+            }
+            
+            //merge the histograms of the blocks in block order
+            for(int i = 1; i <= maxLength; i++){
+                double[] confidences = new double[m_numIntervals];
+                int[] hits = new int[m_numIntervals];
+                m_sum = 0;
+                for(int b = 0; b < numBlocks; b++){
+                    Histogram block = (Histogram)blocks[i][b].get();
+                    for(int w = 0; w < m_numIntervals; w++){
+                        confidences[w] += block.m_confidences[w];
+                        hits[w] += block.m_hits[w];
                     }
-                    else
-                        m_distribution.put(key,oldValue);
+                    m_sum += block.m_sum;
                 }
-                for(int w = 0; w < m_midPoints.length;w++){
-                    double conf =0;
-                    String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
-                    Double oldValue = (Double)m_distribution.remove(key);
-                    if(oldValue != null){
-                        conf = oldValue.doubleValue() / m_sum;
-                        m_distribution.put(key,new Double(conf));
+                for(int w = 0; w < m_numIntervals; w++){
+                    if(hits[w] > 0){
+                        String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
+                        m_distribution.put(key,new Double(confidences[w]));
                     }
                 }
+                normalizeDistribution(i);
+            }
+        }
+        catch(ExecutionException e){
+            throw new Exception("Prior estimation failed: " + e.getCause(), e.getCause());
+        }
+        finally{
+            executor.shutdownNow();
+            m_columns = null;
+        }
+    }
+    
+    /**
+     * The confidences of a block of random rules by interval.
+     */
+    protected static class Histogram {
+        
+        /** The sum of the confidences falling into each interval. */
+        protected double[] m_confidences;
+        
+        /** The number of confidences falling into each interval. */
+        protected int[] m_hits;
+        
+        /** The sum of all confidences. */
+        protected double m_sum;
+    }
+    
+    /**
+     * Draws a block of random rules of a certain length and collects the
+     * confidences of those with support > 0.
+     * @param length the length of the rules
+     * @param numRules the number of rules to draw
+     * @param randNum the random number generator of the block
+     * @return the histogram of the confidences
+     */
+    protected final Histogram drawBlock(int length, int numRules, Random randNum){
+        
+        int maxLength = m_instances.numAttributes();
+        int[] rows = new int[m_instances.numInstances()];
+        Histogram histogram = new Histogram();
+        histogram.m_confidences = new double[m_numIntervals];
+        histogram.m_hits = new int[m_numIntervals];
+        RuleItem current;
+        for(int j = 0; j < numRules; j++){
+            if(!m_CARs){
+                int[] itemArray = randomRule(maxLength,length,randNum);
+                current = splitItemSet(randNum.nextInt(length), itemArray, randNum);
             }
             else{
-                for(int w = 0; w < m_midPoints.length;w++){
-                    String key = (String.valueOf(m_midPoints[w])).concat(String.valueOf((double)i));
-                    m_distribution.put(key,new Double(1.0/m_numIntervals));
-                }
+                int[] itemArray = randomCARule(maxLength,length,randNum);
+                current = addCons(itemArray, randNum);
+            }
+            //premise and consequence are disjoint, the rule is covered by the rows covering both
+            for(int r = 0; r < rows.length; r++)
+                rows[r] = r;
+            int premiseCounter = selectRows(current.m_premise.m_items, rows, rows.length);
+            int ruleCounter = selectRows(current.m_consequence.m_items, rows, premiseCounter);
+            if(ruleCounter > 0){
+                double conf = (double)ruleCounter/(double)premiseCounter;
+                int w = findIntervalIndex(conf);
+                histogram.m_confidences[w] += conf;
+                histogram.m_hits[w]++;
+                histogram.m_sum += conf;
             }
         }
+        return histogram;
+    }
+    
+    /**
+     * Builds the columnar copy of the instances used by selectRows.
+     */
+    protected final void buildColumns(){
         
+        m_columns = new int[m_instances.numAttributes()][m_instances.numInstances()];
+        for(int r = 0; r < m_instances.numInstances(); r++){
+            Instance instance = m_instances.instance(r);
+            for(int a = 0; a < m_columns.length; a++)
+                m_columns[a][r] = instance.isMissing(a) ? -1 : (int)instance.value(a);
+        }
+    }
+    
+    /**
+     * Keeps the rows containing an item set, one column at a time.
+     * @param items the item set
+     * @param rows the row numbers, the kept rows are moved to the front
+     * @param size the number of rows in rows
+     * @return the number of rows kept
+     */
+    protected final int selectRows(int[] items, int[] rows, int size){
+        
+        for(int a = 0; a < items.length && size > 0; a++){
+            if(items[a] == -1)
+                continue;
+            int[] column = m_columns[a];
+            int value = items[a], kept = 0;
+            for(int r = 0; r < size; r++){
+                if(column[rows[r]] == value)
+                    rows[kept++] = rows[r];
+            }
+            size = kept;
+        }
+        return size;
     }
     
     /**
@@ -213,14 +404,14 @@ import java.io.Serializable;
         if(help == maxLength){
             help = 0;
             for(int h = 0; h < itemArray.length; h++){
-                itemArray[h] = m_randNum.nextInt((m_instances.attribute(h)).numValues());
+                itemArray[h] = randNum.nextInt((m_instances.attribute(h)).numValues());
             }
         }
         while(help > 0){
             int mark = randNum.nextInt(maxLength);
             if(itemArray[mark] == -1){
                 help--;
-                itemArray[mark] = m_randNum.nextInt((m_instances.attribute(mark)).numValues());
+                itemArray[mark] = randNum.nextInt((m_instances.attribute(mark)).numValues());
             }
        }
         return itemArray;
@@ -247,7 +438,7 @@ import java.io.Serializable;
             help = 0;
             for(int h = 0; h < itemArray.length; h++){
                 if(h != m_instances.classIndex()){
-                    itemArray[h] = m_randNum.nextInt((m_instances.attribute(h)).numValues());
+                    itemArray[h] = randNum.nextInt((m_instances.attribute(h)).numValues());
                 }
             }
         }
@@ -255,7 +446,7 @@ import java.io.Serializable;
             int mark = randNum.nextInt(maxLength);
             if(itemArray[mark] == -1 && mark != m_instances.classIndex()){
                 help--;
-                itemArray[mark] = m_randNum.nextInt((m_instances.attribute(mark)).numValues());
+                itemArray[mark] = randNum.nextInt((m_instances.attribute(mark)).numValues());
             }
        }
         return itemArray;
@@ -288,8 +479,18 @@ import java.io.Serializable;
      */    
      public final double findIntervall(double conf){
         
+        return m_midPoints[findIntervalIndex(conf)];
+    }
+    
+    /**
+     * searches the interval a given confidence value falls into
+     * @param conf the confidence of a rule
+     * @return the index of the interval the confidence belongs to
+     */    
+     public final int findIntervalIndex(double conf){
+        
         if(conf == 1.0)
-            return m_midPoints[m_midPoints.length-1];
+            return m_midPoints.length-1;
         int end   = m_midPoints.length-1;
         int start = 0;
         while (Math.abs(end-start) > 1) {
@@ -299,12 +500,12 @@ import java.io.Serializable;
             if (conf < m_midPoints[mid]) 
                 end = mid-1;
             if(conf == m_midPoints[mid])
-                return m_midPoints[mid];
+                return mid;
         }
         if(Math.abs(conf-m_midPoints[start]) <=  Math.abs(conf-m_midPoints[end]))
-            return m_midPoints[start];
+            return start;
         else
-            return m_midPoints[end];
+            return end;
     }
     
     
@@ -419,11 +620,24 @@ import java.io.Serializable;
     */   
     public final RuleItem splitItemSet (int premiseLength, int[] itemArray){
         
+       return splitItemSet(premiseLength, itemArray, m_randNum);
+    }
+    
+    /**
+     * splits an item set into premise and consequence like
+     * splitItemSet(int,int[]), drawing from the given random number generator.
+     * @param premiseLength the length of the premise
+     * @param itemArray a (randomly generated) item set
+     * @param randNum the random number generator
+     * @return a randomly generated association rule stored in a RuleItem
+     */   
+    public final RuleItem splitItemSet (int premiseLength, int[] itemArray, Random randNum){
+        
        int[] cons = new int[m_instances.numAttributes()];
        System.arraycopy(itemArray, 0, cons, 0, itemArray.length);
        int help = premiseLength;
        while(help > 0){
-            int mark = m_randNum.nextInt(itemArray.length);
+            int mark = randNum.nextInt(itemArray.length);
             if(cons[mark] != -1){
                 help--;
                 cons[mark] =-1;
@@ -452,11 +666,23 @@ import java.io.Serializable;
      */    
     public final RuleItem addCons (int[] itemArray){
         
+        return addCons(itemArray, m_randNum);
+    }
+    
+    /**
+     * generates a class association rule out of a given premise like
+     * addCons(int[]), drawing from the given random number generator.
+     * @param itemArray the (randomly constructed) premise of the class association rule
+     * @param randNum the random number generator
+     * @return a class association rule stored in a RuleItem
+     */    
+    public final RuleItem addCons (int[] itemArray, Random randNum){
+        
         ItemSet premise = new ItemSet(itemArray);
         int[] cons = new int[itemArray.length];
         for(int i =0;i < itemArray.length;i++)
             cons[i] = -1;
-        cons[m_instances.classIndex()] = m_randNum.nextInt((m_instances.attribute(m_instances.classIndex())).numValues());
+        cons[m_instances.classIndex()] = randNum.nextInt((m_instances.attribute(m_instances.classIndex())).numValues());
         ItemSet consequence = new ItemSet(cons);
         RuleItem current = new RuleItem();
         current.m_premise = premise;
@@ -473,6 +699,27 @@ import java.io.Serializable;
         for (int i = 0; i < m_instances.numInstances(); i++) 
             itemSet.upDateCounter(m_instances.instance(i));
     }
+    
+    /**
+     * Sets the number of threads used to estimate the prior. With 0 (the
+     * default) the random rules are drawn and counted sequentially from one
+     * random number generator, otherwise by the parallel estimator, whose
+     * result does not depend on the number of threads.
+     * @param numThreads the number of threads, 0 for the sequential estimator
+     */
+    public final void setNumThreads(int numThreads){
+        
+        m_numThreads = Math.max(0, numThreads);
+    }
+    
+    /**
+     * Gets the number of threads used to estimate the prior.
+     * @return the number of threads, 0 for the sequential estimator
+     */
+    public final int getNumThreads(){
+        
+        return m_numThreads;
+    }
   
 
 }
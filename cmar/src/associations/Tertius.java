@@ -60,7 +60,12 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  <!-- globalinfo-start -->
@@ -287,6 +292,9 @@ public class Tertius
   /** Type of values output. */
   private int m_printValues;
 
+  /** Number of threads of the parallel search, 0 for the sequential search. */
+  private int m_numThreads;
+
   /**
    * Constructor that sets the options to the default values.
    */
@@ -366,6 +374,9 @@ public class Tertius
 
     /* Values output. */
     m_printValues = NO;
+
+    /* Parallel search. */
+    m_numThreads = 0;
   }
 
   /**
@@ -444,6 +455,12 @@ public class Tertius
 				    "P", 1, "-P <0=no output | "
 				    + "1=on stdout | "
 				    + "2=in separate window>"));
+
+    /* Parallel search. */
+    newVector.addElement(new Option("\tSet number of threads of the parallel "
+				    + "search, 0 for sequential search. "
+				    + "(default: 0)",
+				    "j", 1, "-j <number of threads>"));
     
     return newVector.elements();
   }
@@ -506,6 +523,9 @@ public class Tertius
    * <pre> -P &lt;0=no output | 1=on stdout | 2=in separate window&gt;
    *  Set output of current values. (default: 0)</pre>
    * 
+   * <pre> -j &lt;number of threads&gt;
+   *  Set number of threads of the parallel search, 0 for sequential search. (default: 0)</pre>
+   * 
    <!-- options-end -->
    *
    * @param options The list of options as an array of strings.
@@ -688,6 +708,17 @@ public class Tertius
       }
       setValuesOutput(selected);
     }
+
+    /* Parallel search. */
+    String numThreadsString = Utils.getOption('j', options);
+    if (numThreadsString.length() != 0) {
+      try {
+	setNumThreads(Integer.parseInt(numThreadsString));
+      } catch (Exception e) {
+	throw new Exception("Invalid value for -j option: "
+			    + e.getMessage() + ".");
+      }
+    }
   }
 
   /**
@@ -762,6 +793,10 @@ public class Tertius
     result.add("-P");
     result.add("" + m_printValues);
 
+    /* Parallel search. */
+    result.add("-j");
+    result.add("" + m_numThreads);
+
     return (String[]) result.toArray(new String[result.size()]);	  
   }
 
@@ -1326,6 +1361,42 @@ public class Tertius
     }
   }
 
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return Tip text for this property suitable for
+   * displaying in the explorer/experimenter GUI.
+   */
+  public String numThreadsTipText() {
+    
+    return "Number of threads refining and evaluating the rules of the agenda "
+      + "(0 for a sequential search). The results are the same as those of the sequential search.";
+  }
+
+  /**
+   * Get the value of numThreads.
+   *
+   * @return Value of numThreads.
+   */
+  public int getNumThreads() {
+    
+    return m_numThreads;
+  }
+
+  /**
+   * Set the value of numThreads.
+   *
+   * @param v  Value to assign to numThreads.
+   * @throws Exception if the value is negative.
+   */
+  public void setNumThreads(int v) throws Exception {
+    
+    if (v < 0) {
+      throw new Exception("Number of threads has to be positive or zero!");
+    }
+    m_numThreads = v;
+  }
+
   /**
    * Build the predicate corresponding to an attribute.
    *
@@ -1857,6 +1928,11 @@ public class Tertius
    */
   public void search() {
 
+    if (m_numThreads > 0) {
+      searchParallel();
+      return;
+    }
+
     SimpleLinkedList nodes = new SimpleLinkedList(); /* The agenda. */
     Rule currentNode;
     SimpleLinkedList children;
@@ -1917,6 +1993,200 @@ public class Tertius
     }
   }
 
+  /**
+   * Search like search(), with the rules at the head of the agenda refined
+   * and their children evaluated by a pool of threads. 
+   * The evaluation that does not depend on the results (counting the 
+   * instances and calculating the optimistic estimate and the confirmation)
+   * is done ahead for the first nodes of the agenda. The pruning tests and
+   * the updates of the agenda and of the results stay in this thread and 
+   * are done in the order of the sequential search, so the results are the
+   * same as those of the sequential search. <p>
+   * The tasks share no mutable state: Rule.refine() does not change the
+   * rule refined, each refinement being a clone of it with its own literal
+   * sets and its own copy of the list of counter-instances, and
+   * Rule.upDate() only changes the rule updated, removing instances from
+   * that copy. What is shared is only read during the search: the
+   * instances, the predicates and their literals (built before the search
+   * and never changed), the settings and, through the copy of its
+   * counter-instances, the rule refined. A rule is written by the task that
+   * creates and evaluates it, and read by this thread and by the task
+   * refining it only after that task has been joined (join() and submit()
+   * order the accesses), so no rule is read while it is being written.
+   */
+  private void searchParallel() {
+
+    SimpleLinkedList nodes = new SimpleLinkedList(); /* The agenda. */
+    IdentityHashMap expansions = new IdentityHashMap(); /* Expansions ahead. */
+    ForkJoinPool pool = new ForkJoinPool(m_numThreads);
+    Rule currentNode;
+    SimpleLinkedList children;
+    SimpleLinkedList.LinkedListIterator iter;
+    Rule child;
+    boolean negBody = (m_negation == BODY || m_negation == ALL);
+    boolean negHead = (m_negation == HEAD || m_negation == ALL);
+
+    /* Start with the empty rule. */
+    nodes.add(new Rule(m_repeat, m_numLiterals, negBody, negHead,
+		       m_classification, m_horn));
+    
+    /* Print the current values. */
+    printValues();
+
+    try {
+      /* Explore the rules in the agenda. */
+      while (m_status != STOP && !nodes.isEmpty()) {
+	/* Expand ahead the first nodes of the agenda. */
+	iter = nodes.iterator();
+	for (int i = 0; i < 2 * m_numThreads && iter.hasNext(); i++) {
+	  Rule node = (Rule) iter.next();
+	  if (!expansions.containsKey(node)) {
+	    expansions.put(node, pool.submit(new Expansion(node)));
+	  }
+	}
+	currentNode = (Rule) nodes.removeFirst();
+	ForkJoinTask expansion = (ForkJoinTask) expansions.remove(currentNode);
+	if (canRefine(currentNode)) {
+	  children = (SimpleLinkedList) expansion.join();
+	  iter = children.iterator();
+	  /* Consider the evaluated children for adding to the agenda 
+	   * and to the results. */
+	  while (iter.hasNext()) {
+	    m_hypotheses++;
+	    child = (Rule) iter.next();
+	    if (canCalculateOptimistic(child)) {
+	      if (canExplore(child)) {
+		m_explored++;
+		if (canStoreInNodes(child)) {
+		} else {
+		  iter.remove();
+		}
+		if (canCalculateConfirmation(child)) {
+		  if (canStoreInResults(child)) {
+		    addResult(child);
+		  }	  
+		}
+	      } else {
+		iter.remove();
+	      }
+	    } else {
+	      iter.remove();
+	    }
+	  }
+	  children.sort(Rule.optimisticThenObservedComparator);
+	  nodes.merge(children, Rule.optimisticThenObservedComparator);
+	} else {
+	  /* The agenda being sorted, it is not worth considering the following 
+	   * nodes. */
+	  break;
+	}
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Evaluate a child of a rule as far as it doesn't depend on the results: 
+   * count the instances, calculate the optimistic estimate and, if the rule 
+   * can be explored in regard to the confirmation threshold, the 
+   * confirmation.
+   *
+   * @param child The rule to evaluate.
+   */
+  private void evaluate(Rule child) {
+
+    child.upDate(m_instances);
+    if (canCalculateOptimistic(child)) {
+      child.calculateOptimistic();
+      if (child.getOptimistic() >= m_confirmationThreshold
+	  && canCalculateConfirmation(child)) {
+	child.calculateConfirmation();
+      }
+    }
+  }
+
+  /**
+   * Task refining a rule and evaluating its children.
+   */
+  private class Expansion extends RecursiveTask {
+
+    /** The rule to refine. */
+    private Rule m_node;
+
+    /**
+     * Constructor.
+     *
+     * @param node The rule to refine.
+     */
+    Expansion(Rule node) {
+
+      m_node = node;
+    }
+
+    /**
+     * Refine the rule and evaluate its children.
+     *
+     * @return The children.
+     */
+    protected Object compute() {
+
+      SimpleLinkedList children = m_node.refine(m_predicates);
+      Rule [] rules = new Rule[children.size()];
+      SimpleLinkedList.LinkedListIterator iter = children.iterator();
+      for (int i = 0; iter.hasNext(); i++) {
+	rules[i] = (Rule) iter.next();
+      }
+      if (rules.length > 0) {
+	new Evaluation(rules, 0, rules.length).invoke();
+      }
+      return children;
+    }
+  }
+
+  /**
+   * Task evaluating a range of rules, split in halves between threads.
+   */
+  private class Evaluation extends RecursiveAction {
+
+    /** The rules. */
+    private Rule [] m_rules;
+
+    /** The first rule of the range. */
+    private int m_start;
+
+    /** The rule after the last rule of the range. */
+    private int m_end;
+
+    /**
+     * Constructor.
+     *
+     * @param rules The rules.
+     * @param start The first rule of the range.
+     * @param end The rule after the last rule of the range.
+     */
+    Evaluation(Rule [] rules, int start, int end) {
+
+      m_rules = rules;
+      m_start = start;
+      m_end = end;
+    }
+
+    /**
+     * Evaluate the rules of the range.
+     */
+    protected void compute() {
+
+      if (m_end - m_start == 1) {
+	evaluate(m_rules[m_start]);
+      } else {
+	int middle = (m_start + m_end) / 2;
+	invokeAll(new Evaluation(m_rules, m_start, middle),
+		  new Evaluation(m_rules, middle, m_end));
+      }
+    }
+  }
+
   /**
    * returns the results
    * 
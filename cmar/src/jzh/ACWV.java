@@ -8,9 +8,14 @@ import java.util.*;
 
 import associations.FP;
 import associations.ListHead;
+import associations.NominalData;
 import associations.RuleItems;
 import associations.TNode;
+import util.ClassifyRecordEvent;
+import util.ExperimentRunner;
 import util.LogProcess;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
 import weka.associations.*;
 public class ACWV extends Classifier
 {
@@ -94,7 +99,6 @@ public class ACWV extends Classifier
 
    
    
-   static long timecost = 0;
    LinkedList m_allTheRules=new LinkedList();
   public void buildClassifier (Instances data)throws Exception
   { 
@@ -114,12 +118,9 @@ public class ACWV extends Classifier
 //	 classValue=differentiate(clValue);//find all the different class value
 //	 count(clValue);
 	 f = new FP();
-	 long t1 = System.currentTimeMillis();
+	 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
 	 head = f.buildClassifyNorules(myData, m_onlyClass, minSup, 1, 1, minCon);
-
-	 long t2 = System.currentTimeMillis();
-	 timecost += (t2 - t1);
-	 //System.out.println("the time cost of building classfier is :" + timecost);
+	 MiningMetrics.end(phase, myData.numInstances());
 	 classValue = getSupB();
 	 count = 0;
 	 c++;
@@ -133,6 +134,25 @@ public class ACWV extends Classifier
 //	 print(allTheRules);
   }
   
+  /**
+   * Builds the classifier from a column store read by ArffStreamReader,
+   * without building Instances or the divided copies of them. The unused
+   * findCarLargeItemSetFPTree rule listing of the Instances version is
+   * skipped.
+   * @param data the training data
+   */
+  public void buildClassifier (NominalData data)throws Exception
+  {
+	 attNum=data.numAttributes();
+	 f = new FP();
+	 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
+	 head = f.buildClassifyNorules(data, minSup, 1, 1, minCon);
+	 MiningMetrics.end(phase, data.numInstances());
+	 classValue = f.getSupB(data);
+	 count = 0;
+	 c++;
+  }
+
   public void printTree(FastVector head){
 	  for(int i = 0 ; i < head.size() ; i++){
 		  System.out.print("head:("+((ListHead)head.elementAt(i)).attr+","+((ListHead)head.elementAt(i)).value+","+((ListHead)head.elementAt(i)).count+")");
@@ -166,16 +186,13 @@ public class ACWV extends Classifier
     int l=classValue.length;
 	double dPro[]=new double[l];
 //	dPro = newcalculatePro(l,instance);
+	ClassifyRecordEvent event = MiningMetrics.beginRecord("ACWV");
    if (c > 1){
-	long t1 = System.currentTimeMillis();
-
 	dPro = f.calculatePro(instance, head, classValue);
-	long t2 = System.currentTimeMillis();
-	timecost += (t2 - t1);
-//	System.out.println(timecost);
    }
    count++;
 	int iMax=findMax(dPro); 
+	MiningMetrics.endRecord(event, iMax);
 	return iMax;
    }
   
@@ -307,6 +324,22 @@ public class ACWV extends Classifier
 	}
 	return iMax;
   }
+  public double getMinSup() {
+	  return minSup;
+  }
+
+  public void setMinSup(double minSup) {
+	  this.minSup = minSup;
+  }
+
+  public double getMinCon() {
+	  return minCon;
+  }
+
+  public void setMinCon(double minCon) {
+	  this.minCon = minCon;
+  }
+
   public double[] getSupB(){
 	  int len = (m_onlyClass.attribute(0)).numValues();
 	  double[] supB = new double[len];
@@ -465,22 +498,7 @@ public class ACWV extends Classifier
   }
   
   public static void runAllDataSet(String folderName){
-	  Calendar cal = Calendar.getInstance();
-	  String fileName = "log/"+cal.getTimeInMillis()+".log";
-	  try {
-		PrintStream ps = new PrintStream(new File(fileName));
-		System.setOut(ps);
-	   } catch (FileNotFoundException e) {
-		// TODO Auto-generated catch block
-		e.printStackTrace();
-	   } 
-	  File folder = new File(folderName);
-	  File[] allFile = folder.listFiles();
-	  for(int i = 1 ; i < allFile.length ; i++){
-		  System.out.println("dataset:"+allFile[i].getName());
-		  String [] arg = new String[]{"-t",allFile[i].getPath(),"-i"};
-		  runClassifier(new ACWV(),arg);
-	  }
-	  LogProcess.logProcess(fileName);
+	  ACWV template = new ACWV();
+	  ExperimentRunner.runAllDataSet(folderName, template, ExperimentRunner.params(template.getMinSup(), template.getMinCon()));
   }
 }
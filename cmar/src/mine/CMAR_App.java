@@ -1,8 +1,16 @@
 package mine;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedList;
@@ -10,10 +18,16 @@ import java.util.LinkedList;
 import associations.FP;
 import associations.ItemSet;
 import associations.ListHead;
+import associations.NominalData;
 import jzh.ACWV;
 import prun.DBCoverUtil;
 import prun.X2TestUtil;
+import util.ClassifyRecordEvent;
+import util.ExperimentRunner;
 import util.LogProcess;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+import util.X2;
 import weka.associations.LabeledItemSet;
 import weka.classifiers.Classifier;
 import weka.core.FastVector;
@@ -36,11 +50,18 @@ public class CMAR_App extends Classifier{
 	   double minSup = 0.01;	
 	   double minCon = 1.1;
 	   int numClass;
+	   int numInstances;
 	   
-	   static long timecost = 0;
 	   LinkedList m_allTheRules=new LinkedList();
 	   
 	   CRTree crtree;
+	   
+	   /** chi-squared metric kernel for the weighted votes */
+	   X2 x2 = new X2();
+	   
+	   /** model file identifier ("CRTR") and version */
+	   public static final int MODEL_MAGIC = 0x43525452;
+	   public static final int MODEL_VERSION = 1;
 	@Override
 	public void buildClassifier (Instances data)throws Exception
 	  { 
@@ -52,6 +73,7 @@ public class CMAR_App extends Classifier{
 		 clIndex=data.classIndex();//index of the class
 //		 int numClass=m_onlyClass.numDistinctValues(0);//number of classValue
 		 numClass = m_onlyClass.attribute(0).numValues();
+		 numInstances = m_onlyClass.numInstances();
 		 
 		 double[] supB = new double[numClass];
 //	     classCount=new int[numClass];
@@ -59,11 +81,9 @@ public class CMAR_App extends Classifier{
 //		 classValue=differentiate(clValue);//find all the different class value
 //		 count(clValue);
 		 f = new FP();
-		 long t1 = System.currentTimeMillis();
+		 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
 		 head = f.buildClassifyNorules(myData, m_onlyClass, minSup, 1, 1, minCon);  //ɵheadtable
-		 long t2 = System.currentTimeMillis();
-		 timecost += (t2 - t1);
-		 //System.out.println("the time cost of building classfier is :" + timecost);
+		 MiningMetrics.end(phase, numInstances);
 		 classValue = getSupB();
 		 count = 0;
 		 c++;
@@ -81,13 +101,57 @@ public class CMAR_App extends Classifier{
 			 newHead.addElement(lh);
 		 }
 		 
+		 phase = MiningMetrics.begin("car.generation");
 		 FastVector [] allTheRules = f.newCMAR(myData, m_onlyClass, minSup, 1, minCon);
 		 sortRules(allTheRules);
-		 crtree = new CRTree(numClass,newHead,myData,m_onlyClass);
-		 
-		 buildCRTree(allTheRules,crtree);
+		 MiningMetrics.count("car.generated", allTheRules[0].size());
+		 MiningMetrics.end(phase, allTheRules[0].size());
+		 // DBCoverUtil keeps the coverage counts in static fields, so only
+		 // one tree at a time is pruned when classifiers are built in parallel
+		 synchronized(DBCoverUtil.class){
+			 crtree = new CRTree(numClass,newHead,myData,m_onlyClass);
+			 
+			 buildCRTree(allTheRules,crtree);
+		 }
 	  }
 	
+	/**
+	 * Builds the classifier from a column store read by ArffStreamReader,
+	 * without building Instances or the divided copies of them.
+	 * @param data the training data
+	 */
+	public void buildClassifier (NominalData data)throws Exception
+	  {
+		 attNum=data.numAttributes();
+		 numClass = data.numClassValues();
+		 numInstances = data.numInstances();
+		 f = new FP();
+		 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
+		 head = f.buildClassifyNorules(data, minSup, 1, 1, minCon);
+		 MiningMetrics.end(phase, numInstances);
+		 classValue = f.getSupB(data);
+		 count = 0;
+		 c++;
+
+		 FastVector newHead = new FastVector();
+		 for(int i = 0 ; i < head.size() ; i++){
+			 ListHead old = (ListHead) head.elementAt(i);
+			 ListHead lh = new ListHead(old.count,old.attr,old.value);
+			 newHead.addElement(lh);
+		 }
+
+		 phase = MiningMetrics.begin("car.generation");
+		 FastVector [] allTheRules = f.newCMAR(data, minSup, 1, minCon);
+		 sortRules(allTheRules);
+		 MiningMetrics.count("car.generated", allTheRules[0].size());
+		 MiningMetrics.end(phase, allTheRules[0].size());
+		 synchronized(DBCoverUtil.class){
+			 crtree = new CRTree(numClass,newHead,data);
+
+			 buildCRTree(allTheRules,crtree);
+		 }
+	  }
+
 	public void sortRules(FastVector[]rules){
 		sortRulesBySupport(rules,0,rules[2].size()-1);
 		sortRulesByConfidence(rules,0,rules[3].size() - 1);
@@ -177,6 +241,9 @@ public class CMAR_App extends Classifier{
 	 * @param crtree
 	 */
 	public void buildCRTree(FastVector [] rules,CRTree crtree){
+		MiningPhaseEvent phase = MiningMetrics.begin("cover.pruning");
+		int coverPruned = 0;
+		int x2Rejected = 0;
 		for(int i = 0 ; i < rules[0].size() ; i++){
 			ItemSet curr = (ItemSet) rules[0].elementAt(i);
 			ItemSet cl = (ItemSet) rules[1].elementAt(i);
@@ -186,10 +253,18 @@ public class CMAR_App extends Classifier{
 			double leftSup = (Integer) rules[6].elementAt(i);
 						
 			Rule rule = new Rule(curr,cl.itemAt(0),support,conf,leftSup,x2);
-			if(DBCoverUtil.prunByDBCover(rule)&&X2TestUtil.prunByX2Test(rule)){
+			if(!DBCoverUtil.prunByDBCover(rule)){
+				coverPruned++;
+			}else if(!X2TestUtil.prunByX2Test(rule)){
+				x2Rejected++;
+			}else{
 				crtree.insertRules(rule);
 			}
 		}
+		MiningMetrics.count("cover.rulesIn", rules[0].size());
+		MiningMetrics.count("cover.pruned", coverPruned);
+		MiningMetrics.count("car.chiSquaredRejected", x2Rejected);
+		MiningMetrics.end(phase, rules[0].size());
 	}
 	  
 //	@Override
@@ -213,6 +288,7 @@ public class CMAR_App extends Classifier{
 	
 	@Override 
 	public double classifyInstance(Instance instance){
+		ClassifyRecordEvent event = MiningMetrics.beginRecord("CMAR");
 		double []vote = new double[numClass];
 		for(int i = 0 ; i < vote.length ; i++){
 			vote[i] = 0;
@@ -227,10 +303,9 @@ public class CMAR_App extends Classifier{
 				//*******
 				//ʹmaxX2мͶƱ
 				//*******
-				int T = m_onlyClass.numInstances();
-				double e = 1/(((Rule)fv.elementAt(j)).supLeft * (classValue[i]*T)) + 1/(((Rule)fv.elementAt(j)).supLeft * (T - classValue[i]*T)) + 1/((T - ((Rule)fv.elementAt(j)).supLeft) * (classValue[i]*T))  + 1/((T - ((Rule)fv.elementAt(j)).supLeft) * (T - classValue[i]*T));
-				double maxX2 = Math.pow((Math.min(((Rule)fv.elementAt(j)).supLeft, (classValue[i]*T))-(((Rule)fv.elementAt(j)).supLeft * (classValue[i]*T)) / T),2)*T*e;
-				weight += Math.pow(((Rule)fv.elementAt(j)).x2,2)/maxX2;
+				int T = numInstances;
+				Rule rule = (Rule)fv.elementAt(j);
+				weight += x2.weightedX2(rule.x2, rule.supLeft, classValue[i]*T, T);
 			}
 //			if(fv.size() > 0){
 //				weight /= fv.size();
@@ -240,6 +315,7 @@ public class CMAR_App extends Classifier{
 		}
 		
 		int result  = findMax(vote);
+		MiningMetrics.endRecord(event, result);
 		return result;
 	}
 	
@@ -262,6 +338,22 @@ public class CMAR_App extends Classifier{
 	   	return index;
 	}
 	
+	public double getMinSup() {
+		return minSup;
+	}
+
+	public void setMinSup(double minSup) {
+		this.minSup = minSup;
+	}
+
+	public double getMinCon() {
+		return minCon;
+	}
+
+	public void setMinCon(double minCon) {
+		this.minCon = minCon;
+	}
+
 	public double[] getSupB(){
 		  int len = (m_onlyClass.attribute(0)).numValues();
 		  double[] supB = new double[len];
@@ -282,6 +374,66 @@ public class CMAR_App extends Classifier{
 		  return supB;
 	  }
 	  
+	/**
+	 * Saves the trained classifier (numClass, numInstances, class supports
+	 * and the CR-tree) in a compact binary file, big endian: MODEL_MAGIC,
+	 * MODEL_VERSION, numClass, numInstances, number of class supports, the
+	 * supports, then the tree as written by CRTree.write.
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public void saveModel(String fileName) throws IOException{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try{
+			out.writeInt(MODEL_MAGIC);
+			out.writeInt(MODEL_VERSION);
+			out.writeInt(numClass);
+			out.writeInt(numInstances);
+			out.writeInt(classValue.length);
+			for(int i = 0 ; i < classValue.length ; i++){
+				out.writeDouble(classValue[i]);
+			}
+			crtree.write(out);
+		}finally{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Loads a classifier saved by saveModel, the file is memory mapped and
+	 * read in one pass. The result is ready for classifyInstance.
+	 * @param fileName
+	 * @return the classifier
+	 * @throws IOException if the file can't be read or is not a model
+	 */
+	public static CMAR_App loadModel(String fileName) throws IOException{
+		RandomAccessFile file = new RandomAccessFile(fileName,"r");
+		try{
+			FileChannel channel = file.getChannel();
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(in.getInt() != MODEL_MAGIC){
+				throw new IOException("Not a CR-tree model: "+fileName);
+			}
+			int version = in.getInt();
+			if(version != MODEL_VERSION){
+				throw new IOException("CR-tree model version "+version+" not supported");
+			}
+			CMAR_App model = new CMAR_App();
+			model.numClass = in.getInt();
+			model.numInstances = in.getInt();
+			model.classValue = new double[in.getInt()];
+			for(int i = 0 ; i < model.classValue.length ; i++){
+				model.classValue[i] = in.getDouble();
+			}
+			model.crtree = CRTree.read(in);
+			return model;
+		}catch(BufferUnderflowException e){
+			throw new IOException("Truncated CR-tree model: "+fileName);
+		}finally{
+			file.close();
+		}
+	}
+	  
 	  public static void main(String []args){
 		  String balance = "data";
 		  String imblance = "keel";
@@ -304,22 +456,7 @@ public class CMAR_App extends Classifier{
 	  }
 	  
 	  public static void runAllDataSet(String folderName){
-		  Calendar cal = Calendar.getInstance();
-		  String fileName = "log/"+cal.getTimeInMillis()+".log";
-		  try {
-			PrintStream ps = new PrintStream(new File(fileName));
-			System.setOut(ps);
-		   } catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		   } 
-		  File folder = new File(folderName);
-		  File[] allFile = folder.listFiles();
-		  for(int i = 1 ; i < allFile.length ; i++){
-			  System.out.println("dataset:"+allFile[i].getName());
-			  String [] arg = new String[]{"-t",allFile[i].getPath(),"-i"};
-			  runClassifier(new CMAR_App(),arg);
-		  }
-		  LogProcess.logProcess(fileName);
+		  CMAR_App template = new CMAR_App();
+		  ExperimentRunner.runAllDataSet(folderName, template, ExperimentRunner.params(template.getMinSup(), template.getMinCon()));
 	  }
 }
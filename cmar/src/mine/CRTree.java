@@ -1,6 +1,9 @@
 package mine;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -8,6 +11,7 @@ import java.util.Map;
 
 import associations.ItemSet;
 import associations.ListHead;
+import associations.NominalData;
 import associations.TNode;
 import prun.DBCoverUtil;
 import weka.core.FastVector;
@@ -31,6 +35,7 @@ public class CRTree implements Serializable{
 
 			DBCoverUtil.data = data;
 			DBCoverUtil.onlyClass = only_Class;
+			DBCoverUtil.columns = null;
 			DBCoverUtil.numPerClass = new int[numClass];
 			for(int i = 0 ; i < numClass ; i++){
 				DBCoverUtil.numPerClass[i] = 1;
@@ -41,6 +46,30 @@ public class CRTree implements Serializable{
 			DBCoverUtil.numsCover = new int[data.numInstances()];
 		}
 		
+		/**
+		 * Used by read, the fields are filled from the saved model
+		 */
+		private CRTree() {
+		}
+
+		public CRTree(int numClass,FastVector headertable,NominalData data) {
+			this.numClass = numClass;
+			totalTransection = data.numInstances();
+			numAttr = data.numAttributes() ;
+			root = new CRTreeNode(null,null,-1,-1, -1, (byte)-1, (byte)-1,-1,-1);
+			root.child = new LinkedList();
+			this.headertable = headertable;
+
+			DBCoverUtil.data = null;
+			DBCoverUtil.onlyClass = null;
+			DBCoverUtil.columns = data;
+			DBCoverUtil.numPerClass = new int[numClass];
+			for(int i = 0 ; i < numClass ; i++){
+				DBCoverUtil.numPerClass[i] = 1;
+			}
+			DBCoverUtil.numsCover = new int[data.numInstances()];
+		}
+
 		/**
 		 *  ÷ڽ뵽CRTreeУѲ(ͨ)
 		 * @param rule
@@ -196,6 +225,106 @@ public class CRTree implements Serializable{
 	    	}
 	    }
 	    
+	    /**
+	     * Writes the tree in a compact binary form: numClass, totalTransection,
+	     * numAttr, the header table (count, attr, value, class supports) and the
+	     * nodes in preorder (attr, value, classLabel, support, confidence,
+	     * leftSup, x2, number of children). The header node lists are not
+	     * written, read relinks them.
+	     * @param out
+	     * @throws IOException
+	     */
+	    public void write(DataOutputStream out) throws IOException{
+	    	out.writeInt(numClass);
+	    	out.writeInt(totalTransection);
+	    	out.writeInt(numAttr);
+	    	out.writeInt(headertable.size());
+	    	for(int i = 0 ; i < headertable.size() ; i++){
+	    		ListHead hn = (ListHead)headertable.elementAt(i);
+	    		out.writeInt(hn.count);
+	    		out.writeByte(hn.attr);
+	    		out.writeByte(hn.value);
+	    		if(hn.sup == null){
+	    			out.writeInt(0);
+	    		}else{
+	    			out.writeInt(hn.sup.length);
+	    			for(int j = 0 ; j < hn.sup.length ; j++){
+	    				out.writeInt(hn.sup[j]);
+	    			}
+	    		}
+	    	}
+	    	writeNode(out,root);
+	    }
+	    
+	    private void writeNode(DataOutputStream out,CRTreeNode node) throws IOException{
+	    	out.writeByte(node.attr);
+	    	out.writeByte(node.value);
+	    	out.writeDouble(node.classLabel);
+	    	out.writeDouble(node.support);
+	    	out.writeDouble(node.confidence);
+	    	out.writeDouble(node.leftSup);
+	    	out.writeDouble(node.x2);
+	    	out.writeInt(node.child.size());
+	    	Iterator<TNode> it = node.child.iterator();
+	    	while(it.hasNext()){
+	    		writeNode(out,(CRTreeNode)it.next());
+	    	}
+	    }
+	    
+	    /**
+	     * Reads a tree written by write, e.g. from a memory mapped model file.
+	     * @param in the buffer, positioned at the tree
+	     * @return the tree
+	     * @throws IOException if a node has no header table entry
+	     */
+	    public static CRTree read(ByteBuffer in) throws IOException{
+	    	CRTree tree = new CRTree();
+	    	tree.numClass = in.getInt();
+	    	tree.totalTransection = in.getInt();
+	    	tree.numAttr = in.getInt();
+	    	int numHead = in.getInt();
+	    	tree.headertable = new FastVector(numHead);
+	    	for(int i = 0 ; i < numHead ; i++){
+	    		ListHead hn = new ListHead(in.getInt(),in.get(),in.get());
+	    		int numSup = in.getInt();
+	    		if(numSup > 0){
+	    			hn.sup = new int[numSup];
+	    			for(int j = 0 ; j < numSup ; j++){
+	    				hn.sup[j] = in.getInt();
+	    			}
+	    		}
+	    		tree.headertable.addElement(hn);
+	    	}
+	    	tree.root = tree.readNode(in,null);
+	    	return tree;
+	    }
+	    
+	    private CRTreeNode readNode(ByteBuffer in,CRTreeNode father) throws IOException{
+	    	byte attr = in.get();
+	    	byte value = in.get();
+	    	double classLabel = in.getDouble();
+	    	double support = in.getDouble();
+	    	double confidence = in.getDouble();
+	    	double leftSup = in.getDouble();
+	    	double x2 = in.getDouble();
+	    	int numChild = in.getInt();
+	    	CRTreeNode node = new CRTreeNode(father,new LinkedList(),classLabel,support,confidence,attr,value,leftSup,x2);
+	    	if(father != null){
+	    		int i = 0;
+	    		while(i < headertable.size() && !((ListHead)headertable.elementAt(i)).equal(node)){
+	    			i++;
+	    		}
+	    		if(i == headertable.size()){
+	    			throw new IOException("No header table entry for node ("+attr+","+value+")");
+	    		}
+	    		((ListHead)headertable.elementAt(i)).addNext(node);
+	    	}
+	    	for(int i = 0 ; i < numChild ; i++){
+	    		node.child.add(readNode(in,node));
+	    	}
+	    	return node;
+	    }
+	    
 	    public FastVector getHeadTable(){
 	    	return headertable;
 	    }
@@ -12,10 +12,15 @@ import java.util.ListIterator;
 
 import associations.FP;
 import associations.ListHead;
+import associations.NominalData;
 import associations.RuleItems;
 import associations.TNode;
 import jzh.ACWV;
+import util.ClassifyRecordEvent;
+import util.ExperimentRunner;
 import util.LogProcess;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
 import weka.associations.LabeledItemSet;
 import weka.classifiers.Classifier;
 import weka.core.FastVector;
@@ -99,7 +104,6 @@ public class MultiAcwv_App extends Classifier{
 	////   Column 16
 	//   double minSup = 0.1;	
 	//   double minCon = 1.5;
-	   static long timecost = 0;
 	   LinkedList m_allTheRules=new LinkedList();
 	  public void buildClassifier (Instances data)throws Exception
 	  { 
@@ -133,15 +137,12 @@ public class MultiAcwv_App extends Classifier{
 		 f = new FP[numClass];
 		 for(int i = 0 ; i <numClass ; i++){
 			 f[i] = new FP();
-			 long t1 = System.currentTimeMillis();
+			 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
 			 Instances mul_data =  LabeledItemSet.divide(mul_ins_arr[i],false);
 			 
 			 Instances mul_only_class =  LabeledItemSet.divide(mul_ins_arr[i],true);
 			 heads[i] = f[i].buildClassifyNorules(data,mul_data, mul_only_class, minSup, 1, 1, minCon,i);
-			 
-			 long t2 = System.currentTimeMillis();
-			 timecost += (t2 - t1);
-			 //System.out.println("the time cost of building classfier is :" + timecost);
+			 MiningMetrics.end(phase, mul_ins_arr[i].numInstances());
 			 classValue = getSupB();
 			 count = 0;
 			 c++;
@@ -163,6 +164,29 @@ public class MultiAcwv_App extends Classifier{
 //		 print(allTheRules);
 	  }
 	  
+	  /**
+	   * Builds one tree per class from a column store read by
+	   * ArffStreamReader. The rows of each class are copied as compact columns
+	   * only, no Instances are built.
+	   * @param data the training data
+	   */
+	  public void buildClassifier (NominalData data)throws Exception
+	  {
+		 attNum=data.numAttributes();
+		 int numClass = data.numClassValues();
+		 heads = new FastVector[numClass];
+		 f = new FP[numClass];
+		 for(int i = 0 ; i <numClass ; i++){
+			 f[i] = new FP();
+			 MiningPhaseEvent phase = MiningMetrics.begin("fp.build");
+			 heads[i] = f[i].buildClassifyNorules(data.numInstances(), data.selectClass(i), minSup, 1, 1, minCon,i);
+			 MiningMetrics.end(phase, data.numInstances());
+			 classValue = f[i].getSupB(data);
+			 count = 0;
+			 c++;
+		 }
+	  }
+
 	  public void printTree(FastVector head){
 		  for(int i = 0 ; i < head.size() ; i++){
 			  System.out.print("head:("+((ListHead)head.elementAt(i)).attr+","+((ListHead)head.elementAt(i)).value+","+((ListHead)head.elementAt(i)).count+")");
@@ -197,18 +221,16 @@ public class MultiAcwv_App extends Classifier{
 	    int l=classValue.length;
 		double dPro[]=new double[l];
 //		dPro = newcalculatePro(l,instance);
+		ClassifyRecordEvent event = MiningMetrics.beginRecord("MultiACWV");
 	   if (c > 1){
-		long t1 = System.currentTimeMillis();
-
 		for(int i = 0 ; i < l ; i++){
 		  dPro[i] = f[i].calculateVote(instance, heads[i], classValue,i)[0];
 		}
-		long t2 = System.currentTimeMillis();
-		timecost += (t2 - t1);
 		System.out.println(Arrays.toString(dPro));
 	   }
 	    count++;
 		int iMax=findMax(dPro); 
+		MiningMetrics.endRecord(event, iMax);
 		return iMax;
 	   }
 	  
@@ -340,6 +362,22 @@ public class MultiAcwv_App extends Classifier{
 		}
 		return iMax;
 	  }
+	  public double getMinSup() {
+		  return minSup;
+	  }
+
+	  public void setMinSup(double minSup) {
+		  this.minSup = minSup;
+	  }
+
+	  public double getMinCon() {
+		  return minCon;
+	  }
+
+	  public void setMinCon(double minCon) {
+		  this.minCon = minCon;
+	  }
+
 	  public double[] getSupB(){
 		  int len = (m_onlyClass.attribute(0)).numValues();
 		  double[] supB = new double[len];
@@ -499,23 +537,8 @@ public class MultiAcwv_App extends Classifier{
 	  }
 	  
 	  public static void runAllDataSet(String folderName){
-		  Calendar cal = Calendar.getInstance();
-		  String fileName = "log/"+cal.getTimeInMillis()+".log";
-		  try {
-			PrintStream ps = new PrintStream(new File(fileName));
-			System.setOut(ps);
-		   } catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		   } 
-		  File folder = new File(folderName);
-		  File[] allFile = folder.listFiles();
-		  for(int i = 1 ; i < allFile.length ; i++){
-			  System.out.println("dataset:"+allFile[i].getName());
-			  String [] arg = new String[]{"-t",allFile[i].getPath(),"-i"};
-			  runClassifier(new ACWV(),arg);
-		  }
-		  LogProcess.logProcess(fileName);
+		  MultiAcwv_App template = new MultiAcwv_App();
+		  ExperimentRunner.runAllDataSet(folderName, template, ExperimentRunner.params(template.getMinSup(), template.getMinCon()));
 	  }
 
 }
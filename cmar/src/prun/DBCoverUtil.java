@@ -1,5 +1,6 @@
 package prun;
 
+import associations.NominalData;
 import mine.Rule;
 import weka.associations.LabeledItemSet;
 import weka.core.FastVector;
@@ -12,6 +13,7 @@ public class DBCoverUtil{
 	public static int deleteNum;
 	public static Instances data;
 	public static Instances onlyClass;
+	public static NominalData columns;
 	public static boolean[] prunByDBCover(FastVector rules) {
 		// TODO Auto-generated method stub
 		boolean result[] = new boolean[rules.size()];
@@ -27,6 +29,18 @@ public class DBCoverUtil{
 
 		int coveredNum = 0;
 
+		if(columns != null){
+			for(int i = 0 ; i < columns.numInstances() ; i++){
+				if(rule.ruleLeft.containedBy(columns,i) && columns.classValue(i) == rule.classLabel){
+					if(numsCover[i] < numPerClass[(int) rule.classLabel]){
+						numsCover[i] ++;
+						coveredNum ++;
+					}
+				}
+			}
+			return coveredNum > 0;
+		}
+
 		for(int i = 0 ; i < data.numInstances() ; i++){
 			Instance ins = data.instance(i);
 			if(rule.ruleLeft.containedBy(ins) && onlyClass.instance(i).value(0) == rule.classLabel){
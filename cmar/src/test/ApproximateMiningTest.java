@@ -0,0 +1,56 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ApproximateMiningTest {
+
+	@Test
+	public void testHoeffdingSampleSize() throws Exception {
+		Class<?> type = Class.forName("TotalSupportTree");
+		assertEquals(18445, TestUtil.call(type, "getHoeffdingSampleSize", 0.01, 0.05));
+		assertEquals(738, TestUtil.call(type, "getHoeffdingSampleSize", 0.05, 0.05));
+
+		// the error of the sample is the one it was sized for
+		int size = (Integer) TestUtil.call(type, "getHoeffdingSampleSize", 0.02, 0.1);
+		assertTrue((Double) TestUtil.call(type, "getHoeffdingError", size, 0.1) <= 0.02);
+		assertTrue((Double) TestUtil.call(type, "getHoeffdingError", size - 1, 0.1) > 0.02);
+	}
+
+	@Test
+	public void testVerifiedSupportsExact() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object exact = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(exact, "startClassification");
+		Object verified = TestUtil.createCMAR(file, "-N4", "-S1", "-C50", "-E5");
+		assertEquals(Boolean.TRUE, TestUtil.call(verified, "isApproximateMining"));
+		TestUtil.call(verified, "startClassification");
+
+		// mined from a sample (the training set is larger than the sample),
+		// but the frequent sets and rules are those of the training set
+		assertTrue((Integer) TestUtil.get(verified, "numRowsInTrainingSet") > 738);
+		assertEquals(0.0, TestUtil.call(verified, "getApproximateSupportError"));
+		List<String> sets = TestUtil.frequentSets(exact);
+		assertTrue(sets.size() > 0);
+		assertEquals(sets, TestUtil.frequentSets(verified));
+		assertEquals(TestUtil.cmarRules(exact), TestUtil.cmarRules(verified));
+	}
+
+	@Test
+	public void testScaledSupportsAboveThreshold() throws Exception {
+		Object scaled = TestUtil.createCMAR("-F" + TestUtil.resource("car.num").getPath(), "-N4", "-S1", "-C50",
+				"-A5");
+		assertEquals(Boolean.FALSE, TestUtil.get(scaled, "approximateVerifyFlag"));
+		TestUtil.call(scaled, "startClassification");
+
+		assertTrue((Double) TestUtil.call(scaled, "getApproximateSupportError") > 0.0);
+		double minSupport = (Integer) TestUtil.get(scaled, "numRowsInTrainingSet") / 100.0;
+		List<String> sets = TestUtil.frequentSets(scaled);
+		assertTrue(sets.size() > 0);
+		for (String set : sets)
+			assertTrue(set, Integer.parseInt(set.substring(set.indexOf('=') + 1)) >= minSupport);
+	}
+}
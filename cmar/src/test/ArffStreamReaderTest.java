@@ -0,0 +1,64 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import associations.ArffStreamReader;
+import associations.FP;
+import associations.ListHead;
+import associations.NominalData;
+import weka.associations.LabeledItemSet;
+import weka.core.FastVector;
+import weka.core.Instances;
+
+public class ArffStreamReaderTest {
+
+	private static NominalData data;
+	private static Instances ins;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		File file = new File(ArffStreamReaderTest.class.getResource("weather.arff").toURI());
+		data = ArffStreamReader.read(file.getPath());
+		ins = new Instances(new FileReader(file));
+		ins.setClassIndex(ins.numAttributes() - 1);
+	}
+
+	@Test
+	public void testRead() {
+		assertEquals(14, data.numInstances());
+		assertEquals(4, data.numAttributes());
+		assertEquals(2, data.numClassValues());
+		assertEquals("outlook", data.attributeName(0));
+		assertEquals("play", data.classAttributeName());
+		// first row: sunny,hot,high,false,no
+		assertEquals(0, data.value(0, 0));
+		assertEquals(0, data.value(0, 1));
+		assertEquals(0, data.value(0, 2));
+		assertEquals(1, data.value(0, 3));
+		assertEquals(1, data.classValue(0));
+		assertArrayEquals(new int[] { 9, 5 }, data.classCounts());
+	}
+
+	@Test
+	public void testHeaderTableMatchesInstances() throws Exception {
+		FastVector head = new FP().buildClassifyNorules(data, 0.1, 1, 1, 1.1);
+		FastVector expected = new FP().buildClassifyNorules(LabeledItemSet.divide(ins, false),
+				LabeledItemSet.divide(ins, true), 0.1, 1, 1, 1.1);
+		assertEquals(expected.size(), head.size());
+		for (int i = 0; i < head.size(); i++) {
+			ListHead lh = (ListHead) head.elementAt(i);
+			ListHead ex = (ListHead) expected.elementAt(i);
+			assertTrue(lh.equal(ex));
+			assertEquals(ex.count, lh.count);
+			assertArrayEquals(ex.sup, lh.sup);
+			assertEquals(ex.next.size(), lh.next.size());
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BitsetRecordsTest {
+
+	@Test
+	public void testSameClassificationWithBitsets() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object items = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(items, "startClassification");
+		Object bitsets = TestUtil.createCMAR(file, "-N4", "-S1", "-C50", "-R");
+		assertEquals(Boolean.TRUE, TestUtil.call(bitsets, "useBitsets"));
+		TestUtil.call(bitsets, "startClassification");
+
+		// the same rules after cover pruning, and the same class for every record
+		assertEquals(TestUtil.cmarRules(items), TestUtil.cmarRules(bitsets));
+		assertEquals(TestUtil.get(items, "accuracy"), TestUtil.get(bitsets, "accuracy"));
+		short[][] records = (short[][]) TestUtil.get(items, "testDataArray");
+		int numClassified = 0;
+		for (short[] record : records) {
+			short classResult = (Short) TestUtil.call(items, "classifyRecordWCS", record);
+			assertEquals(classResult, TestUtil.call(bitsets, "classifyRecordWCS", record));
+			if (classResult != 0)
+				numClassified++;
+		}
+		assertTrue(numClassified > 0);
+	}
+}
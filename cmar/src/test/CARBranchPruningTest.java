@@ -0,0 +1,28 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class CARBranchPruningTest {
+
+	@Test
+	public void testSameRulesWithChiSquaredPruning() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object unpruned = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(unpruned, "startClassification");
+		Object pruned = TestUtil.createCMAR(file, "-N4", "-S1", "-C50", "-B");
+		assertEquals(Boolean.TRUE, TestUtil.get(pruned, "chiSquaredPruningFlag"));
+		TestUtil.call(pruned, "startClassification");
+
+		// branches were pruned, so fewer frequent sets, but the rules are the same
+		assertTrue((Integer) TestUtil.get(pruned, "numCARbranchesPruned") > 0);
+		assertTrue((Integer) TestUtil.call(pruned, "getNumFreqSets") < (Integer) TestUtil.call(unpruned,
+				"getNumFreqSets"));
+		List<String> rules = TestUtil.cmarRules(unpruned);
+		assertTrue(rules.size() > 0);
+		assertEquals(rules, TestUtil.cmarRules(pruned));
+	}
+}
@@ -0,0 +1,50 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import associations.ArffStreamReader;
+import associations.NominalData;
+import mine.CMAR_App;
+import weka.associations.LabeledItemSet;
+import weka.core.Instances;
+
+public class CMARModelTest {
+
+	private static CMAR_App cmar;
+	private static Instances noClass;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		File file = new File(CMARModelTest.class.getResource("weather.arff").toURI());
+		NominalData data = ArffStreamReader.read(file.getPath());
+		cmar = new CMAR_App();
+		cmar.buildClassifier(data);
+		Instances ins = new Instances(new FileReader(file));
+		ins.setClassIndex(ins.numAttributes() - 1);
+		noClass = LabeledItemSet.divide(ins, false);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		File model = File.createTempFile("cmar", ".model");
+		model.deleteOnExit();
+		cmar.saveModel(model.getPath());
+		CMAR_App loaded = CMAR_App.loadModel(model.getPath());
+		for (int i = 0; i < noClass.numInstances(); i++) {
+			assertEquals(cmar.classifyInstance(noClass.instance(i)), loaded.classifyInstance(noClass.instance(i)), 0);
+		}
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testLoadNotAModel() throws Exception {
+		File file = new File(CMARModelTest.class.getResource("weather.arff").toURI());
+		CMAR_App.loadModel(file.getPath());
+	}
+
+}
@@ -0,0 +1,39 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class FoldSupportTreeTest {
+
+	@Test
+	public void testSameTtreeAsTrainingSet() throws Exception {
+		Object miner = TestUtil.create("AprioriTFP_CMAR",
+				(Object) new String[] { "-F" + TestUtil.resource("car.num").getPath(), "-N4", "-S1", "-C50" });
+		TestUtil.call(miner, "inputAndRecastDataSet");
+		TestUtil.call(miner, "setNumRowsInInputSet");
+		TestUtil.call(miner, "createTenthsDataSets");
+		double support = (Double) TestUtil.get(miner, "support");
+		Object foldTree = TestUtil.create("FoldSupportTree", TestUtil.get(miner, "tenthDataSets"),
+				TestUtil.get(miner, "numOneItemSets"), support, TestUtil.call(miner, "getMaxTtreeLevel"),
+				TestUtil.get(miner, "MAX_NUM_FREQUENT_SETS"));
+		TestUtil.call(foldTree, "createFoldSupportTree");
+
+		// The T-tree of each training set from the fold support tree is the one
+		// generated from the training set
+		for (int fold = 0; fold < 10; fold++) {
+			TestUtil.call(miner, "createTrainingAndTestDataSets", fold);
+			TestUtil.set(miner, "minSupport", (Integer) TestUtil.get(miner, "numRowsInTrainingSet") * support / 100.0);
+			TestUtil.call(miner, "createPtree");
+			TestUtil.call(miner, "createTotalSupportTree");
+			List<String> generated = TestUtil.frequentSets(miner);
+			assertTrue(generated.size() > 0);
+
+			TestUtil.set(miner, "serializationArray", TestUtil.call(foldTree, "getSerialization", fold));
+			TestUtil.call(miner, "loadSerializedTtree");
+			assertEquals("fold " + fold, generated, TestUtil.frequentSets(miner));
+		}
+	}
+}
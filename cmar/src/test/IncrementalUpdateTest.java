@@ -0,0 +1,122 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IncrementalUpdateTest {
+
+	private static final String[] ARGS = { "-N4", "-S1", "-C50" };
+
+	@Test
+	public void testSameTtreeAsRemining() throws Exception {
+		Object updated = keepingNegativeBorder();
+		short[][] records = records();
+
+		// the test set (second half of the file) added in batches
+		int numRows = (Integer) TestUtil.get(updated, "numRowsInTrainingSet");
+		for (int start = numRows; start < records.length; start += 200) {
+			TestUtil.call(updated, "updateClassifier", (Object) batch(records, start, 200));
+			assertTrue((Integer) TestUtil.call(updated, "getNumNegativeBorderSets") > 0);
+			assertEquals(remined(updated), TestUtil.frequentSets(updated));
+		}
+		assertEquals(records.length, TestUtil.get(updated, "numRowsInTrainingSet"));
+	}
+
+	@Test
+	public void testSameTtreeAsReminingWindow() throws Exception {
+		Object updated = keepingNegativeBorder();
+		slideWindow(updated);
+	}
+
+	@Test
+	public void testSameTtreeAsReminingBitsets() throws Exception {
+		Object updated = keepingNegativeBorder("-R");
+		assertEquals(Boolean.TRUE, TestUtil.call(updated, "useBitsets"));
+		slideWindow(updated);
+	}
+
+	/**
+	 * Slides the window of an updated miner over the test set, as many
+	 * records expiring as added, comparing the T-tree with the one mined from
+	 * scratch.
+	 */
+	private static void slideWindow(Object updated) throws Exception {
+		short[][] records = records();
+		int numRows = (Integer) TestUtil.get(updated, "numRowsInTrainingSet");
+		for (int start = numRows; start < records.length; start += 300) {
+			short[][] batch = batch(records, start, 300);
+			TestUtil.call(updated, "updateClassifier", batch, batch.length);
+			assertEquals(remined(updated), TestUtil.frequentSets(updated));
+		}
+		assertEquals(numRows, TestUtil.get(updated, "numRowsInTrainingSet"));
+	}
+
+	/**
+	 * Creates a CMAR miner for the first half of the test data with the
+	 * classifier generated keeping the negative border.
+	 */
+	private static Object keepingNegativeBorder(String... flags) throws Exception {
+		Object cmar = cmar(flags);
+		TestUtil.call(cmar, "setKeepNegativeBorderFlag", true);
+		TestUtil.call(cmar, "startClassification");
+		return cmar;
+	}
+
+	/**
+	 * Mines the training set of an updated miner again from scratch.
+	 * @return the frequent sets
+	 */
+	private static List<String> remined(Object updated) throws Exception {
+		Object remined = cmar();
+		TestUtil.call(remined, "startClassification");
+		TestUtil.set(remined, "dataArray", ((short[][]) TestUtil.get(updated, "dataArray")).clone());
+		TestUtil.call(remined, "addRowsToDataSet", (Integer) TestUtil.get(updated, "numRowsInTrainingSet")
+				- (Integer) TestUtil.get(remined, "numRowsInTrainingSet"));
+		TestUtil.call(remined, "regenerateTotalSupportTree");
+		List<String> sets = TestUtil.frequentSets(remined);
+		assertTrue(sets.size() > 0);
+		return sets;
+	}
+
+	private static Object cmar(String... flags) throws Exception {
+		String[] args = new String[ARGS.length + flags.length + 1];
+		args[0] = "-F" + TestUtil.resource("car.num").getPath();
+		System.arraycopy(ARGS, 0, args, 1, ARGS.length);
+		System.arraycopy(flags, 0, args, ARGS.length + 1, flags.length);
+		return TestUtil.createCMAR(args);
+	}
+
+	private static short[][] batch(short[][] records, int start, int size) {
+		short[][] batch = new short[Math.min(size, records.length - start)][];
+		System.arraycopy(records, start, batch, 0, batch.length);
+		return batch;
+	}
+
+	/**
+	 * Reads the records of the test data, attributes numbered as in the file
+	 * (class last).
+	 */
+	private static short[][] records() throws Exception {
+		List<short[]> records = new ArrayList<short[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(TestUtil.resource("car.num")));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] items = line.trim().split(" ");
+				short[] record = new short[items.length];
+				for (int i = 0; i < record.length; i++)
+					record[i] = Short.parseShort(items[i]);
+				records.add(record);
+			}
+		} finally {
+			reader.close();
+		}
+		return records.toArray(new short[records.size()][]);
+	}
+}
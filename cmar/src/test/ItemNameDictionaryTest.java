@@ -0,0 +1,97 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ItemNameDictionaryTest {
+
+	private File directory;
+	private Object antecedents;
+	private Object consequents;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("cmar").toFile();
+		// the same item numbers in both maps, with different names
+		HashMap<String, Object> relation = new HashMap<String, Object>();
+		relation.put("5", "ante5");
+		relation.put("75", "ante75");
+		HashMap<String, Object> produitRelations = new HashMap<String, Object>();
+		produitRelations.put("5", "cons5");
+		produitRelations.put("75", "cons75");
+		antecedents = TestUtil.call(Class.forName("ItemNameDictionary"), "readLegacyMap",
+				writeMap("relation.txt", relation));
+		consequents = TestUtil.call(Class.forName("ItemNameDictionary"), "readLegacyMap",
+				writeMap("produitRelations.txt", produitRelations));
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testMappedDictionary() throws Exception {
+		String fileName = new File(directory, "antecedentNames.dic").getPath();
+		TestUtil.call(antecedents, "writeDictionary", fileName);
+		Object mapped = TestUtil.call(Class.forName("ItemNameDictionary"), "mapDictionary", fileName);
+		assertEquals(76, TestUtil.call(mapped, "getNumIds"));
+		assertEquals("ante5", TestUtil.call(mapped, "getName", (short) 5));
+		assertEquals("ante75", TestUtil.call(mapped, "getName", (short) 75));
+		assertNull(TestUtil.call(mapped, "getName", (short) 6));
+	}
+
+	@Test
+	public void testRuleNodeNames() throws Exception {
+		// the antecedent above 70 still named from relation.txt
+		Object rule = TestUtil.create("RuleNode", new short[] { 5, 75 }, new short[] { 75 }, 80.0, 10.0);
+		assertArrayEquals(new String[] { "ante5", "ante75" },
+				(String[]) TestUtil.call(rule, "getAntecedantName", antecedents));
+		assertArrayEquals(new String[] { "cons75" }, (String[]) TestUtil.call(rule, "getConsequentName", consequents));
+	}
+
+	@Test
+	public void testMinerNames() throws Exception {
+		Object cmar = TestUtil.create("AprioriTFP_CMAR", (Object) new String[] { "-Fnone", "-N4" });
+		TestUtil.call(cmar, "setAntecedentNames", antecedents);
+		TestUtil.call(cmar, "setConsequentNames", consequents);
+		assertEquals("ante75", TestUtil.call(cmar, "getAntecedantName", (short) 75));
+		assertEquals("cons5", TestUtil.call(cmar, "getConsequentName", (short) 5));
+
+		// rule output: items up to 70 named from relation.txt, the others
+		// from produitRelations.txt
+		PrintStream out = System.out;
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(buffer, true));
+		try {
+			TestUtil.call(cmar, "outputItemSet", (Object) new short[] { 5, 75 });
+		} finally {
+			System.setOut(out);
+		}
+		assertEquals(" {5 ante5 75 cons75} ", buffer.toString());
+	}
+
+	private String writeMap(String name, HashMap<String, Object> map) throws Exception {
+		File file = new File(directory, name);
+		ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(file));
+		try {
+			output.writeObject(map);
+		} finally {
+			output.close();
+		}
+		return file.getPath();
+	}
+}
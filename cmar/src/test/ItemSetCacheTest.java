@@ -0,0 +1,107 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ItemSetCacheTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("cmar").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testLoadedSameAsMined() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object mined = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(mined, "startClassification");
+		Object stored = cachedCMAR(file, "-S1");
+		TestUtil.call(stored, "startClassification");
+		assertEquals(1, cacheFiles().length);
+		Object loaded = cachedCMAR(file, "-S1");
+		assertEquals(Boolean.TRUE, TestUtil.call(loaded, "loadTtreeFromCache"));
+		TestUtil.call(loaded, "startClassification");
+
+		List<String> sets = TestUtil.frequentSets(mined);
+		assertTrue(sets.size() > 0);
+		assertEquals(sets, TestUtil.frequentSets(stored));
+		assertEquals(sets, TestUtil.frequentSets(loaded));
+		assertEquals(TestUtil.cmarRules(mined), TestUtil.cmarRules(loaded));
+		assertEquals(1, cacheFiles().length);
+	}
+
+	@Test
+	public void testLoadedAtHigherSupport() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		TestUtil.call(cachedCMAR(file, "-S1"), "startClassification");
+
+		// the T-tree stored at 1% is loaded at 3%, without the sets below 3%
+		Object mined = TestUtil.createCMAR(file, "-N4", "-S3", "-C50");
+		TestUtil.call(mined, "startClassification");
+		Object loaded = cachedCMAR(file, "-S3");
+		assertEquals(Boolean.TRUE, TestUtil.call(loaded, "loadTtreeFromCache"));
+		TestUtil.call(loaded, "startClassification");
+		assertEquals(TestUtil.frequentSets(mined), TestUtil.frequentSets(loaded));
+		assertEquals(TestUtil.cmarRules(mined), TestUtil.cmarRules(loaded));
+		assertEquals(1, cacheFiles().length);
+	}
+
+	@Test
+	public void testChangedDataNotLoaded() throws Exception {
+		TestUtil.call(cachedCMAR("-F" + TestUtil.resource("car.num").getPath(), "-S1"), "startClassification");
+
+		// same records in reverse order, so a different training set
+		Charset ascii = Charset.forName("US-ASCII");
+		List<String> lines = Files.readAllLines(TestUtil.resource("car.num").toPath(), ascii);
+		Collections.reverse(lines);
+		File reversed = File.createTempFile("car", ".num");
+		try {
+			Files.write(reversed.toPath(), lines, ascii);
+			Object changed = cachedCMAR("-F" + reversed.getPath(), "-S1");
+			assertEquals(Boolean.FALSE, TestUtil.call(changed, "loadTtreeFromCache"));
+			TestUtil.call(changed, "startClassification");
+		} finally {
+			reversed.delete();
+		}
+		assertEquals(2, cacheFiles().length);
+	}
+
+	/**
+	 * Creates a CMAR miner (see TestUtil.createCMAR) using the cache in the
+	 * test directory.
+	 */
+	private Object cachedCMAR(String file, String support) throws Exception {
+		Object cmar = TestUtil.createCMAR(file, "-N4", support, "-C50");
+		TestUtil.call(cmar, "setItemSetCacheDirectory", directory.getPath());
+		return cmar;
+	}
+
+	/**
+	 * Lists the files in the cache directory, failing if a temporary file was
+	 * left behind.
+	 */
+	private File[] cacheFiles() {
+		File[] files = directory.listFiles();
+		for (File file : files)
+			assertTrue(file.getName(), file.getName().endsWith(".ttree"));
+		return files;
+	}
+}
@@ -0,0 +1,97 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import associations.ItemSet;
+import associations.ItemSetTrie;
+import associations.LabeledItemSet;
+import weka.core.FastVector;
+import weka.core.Instances;
+
+public class ItemSetTrieTest {
+
+	private static Instances noClass;
+	private static Instances classes;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		File file = new File(ItemSetTrieTest.class.getResource("weather.arff").toURI());
+		Instances weather = new Instances(new FileReader(file));
+		weather.setClassIndex(weather.numAttributes() - 1);
+
+		// enough copies of the instances to be counted in several threads
+		Instances ins = new Instances(weather, 0);
+		for (int copy = 0; copy < 300; copy++)
+			for (int i = 0; i < weather.numInstances(); i++)
+				ins.add(weather.instance(i));
+		noClass = LabeledItemSet.divide(ins, false);
+		classes = LabeledItemSet.divide(ins, true);
+		ItemSetTrie.setNumThreads(4);
+	}
+
+	@Test
+	public void testSameCountsAsContainedBy() throws Exception {
+		FastVector counted = candidates(false);
+		FastVector expected = candidates(false);
+		ItemSet.upDateCounters(counted, noClass);
+		for (int i = 0; i < noClass.numInstances(); i++)
+			for (int k = 0; k < expected.size(); k++)
+				((ItemSet) expected.elementAt(k)).upDateCounter(noClass.instance(i));
+		for (int k = 0; k < expected.size(); k++)
+			assertEquals(((ItemSet) expected.elementAt(k)).counter(), ((ItemSet) counted.elementAt(k)).counter());
+	}
+
+	@Test
+	public void testSameRuleSupportsAsContainedBy() throws Exception {
+		FastVector counted = candidates(true);
+		FastVector expected = candidates(true);
+		LabeledItemSet.upDateCounters(counted, noClass, classes);
+		for (int i = 0; i < noClass.numInstances(); i++)
+			for (int k = 0; k < expected.size(); k++)
+				((LabeledItemSet) expected.elementAt(k)).upDateCounter(noClass.instance(i), classes.instance(i));
+		for (int k = 0; k < expected.size(); k++) {
+			LabeledItemSet set = (LabeledItemSet) counted.elementAt(k);
+			assertEquals(((ItemSet) expected.elementAt(k)).counter(), set.counter());
+			assertEquals(TestUtil.get(expected.elementAt(k), "m_ruleSupCounter"), TestUtil.get(set, "m_ruleSupCounter"));
+		}
+	}
+
+	/**
+	 * Lists all item sets of one and two items of the attributes other than
+	 * the class, for each class if labeled.
+	 */
+	private static FastVector candidates(boolean labeled) {
+		FastVector candidates = new FastVector();
+		int numAttributes = noClass.numAttributes();
+		for (int a = 0; a < numAttributes; a++) {
+			for (int b = a; b < numAttributes; b++) {
+				for (int u = 0; u < noClass.attribute(a).numValues(); u++) {
+					for (int v = 0; v < (b == a ? 1 : noClass.attribute(b).numValues()); v++) {
+						int[] items = new int[numAttributes];
+						Arrays.fill(items, -1);
+						items[a] = u;
+						if (b != a)
+							items[b] = v;
+						if (!labeled) {
+							candidates.addElement(new ItemSet(items));
+							continue;
+						}
+						for (int c = 0; c < classes.attribute(0).numValues(); c++) {
+							LabeledItemSet set = new LabeledItemSet(noClass.numInstances(), c);
+							set.setItem(items.clone());
+							candidates.addElement(set);
+						}
+					}
+				}
+			}
+		}
+		return candidates;
+	}
+}
@@ -0,0 +1,136 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.MemoryGovernor;
+
+public class MemoryGovernorTest {
+
+	@Test
+	public void testPolicy() {
+		assertEquals(MemoryGovernor.Policy.STOP, MemoryGovernor.parsePolicy("stop"));
+		assertEquals(MemoryGovernor.Policy.RAISE_SUPPORT, MemoryGovernor.parsePolicy("raiseSupport"));
+		try {
+			MemoryGovernor.parsePolicy("spill");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MemoryGovernor(MemoryGovernor.Policy.STOP, 1.5);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCanAllocate() {
+		MemoryGovernor governor = new MemoryGovernor(MemoryGovernor.Policy.STOP, 0.9);
+		try {
+			assertTrue(governor.getHeapLimit() <= governor.getMaxHeap());
+			assertTrue(governor.canAllocate(0));
+			assertFalse(governor.canAllocate(governor.getMaxHeap()));
+			assertFalse(governor.isLowMemory());
+		} finally {
+			governor.close();
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		assertNull(MemoryGovernor.create(null, "0.5"));
+		MemoryGovernor governor = MemoryGovernor.create("raiseSupport", null);
+		try {
+			assertEquals(MemoryGovernor.Policy.RAISE_SUPPORT, governor.getPolicy());
+			assertEquals((long) (governor.getMaxHeap() * MemoryGovernor.DEFAULT_LIMIT), governor.getHeapLimit());
+		} finally {
+			governor.close();
+		}
+		for (String limit : new String[] { "high", "0", "NaN" }) {
+			try {
+				MemoryGovernor.create("stop", limit);
+				fail(limit);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testThresholdsRestored() {
+		List<Long> before = thresholds();
+		MemoryGovernor first = new MemoryGovernor(MemoryGovernor.Policy.STOP, 0.9);
+		List<Long> firstThresholds = thresholds();
+		MemoryGovernor second = new MemoryGovernor(MemoryGovernor.Policy.STOP, 0.5);
+		try {
+			// the lowest limit is set, again when the lower limit is closed
+			List<Long> secondThresholds = thresholds();
+			for (int i = 0; i < before.size(); i++)
+				assertTrue(secondThresholds.get(i) <= firstThresholds.get(i));
+			second.close();
+			assertEquals(firstThresholds, thresholds());
+		} finally {
+			second.close();
+			first.close();
+		}
+		assertEquals(before, thresholds());
+		first.close();
+		assertEquals(before, thresholds());
+	}
+
+	private static List<Long> thresholds() {
+		List<Long> thresholds = new ArrayList<Long>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+				thresholds.add(pool.getCollectionUsageThreshold());
+		}
+		return thresholds;
+	}
+
+	@Test
+	public void testRaiseSupportRemovesRules() throws Exception {
+		// a governor with a fixed heap budget, so that level 4 does not fit
+		final long budget = 40000;
+		MemoryGovernor governor = new MemoryGovernor(MemoryGovernor.Policy.RAISE_SUPPORT, 1) {
+			public boolean canAllocate(long bytes) {
+				return bytes <= budget;
+			}
+
+			public long getAvailableHeap() {
+				return budget;
+			}
+		};
+		try {
+			Object cmar = TestUtil.createCMAR("-F" + TestUtil.resource("car.num").getPath(), "-N4", "-S1", "-C50");
+			double minSupport = (Double) TestUtil.get(cmar, "minSupport");
+			TestUtil.call(cmar, "setMemoryGovernor", governor);
+			TestUtil.call(cmar, "startClassification");
+
+			// raised (the nodes below the raised threshold are removed, the lowest
+			// support left is the threshold), and no rule from the levels before is
+			// below the raised threshold
+			double raisedSupport = Double.MAX_VALUE;
+			for (String set : TestUtil.frequentSets(cmar))
+				raisedSupport = Math.min(raisedSupport, Integer.parseInt(set.substring(set.indexOf('=') + 1)));
+			assertTrue(raisedSupport > minSupport);
+			assertEquals(Boolean.TRUE, TestUtil.get(cmar, "memoryLimitedFlag"));
+			int numRules = 0;
+			for (Object rule = TestUtil.get(cmar, "startCMARrulelist"); rule != null; rule = TestUtil.get(rule, "next")) {
+				assertTrue((Double) TestUtil.get(rule, "supportForRule") >= raisedSupport);
+				numRules++;
+			}
+			assertTrue(numRules > 0);
+		} finally {
+			governor.close();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import util.Confidence;
+import util.Coviction;
+import util.Metric;
+import util.Support;
+import util.X2;
+
+public class MetricTest {
+
+	@Test
+	public void testX2() {
+		X2 x2 = new X2();
+		// A and B in 40 of 100 records, A in 50, B in 60: expected 30, 20, 30, 20
+		double expected = 100.0 / 30 + 100.0 / 20 + 100.0 / 30 + 100.0 / 20;
+		assertEquals(expected, x2.eval(40, 50, 60, 100), 1e-9);
+		assertEquals(0, x2.eval(30, 50, 60, 100), 1e-9);
+		// the cells summed over both values of B give the 2x2 value
+		assertEquals(x2.eval(40, 50, 60, 100), x2.evalCells(40, 50, 60, 100) + x2.evalCells(10, 50, 40, 100), 1e-9);
+		// a rule reaching the upper bound has a weighted value equal to the bound
+		double bound = x2.upperBound(50, 60, 100);
+		assertEquals(x2.eval(50, 50, 60, 100), bound, 1e-9);
+		assertEquals(bound, x2.weighted(50, 50, 60, 100), 1e-9);
+	}
+
+	@Test
+	public void testSupersetUpperBound() {
+		X2 x2 = new X2();
+		// rule A -> B with A in 50 records, 40 of them with B, minimum support 10
+		double bound = x2.supersetUpperBound(40, 50, 60, 100, 10);
+		assertTrue(bound >= x2.eval(40, 50, 60, 100));
+		// a superset of A keeps at most the 10 records of A without B
+		for (int supAB = 10; supAB <= 40; supAB++)
+			for (int supA = supAB; supA <= supAB + 10; supA++)
+				assertTrue(bound >= x2.eval(supAB, supA, 60, 100) - 1e-9);
+	}
+
+	@Test
+	public void testOtherMetrics() {
+		assertEquals(0.4, new Support().eval(40, 50, 60, 100), 1e-9);
+		assertEquals(0.8, new Confidence().eval(40, 50, 60, 100), 1e-9);
+		assertEquals(0.4 / 0.2, new Coviction().eval(40, 50, 60, 100), 1e-9);
+		assertEquals(0.4 / 0.001, new Coviction().eval(50, 50, 60, 100), 1e-6);
+		assertEquals(0.8, new Confidence().calculation(Arrays.asList(40, 50, 60, 100)), 1e-9);
+	}
+
+	@Test
+	public void testBatch() {
+		Metric x2 = new X2();
+		int[] supAB = { 40, 30, 5 };
+		int[] supA = { 50, 50, 20 };
+		int[] supB = { 60, 60, 70 };
+		double[] values = new double[3];
+		x2.eval(supAB, supA, supB, 100, values);
+		for (int i = 0; i < values.length; i++)
+			assertEquals(x2.eval(supAB[i], supA[i], supB[i], 100), values[i], 0);
+		x2.eval(supAB, supA, 60, 100, values);
+		assertEquals(x2.eval(5, 20, 60, 100), values[2], 0);
+	}
+
+}
@@ -0,0 +1,103 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import associations.ArffStreamReader;
+import associations.NominalData;
+import mine.CMAR_App;
+import util.MiningMetrics;
+import util.MiningPhaseEvent;
+
+public class MiningMetricsTest {
+
+	@Before
+	public void setUp() {
+		MiningMetrics.reset();
+	}
+
+	@Test
+	public void testPhasesAndCounters() {
+		MiningPhaseEvent phase = MiningMetrics.begin("ttree.level");
+		MiningMetrics.end(phase, 2, 10);
+		phase = MiningMetrics.begin("ptree.build");
+		MiningMetrics.end(phase);
+		MiningMetrics.count("ttree.level.2.pruned", 3);
+		MiningMetrics.count("ttree.level.2.pruned", 4);
+		assertEquals(1, MiningMetrics.getTimes("ttree.level.2"));
+		assertEquals(1, MiningMetrics.getTimes("ptree.build"));
+		assertEquals(0, MiningMetrics.getTimes("ttree.level"));
+		assertEquals(7, MiningMetrics.getCount("ttree.level.2.pruned"));
+
+		String json = MiningMetrics.toJson();
+		assertTrue(json.contains("\"ttree.level.2\":{\"count\":1,"));
+		assertTrue(json.contains("\"counters\":{\"ttree.level.2.pruned\":7}"));
+		assertTrue(json.indexOf("\"ptree.build\"") < json.indexOf("\"ttree.level.2\""));
+	}
+
+	@Test
+	public void testBuildAndClassify() throws Exception {
+		File file = new File(MiningMetricsTest.class.getResource("weather.arff").toURI());
+		NominalData data = ArffStreamReader.read(file.getPath());
+		CMAR_App cmar = new CMAR_App();
+		cmar.buildClassifier(data);
+		assertEquals(1, MiningMetrics.getTimes("fp.build"));
+		assertEquals(1, MiningMetrics.getTimes("car.generation"));
+		assertEquals(1, MiningMetrics.getTimes("cover.pruning"));
+		assertEquals(MiningMetrics.getCount("car.generated"), MiningMetrics.getCount("cover.rulesIn"));
+	}
+
+	@Test
+	public void testConcurrentLevelCandidates() throws Exception {
+		final String file = "-F" + TestUtil.resource("car.num").getPath();
+		TestUtil.call(TestUtil.createCMAR(file, "-N4", "-S1", "-C50"), "startClassification");
+		Map<String, Long> single = levelCounts();
+		assertTrue(single.get("ttree.level.2.candidates") > 0);
+
+		// Two miners at once count the candidates of each miner, twice those of one
+		MiningMetrics.reset();
+		final Object[] miners = { TestUtil.createCMAR(file, "-N4", "-S1", "-C50"),
+				TestUtil.createCMAR(file, "-N4", "-S1", "-C50") };
+		final Exception[] errors = new Exception[miners.length];
+		Thread[] threads = new Thread[miners.length];
+		for (int i = 0; i < miners.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						TestUtil.call(miners[index], "startClassification");
+					} catch (Exception e) {
+						errors[index] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < miners.length; i++) {
+			threads[i].join();
+			if (errors[i] != null)
+				throw errors[i];
+		}
+		Map<String, Long> concurrent = levelCounts();
+		assertEquals(single.keySet(), concurrent.keySet());
+		for (String name : single.keySet())
+			assertEquals(name, 2 * single.get(name), (long) concurrent.get(name));
+	}
+
+	private static Map<String, Long> levelCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (int level = 1; MiningMetrics.getCount("ttree.level." + level + ".candidates") > 0; level++) {
+			for (String count : new String[] { "candidates", "frequent", "pruned" }) {
+				String name = "ttree.level." + level + "." + count;
+				counts.put(name, MiningMetrics.getCount(name));
+			}
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,46 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelPtreeTest {
+
+	private static File data;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		data = TestUtil.randomDataFile(60000, 40, 2, 1);
+	}
+
+	@Test
+	public void testSameTtreeAsSequentialBuild() throws Exception {
+		List<String> sequential = frequentSets(1);
+		assertTrue(sequential.size() > 0);
+		assertEquals(sequential, frequentSets(2));
+		assertEquals(sequential, frequentSets(3));
+	}
+
+	/**
+	 * Builds the P-tree with the given number of threads (partitions) and
+	 * generates the T-tree from it.
+	 * @return the frequent sets
+	 */
+	private static List<String> frequentSets(int numThreads) throws Exception {
+		Object miner = miner(numThreads);
+		assertEquals(numThreads, TestUtil.call(miner, "getNumPtreePartitions"));
+		TestUtil.call(miner, "createPtree");
+		TestUtil.call(miner, "createTotalSupportTree");
+		return TestUtil.frequentSets(miner);
+	}
+
+	private static Object miner(int numThreads) throws Exception {
+		Object miner = TestUtil.createCMAR("-F" + data.getPath(), "-N2", "-S0.5", "-C50");
+		TestUtil.call(miner, "setNumPtreeThreads", numThreads);
+		return miner;
+	}
+}
@@ -0,0 +1,58 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import util.MiningMetrics;
+
+public class PartitionedMiningTest {
+
+	@Test
+	public void testSameTtreeAsLocalMining() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object local = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(local, "startClassification");
+		Object partitioned = TestUtil.createCMAR(file, "-N4", "-S1", "-C50", "-P3");
+		Object mining = TestUtil.get(partitioned, "partitionedMining");
+		assertEquals(3, TestUtil.call(mining, "getNumPartitions"));
+		TestUtil.call(mining, "setWorkerJvmOptions", (Object) workerJvmOptions());
+		MiningMetrics.reset();
+		TestUtil.call(partitioned, "startClassification");
+
+		// mined by the workers, not locally after a failure
+		assertTrue(MiningMetrics.getCount("partition.candidates") > 0);
+		List<String> sets = TestUtil.frequentSets(local);
+		assertTrue(sets.size() > 0);
+		assertEquals(sets, TestUtil.frequentSets(partitioned));
+		assertEquals(TestUtil.cmarRules(local), TestUtil.cmarRules(partitioned));
+	}
+
+	@Test
+	public void testMorePartitionsThanRecords() throws Exception {
+		String file = "-F" + TestUtil.resource("car.num").getPath();
+		Object local = TestUtil.createCMAR(file, "-N4", "-S1", "-C50");
+		TestUtil.call(local, "startClassification");
+		Object partitioned = TestUtil.createCMAR(file, "-N4", "-S1", "-C50", "-P100000");
+		MiningMetrics.reset();
+		TestUtil.call(partitioned, "startClassification");
+
+		// mined locally instead
+		assertEquals(0, MiningMetrics.getCount("partition.candidates"));
+		assertEquals(TestUtil.frequentSets(local), TestUtil.frequentSets(partitioned));
+	}
+
+	/** @return the options of this JVM without debugging agents, for the workers */
+	private static String[] workerJvmOptions() {
+		List<String> options = new ArrayList<String>();
+		for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (!option.startsWith("-agentlib") && !option.startsWith("-javaagent") && !option.startsWith("-Xrunjdwp"))
+				options.add(option);
+		}
+		return options.toArray(new String[options.size()]);
+	}
+}
@@ -0,0 +1,79 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreprocessingCacheTest {
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private File directory;
+	private File data;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("cmar").toFile();
+		data = new File(directory, "car.num");
+		Files.copy(TestUtil.resource("car.num").toPath(), data.toPath());
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		Object stored = miner();
+		TestUtil.call(stored, "inputAndRecastDataSet");
+
+		// the cache file only, the temporary file renamed
+		File cache = new File(data.getPath() + ".prep");
+		assertTrue(cache.isFile());
+		assertEquals(2, directory.listFiles().length);
+
+		Object loaded = miner();
+		assertEquals(Boolean.TRUE, TestUtil.call(loaded, "loadPreprocessedData"));
+		assertEquals(TestUtil.get(stored, "numRows"), TestUtil.get(loaded, "numRows"));
+		assertEquals(TestUtil.get(stored, "numCols"), TestUtil.get(loaded, "numCols"));
+		assertTrue(Arrays.deepEquals((short[][]) TestUtil.get(stored, "dataArray"),
+				(short[][]) TestUtil.get(loaded, "dataArray")));
+		assertTrue(Arrays.deepEquals((int[][]) TestUtil.get(stored, "conversionArray"),
+				(int[][]) TestUtil.get(loaded, "conversionArray")));
+		assertTrue(Arrays.equals((short[]) TestUtil.get(stored, "reconversionArray"),
+				(short[]) TestUtil.get(loaded, "reconversionArray")));
+	}
+
+	@Test
+	public void testChangedInputNotLoaded() throws Exception {
+		TestUtil.call(miner(), "inputAndRecastDataSet");
+		assertEquals(Boolean.TRUE, TestUtil.call(miner(), "loadPreprocessedData"));
+
+		// same length, different contents: the checksum differs
+		List<String> lines = Files.readAllLines(data.toPath(), ASCII);
+		Collections.reverse(lines);
+		long length = data.length();
+		Files.write(data.toPath(), lines, ASCII);
+		assertEquals(length, data.length());
+		assertEquals(Boolean.FALSE, TestUtil.call(miner(), "loadPreprocessedData"));
+	}
+
+	private Object miner() throws Exception {
+		Object miner = TestUtil.create("AprioriTFP_CMAR",
+				(Object) new String[] { "-F" + data.getPath(), "-N4", "-S1", "-C50" });
+		TestUtil.call(miner, "setPreprocessingCacheFlag", true);
+		return miner;
+	}
+}
@@ -0,0 +1,50 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Hashtable;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import associations.PriorEstimation;
+import weka.core.Instances;
+
+public class PriorEstimationTest {
+
+	private static Instances weather;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		File file = new File(PriorEstimationTest.class.getResource("weather.arff").toURI());
+		weather = new Instances(new FileReader(file));
+		weather.setClassIndex(weather.numAttributes() - 1);
+	}
+
+	@Test
+	public void testSamePriorsForAnyNumberOfThreads() throws Exception {
+		Hashtable priors = estimate(1, false);
+		assertEquals(100, priors.size());
+		assertEquals(priors, estimate(4, false));
+		assertEquals(priors, estimate(3, false));
+	}
+
+	@Test
+	public void testSameCARPriorsForAnyNumberOfThreads() throws Exception {
+		Hashtable priors = estimate(1, true);
+		assertEquals(100, priors.size());
+		assertEquals(priors, estimate(4, true));
+	}
+
+	/**
+	 * Estimates the priors from 1000 random rules, 20 blocks of random rules
+	 * per length, with the fixed seed of the estimator.
+	 */
+	private static Hashtable estimate(int numThreads, boolean car) throws Exception {
+		PriorEstimation estimator = new PriorEstimation(new Instances(weather), 1000, 100, car);
+		estimator.setNumThreads(numThreads);
+		return estimator.estimatePrior();
+	}
+}
@@ -0,0 +1,79 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PtreeTableTest {
+
+	private static File data;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		data = TestUtil.randomDataFile(60000, 40, 2, 2);
+	}
+
+	@Test
+	public void testSameTtreeWithCountingThreads() throws Exception {
+		Object sequential = miner();
+		TestUtil.call(sequential, "createPtree");
+		TestUtil.call(sequential, "createTotalSupportTree");
+
+		// P-tree built on one thread, support counted on four
+		Object threaded = miner();
+		TestUtil.call(threaded, "createPtree");
+		Object table = TestUtil.get(threaded, "pTreeTable");
+		int numRecords = (Integer) TestUtil.call(table, "getNumRecords") - ((int[]) TestUtil.get(table, "levelStart"))[2];
+		assertTrue(numRecords >= 4 * (Integer) TestUtil.get(threaded, "MIN_PTREE_TABLE_SIZE_FOR_THREADS"));
+		TestUtil.call(threaded, "setNumPtreeThreads", 4);
+		TestUtil.call(threaded, "createTotalSupportTree");
+
+		List<String> sets = TestUtil.frequentSets(sequential);
+		assertTrue(sets.size() > 0);
+		assertEquals(sets, TestUtil.frequentSets(threaded));
+		assertEquals(TestUtil.get(sequential, "numUpdates"), TestUtil.get(threaded, "numUpdates"));
+	}
+
+	@Test
+	public void testBranchSetsAddSameSupport() throws Exception {
+		Object whole = ttree();
+		Object divided = ttree();
+		List<String> generated = TestUtil.frequentSets(whole);
+		assertEquals(generated, TestUtil.frequentSets(divided));
+
+		// the table counted again into the complete T-tree, all branches at
+		// once or one set of branches at a time
+		for (int level = 2; level <= 3; level++) {
+			long numUpdates = (Long) TestUtil.call(whole, "addSupportToTtreeLevelN", level, 0, 1);
+			long numDividedUpdates = 0;
+			for (int branchSet = 0; branchSet < 3; branchSet++)
+				numDividedUpdates += (Long) TestUtil.call(divided, "addSupportToTtreeLevelN", level, branchSet, 3);
+			assertTrue(numUpdates > 0);
+			assertEquals(numUpdates, numDividedUpdates);
+		}
+		assertFalse(generated.equals(TestUtil.frequentSets(whole)));
+		assertEquals(TestUtil.frequentSets(whole), TestUtil.frequentSets(divided));
+	}
+
+	/**
+	 * Generates the T-tree of a miner, then creates the P-tree table again
+	 * (released once the T-tree is complete).
+	 */
+	private static Object ttree() throws Exception {
+		Object miner = miner();
+		TestUtil.call(miner, "createPtree");
+		TestUtil.call(miner, "createTotalSupportTree");
+		TestUtil.call(miner, "createPtree");
+		return miner;
+	}
+
+	private static Object miner() throws Exception {
+		Object miner = TestUtil.createCMAR("-F" + data.getPath(), "-N2", "-S0.5", "-C50");
+		TestUtil.call(miner, "setNumPtreeThreads", 1);
+		return miner;
+	}
+}
@@ -0,0 +1,125 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScoringServerTest {
+
+	private static final byte CLASSIFY = 1;
+	private static final byte STATS = 2;
+
+	private Object cmar;
+	private Object server;
+
+	@Before
+	public void setUp() throws Exception {
+		cmar = TestUtil.createCMAR("-F" + TestUtil.resource("car.num").getPath(), "-N4", "-S1", "-C50");
+		TestUtil.call(cmar, "startClassification");
+		server = TestUtil.create("ScoringServer", cmar, 2, 0L);
+		TestUtil.call(server, "start", 0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		TestUtil.call(server, "stop");
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		List<short[]> records = records(200);
+		Object classifier = TestUtil.call(cmar, "copyModel");
+		Socket socket = connect();
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+			// all requests sent before the responses are read, answered in order
+			for (int id = 0; id < records.size(); id++) {
+				short[] record = records.get(id);
+				output.writeInt(5 + 2 * record.length);
+				output.writeByte(CLASSIFY);
+				output.writeInt(id);
+				for (short item : record)
+					output.writeShort(item);
+			}
+			output.flush();
+			int numClassified = 0;
+			for (int id = 0; id < records.size(); id++) {
+				assertEquals(7, input.readInt());
+				assertEquals(CLASSIFY, input.readByte());
+				assertEquals(id, input.readInt());
+				short classResult = input.readShort();
+				assertEquals(TestUtil.call(classifier, "classifyRecord", records.get(id)), classResult);
+				if (classResult != 0)
+					numClassified++;
+			}
+			assertTrue(numClassified > 0);
+
+			// stats, the metrics snapshot including the request latencies
+			output.writeInt(1);
+			output.writeByte(STATS);
+			output.flush();
+			byte[] json = new byte[input.readInt() - 1];
+			assertEquals(STATS, input.readByte());
+			input.readFully(json);
+			assertTrue(new String(json, "UTF-8").contains("\"serve.request\""));
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testInvalidFrameClosesConnection() throws Exception {
+		Socket socket = connect();
+		try {
+			DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+			output.writeInt(0);
+			output.flush();
+			assertEquals(-1, socket.getInputStream().read());
+		} finally {
+			socket.close();
+		}
+	}
+
+	private Socket connect() throws Exception {
+		int port = (Integer) TestUtil.call(server, "getPort");
+		assertTrue(port > 0);
+		return new Socket(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Reads the first records of the test data without their class (the
+	 * last item, the classes being items 22 to 25).
+	 */
+	private static List<short[]> records(int numRecords) throws Exception {
+		List<short[]> records = new ArrayList<short[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(TestUtil.resource("car.num")));
+		try {
+			String line;
+			while (records.size() < numRecords && (line = reader.readLine()) != null) {
+				String[] items = line.trim().split(" ");
+				short[] record = new short[items.length - 1];
+				for (int i = 0; i < record.length; i++)
+					record[i] = Short.parseShort(items[i]);
+				records.add(record);
+			}
+		} finally {
+			reader.close();
+		}
+		return records;
+	}
+}
@@ -0,0 +1,160 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StreamingCMARTest {
+
+	private static final int SLIDING = 0;
+	private static final int TUMBLING = 1;
+
+	@Test
+	public void testSlidingWindow() throws Exception {
+		short[][] records = records();
+		Object cmar = cmar();
+		int windowSize = (Integer) TestUtil.get(cmar, "numRowsInTrainingSet");
+		Object streaming = TestUtil.create("StreamingCMAR", cmar, windowSize, SLIDING);
+		Object window = TestUtil.get(streaming, "windowClassifier");
+		assertEquals(Boolean.FALSE, TestUtil.call(streaming, "regenerate"));
+
+		for (int start = windowSize; start < records.length; start += 300) {
+			Object scoring = TestUtil.call(streaming, "getScoringClassifier");
+			List<String> rules = TestUtil.cmarRules(scoring);
+			int end = Math.min(records.length, start + 300);
+			for (int index = start; index < end; index++)
+				TestUtil.call(streaming, "addRecord", records[index]);
+			assertEquals(Boolean.TRUE, TestUtil.call(streaming, "regenerate"));
+
+			// the window holds the most recent records, with the T-tree and
+			// rules mined from them, and scoring switched to a copy
+			assertEquals(windowSize, TestUtil.call(streaming, "getNumRecordsInWindow"));
+			assertWindow(window, records, end - windowSize, end);
+			Object remined = remined(window);
+			assertEquals(TestUtil.frequentSets(remined), TestUtil.frequentSets(window));
+			assertEquals(TestUtil.cmarRules(remined), TestUtil.cmarRules(window));
+			Object newScoring = TestUtil.call(streaming, "getScoringClassifier");
+			assertNotSame(scoring, newScoring);
+			assertEquals(TestUtil.cmarRules(window), TestUtil.cmarRules(newScoring));
+			assertEquals(rules, TestUtil.cmarRules(scoring));
+		}
+	}
+
+	@Test
+	public void testTumblingWindow() throws Exception {
+		short[][] records = records();
+		Object cmar = cmar();
+		int windowSize = 400;
+		int numRows = (Integer) TestUtil.get(cmar, "numRowsInTrainingSet");
+		Object streaming = TestUtil.create("StreamingCMAR", cmar, windowSize, TUMBLING);
+		Object window = TestUtil.get(streaming, "windowClassifier");
+		Object scoring = TestUtil.call(streaming, "getScoringClassifier");
+
+		// the window (and the rules) unchanged until the next window is complete
+		for (int index = numRows; index < numRows + windowSize - 1; index++)
+			TestUtil.call(streaming, "addRecord", records[index]);
+		assertEquals(Boolean.FALSE, TestUtil.call(streaming, "regenerate"));
+		assertSame(scoring, TestUtil.call(streaming, "getScoringClassifier"));
+		assertEquals(numRows, TestUtil.call(streaming, "getNumRecordsInWindow"));
+
+		// then replaced
+		TestUtil.call(streaming, "addRecord", records[numRows + windowSize - 1]);
+		assertEquals(Boolean.TRUE, TestUtil.call(streaming, "regenerate"));
+		assertEquals(windowSize, TestUtil.call(streaming, "getNumRecordsInWindow"));
+		assertEquals(0, TestUtil.call(streaming, "getNumArrivedRecords"));
+		assertWindow(window, records, numRows, numRows + windowSize);
+		Object remined = remined(window);
+		assertEquals(TestUtil.frequentSets(remined), TestUtil.frequentSets(window));
+		assertEquals(TestUtil.cmarRules(remined), TestUtil.cmarRules(window));
+	}
+
+	@Test
+	public void testBackgroundRegeneration() throws Exception {
+		short[][] records = records();
+		Object cmar = cmar();
+		int numRows = (Integer) TestUtil.get(cmar, "numRowsInTrainingSet");
+		Object streaming = TestUtil.create("StreamingCMAR", cmar, numRows, SLIDING);
+		TestUtil.call(streaming, "start", 10L, TimeUnit.MILLISECONDS);
+		try {
+			// records classified while the rules are regenerated
+			for (int index = numRows; index < records.length; index++) {
+				TestUtil.call(streaming, "addRecord", records[index]);
+				short[] record = Arrays.copyOf(records[index], records[index].length - 1);
+				TestUtil.call(streaming, "classifyRecord", record);
+			}
+			long end = System.currentTimeMillis() + 10000;
+			while ((Integer) TestUtil.call(streaming, "getNumArrivedRecords") > 0 && System.currentTimeMillis() < end)
+				Thread.sleep(10);
+		} finally {
+			TestUtil.call(streaming, "stop");
+		}
+		assertTrue((Integer) TestUtil.call(streaming, "getNumRegenerations") > 0);
+		assertEquals(0, TestUtil.call(streaming, "getNumArrivedRecords"));
+		assertWindow(TestUtil.get(streaming, "windowClassifier"), records, records.length - numRows, records.length);
+	}
+
+	/**
+	 * Checks that the data of the window classifier are the given records
+	 * (recast).
+	 */
+	private static void assertWindow(Object window, short[][] records, int start, int end) throws Exception {
+		short[][] data = (short[][]) TestUtil.get(window, "dataArray");
+		assertEquals(end - start, data.length);
+		for (int index = start; index < end; index++)
+			assertArrayEquals((short[]) TestUtil.call(window, "recastRecord", records[index]), data[index - start]);
+	}
+
+	/**
+	 * Mines the window of a window classifier again from scratch, with the
+	 * same attribute ordering.
+	 * @return the miner
+	 */
+	private static Object remined(Object window) throws Exception {
+		Object remined = cmar();
+		TestUtil.set(remined, "dataArray", ((short[][]) TestUtil.get(window, "dataArray")).clone());
+		TestUtil.call(remined, "addRowsToDataSet", (Integer) TestUtil.get(window, "numRowsInTrainingSet")
+				- (Integer) TestUtil.get(remined, "numRowsInTrainingSet"));
+		TestUtil.call(remined, "regenerateTotalSupportTree");
+		TestUtil.call(remined, "regenerateCARs");
+		return remined;
+	}
+
+	/**
+	 * Creates a CMAR miner for the first half of the test data with the
+	 * classifier generated.
+	 */
+	private static Object cmar() throws Exception {
+		Object cmar = TestUtil.createCMAR("-F" + TestUtil.resource("car.num").getPath(), "-N4", "-S1", "-C50");
+		TestUtil.call(cmar, "startClassification");
+		return cmar;
+	}
+
+	/**
+	 * Reads the records of the test data, attributes numbered as in the file
+	 * (class last).
+	 */
+	private static short[][] records() throws Exception {
+		List<short[]> records = new ArrayList<short[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(TestUtil.resource("car.num")));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] items = line.trim().split(" ");
+				short[] record = new short[items.length];
+				for (int i = 0; i < record.length; i++)
+					record[i] = Short.parseShort(items[i]);
+				records.add(record);
+			}
+		} finally {
+			reader.close();
+		}
+		return records.toArray(new short[records.size()][]);
+	}
+}
@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.ExperimentResult;
+import util.JdbcResultSink;
+import util.TableFileResultSink;
+
+public class TableFileResultSinkTest {
+
+	private File directory;
+	private File table;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("cmar").toFile();
+		table = new File(directory, "experiment_result.csv");
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testRunsAppended() throws Exception {
+		write(new ExperimentResult("car", "CMAR", "-S1 -C50", 1728, 4, 0.9, 0.9, 0.05, 0.9, 0.9, 0.9, 0.95, 10,
+				100));
+		Thread.sleep(2);
+		write(new ExperimentResult("weather", "CMAR", "-S1,-C50", "out of memory"));
+
+		// one header, then the rows of both runs with their run ids
+		List<String> lines = Files.readAllLines(table.toPath(), Charset.forName("US-ASCII"));
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(0).startsWith("runId,dataset,classifier"));
+		assertTrue(lines.get(1).contains(",car,CMAR,-S1 -C50,1728,4,"));
+		assertTrue(lines.get(2).contains(",weather,CMAR,\"-S1,-C50\","));
+		assertTrue(lines.get(2).endsWith("out of memory"));
+		assertFalse(lines.get(1).split(",")[0].equals(lines.get(2).split(",")[0]));
+	}
+
+	@Test
+	public void testDatabaseOptIn() {
+		assertNull(System.getProperty(JdbcResultSink.URL_PROPERTY));
+		assertFalse(JdbcResultSink.isConfigured());
+		try {
+			new JdbcResultSink();
+			fail("no database given");
+		} catch (Exception e) {
+			assertTrue(e.getMessage().contains(JdbcResultSink.URL_PROPERTY));
+		}
+	}
+
+	private void write(ExperimentResult result) throws Exception {
+		TableFileResultSink sink = new TableFileResultSink(table.getPath());
+		sink.write(Arrays.asList(result));
+		sink.close();
+	}
+}
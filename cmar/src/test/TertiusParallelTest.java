@@ -0,0 +1,57 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import associations.Tertius;
+import weka.core.Instances;
+
+public class TertiusParallelTest {
+
+	private static Instances weather;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		File file = new File(TertiusParallelTest.class.getResource("weather.arff").toURI());
+		weather = new Instances(new FileReader(file));
+	}
+
+	@Test
+	public void testSameRulesAsSequential() throws Exception {
+		assertSameRules(new String[] { "-K", "20", "-L", "4", "-G", "3" });
+	}
+
+	@Test
+	public void testSameClassificationRulesAsSequential() throws Exception {
+		assertSameRules(new String[] { "-K", "10", "-S", "-c", "5" });
+	}
+
+	/**
+	 * Runs the sequential search and the search with -j 1 and -j 4, and
+	 * compares the outputs: the best rules with their values, then the
+	 * numbers of hypotheses considered and explored.
+	 */
+	private static void assertSameRules(String[] options) throws Exception {
+		String sequential = search(options, 0);
+		assertTrue(sequential.contains(" ==> "));
+		assertEquals(sequential, search(options, 1));
+		assertEquals(sequential, search(options, 4));
+	}
+
+	private static String search(String[] options, int numThreads) throws Exception {
+		Tertius tertius = new Tertius();
+		String[] all = new String[options.length + 2];
+		System.arraycopy(options, 0, all, 0, options.length);
+		all[options.length] = "-j";
+		all[options.length + 1] = Integer.toString(numThreads);
+		tertius.setOptions(all);
+		assertEquals(numThreads, tertius.getNumThreads());
+		tertius.buildAssociations(weather);
+		return tertius.toString();
+	}
+}
@@ -1,5 +1,240 @@
 package test;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Helpers for the tests of the miners in the default package (AprioriTFP_CMAR
+ * and its super classes), which cannot be imported from a named package and
+ * are therefore created and called by reflection. Methods and fields are
+ * looked up in the class and its super classes whatever their access.
+ */
 public class TestUtil {
 
+	/**
+	 * @param name the name of a file in the test directory
+	 * @return the file
+	 */
+	public static File resource(String name) throws URISyntaxException {
+		return new File(TestUtil.class.getResource(name).toURI());
+	}
+
+	/**
+	 * Writes a data file of random records, large enough for the P-tree to be
+	 * built and counted in several threads, deleted on exit.
+	 * @param numRecords the number of records
+	 * @param numItems the number of items other than the classes, each record
+	 * holding one in four of them
+	 * @param numClasses the number of classes, one per record (items numbered
+	 * after the other items)
+	 * @param seed the seed of the random number generator
+	 * @return the file
+	 */
+	public static File randomDataFile(int numRecords, int numItems, int numClasses, long seed) throws Exception {
+		File file = File.createTempFile("random", ".num");
+		file.deleteOnExit();
+		Random random = new Random(seed);
+		PrintWriter writer = new PrintWriter(new FileWriter(file));
+		try {
+			for (int row = 0; row < numRecords; row++) {
+				StringBuilder record = new StringBuilder();
+				for (int item = 1; item <= numItems; item++)
+					if (random.nextInt(4) == 0)
+						record.append(item).append(' ');
+				writer.println(record.append(numItems + 1 + random.nextInt(numClasses)));
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Creates an instance of a class.
+	 * @param className the class name, e.g. AprioriTFP_CMAR
+	 * @param args the constructor arguments
+	 * @return the instance
+	 */
+	public static Object create(String className, Object... args) throws Exception {
+		Class<?> type = Class.forName(className);
+		for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+			if (matches(constructor.getParameterTypes(), args)) {
+				constructor.setAccessible(true);
+				try {
+					return constructor.newInstance(args);
+				} catch (InvocationTargetException e) {
+					throw rethrow(e);
+				}
+			}
+		}
+		throw new NoSuchMethodException(className + " constructor");
+	}
+
+	/**
+	 * Calls a method, the first method of the given name and arguments found
+	 * from the class of the target up.
+	 * @param target the object, a Class for a static method
+	 * @param name the method name
+	 * @param args the arguments
+	 * @return the result
+	 */
+	public static Object call(Object target, String name, Object... args) throws Exception {
+		Class<?> type = target instanceof Class ? (Class<?>) target : target.getClass();
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			for (Method method : c.getDeclaredMethods()) {
+				if (method.getName().equals(name) && matches(method.getParameterTypes(), args)) {
+					method.setAccessible(true);
+					try {
+						return method.invoke(target instanceof Class ? null : target, args);
+					} catch (InvocationTargetException e) {
+						throw rethrow(e);
+					}
+				}
+			}
+		}
+		throw new NoSuchMethodException(type.getName() + "." + name);
+	}
+
+	/**
+	 * Gets the value of a field.
+	 * @param target the object
+	 * @param name the field name
+	 * @return the value
+	 */
+	public static Object get(Object target, String name) throws Exception {
+		return field(target, name).get(target);
+	}
+
+	/**
+	 * Sets the value of a field.
+	 * @param target the object
+	 * @param name the field name
+	 * @param value the value
+	 */
+	public static void set(Object target, String name, Object value) throws Exception {
+		field(target, name).set(target, value);
+	}
+
+	/**
+	 * Creates a CMAR miner (AprioriTFP_CMAR) for a data file with the data
+	 * read, ordered and recast, and the training and test sets created.
+	 * @param args the command line arguments, -F (the data file) and -N
+	 * included
+	 * @return the miner
+	 */
+	public static Object createCMAR(String... args) throws Exception {
+		Object cmar = create("AprioriTFP_CMAR", (Object) args);
+		call(cmar, "inputDataSet");
+		call(cmar, "idInputDataOrdering");
+		call(cmar, "recastInputData");
+		call(cmar, "createTrainingAndTestDataSets");
+		return cmar;
+	}
+
+	/**
+	 * Lists the frequent sets in the T-tree of a miner (TotalSupportTree or a
+	 * sub class), independently of how the T-tree was built.
+	 * @param miner the miner
+	 * @return the sets as "[items]=support", sorted
+	 */
+	public static List<String> frequentSets(Object miner) throws Exception {
+		List<String> sets = new ArrayList<String>();
+		Object[] top = (Object[]) get(miner, "startTtreeRef");
+		if (top != null)
+			frequentSets(top, new ArrayList<Integer>(), sets);
+		Collections.sort(sets);
+		return sets;
+	}
+
+	private static void frequentSets(Object[] level, List<Integer> path, List<String> sets) throws Exception {
+		for (int index = 1; index < level.length; index++) {
+			if (level[index] == null)
+				continue;
+			path.add(index);
+			sets.add(path + "=" + get(level[index], "support"));
+			Object[] children = (Object[]) get(level[index], "childRef");
+			if (children != null)
+				frequentSets(children, path, sets);
+			path.remove(path.size() - 1);
+		}
+	}
+
+	/**
+	 * Lists the CMAR rules of a CMAR miner (AprioriTFP_CMAR).
+	 * @param cmar the miner
+	 * @return the rules as "[antecedent] -> [consequent] support confidence",
+	 * in rule list order
+	 */
+	public static List<String> cmarRules(Object cmar) throws Exception {
+		List<String> rules = new ArrayList<String>();
+		for (Object rule = get(cmar, "startCMARrulelist"); rule != null; rule = get(rule, "next")) {
+			rules.add(Arrays.toString((short[]) get(rule, "antecedent")) + " -> "
+					+ Arrays.toString((short[]) get(rule, "consequent")) + " " + get(rule, "supportForRule") + " "
+					+ get(rule, "confidenceForRule"));
+		}
+		return rules;
+	}
+
+	private static Field field(Object target, String name) throws NoSuchFieldException {
+		for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(name);
+				field.setAccessible(true);
+				return field;
+			} catch (NoSuchFieldException e) {
+				// look in the super class
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+
+	private static boolean matches(Class<?>[] types, Object[] args) {
+		if (types.length != args.length)
+			return false;
+		for (int i = 0; i < types.length; i++) {
+			if (args[i] == null) {
+				if (types[i].isPrimitive())
+					return false;
+			} else if (!box(types[i]).isInstance(args[i]))
+				return false;
+		}
+		return true;
+	}
+
+	private static Class<?> box(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (type == int.class)
+			return Integer.class;
+		if (type == long.class)
+			return Long.class;
+		if (type == double.class)
+			return Double.class;
+		if (type == boolean.class)
+			return Boolean.class;
+		if (type == short.class)
+			return Short.class;
+		if (type == byte.class)
+			return Byte.class;
+		if (type == float.class)
+			return Float.class;
+		return Character.class;
+	}
+
+	private static Exception rethrow(InvocationTargetException e) {
+		if (e.getCause() instanceof Error)
+			throw (Error) e.getCause();
+		return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+	}
 }
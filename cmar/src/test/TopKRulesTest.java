@@ -0,0 +1,75 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TopKRulesTest {
+
+	@Test
+	public void testBestRulesKept() throws Exception {
+		List<String> all = generatedRules(cmar());
+		for (int k : new int[] { 1, 10, 50, 200 }) {
+			assertTrue(all.size() > k);
+			Object topK = cmar("-K" + k);
+			assertEquals(k, TestUtil.get(topK, "topK"));
+			List<String> rules = generatedRules(topK);
+			assertEquals("k = " + k, all.subList(0, k), rules);
+			assertEquals(k, TestUtil.get(topK, "numRulesInCMARlist"));
+		}
+	}
+
+	@Test
+	public void testSupportRaised() throws Exception {
+		Object all = cmar();
+		generatedRules(all);
+
+		// the k best rules with 100% confidence, so the support threshold is
+		// raised and fewer frequent sets generated
+		Object topK = cmar("-K10");
+		List<String> rules = generatedRules(topK);
+		assertTrue(rules.get(9), rules.get(9).endsWith(" 100.0"));
+		assertTrue((Double) TestUtil.get(topK, "minSupport") > (Double) TestUtil.get(all, "minSupport"));
+		assertTrue((Integer) TestUtil.call(topK, "getNumFreqSets") < (Integer) TestUtil.call(all, "getNumFreqSets"));
+	}
+
+	@Test
+	public void testThresholdsReset() throws Exception {
+		Object topK = cmar("-K10");
+		double minSupport = (Integer) TestUtil.get(topK, "numRowsInTrainingSet") / 100.0;
+		double confidence = (Double) TestUtil.get(topK, "confidence");
+		TestUtil.call(topK, "startClassification");
+
+		// cover pruning and classification with the user's thresholds, the
+		// rules being among the k best
+		assertEquals(minSupport, TestUtil.get(topK, "minSupport"));
+		assertEquals(confidence, TestUtil.get(topK, "confidence"));
+		List<String> rules = TestUtil.cmarRules(topK);
+		assertTrue(rules.size() > 0);
+		assertTrue(generatedRules(cmar("-K10")).containsAll(rules));
+	}
+
+	/**
+	 * Generates the CARs of a miner, without pruning them using the cover
+	 * principle.
+	 * @return the rules in rule list order
+	 */
+	private static List<String> generatedRules(Object cmar) throws Exception {
+		TestUtil.set(cmar, "startCMARrulelist", null);
+		TestUtil.set(cmar, "numRulesInCMARlist", 0);
+		TestUtil.call(cmar, "startCARgeneration2");
+		return TestUtil.cmarRules(cmar);
+	}
+
+	private static Object cmar(String... flags) throws Exception {
+		String[] args = new String[flags.length + 4];
+		args[0] = "-F" + TestUtil.resource("car.num").getPath();
+		args[1] = "-N4";
+		args[2] = "-S1";
+		args[3] = "-C50";
+		System.arraycopy(flags, 0, args, 4, flags.length);
+		return TestUtil.createCMAR(args);
+	}
+}
@@ -0,0 +1,28 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the classification of one record. Only records
+ * slower than the threshold (1 ms unless the recording sets another) are
+ * written, all of them are counted in the MiningMetrics latency timer.
+ */
+@Name("mycmar.ClassifyRecord")
+@Label("Classify Record")
+@Category({ "MyCMAR" })
+@Description("Classification of one record")
+@Threshold("1 ms")
+public class ClassifyRecordEvent extends jdk.jfr.Event {
+
+	@Label("Classifier")
+	String classifier;
+
+	@Label("Predicted Class")
+	int predicted;
+
+	transient long startNanos;
+}
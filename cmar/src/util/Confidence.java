@@ -1,13 +1,16 @@
 package util;
 
-import java.util.List;
+/**
+ * Confidence of a rule, the fraction of the records covered by the antecedent
+ * also covered by the rule.
+ */
+public class Confidence extends Metric {
 
-public class Confidence extends Metric{
+	private static final long serialVersionUID = 6930258417720315846L;
 
 	@Override
-	public double calculation(List<?> param) {
-		// TODO Auto-generated method stub
-		return super.calculation(param);
+	public double eval(double supAB, double supA, double supB, double n) {
+		return supAB / supA;
 	}
-	
+
 }
@@ -1,13 +1,19 @@
 package util;
 
-import java.util.List;
+/**
+ * Conviction of a rule, (1 - supB / n) / (1 - confidence). As in the FP
+ * miners a confidence of 1 is taken as 0.999 so the conviction stays finite.
+ */
+public class Coviction extends Metric {
 
-public class Coviction extends Metric{
+	private static final long serialVersionUID = -7493112258036684519L;
 
 	@Override
-	public double calculation(List<?> param) {
-		// TODO Auto-generated method stub
-		return super.calculation(param);
+	public double eval(double supAB, double supA, double supB, double n) {
+		double conf = supAB / supA;
+		if (conf == 1)
+			conf = 0.999;
+		return (1 - supB / n) / (1 - conf);
 	}
-      
+
 }
@@ -0,0 +1,47 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes results to a CSV file, header first, one line per result. The file
+ * is opened once and flushed after every batch.
+ */
+public class CsvResultSink implements ResultSink {
+
+	private final BufferedWriter writer;
+
+	public CsvResultSink(String fileName) throws IOException {
+		writer = new BufferedWriter(new FileWriter(fileName));
+		writeLine(ExperimentResult.COLUMNS);
+	}
+
+	public void write(List<ExperimentResult> batch) throws IOException {
+		for (int i = 0; i < batch.size(); i++) {
+			writeLine(batch.get(i).values());
+		}
+		writer.flush();
+	}
+
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void writeLine(String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				writer.write(',');
+			writer.write(quote(values[i]));
+		}
+		writer.newLine();
+	}
+
+	/** quotes a value containing a comma, quote or line break */
+	static String quote(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+			return value;
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -111,6 +111,7 @@ public class ExcellUtil {
 	        } catch (Exception ex) {
 	            ex.printStackTrace();
 	        }
+	        closeConnection();
 	         
 	    }
 	     
@@ -178,6 +179,7 @@ public class ExcellUtil {
 	        } catch (Exception ex) {
 	            ex.printStackTrace();
 	        }
+	        closeConnection();
 	         
 	    }
 	     
@@ -216,7 +218,34 @@ public class ExcellUtil {
 	        return 0;
 	    }
 	     
+	    /** connection shared by all statements until closeConnection */
+	    private java.sql.Connection conn = null;
+	     
 	    private void excute(String sql){
+	        if(conn == null){
+	            openConnection();
+	        }
+	         
+	        //õMySQL
+	        
+	        try {
+	            System.out.println("-----------------  "+sql);
+	            java.sql.PreparedStatement stat = conn.prepareStatement(sql);
+	            boolean rs = stat.execute();
+	            stat.close();
+	             
+	        } catch(Exception ex) {
+	            ex.printStackTrace();
+	            System.exit(0);
+	        }
+	         
+	    }
+	     
+	    /**
+	     * Opens the connection once, excute reuses it for every statement
+	     * instead of connecting for each row.
+	     */
+	    private void openConnection(){
 	        //Oracle
 	        try {
 	            //Class.forName("oracle.jdbc.OracleDriver").newInstance();
@@ -234,7 +263,6 @@ public class ExcellUtil {
 	        /////////////////////////////////////////////////////////////////////////
 	         
 	        //ӵOracleݿ
-	        java.sql.Connection conn = null;
 	        try{
 	            //Oracleݿ
 //	            conn = java.sql.DriverManager.getConnection(
@@ -251,20 +279,13 @@ public class ExcellUtil {
 	            System.out.println("ӵMySQLݿʱ");
 	            System.exit(0);
 	        }
-	        ////////////////////////////////////////////////////////////////////////
-	         
-	        //õMySQL
-	        
-	        try {
-	            System.out.println("-----------------  "+sql);
-	            java.sql.PreparedStatement stat = conn.prepareStatement(sql);
-	            boolean rs = stat.execute();
-	             
-	        } catch(Exception ex) {
-	            ex.printStackTrace();
-	            System.exit(0);
+	    }
+	     
+	    /** Closes the connection opened by excute, if any. */
+	    public void closeConnection(){
+	        if(conn == null){
+	            return;
 	        }
-	         
 	        //ذռõԴ
 	        try{
 	            conn.close();
@@ -273,6 +294,7 @@ public class ExcellUtil {
 	            System.out.println("رճռõԴʱ");
 	            System.exit(0);
 	        }
+	        conn = null;
 	    }
 	 
 	     
@@ -363,6 +385,7 @@ public class ExcellUtil {
 	        } catch (Exception ex) {
 	            ex.printStackTrace();
 	        }
+	        closeConnection();
 	    }
 	    
 	 public static List<List<String>> getUser(){
@@ -0,0 +1,78 @@
+package util;
+
+import java.io.File;
+import java.util.Random;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+
+/**
+ * One experiment job: a classifier with a parameter setting on one data set.
+ * The classifier is given as a configured template which is copied for the
+ * job, so jobs never share a classifier. Running the job does what
+ * runClassifier does with "-t file -i": build on the whole data set, then a
+ * ten fold cross validation with seed 1, and returns the figures as an
+ * ExperimentResult rather than printing them.
+ */
+public class ExperimentJob {
+
+	private final File dataset;
+	private final Classifier template;
+	private final String params;
+
+	/**
+	 * @param dataset the ARFF file, the class is the last attribute
+	 * @param template the configured classifier, copied when the job runs
+	 * @param params description of the parameter setting, for the results
+	 */
+	public ExperimentJob(File dataset, Classifier template, String params) {
+		this.dataset = dataset;
+		this.template = template;
+		this.params = params;
+	}
+
+	public File getDataset() {
+		return dataset;
+	}
+
+	public String getClassifierName() {
+		return template.getClass().getSimpleName();
+	}
+
+	public String getParams() {
+		return params;
+	}
+
+	/**
+	 * Runs the job on the given data set. Errors are returned as a failed
+	 * result, so one bad data set does not stop the others.
+	 * @param data the job's own copy of the data set, class index set
+	 * @return the result
+	 */
+	public ExperimentResult run(Instances data) {
+		try {
+			Classifier classifier = Classifier.makeCopy(template);
+			long t1 = System.currentTimeMillis();
+			classifier.buildClassifier(data);
+			long t2 = System.currentTimeMillis();
+
+			Evaluation eval = new Evaluation(data);
+			eval.crossValidateModel(Classifier.makeCopy(template), data, ExperimentRunner.NUM_FOLDS,
+					new Random(ExperimentRunner.SEED));
+			long t3 = System.currentTimeMillis();
+
+			return new ExperimentResult(dataset.getName(), getClassifierName(), params, data.numInstances(),
+					data.numClasses(), eval.pctCorrect(), eval.weightedTruePositiveRate(),
+					eval.weightedFalsePositiveRate(), eval.weightedPrecision(), eval.weightedRecall(),
+					eval.weightedFMeasure(), eval.weightedAreaUnderROC(), t2 - t1, t3 - t2);
+		} catch (Exception e) {
+			return new ExperimentResult(dataset.getName(), getClassifierName(), params, e.toString());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return dataset.getName() + " " + getClassifierName() + " " + params;
+	}
+}
@@ -0,0 +1,117 @@
+package util;
+
+import java.io.Serializable;
+
+/**
+ * Result of one experiment job (one classifier with one parameter setting on
+ * one data set): the ten fold cross validation figures that LogProcess used
+ * to scrape from the "Correctly Classified Instances" and "Weighted Avg"
+ * lines of the weka output, plus timings. A failed job has the error
+ * message set and NaN figures.
+ */
+public class ExperimentResult implements Serializable {
+
+	private static final long serialVersionUID = 5021730569361712848L;
+
+	/** column names, in the order of toString */
+	public static final String[] COLUMNS = { "dataset", "classifier", "params", "instances", "classes",
+			"accuracy", "tpRate", "fpRate", "precision", "recall", "fMeasure", "rocArea", "buildMillis",
+			"cvMillis", "error" };
+
+	public final String dataset;
+	public final String classifier;
+	public final String params;
+	public final int numInstances;
+	public final int numClasses;
+
+	/** percentage of correctly classified instances */
+	public final double accuracy;
+	/** weighted averages over the classes */
+	public final double tpRate;
+	public final double fpRate;
+	public final double precision;
+	public final double recall;
+	public final double fMeasure;
+	public final double rocArea;
+
+	/** time to build the classifier on the whole data set */
+	public final long buildMillis;
+	/** time of the cross validation */
+	public final long cvMillis;
+
+	/** null if the job succeeded */
+	public final String error;
+
+	public ExperimentResult(String dataset, String classifier, String params, int numInstances, int numClasses,
+			double accuracy, double tpRate, double fpRate, double precision, double recall, double fMeasure,
+			double rocArea, long buildMillis, long cvMillis) {
+		this.dataset = dataset;
+		this.classifier = classifier;
+		this.params = params;
+		this.numInstances = numInstances;
+		this.numClasses = numClasses;
+		this.accuracy = accuracy;
+		this.tpRate = tpRate;
+		this.fpRate = fpRate;
+		this.precision = precision;
+		this.recall = recall;
+		this.fMeasure = fMeasure;
+		this.rocArea = rocArea;
+		this.buildMillis = buildMillis;
+		this.cvMillis = cvMillis;
+		this.error = null;
+	}
+
+	/** result of a failed job */
+	public ExperimentResult(String dataset, String classifier, String params, String error) {
+		this.dataset = dataset;
+		this.classifier = classifier;
+		this.params = params;
+		this.numInstances = 0;
+		this.numClasses = 0;
+		this.accuracy = Double.NaN;
+		this.tpRate = Double.NaN;
+		this.fpRate = Double.NaN;
+		this.precision = Double.NaN;
+		this.recall = Double.NaN;
+		this.fMeasure = Double.NaN;
+		this.rocArea = Double.NaN;
+		this.buildMillis = 0;
+		this.cvMillis = 0;
+		this.error = error;
+	}
+
+	public boolean failed() {
+		return error != null;
+	}
+
+	/** @return the values in the order of COLUMNS, as strings */
+	public String[] values() {
+		return new String[] { dataset, classifier, params, Integer.toString(numInstances),
+				Integer.toString(numClasses), Double.toString(accuracy), Double.toString(tpRate),
+				Double.toString(fpRate), Double.toString(precision), Double.toString(recall),
+				Double.toString(fMeasure), Double.toString(rocArea), Long.toString(buildMillis),
+				Long.toString(cvMillis), error == null ? "" : error };
+	}
+
+	/** @return the column names separated by tabs */
+	public static String header() {
+		return join(COLUMNS);
+	}
+
+	/** @return the values separated by tabs */
+	@Override
+	public String toString() {
+		return join(values());
+	}
+
+	private static String join(String[] values) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				line.append('\t');
+			line.append(values[i]);
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,310 @@
+package util;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jzh.ACWV;
+import mine.CMAR_App;
+import multitree.MultiAcwv_App;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Runs (data set x classifier x parameter) experiment jobs on a bounded
+ * worker pool, one job per task, and collects one ExperimentResult per job.
+ * Replaces the runAllDataSet loops that ran the files of a folder one after
+ * another and redirected System.out to a log file for LogProcess to scrape.
+ * Results can be streamed to a ResultPipeline as the jobs end.
+ * <p>
+ * Data sets are read on a small separate pool, each file once, and every job
+ * gets its own copy of the instances. Jobs on big files are started first so
+ * that a long job does not end up running alone at the end.
+ */
+public class ExperimentRunner {
+
+	/** folds and seed of the cross validation, as runClassifier with -t only */
+	public static final int NUM_FOLDS = 10;
+	public static final long SEED = 1;
+
+	/** number of threads reading data sets */
+	public static final int NUM_READERS = 2;
+
+	private final int numThreads;
+	private final List<ExperimentJob> jobs = new ArrayList<ExperimentJob>();
+	private final ConcurrentHashMap<File, Future<Instances>> datasets = new ConcurrentHashMap<File, Future<Instances>>();
+	private ExecutorService readers;
+	private ResultPipeline pipeline;
+
+	/** Runner using one worker per processor */
+	public ExperimentRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ExperimentRunner(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	public void addJob(ExperimentJob job) {
+		jobs.add(job);
+	}
+
+	/**
+	 * Adds a job for every ARFF file in the given folder.
+	 * @param folderName the folder
+	 * @param template the configured classifier
+	 * @param params description of the parameter setting
+	 */
+	public void addFolder(String folderName, Classifier template, String params) {
+		File[] files = listDatasets(folderName);
+		for (int i = 0; i < files.length; i++) {
+			addJob(new ExperimentJob(files[i], template, params));
+		}
+	}
+
+	/** Sets the pipeline each result is passed to as soon as its job ends */
+	public void setPipeline(ResultPipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+
+	public List<ExperimentJob> getJobs() {
+		return jobs;
+	}
+
+	/** @return the ARFF files of the folder, sorted by name */
+	public static File[] listDatasets(String folderName) {
+		File[] files = new File(folderName).listFiles();
+		if (files == null)
+			return new File[0];
+		List<File> arff = new ArrayList<File>();
+		for (int i = 0; i < files.length; i++) {
+			if (files[i].isFile() && files[i].getName().endsWith(".arff"))
+				arff.add(files[i]);
+		}
+		Collections.sort(arff);
+		return arff.toArray(new File[arff.size()]);
+	}
+
+	/**
+	 * Runs all jobs added so far and waits for them.
+	 * @return the results, in the order the jobs were added
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<ExperimentResult> run() throws InterruptedException {
+		readers = Executors.newFixedThreadPool(Math.min(NUM_READERS, numThreads));
+		ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+		try {
+			// biggest files first
+			List<Integer> order = new ArrayList<Integer>();
+			for (int i = 0; i < jobs.size(); i++) {
+				order.add(i);
+			}
+			Collections.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					long la = jobs.get(a).getDataset().length();
+					long lb = jobs.get(b).getDataset().length();
+					return la > lb ? -1 : (la < lb ? 1 : a.compareTo(b));
+				}
+			});
+
+			List<Future<ExperimentResult>> futures = new ArrayList<Future<ExperimentResult>>(
+					Collections.<Future<ExperimentResult>> nCopies(jobs.size(), null));
+			for (int i = 0; i < order.size(); i++) {
+				final ExperimentJob job = jobs.get(order.get(i));
+				futures.set(order.get(i), workers.submit(new Callable<ExperimentResult>() {
+					public ExperimentResult call() {
+						ExperimentResult result;
+						try {
+							result = job.run(new Instances(dataset(job.getDataset())));
+						} catch (Exception e) {
+							result = new ExperimentResult(job.getDataset().getName(), job.getClassifierName(),
+									job.getParams(), e.toString());
+						}
+						if (pipeline != null)
+							pipeline.add(result);
+						return result;
+					}
+				}));
+			}
+
+			List<ExperimentResult> results = new ArrayList<ExperimentResult>(jobs.size());
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					ExperimentJob job = jobs.get(i);
+					ExperimentResult result = new ExperimentResult(job.getDataset().getName(),
+							job.getClassifierName(), job.getParams(), e.getCause().toString());
+					if (pipeline != null)
+						pipeline.add(result);
+					results.add(result);
+				}
+			}
+			return results;
+		} finally {
+			workers.shutdownNow();
+			readers.shutdownNow();
+			datasets.clear();
+		}
+	}
+
+	/**
+	 * Returns the instances of a data set, reading the file on the reader
+	 * pool the first time it is asked for. The instances returned are shared
+	 * and must be copied before use.
+	 */
+	private Instances dataset(final File file) throws Exception {
+		Future<Instances> future = datasets.get(file);
+		if (future == null) {
+			Future<Instances> read = readers.submit(new Callable<Instances>() {
+				public Instances call() throws Exception {
+					Reader reader = new FileReader(file);
+					try {
+						Instances data = new Instances(reader);
+						data.setClassIndex(data.numAttributes() - 1);
+						return data;
+					} finally {
+						reader.close();
+					}
+				}
+			});
+			future = datasets.putIfAbsent(file, read);
+			if (future == null)
+				future = read;
+			else
+				read.cancel(true);
+		}
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	/** @return the parameter description used for the FP based classifiers */
+	public static String params(double minSup, double minCon) {
+		return "minSup=" + minSup + " minCon=" + minCon;
+	}
+
+	/** Prints the results as a tab separated table */
+	public static void printResults(List<ExperimentResult> results, PrintStream out) {
+		out.println(ExperimentResult.header());
+		for (int i = 0; i < results.size(); i++) {
+			out.println(results.get(i));
+		}
+	}
+
+	/**
+	 * Creates a pipeline writing result/&lt;time&gt;.csv, result/&lt;time&gt;.xls
+	 * and the results table: the database given by the cmar.jdbc.url system
+	 * property (see JdbcResultSink) or, by default, its file-backed stand-in
+	 * result/experiment_result.csv (see TableFileResultSink).
+	 * @return the pipeline, to be closed at the end of the run
+	 * @throws IOException if a result file can't be created
+	 */
+	public static ResultPipeline defaultPipeline() throws IOException {
+		new File("result").mkdirs();
+		String fileName = "result/" + System.currentTimeMillis();
+		ResultPipeline pipeline = new ResultPipeline();
+		pipeline.addSink(new CsvResultSink(fileName + ".csv"));
+		pipeline.addSink(new XlsResultSink(fileName + ".xls"));
+		if (JdbcResultSink.isConfigured()) {
+			try {
+				pipeline.addSink(new JdbcResultSink());
+			} catch (IOException e) {
+				System.out.println("WARNING: results not written to database: " + e.getMessage());
+			}
+		} else {
+			pipeline.addSink(new TableFileResultSink(TableFileResultSink.DEFAULT_FILE));
+		}
+		return pipeline;
+	}
+
+	/**
+	 * Runs the given classifier on every data set of a folder and writes the
+	 * results through the default pipeline and to System.out, followed by the
+	 * metrics snapshot (see MiningMetrics). Used by the runAllDataSet methods
+	 * of the classifiers.
+	 * @param folderName the folder
+	 * @param template the configured classifier
+	 * @param params description of the parameter setting
+	 * @return the results
+	 */
+	public static List<ExperimentResult> runAllDataSet(String folderName, Classifier template, String params) {
+		ExperimentRunner runner = new ExperimentRunner();
+		runner.addFolder(folderName, template, params);
+		List<ExperimentResult> results = new ArrayList<ExperimentResult>();
+		try {
+			ResultPipeline pipeline = defaultPipeline();
+			runner.setPipeline(pipeline);
+			try {
+				results = runner.run();
+			} finally {
+				pipeline.close();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		printResults(results, System.out);
+		MiningMetrics.writeSnapshot();
+		return results;
+	}
+
+	/**
+	 * Runs CMAR_App, ACWV and MultiAcwv_App with their default parameters on
+	 * every data set of the given folders (keel and balance by default).
+	 * Usage: java util.ExperimentRunner [-threads n] [folder ...]
+	 */
+	public static void main(String[] args) throws Exception {
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		List<String> folders = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads"))
+				numThreads = Integer.parseInt(args[++i]);
+			else
+				folders.add(args[i]);
+		}
+		if (folders.isEmpty())
+			folders.addAll(Arrays.asList("keel", "balance"));
+
+		ExperimentRunner runner = new ExperimentRunner(numThreads);
+		for (String folder : folders) {
+			CMAR_App cmar = new CMAR_App();
+			runner.addFolder(folder, cmar, params(cmar.getMinSup(), cmar.getMinCon()));
+			ACWV acwv = new ACWV();
+			runner.addFolder(folder, acwv, params(acwv.getMinSup(), acwv.getMinCon()));
+			MultiAcwv_App multi = new MultiAcwv_App();
+			runner.addFolder(folder, multi, params(multi.getMinSup(), multi.getMinCon()));
+		}
+		long t1 = System.currentTimeMillis();
+		List<ExperimentResult> results;
+		ResultPipeline pipeline = defaultPipeline();
+		runner.setPipeline(pipeline);
+		try {
+			results = runner.run();
+		} finally {
+			pipeline.close();
+		}
+		long t2 = System.currentTimeMillis();
+		printResults(results, System.out);
+		System.out.println(runner.getJobs().size() + " jobs on " + numThreads + " threads in " + (t2 - t1) + " ms");
+		MiningMetrics.writeSnapshot();
+	}
+}
@@ -0,0 +1,148 @@
+package util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes results to a database table over one JDBC connection per run, each
+ * batch with one batched insert and one commit, instead of a new connection
+ * per row as in ExcellUtil.excute. Opt-in: the default constructor connects
+ * to the database given by the cmar.jdbc.url system property (with the
+ * cmar.jdbc.user and cmar.jdbc.password properties, if set) through the MySQL
+ * connector in lib, or the driver given by cmar.jdbc.driver. Any JDBC URL
+ * whose driver is on the class path can be given to the five argument
+ * constructor. Without a URL the results go to the file-backed stand-in for
+ * the table, TableFileResultSink (see ExperimentRunner.defaultPipeline).
+ */
+public class JdbcResultSink implements ResultSink {
+
+	public static final String DEFAULT_DRIVER = "com.mysql.jdbc.Driver";
+	public static final String DEFAULT_TABLE = "experiment_result";
+
+	/** system properties giving the database, none set by default */
+	public static final String URL_PROPERTY = "cmar.jdbc.url";
+	public static final String DRIVER_PROPERTY = "cmar.jdbc.driver";
+	public static final String USER_PROPERTY = "cmar.jdbc.user";
+	public static final String PASSWORD_PROPERTY = "cmar.jdbc.password";
+
+	private final Connection conn;
+	private final PreparedStatement insert;
+	/** run id written with every row, the start time of the run */
+	private final long runId = System.currentTimeMillis();
+
+	/**
+	 * Opens the database given by the system properties.
+	 * @throws IOException if the cmar.jdbc.url property is not set or the
+	 * database fails
+	 */
+	public JdbcResultSink() throws IOException {
+		this(System.getProperty(DRIVER_PROPERTY, DEFAULT_DRIVER), getUrl(), System.getProperty(USER_PROPERTY),
+				System.getProperty(PASSWORD_PROPERTY), DEFAULT_TABLE);
+	}
+
+	/** @return true if a database is given by the cmar.jdbc.url property */
+	public static boolean isConfigured() {
+		return System.getProperty(URL_PROPERTY) != null;
+	}
+
+	/**
+	 * Opens the connection and creates the table if needed.
+	 * @param driver the driver class, null if it registers itself
+	 * @param url the JDBC URL
+	 * @param user the user, null if given by the URL (or not required)
+	 * @param password the password, null if given by the URL
+	 * @param table the table name
+	 * @throws IOException if the driver is missing or the database fails
+	 */
+	public JdbcResultSink(String driver, String url, String user, String password, String table)
+			throws IOException {
+		try {
+			if (driver != null)
+				Class.forName(driver);
+			if (user == null && password == null)
+				conn = DriverManager.getConnection(url);
+			else
+				conn = DriverManager.getConnection(url, user, password);
+			conn.setAutoCommit(false);
+			Statement create = conn.createStatement();
+			try {
+				create.execute("create table if not exists " + table + " (run_id bigint, dataset varchar(255), "
+						+ "classifier varchar(64), params varchar(255), instances int, classes int, "
+						+ "accuracy double, tp_rate double, fp_rate double, precision_avg double, "
+						+ "recall double, f_measure double, roc_area double, build_millis bigint, "
+						+ "cv_millis bigint, error varchar(1024))");
+			} finally {
+				create.close();
+			}
+			conn.commit();
+			insert = conn.prepareStatement("insert into " + table
+					+ " values (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		} catch (ClassNotFoundException e) {
+			throw new IOException("JDBC driver not found: " + driver);
+		} catch (SQLException e) {
+			// first line only, the MySQL driver appends the nested stack trace
+			String message = String.valueOf(e.getMessage());
+			int end = message.indexOf('\n');
+			throw new IOException(url + ": " + (end < 0 ? message : message.substring(0, end).trim()), e);
+		}
+	}
+
+	public void write(List<ExperimentResult> batch) throws IOException {
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				ExperimentResult r = batch.get(i);
+				insert.setLong(1, runId);
+				insert.setString(2, r.dataset);
+				insert.setString(3, r.classifier);
+				insert.setString(4, r.params);
+				insert.setInt(5, r.numInstances);
+				insert.setInt(6, r.numClasses);
+				setDouble(7, r.accuracy);
+				setDouble(8, r.tpRate);
+				setDouble(9, r.fpRate);
+				setDouble(10, r.precision);
+				setDouble(11, r.recall);
+				setDouble(12, r.fMeasure);
+				setDouble(13, r.rocArea);
+				insert.setLong(14, r.buildMillis);
+				insert.setLong(15, r.cvMillis);
+				insert.setString(16, r.error);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			conn.commit();
+		} catch (SQLException e) {
+			throw new IOException(e.toString());
+		}
+	}
+
+	private static String getUrl() throws IOException {
+		String url = System.getProperty(URL_PROPERTY);
+		if (url == null)
+			throw new IOException("no database given, set " + URL_PROPERTY);
+		return url;
+	}
+
+	/** NaN is stored as NULL */
+	private void setDouble(int index, double value) throws SQLException {
+		if (Double.isNaN(value))
+			insert.setNull(index, Types.DOUBLE);
+		else
+			insert.setDouble(index, value);
+	}
+
+	public void close() throws IOException {
+		try {
+			insert.close();
+			conn.close();
+		} catch (SQLException e) {
+			throw new IOException(e.toString());
+		}
+	}
+}
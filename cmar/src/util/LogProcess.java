@@ -62,6 +62,7 @@ public class LogProcess {
 			  int colNumber = 0;
 			  int posCount=0;
 			  int negCount=0;
+			  List<Label> cells = new ArrayList<Label>();
 			  try {
 				scan = new Scanner(file);
 				while(scan.hasNextLine()){
@@ -71,14 +72,14 @@ public class LogProcess {
 						lineNumber++;
 						String name = getDatasetName(line);
 						datasetList.add(name);
-						writeDatasetToExcell(excelFileName,name, lineNumber, colNumber);
+						cells.add(new Label(colNumber,lineNumber,name));
 					}
 					else if(line.contains("Weighted Avg")){
 						posCount++;
 						if(posCount%2==0){
 							String[] classifyInfo = removeSpace(line).split(" ");
 							for(int k = 1 ; k < classifyInfo.length-1 ; k++){
-								writeDatasetToExcell(excelFileName,classifyInfo[k+1], lineNumber, k);
+								cells.add(new Label(k,lineNumber,classifyInfo[k+1]));
 							}
 						}
 					}else if(line.contains("Correctly Classified Instances")){
@@ -88,10 +89,12 @@ public class LogProcess {
 							StringBuffer strBuffer = new StringBuffer(filtered);
 							strBuffer.deleteCharAt(strBuffer.lastIndexOf(" "));
 							filtered = strBuffer.toString();
-							writeDatasetToExcell(excelFileName,filtered.substring(filtered.lastIndexOf(" "), filtered.length()),lineNumber,7);
+							cells.add(new Label(7,lineNumber,filtered.substring(filtered.lastIndexOf(" "), filtered.length())));
 						}
 					}
 				}
+				scan.close();
+				writeDatasetToExcell(excelFileName, cells);
 			} catch (FileNotFoundException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -107,17 +110,19 @@ public class LogProcess {
 		  return name;
 	  }
 	  
-	  private static void writeDatasetToExcell(String fileName,String name,int row,int col){
-	
-//		  for(String data:datasetList){
-//		  }
+	  /**
+	   * Writes all cells at once, the workbook is opened and written only once
+	   * rather than once per cell.
+	   */
+	  private static void writeDatasetToExcell(String fileName,List<Label> cells){
 		try {
 			Workbook workbook = Workbook.getWorkbook(new File(fileName));
 			WritableWorkbook book=Workbook.createWorkbook(new File(fileName),workbook);
 			
 			WritableSheet sheet = book.getSheet(0); //ȡ
-			Label l = new Label(col,row,name);
-			sheet.addCell(l);
+			for(Label l : cells){
+				sheet.addCell(l);
+			}
 			book.write();
 			workbook.close();
 			book.close();
@@ -0,0 +1,292 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Heap governor for mining, so that a low support threshold stops mining (or
+ * raises the threshold) before the heap is exhausted instead of ending the run
+ * with an OutOfMemoryError. The heap limit is a fraction of the maximum heap.
+ * The governor is told by the heap pools (collection usage threshold
+ * notifications of the MemoryMXBean) when the heap still in use after a
+ * garbage collection exceeds the limit, which is checked cheaply by
+ * isLowMemory, and checks explicitly whether an estimated allocation fits by
+ * canAllocate. What is done when it does not fit (see Policy) is up to the
+ * miner.
+ * <p>
+ * Turned on with -Dcmar.memoryGovernor=stop or raiseSupport, the limit is set
+ * with -Dcmar.memoryLimit=fraction (0.8 by default).
+ */
+public class MemoryGovernor {
+
+	/** system property naming the policy, the governor is not used if not set */
+	public static final String POLICY_PROPERTY = "cmar.memoryGovernor";
+
+	/** system property giving the heap limit as a fraction of the maximum heap */
+	public static final String LIMIT_PROPERTY = "cmar.memoryLimit";
+
+	/** default heap limit as a fraction of the maximum heap */
+	public static final double DEFAULT_LIMIT = 0.8;
+
+	/** What the miner does when the next step does not fit the heap */
+	public enum Policy {
+		/** stop generating further levels, keeping what has been mined */
+		STOP,
+		/** raise the support threshold until the next step fits, stop if it never does */
+		RAISE_SUPPORT
+	}
+
+	private static MemoryGovernor s_fromProperties;
+	private static IllegalArgumentException s_propertiesError;
+	private static boolean s_propertiesRead;
+
+	/** The governors registered for the notifications, the heap pools' thresholds are set for the lowest limit */
+	private static final List<MemoryGovernor> s_registered = new ArrayList<MemoryGovernor>();
+
+	/** The collection usage thresholds of the heap pools before the first governor was registered */
+	private static final Map<String, Long> s_savedThresholds = new HashMap<String, Long>();
+
+	private final Policy m_policy;
+	private final double m_limit;
+	private final MemoryMXBean m_memoryBean = ManagementFactory.getMemoryMXBean();
+	private volatile boolean m_lowMemory = false;
+	private final NotificationListener m_listener = new NotificationListener() {
+		public void handleNotification(Notification notification, Object handback) {
+			if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType()))
+				m_lowMemory = true;
+		}
+	};
+
+	/**
+	 * Creates a governor and registers it for the collection usage threshold
+	 * notifications of the heap pools (until closed).
+	 * @param policy what the miner does when the next step does not fit
+	 * @param limit the heap limit as a fraction of the maximum heap
+	 */
+	public MemoryGovernor(Policy policy, double limit) {
+		if (!(limit > 0 && limit <= 1))
+			throw new IllegalArgumentException("Heap limit " + limit + " not in (0,1]");
+		m_policy = policy;
+		m_limit = limit;
+		register(this);
+		((NotificationEmitter) m_memoryBean).addNotificationListener(m_listener, null, null);
+	}
+
+	/**
+	 * Gets the governor given by the system properties, shared by all miners.
+	 * The properties are read once, invalid properties make every call fail
+	 * rather than the first miner only.
+	 * @return the governor, null if the cmar.memoryGovernor property is not set
+	 * @throws IllegalArgumentException if the properties are invalid
+	 */
+	public static synchronized MemoryGovernor fromSystemProperties() {
+		if (!s_propertiesRead) {
+			try {
+				s_fromProperties = create(System.getProperty(POLICY_PROPERTY), System.getProperty(LIMIT_PROPERTY));
+			} catch (IllegalArgumentException e) {
+				s_propertiesError = e;
+			}
+			s_propertiesRead = true;
+		}
+		if (s_propertiesError != null)
+			throw new IllegalArgumentException("Invalid memory governor properties: " + s_propertiesError.getMessage(),
+					s_propertiesError);
+		return s_fromProperties;
+	}
+
+	/**
+	 * Creates a governor from a policy name and limit as given by the system
+	 * properties, both parsed before the governor is created.
+	 * @param policy the policy name (stop or raiseSupport), null if no governor
+	 * @param limit the heap limit as a fraction of the maximum heap, null for the default
+	 * @return the governor, null if no policy is given
+	 * @throws IllegalArgumentException if the policy or limit is invalid
+	 */
+	public static MemoryGovernor create(String policy, String limit) {
+		if (policy == null)
+			return null;
+		Policy parsedPolicy = parsePolicy(policy);
+		double parsedLimit = limit == null ? DEFAULT_LIMIT : Double.parseDouble(limit);
+		return new MemoryGovernor(parsedPolicy, parsedLimit);
+	}
+
+	/**
+	 * Parses a policy name, stop or raiseSupport.
+	 * @param name the name
+	 * @return the policy
+	 */
+	public static Policy parsePolicy(String name) {
+		if (name.equalsIgnoreCase("stop"))
+			return Policy.STOP;
+		if (name.equalsIgnoreCase("raiseSupport"))
+			return Policy.RAISE_SUPPORT;
+		throw new IllegalArgumentException("Unknown memory governor policy " + name);
+	}
+
+	/** @return the policy */
+	public Policy getPolicy() {
+		return m_policy;
+	}
+
+	/** @return the maximum heap in bytes */
+	public long getMaxHeap() {
+		long max = m_memoryBean.getHeapMemoryUsage().getMax();
+		return max > 0 ? max : Runtime.getRuntime().maxMemory();
+	}
+
+	/** @return the heap in use in bytes (including garbage not yet collected) */
+	public long getUsedHeap() {
+		return m_memoryBean.getHeapMemoryUsage().getUsed();
+	}
+
+	/** @return the heap limit in bytes */
+	public long getHeapLimit() {
+		return (long) (getMaxHeap() * m_limit);
+	}
+
+	/** @return the heap in bytes that may still be used before the limit is reached */
+	public long getAvailableHeap() {
+		return getHeapLimit() - getUsedHeap();
+	}
+
+	/**
+	 * Tests whether the given number of bytes can be allocated without the
+	 * heap exceeding the limit. If not, garbage is collected and the heap in
+	 * use tested again, so a false result is based on the heap still in use.
+	 * @param bytes the (estimated) number of bytes
+	 * @return true if the bytes fit, false otherwise
+	 */
+	public boolean canAllocate(long bytes) {
+		if (getUsedHeap() + bytes <= getHeapLimit())
+			return true;
+		System.gc();
+		boolean fits = getUsedHeap() + bytes <= getHeapLimit();
+		if (fits)
+			m_lowMemory = false;
+		return fits;
+	}
+
+	/**
+	 * Tests whether the heap still in use after the last garbage collection
+	 * exceeds the limit, cheap enough to be called in the mining loops.
+	 * @return true if the heap is low, false otherwise
+	 */
+	public boolean isLowMemory() {
+		if (!m_lowMemory)
+			return false;
+
+		// Notified, check the pools again as a later collection may have freed the heap
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+				used += pool.getCollectionUsage().getUsed();
+		}
+		if (used <= getHeapLimit())
+			m_lowMemory = false;
+		return m_lowMemory;
+	}
+
+	/**
+	 * Describes the heap, for the report written when mining is stopped or the
+	 * support threshold raised.
+	 * @return the description
+	 */
+	public String report() {
+		return "Heap in use " + toMegabytes(getUsedHeap()) + " MB of " + toMegabytes(getMaxHeap()) + " MB (limit "
+				+ toMegabytes(getHeapLimit()) + " MB)";
+	}
+
+	/**
+	 * Unregisters the governor from the notifications of the heap pools, the
+	 * thresholds are restored once no governor is registered.
+	 */
+	public void close() {
+		try {
+			((NotificationEmitter) m_memoryBean).removeNotificationListener(m_listener);
+		} catch (javax.management.ListenerNotFoundException e) {
+			// already removed
+		}
+		unregister(this);
+	}
+
+	/**
+	 * Registers a governor, saving the heap pools' thresholds if it is the
+	 * first, and sets the thresholds.
+	 * @param governor the governor
+	 */
+	private static synchronized void register(MemoryGovernor governor) {
+		if (s_registered.isEmpty()) {
+			for (MemoryPoolMXBean pool : getThresholdPools())
+				s_savedThresholds.put(pool.getName(), pool.getCollectionUsageThreshold());
+		}
+		s_registered.add(governor);
+		setThresholds();
+	}
+
+	/**
+	 * Unregisters a governor (if registered), restoring the heap pools'
+	 * thresholds if it is the last, otherwise setting them for the others.
+	 * @param governor the governor
+	 */
+	private static synchronized void unregister(MemoryGovernor governor) {
+		if (!s_registered.remove(governor))
+			return;
+		if (!s_registered.isEmpty()) {
+			setThresholds();
+			return;
+		}
+		for (MemoryPoolMXBean pool : getThresholdPools()) {
+			Long threshold = s_savedThresholds.get(pool.getName());
+			if (threshold != null)
+				pool.setCollectionUsageThreshold(threshold);
+		}
+		s_savedThresholds.clear();
+	}
+
+	/**
+	 * Sets the heap pools' thresholds for the lowest limit of the registered
+	 * governors, so that each is notified (isLowMemory then tests its own
+	 * limit). Pools already set are left unchanged.
+	 */
+	private static void setThresholds() {
+		double limit = 1;
+		for (MemoryGovernor governor : s_registered)
+			limit = Math.min(limit, governor.m_limit);
+		for (MemoryPoolMXBean pool : getThresholdPools()) {
+			long threshold = (long) (pool.getUsage().getMax() * limit);
+			if (pool.getCollectionUsageThreshold() != threshold)
+				pool.setCollectionUsageThreshold(threshold);
+		}
+	}
+
+	/** @return the heap pools supporting a collection usage threshold, with a maximum size */
+	private static List<MemoryPoolMXBean> getThresholdPools() {
+		List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+					&& pool.getUsage().getMax() > 0)
+				pools.add(pool);
+		}
+		return pools;
+	}
+
+	public String toString() {
+		return (m_policy == Policy.STOP ? "stop" : "raiseSupport") + ", limit " + Math.round(m_limit * 100)
+				+ "% of heap";
+	}
+
+	private static long toMegabytes(long bytes) {
+		return bytes / (1024 * 1024);
+	}
+}
@@ -1,14 +1,84 @@
 package util;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class Metric {
-      String name;
-      double minMetric;
-      
-      public double calculation(List<?> param){
-    	  double value = 0;
-    	  
-    	  return value;
-      }
+/**
+ * Interestingness metric of a rule A -> B, computed from the support of the
+ * rule (supAB), of its antecedent (supA), of its consequent (supB) and the
+ * number of records (n). Subclasses implement
+ * {@link #eval(double, double, double, double)}, the other forms only convert
+ * their arguments, so every caller gets the same value for the same counts.
+ * The int and batch forms work on primitive counts, e.g. on parallel arrays
+ * holding a whole candidate level, without boxing or allocation.
+ */
+public class Metric implements Serializable {
+
+	private static final long serialVersionUID = 4518329371029615218L;
+
+	String name;
+	double minMetric;
+
+	/**
+	 * Evaluates the metric for boxed counts.
+	 * @param param supAB, supA, supB and n as numbers
+	 * @return the value of the metric
+	 */
+	public double calculation(List<?> param) {
+		return eval(((Number) param.get(0)).doubleValue(), ((Number) param.get(1)).doubleValue(),
+				((Number) param.get(2)).doubleValue(), ((Number) param.get(3)).doubleValue());
+	}
+
+	/**
+	 * Evaluates the metric for one rule.
+	 * @param supAB the support of the rule
+	 * @param supA the support of the antecedent
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @return the value of the metric
+	 */
+	public double eval(int supAB, int supA, int supB, int n) {
+		return eval((double) supAB, (double) supA, (double) supB, (double) n);
+	}
+
+	/**
+	 * Evaluates the metric for one rule, the supports given as counts held in
+	 * doubles.
+	 * @param supAB the support of the rule
+	 * @param supA the support of the antecedent
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @return the value of the metric, 0 for this base class
+	 */
+	public double eval(double supAB, double supA, double supB, double n) {
+		return 0;
+	}
+
+	/**
+	 * Evaluates the metric for the rules given by parallel arrays of counts.
+	 * @param supAB the supports of the rules
+	 * @param supA the supports of the antecedents
+	 * @param supB the supports of the consequents
+	 * @param n the number of records
+	 * @param values receives the value of the metric of each rule
+	 */
+	public void eval(int[] supAB, int[] supA, int[] supB, int n, double[] values) {
+		for (int i = 0; i < supAB.length; i++)
+			values[i] = eval((double) supAB[i], (double) supA[i], (double) supB[i], (double) n);
+	}
+
+	/**
+	 * Evaluates the metric for the rules with the given supports and
+	 * antecedent supports and one consequent, e.g. the rules of a candidate
+	 * level predicting the same class.
+	 * @param supAB the supports of the rules
+	 * @param supA the supports of the antecedents
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @param values receives the value of the metric of each rule
+	 */
+	public void eval(int[] supAB, int[] supA, int supB, int n, double[] values) {
+		for (int i = 0; i < supAB.length; i++)
+			values[i] = eval((double) supAB[i], (double) supA[i], (double) supB, (double) n);
+	}
 }
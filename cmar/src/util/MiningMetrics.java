@@ -0,0 +1,271 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of timers and counters for the phases of the mining pipeline, so
+ * a run shows where its time goes without attaching a profiler. Every phase
+ * is also a Flight Recorder event (MiningPhaseEvent, ClassifyRecordEvent),
+ * written when a recording is running, e.g. with
+ * java -XX:StartFlightRecording=filename=cmar.jfr ...
+ * <p>
+ * Timer and counter names used by the pipeline:
+ * <ul>
+ * <li>input.parse, input.ordering, input.recast</li>
+ * <li>ptree.build</li>
+ * <li>ttree.level.N with the counters ttree.level.N.candidates, .frequent,
+ * .pruned and .supportUpdates</li>
+ * <li>car.generation with car.generated and car.chiSquaredRejected</li>
+ * <li>cover.pruning with cover.rulesIn and cover.pruned</li>
+ * <li>classify.record, the latency of each classified record</li>
+ * </ul>
+ * The registry is shared by all threads; a snapshot is written as JSON by
+ * toJson at the end of a run.
+ */
+public final class MiningMetrics {
+
+	/** system property naming the file the end of run snapshot is written to */
+	public static final String SNAPSHOT_PROPERTY = "cmar.metrics";
+
+	private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+	private static volatile long startMillis = System.currentTimeMillis();
+
+	private MiningMetrics() {
+	}
+
+	/**
+	 * Starts a phase.
+	 * @param phase the phase name
+	 * @return the event to pass to end
+	 */
+	public static MiningPhaseEvent begin(String phase) {
+		MiningPhaseEvent event = new MiningPhaseEvent();
+		event.phase = phase;
+		event.begin();
+		event.startNanos = System.nanoTime();
+		return event;
+	}
+
+	/** Ends a phase that has no count */
+	public static void end(MiningPhaseEvent event) {
+		end(event, 0, 0);
+	}
+
+	/** Ends a phase that handled count records, candidates or rules */
+	public static void end(MiningPhaseEvent event, long count) {
+		end(event, 0, count);
+	}
+
+	/**
+	 * Ends a phase and records its duration under its name, or under
+	 * name.level if the level is positive.
+	 * @param event the event returned by begin
+	 * @param level the T-tree level, 0 if none
+	 * @param count the records, candidates or rules handled
+	 */
+	public static void end(MiningPhaseEvent event, int level, long count) {
+		long nanos = System.nanoTime() - event.startNanos;
+		event.end();
+		timer(level > 0 ? event.phase + "." + level : event.phase).record(nanos);
+		if (event.shouldCommit()) {
+			event.level = level;
+			event.count = count;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Starts the classification of one record.
+	 * @param classifier the name of the classifier
+	 * @return the event to pass to endRecord
+	 */
+	public static ClassifyRecordEvent beginRecord(String classifier) {
+		ClassifyRecordEvent event = new ClassifyRecordEvent();
+		event.classifier = classifier;
+		event.begin();
+		event.startNanos = System.nanoTime();
+		return event;
+	}
+
+	/** Ends the classification of a record, recorded as classify.record */
+	public static void endRecord(ClassifyRecordEvent event, int predicted) {
+		long nanos = System.nanoTime() - event.startNanos;
+		event.end();
+		timer("classify.record").record(nanos);
+		if (event.shouldCommit()) {
+			event.predicted = predicted;
+			event.commit();
+		}
+	}
+
+	/** Adds delta to the named counter */
+	public static void count(String name, long delta) {
+		AtomicLong counter = counters.get(name);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null)
+				counter = created;
+		}
+		counter.addAndGet(delta);
+	}
+
+	/** @return the value of the named counter, 0 if never counted */
+	public static long getCount(String name) {
+		AtomicLong counter = counters.get(name);
+		return counter == null ? 0 : counter.get();
+	}
+
+	/** @return the number of times the named phase ended */
+	public static long getTimes(String name) {
+		Timer timer = timers.get(name);
+		return timer == null ? 0 : timer.count();
+	}
+
+	/** @return the total nanoseconds spent in the named phase */
+	public static long getNanos(String name) {
+		Timer timer = timers.get(name);
+		return timer == null ? 0 : timer.total();
+	}
+
+	/** Clears all timers and counters, e.g. between runs */
+	public static void reset() {
+		timers.clear();
+		counters.clear();
+		startMillis = System.currentTimeMillis();
+	}
+
+	private static Timer timer(String name) {
+		Timer timer = timers.get(name);
+		if (timer == null) {
+			Timer created = new Timer();
+			timer = timers.putIfAbsent(name, created);
+			if (timer == null)
+				timer = created;
+		}
+		return timer;
+	}
+
+	/**
+	 * Returns the current timers and counters as a JSON object, names sorted:
+	 * {"startMillis":..,"elapsedMillis":..,"timers":{"name":{"count":..,
+	 * "totalMillis":..,"minMicros":..,"maxMicros":..,"p50Micros":..,
+	 * "p99Micros":..}},"counters":{"name":..}}. The percentiles are the upper
+	 * bounds of power of two buckets.
+	 */
+	public static String toJson() {
+		long now = System.currentTimeMillis();
+		StringBuilder json = new StringBuilder();
+		json.append("{\"startMillis\":").append(startMillis);
+		json.append(",\"elapsedMillis\":").append(now - startMillis);
+		json.append(",\"timers\":{");
+		Iterator<Map.Entry<String, Timer>> t = new TreeMap<String, Timer>(timers).entrySet().iterator();
+		while (t.hasNext()) {
+			Map.Entry<String, Timer> entry = t.next();
+			json.append('"').append(entry.getKey()).append("\":");
+			entry.getValue().appendJson(json);
+			if (t.hasNext())
+				json.append(',');
+		}
+		json.append("},\"counters\":{");
+		Iterator<Map.Entry<String, AtomicLong>> c = new TreeMap<String, AtomicLong>(counters).entrySet().iterator();
+		while (c.hasNext()) {
+			Map.Entry<String, AtomicLong> entry = c.next();
+			json.append('"').append(entry.getKey()).append("\":").append(entry.getValue().get());
+			if (c.hasNext())
+				json.append(',');
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	/** Writes the snapshot to the given file */
+	public static void writeSnapshot(String fileName) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+		try {
+			writer.write(toJson());
+			writer.newLine();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the end of run snapshot to the file named by the cmar.metrics
+	 * system property or, if it is not set, to System.out as one line
+	 * starting with "METRICS ".
+	 */
+	public static void writeSnapshot() {
+		String fileName = System.getProperty(SNAPSHOT_PROPERTY);
+		if (fileName == null) {
+			System.out.println("METRICS " + toJson());
+			return;
+		}
+		try {
+			writeSnapshot(fileName);
+		} catch (IOException e) {
+			System.out.println("WARNING: unable to write metrics to " + fileName + ": " + e);
+		}
+	}
+
+	/** Count, total, min, max and a log2 histogram of durations */
+	private static class Timer {
+
+		private long count;
+		private long total;
+		private long min = Long.MAX_VALUE;
+		private long max;
+		/** bucket i holds durations below 2^i nanoseconds */
+		private final long[] buckets = new long[64];
+
+		synchronized void record(long nanos) {
+			if (nanos < 0)
+				nanos = 0;
+			count++;
+			total += nanos;
+			if (nanos < min)
+				min = nanos;
+			if (nanos > max)
+				max = nanos;
+			buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+		}
+
+		synchronized long count() {
+			return count;
+		}
+
+		synchronized long total() {
+			return total;
+		}
+
+		/** upper bound of the bucket holding the given fraction of durations */
+		private long percentile(double fraction) {
+			long rank = (long) Math.ceil(count * fraction);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank)
+					return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+			}
+			return max;
+		}
+
+		synchronized void appendJson(StringBuilder json) {
+			json.append("{\"count\":").append(count);
+			json.append(",\"totalMillis\":").append(total / 1000000.0);
+			json.append(",\"minMicros\":").append(count == 0 ? 0 : min / 1000);
+			json.append(",\"maxMicros\":").append(max / 1000);
+			json.append(",\"p50Micros\":").append(percentile(0.5) / 1000);
+			json.append(",\"p99Micros\":").append(percentile(0.99) / 1000);
+			json.append('}');
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one phase of the mining pipeline (input parse,
+ * ordering, P-tree, a T-tree level, CAR generation, cover pruning, ...).
+ * Created and ended through MiningMetrics, which records the same duration
+ * in its registry.
+ */
+@Name("mycmar.MiningPhase")
+@Label("Mining Phase")
+@Category({ "MyCMAR" })
+@Description("A phase of the CAR mining pipeline")
+public class MiningPhaseEvent extends jdk.jfr.Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Level")
+	@Description("T-tree level, 0 for phases that have no level")
+	int level;
+
+	@Label("Count")
+	@Description("Records, candidates or rules handled by the phase")
+	long count;
+
+	/** start of the phase for the registry, the event keeps its own */
+	transient long startNanos;
+}
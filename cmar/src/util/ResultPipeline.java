@@ -0,0 +1,119 @@
+package util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Collects experiment results from the worker threads and writes them to the
+ * sinks in batches from a single writer thread, so the workers never wait on
+ * a file or database and each sink is only used by one thread. A batch is
+ * written when batchSize results are waiting or, if fewer, as soon as the
+ * writer is idle.
+ */
+public class ResultPipeline {
+
+	public static final int DEFAULT_BATCH_SIZE = 32;
+
+	/** marks the end of the results */
+	private static final ExperimentResult END = new ExperimentResult("", "", "", "");
+
+	private final List<ResultSink> sinks = new ArrayList<ResultSink>();
+	private final BlockingQueue<ExperimentResult> queue = new LinkedBlockingQueue<ExperimentResult>();
+	private final int batchSize;
+	private final Thread writer;
+	private volatile IOException error;
+
+	public ResultPipeline() {
+		this(DEFAULT_BATCH_SIZE);
+	}
+
+	public ResultPipeline(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeAll();
+			}
+		}, "result-writer");
+		writer.setDaemon(true);
+	}
+
+	/** Adds a sink, before the first result is added */
+	public void addSink(ResultSink sink) {
+		if (writer.getState() != Thread.State.NEW)
+			throw new IllegalStateException("Pipeline already started");
+		sinks.add(sink);
+	}
+
+	/** Queues a result, called by any thread */
+	public void add(ExperimentResult result) {
+		start();
+		queue.add(result);
+	}
+
+	/**
+	 * Writes the queued results, closes the sinks and waits for the writer.
+	 * @throws IOException the first error of a sink
+	 */
+	public void close() throws IOException {
+		start();
+		queue.add(END);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (error != null)
+			throw error;
+	}
+
+	private synchronized void start() {
+		if (writer.getState() == Thread.State.NEW)
+			writer.start();
+	}
+
+	private void writeAll() {
+		List<ExperimentResult> batch = new ArrayList<ExperimentResult>(batchSize);
+		boolean end = false;
+		while (!end) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			if (batch.get(batch.size() - 1) == END) {
+				batch.remove(batch.size() - 1);
+				end = true;
+			}
+			if (!batch.isEmpty())
+				write(batch);
+			batch.clear();
+		}
+		for (int i = 0; i < sinks.size(); i++) {
+			try {
+				sinks.get(i).close();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void write(List<ExperimentResult> batch) {
+		for (int i = 0; i < sinks.size(); i++) {
+			try {
+				sinks.get(i).write(batch);
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		System.out.println("WARNING: unable to write results: " + e);
+		if (error == null)
+			error = e;
+	}
+}
@@ -0,0 +1,25 @@
+package util;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of experiment results. A sink is opened once per run, written
+ * in batches by a single writer (ResultPipeline) and closed at the end of
+ * the run.
+ */
+public interface ResultSink {
+
+	/**
+	 * Writes a batch of results.
+	 * @param batch the results, in the order they completed
+	 * @throws IOException if the results can't be written
+	 */
+	void write(List<ExperimentResult> batch) throws IOException;
+
+	/**
+	 * Writes anything still buffered and releases the file or connection.
+	 * @throws IOException if the results can't be written
+	 */
+	void close() throws IOException;
+}
@@ -1,13 +1,15 @@
 package util;
 
-import java.util.List;
+/**
+ * Support of a rule, the fraction of the records covered by the rule.
+ */
+public class Support extends Metric {
 
-public class Support extends Metric{
+	private static final long serialVersionUID = -2165384970129847325L;
 
 	@Override
-	public double calculation(List<?> param) {
-		// TODO Auto-generated method stub
-		return super.calculation(param);
+	public double eval(double supAB, double supA, double supB, double n) {
+		return supAB / n;
 	}
-    
+
 }
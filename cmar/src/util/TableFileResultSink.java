@@ -0,0 +1,54 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * File-backed stand-in for the results table of JdbcResultSink, used when no
+ * database is given. Every run appends its rows, each starting with the run
+ * id, to the same CSV file, so the file collects the results of all runs as
+ * the table does. The header is written when the file is created, and the
+ * file is opened once per run and flushed after every batch.
+ */
+public class TableFileResultSink implements ResultSink {
+
+	public static final String DEFAULT_FILE = "result/" + JdbcResultSink.DEFAULT_TABLE + ".csv";
+
+	private final BufferedWriter writer;
+	/** run id written with every row, the start time of the run */
+	private final long runId = System.currentTimeMillis();
+
+	public TableFileResultSink(String fileName) throws IOException {
+		File file = new File(fileName);
+		boolean isNew = !file.exists() || file.length() == 0;
+		writer = new BufferedWriter(new FileWriter(file, true));
+		if (isNew) {
+			writer.write("runId");
+			writeValues(ExperimentResult.COLUMNS);
+			writer.flush();
+		}
+	}
+
+	public void write(List<ExperimentResult> batch) throws IOException {
+		for (int i = 0; i < batch.size(); i++) {
+			writer.write(Long.toString(runId));
+			writeValues(batch.get(i).values());
+		}
+		writer.flush();
+	}
+
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void writeValues(String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			writer.write(',');
+			writer.write(CsvResultSink.quote(values[i]));
+		}
+		writer.newLine();
+	}
+}
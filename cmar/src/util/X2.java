@@ -1,13 +1,105 @@
 package util;
 
-import java.util.List;
+/**
+ * Chi-squared value of a rule A -> B from the 2x2 contingency table of A and
+ * B, as used by CMAR, together with its upper bound and the weighted
+ * chi-squared term of the CMAR classifier.
+ */
+public class X2 extends Metric {
 
-public class X2 extends Metric{
+	private static final long serialVersionUID = 2783404955126385719L;
 
 	@Override
-	public double calculation(List<?> param) {
-		// TODO Auto-generated method stub
-		return super.calculation(param);
+	public double eval(double supAB, double supA, double supB, double n) {
+		double supNotA = n - supA;
+		double supNotB = n - supB;
+		return term(supAB, (supB * supA) / n) + term(supA - supAB, (supNotB * supA) / n)
+				+ term(supB - supAB, (supB * supNotA) / n) + term(n - supA - supB + supAB, (supNotB * supNotA) / n);
 	}
-	
+
+	/**
+	 * Evaluates the cells of the records containing B in a 2xk contingency
+	 * table of A and the k values B can be one of (e.g. the classes). The sum
+	 * over the values is the chi-squared value of the table.
+	 * @param supAB the support of A and B
+	 * @param supA the support of A
+	 * @param supB the support of B
+	 * @param n the number of records
+	 * @return the chi-squared terms of the cells (A, B) and (not A, B)
+	 */
+	public double evalCells(double supAB, double supA, double supB, double n) {
+		return term(supAB, supB * supA / n) + term(supB - supAB, supB * (n - supA) / n);
+	}
+
+	/**
+	 * Calculates the upper bound of the chi-squared value of the rules with
+	 * the given antecedent and consequent supports.
+	 * @param supA the support of the antecedent
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @return the upper bound
+	 */
+	public double upperBound(double supA, double supB, double n) {
+		double d = Math.min(supA, supB) - (supA * supB) / n;
+		double e = 1 / (supA * supB) + 1 / (supA * (n - supB)) + 1 / (supB * (n - supA))
+				+ 1 / ((n - supA) * (n - supB));
+		return d * d * e * n;
+	}
+
+	/**
+	 * Calculates an upper bound of the chi-squared value of the rules A' -> B
+	 * for every A' containing A (A included) with at least the given support.
+	 * The records covering A' and B are a subset of those covering A and B,
+	 * the others of those covering A but not B, so (supA', supA'B) lies in the
+	 * parallelogram minSupAB <= supA'B <= supAB, 0 <= supA' - supA'B <= supA -
+	 * supAB. The chi-squared value being convex in (supA', supA'B) its maximum
+	 * is at one of the corners (Morishita and Sese, 2000).
+	 * @param supAB the support of the rule A -> B
+	 * @param supA the support of A
+	 * @param supB the support of B
+	 * @param n the number of records
+	 * @param minSupAB the minimum support of a rule
+	 * @return the upper bound, NaN if a corner has no chi-squared value
+	 */
+	public double supersetUpperBound(double supAB, double supA, double supB, double n, double minSupAB) {
+		double bound = eval(supAB, supA, supB, n);
+		bound = Math.max(bound, eval(supAB, supAB, supB, n));
+		bound = Math.max(bound, eval(minSupAB, minSupAB, supB, n));
+		bound = Math.max(bound, eval(minSupAB, minSupAB + supA - supAB, supB, n));
+		return bound;
+	}
+
+	/**
+	 * Calculates the weighted chi-squared value of a rule, its squared
+	 * chi-squared value divided by the upper bound, as summed over a rule
+	 * group by the CMAR classifier.
+	 * @param supAB the support of the rule
+	 * @param supA the support of the antecedent
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @return the weighted chi-squared value
+	 */
+	public double weighted(double supAB, double supA, double supB, double n) {
+		return weightedX2(eval(supAB, supA, supB, n), supA, supB, n);
+	}
+
+	/**
+	 * Calculates the weighted chi-squared value of a rule of which the
+	 * chi-squared value is known.
+	 * @param x2 the chi-squared value of the rule
+	 * @param supA the support of the antecedent
+	 * @param supB the support of the consequent
+	 * @param n the number of records
+	 * @return the weighted chi-squared value
+	 */
+	public double weightedX2(double x2, double supA, double supB, double n) {
+		return (x2 * x2) / upperBound(supA, supB, n);
+	}
+
+	/** @return the chi-squared term (O - E)^2 / E of a cell */
+	private static double term(double observed, double expected) {
+		double d = observed - expected;
+		return d * d / expected;
+	}
+
 }
@@ -0,0 +1,67 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import jxl.Workbook;
+import jxl.write.Label;
+import jxl.write.Number;
+import jxl.write.WritableSheet;
+import jxl.write.WritableWorkbook;
+import jxl.write.WriteException;
+
+/**
+ * Writes results to an XLS workbook with jxl. The workbook is created once,
+ * cells are added as batches arrive and the file is written once on close,
+ * instead of reopening and rewriting the workbook for every cell as
+ * LogProcess.writeDatasetToExcell does.
+ */
+public class XlsResultSink implements ResultSink {
+
+	/** first numeric column, the ones before it are text */
+	private static final int FIRST_NUMBER = 3;
+
+	private final WritableWorkbook book;
+	private final WritableSheet sheet;
+	private int row = 0;
+
+	public XlsResultSink(String fileName) throws IOException {
+		book = Workbook.createWorkbook(new File(fileName));
+		sheet = book.createSheet("log", 0);
+		try {
+			for (int col = 0; col < ExperimentResult.COLUMNS.length; col++) {
+				sheet.addCell(new Label(col, row, ExperimentResult.COLUMNS[col]));
+			}
+		} catch (WriteException e) {
+			throw new IOException(e.toString());
+		}
+		row++;
+	}
+
+	public void write(List<ExperimentResult> batch) throws IOException {
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				String[] values = batch.get(i).values();
+				for (int col = 0; col < values.length; col++) {
+					if (col >= FIRST_NUMBER && col < values.length - 1 && !batch.get(i).failed())
+						sheet.addCell(new Number(col, row, Double.parseDouble(values[col])));
+					else
+						sheet.addCell(new Label(col, row, values[col]));
+				}
+				row++;
+			}
+		} catch (WriteException e) {
+			throw new IOException(e.toString());
+		}
+	}
+
+	public void close() throws IOException {
+		book.write();
+		try {
+			book.close();
+		} catch (WriteException e) {
+			throw new IOException(e.toString());
+		}
+	}
+}